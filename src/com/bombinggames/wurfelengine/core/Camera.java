@@ -42,16 +42,15 @@ import com.bombinggames.wurfelengine.WE;
 import com.bombinggames.wurfelengine.core.gameobjects.AbstractEntity;
 import com.bombinggames.wurfelengine.core.gameobjects.AbstractGameObject;
 import com.bombinggames.wurfelengine.core.gameobjects.Renderable;
+import com.bombinggames.wurfelengine.core.lightengine.GlobalLightSource;
+import com.bombinggames.wurfelengine.core.lightengine.LightEngine;
 import com.bombinggames.wurfelengine.core.map.Chunk;
-import com.bombinggames.wurfelengine.core.map.Iterators.CoveredByCameraIterator;
 import com.bombinggames.wurfelengine.core.map.Map;
 import com.bombinggames.wurfelengine.core.map.Point;
 import com.bombinggames.wurfelengine.core.map.Position;
 import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
-import com.bombinggames.wurfelengine.core.map.rendering.RenderChunk;
 import com.bombinggames.wurfelengine.core.map.rendering.SideSprite;
 import java.util.ArrayList;
-import java.util.LinkedList;
 
 /**
  * Creates a virtual camera wich displays the game world on the viewport. A camer acan be locked to an entity.
@@ -116,19 +115,18 @@ public class Camera {
 	 * true if camera is currently rendering
 	 */
 	private boolean active = false;
-	private final LinkedList<Renderable> depthlist = new LinkedList<>();
+	private final ArrayList<Renderable> depthlist = new ArrayList<>(3000);
 	/**
-	 * amount of objects to be rendered, used as an index during filling
+	 * amount of depth sorted objects to be rendered
 	 */
 	private int objectsToBeRendered = 0;
 	private int renderResWidth;
 	private int maxsprites;
 	private final Point center = new Point(0, 0, 0);
-	private final ArrayList<RenderCell> modifiedCells = new ArrayList<>(30);
 	/**
-	 * is rendered at the end
+	 * light colors sent to the shader, reused every frame
 	 */
-	private final LinkedList<AbstractEntity> renderAppendix = new LinkedList<>();
+	private final Color sunColor = new Color(), moonColor = new Color(), ambientColor = new Color();
 	/**
 	 * The radius which is used for loading the chunks around the center. May be reduced after the first time to a smaller value.
 	 */
@@ -404,6 +402,14 @@ public class Camera {
 	 * checks which chunks must be loaded around the center
 	 */
 	private void checkNeededChunks() {
+		//keep the chunks around the camera in memory
+		Map chunkMap = Controller.getMap();
+		for (int x = -2; x <= 2; x++) {
+			for (int y = -2; y <= 2; y++) {
+				chunkMap.markChunkNeeded(centerChunkX + x, centerChunkY + y);
+			}
+		}
+		
 		//check every chunk
 		if (centerChunkX == 0 && centerChunkY == 0 || WE.getCVars().getValueB("mapChunkSwitch")) {
 			for (int x = -loadingRadius; x <= loadingRadius; x++) {
@@ -464,26 +470,22 @@ public class Camera {
 			view.getSpriteBatch().begin();
 			//send a Vector4f to GLSL
 			if (WE.getCVars().getValueB("enablelightengine")) {
-				view.getShader().setUniformf(
-					"sunNormal",
-					Controller.getLightEngine().getSun(getCenter()).getNormal()
-				);
-				view.getShader().setUniformf(
-					"sunColor",
-					Controller.getLightEngine().getSun(getCenter()).getLight()
-				);
+				LightEngine lightEngine = Controller.getLightEngine();
+				Point pos = getCenter();
+				GlobalLightSource sun = lightEngine.getSun(pos);
+				view.getShader().setUniformf("sunNormal", sun.getNormal());
+				view.getShader().setUniformf("sunColor", sun.getLight(sunColor));
 				
+				GlobalLightSource moon = lightEngine.getMoon(pos);
 				Vector3 moonNormal;
-				Color moonColor;
-				Color ambientColor;
-				if (Controller.getLightEngine().getMoon(getCenter()) == null) {
-					moonNormal = new Vector3();
-					moonColor = new Color();
-					ambientColor = new Color();
+				if (moon == null) {
+					moonNormal = Vector3.Zero;
+					moonColor.set(0, 0, 0, 0);
+					ambientColor.set(0, 0, 0, 0);
 				} else {
-					moonNormal = Controller.getLightEngine().getMoon(getCenter()).getNormal();
-					moonColor = Controller.getLightEngine().getMoon(getCenter()).getLight();
-					ambientColor = Controller.getLightEngine().getAmbient(getCenter());
+					moonNormal = moon.getNormal();
+					moon.getLight(moonColor);
+					lightEngine.getAmbient(pos, ambientColor);
 				}
 				view.getShader().setUniformf("moonNormal", moonNormal);
 				view.getShader().setUniformf("moonColor", moonColor);
@@ -491,7 +493,7 @@ public class Camera {
 			}
 
 			//bind normal map to texture unit 1
-			if (WE.getCVars().getValueB("LEnormalMapRendering")) {
+			if (Controller.getFrameGovernor().isNormalMapRendering()) {
 				AbstractGameObject.getTextureNormal().bind(1);
 			}
 
@@ -528,119 +530,38 @@ public class Camera {
 	}
 
 	/**
-	 * Fills the cameracontent plus entities into a list and sorts it in the order of the rendering,
-	 * called the "depthlist". This is done every frame.
+	 * Takes the objects visible by this camera from the depth sorted list which
+	 * is shared by every camera, called the "depthlist". This is done every
+	 * frame.
 	 *
-	 * @return the depthlist
+	 * @see SharedDepthList
 	 */
 	private void createDepthList() {
 		depthlist.clear();
-		maxsprites = WE.getCVars().getValueI("MaxSprites");
-
-		//inverse dirty flag
-		AbstractGameObject.inverseMarkedFlag(id);
-		
-		//add entitys which should be rendered
-		ArrayList<AbstractEntity> ents = Controller.getMap().getEntities();
-				
-		//add entities by inserting them into the render store
-		ArrayList<RenderCell> modifiedCells = this.modifiedCells;
-		modifiedCells.clear();
-		modifiedCells.ensureCapacity(ents.size());
-		LinkedList<AbstractEntity> renderAppendix = this.renderAppendix;
-		renderAppendix.clear();
-		
-		//this should be made parallel via streams //ents.stream().parallel().forEach(action);?
-		for (AbstractEntity ent : ents) {
-			if (ent.hasPosition()
-				&& !ent.isHidden()
-				&& inViewFrustum(ent.getPosition())
-				&& ent.getPosition().getZ() < gameView.getRenderStorage().getZRenderingLimit()
-			) {
-				RenderCell cellAbove = gameView.getRenderStorage().getCell(ent.getPosition().add(0, 0, RenderCell.GAME_EDGELENGTH));//add in cell above
-				ent.getPosition().add(0, 0, -RenderCell.GAME_EDGELENGTH);//reverse change from line above
-				if (cellAbove == RenderChunk.NULLPOINTEROBJECT) {
-					renderAppendix.add(ent);//render at the end
-				} else {
-					cellAbove.addCoveredEnts(ent);//cell covers entities inside
-					modifiedCells.add(cellAbove);
-				}
-			}
-		}
-		
-		//iterate over every block in renderstorage
-		objectsToBeRendered = 0;
-		CoveredByCameraIterator iterator = new CoveredByCameraIterator(
-			gameView.getRenderStorage(),
-			centerChunkX,
-			centerChunkY,
-			0,
-			(int) (gameView.getRenderStorage().getZRenderingLimit()/RenderCell.GAME_EDGELENGTH)
-		);
-		//check/visit every visible cell
-		while (iterator.hasNext()) {
-			RenderCell cell = iterator.next();
-
-			if (cell != RenderChunk.NULLPOINTEROBJECT && inViewFrustum(cell.getPosition())) {
-				visit(cell);
-			}
-		}
-		//remove ents from modified blocks
-		for (RenderCell modifiedCell : modifiedCells) {
-			modifiedCell.clearCoveredEnts();
-		}
-		
-		//sort by depth
-		renderAppendix.sort((AbstractGameObject o1, AbstractGameObject o2) -> {
-			float d1 = o1.getDepth();
-			float d2 = o2.getDepth();
-			if (d1 > d2) {
-				return 1;
-			} else {
-				if (d1 == d2) {
-					return 0;
-				}
-				return -1;
-			}
-		});
-		depthlist.addAll(renderAppendix);//render every entity which has no parent block at the end of the list
+		maxsprites = Controller.getFrameGovernor().getMaxSprites();
+		SharedDepthList shared = gameView.getSharedDepthList();
+		shared.update(this);
+		objectsToBeRendered = shared.slice(this, depthlist, maxsprites);
 	}
-	
+
 	/**
-	 * topological sort
-	 * @param o root node
+	 * checks if the projected position is inside the viewMat Frustum
+	 *
+	 * @param pos
+	 * @return
 	 */
-	private void visit(AbstractGameObject o) {
-		if (!o.isMarkedDS(id)) {
-			LinkedList<AbstractGameObject> covered = o.getCovered(gameView.getRenderStorage());
-			o.markPermanentDS(id);
-			if (!covered.isEmpty()) {
-				for (AbstractGameObject m : covered) {
-					if (inViewFrustum(m.getPosition())) {
-						visit(m);
-					}
-				}
-			}
-			if (
-				o.shouldBeRendered(this)
-				&& o.getPosition().getZPoint() < gameView.getRenderStorage().getZRenderingLimit()
-				&& objectsToBeRendered < maxsprites
-			) {
-				//fill only up to available size
-				depthlist.add(o);
-				objectsToBeRendered++;
-			}
-		}
+	public boolean inViewFrustum(Position pos){
+		return inViewFrustum(pos.getViewSpcX(), pos.getViewSpcY());
 	}
 
 	/**
 	 * checks if the projected position is inside the viewMat Frustum
 	 *
-	 * @param pos
+	 * @param vspX view space x
+	 * @param vspY view space y
 	 * @return
 	 */
-	public boolean inViewFrustum(Position pos){
-		int vspY = pos.getViewSpcY();
+	public boolean inViewFrustum(int vspX, int vspY){
 		if (!(
 				(position.y + (heightProj>>1))//fast division by two
 				>
@@ -651,7 +572,7 @@ public class Camera {
 				position.y - (heightProj>>1))//fast division by two
 		)
 			return false;
-		int dist = (int) (pos.getViewSpcX()-position.x); //left side of sprite
+		int dist = (int) (vspX-position.x); //left side of sprite
 		//left and right check in one clause by using distance via squaring
 		return dist * dist < ( (widthProj >> 1) + RenderCell.VIEW_WIDTH2) * ((widthProj >> 1) + RenderCell.VIEW_WIDTH2);
 	}
@@ -993,6 +914,14 @@ public class Camera {
 		}
 	}
 	
+	/**
+	 *
+	 * @return the entity the camera follows, can be null
+	 */
+	public AbstractEntity getFocusEntity() {
+		return focusEntity;
+	}
+
 	/**
 	 * enable or disable the camera
 	 *
@@ -56,20 +56,56 @@ public class Controller implements GameManager {
 
 	private static LightEngine lightEngine;
 	private static Map map;
+	private static final SimulationClock simulationClock = new SimulationClock();
+	private static final FrameGovernor frameGovernor = new FrameGovernor();
 
 	/**
 	 * update every static update method
 	 *
-	 * @param dt
+	 * @param dt real time of a simulation step in ms. The game speed is
+	 * applied here.
 	 */
 	public static void staticUpdate(float dt) {
 		if (lightEngine != null) {
-			lightEngine.update(dt);
+			lightEngine.update(dt * WE.getCVars().getValueF("timespeed"));
 		}
 		map.update(dt);
 		map.modificationCheck();
 	}
 
+	/**
+	 * Advances the simulation in fixed steps. Called once per frame by the
+	 * {@link GameplayScreen}, so the simulation only runs while the game is
+	 * rendered.
+	 *
+	 * @param delta real time since the last call in ms
+	 * @return amount of simulated steps
+	 * @see SimulationClock
+	 */
+	public static int simulate(float delta) {
+		int steps = simulationClock.advance(delta);
+		for (int i = 0; i < steps; i++) {
+			staticUpdate(simulationClock.getStep());
+		}
+		return steps;
+	}
+
+	/**
+	 *
+	 * @return the clock of the simulation steps
+	 */
+	public static SimulationClock getSimulationClock() {
+		return simulationClock;
+	}
+
+	/**
+	 *
+	 * @return the governor which adapts the render quality to the frame time
+	 */
+	public static FrameGovernor getFrameGovernor() {
+		return frameGovernor;
+	}
+
 	/**
 	 * Tries loading a new map instance.
 	 *
@@ -151,39 +187,55 @@ public class Controller implements GameManager {
 	private String mapName = "default";
 	private final Cursor cursor = new Cursor();
 	private ArrayList<AbstractEntity> selectedEntities = new ArrayList<>(4);
+	/**
+	 * ring buffer of the executed commands
+	 */
 	private final Command[] commandHistory = new Command[WE.getCVars().getValueI("undohistorySize")];
-	private int lastCommandPos = -1;
+	/**
+	 * index of the oldest command in the ring buffer
+	 */
+	private int historyStart;
+	/**
+	 * amount of commands which can be undone
+	 */
+	private int historyUndoable;
+	/**
+	 * amount of stored commands including the ones which can be redone
+	 */
+	private int historySize;
 
 	/**
-	 * Executes the command and saves it for possible undo/redo.
+	 * Executes the command and saves it for possible undo/redo. If the history
+	 * is full the oldest command is dropped.
 	 * @param cmd
 	 */
 	public void executeCommand(Command cmd){
-		//shift commands back if full
-		if (lastCommandPos >= commandHistory.length - 1) {
-			for (int i = 0; i < commandHistory.length - 1; i++) {
-				commandHistory[i] = commandHistory[i + 1];
+		if (commandHistory.length > 0) {
+			//drop the oldest if full
+			if (historyUndoable == commandHistory.length) {
+				commandHistory[historyStart] = null;
+				historyStart = (historyStart + 1) % commandHistory.length;
+				historyUndoable--;
 			}
-		} else {
-			lastCommandPos++;
+			//empty in front
+			for (int i = historyUndoable; i < historySize; i++) {
+				commandHistory[(historyStart + i) % commandHistory.length] = null;
+			}
+			commandHistory[(historyStart + historyUndoable) % commandHistory.length] = cmd;
+			historyUndoable++;
+			historySize = historyUndoable;
 		}
 
-		commandHistory[lastCommandPos] = cmd;
-
-		commandHistory[lastCommandPos].execute();
-		//empty in front
-		for (int i = lastCommandPos + 1; i < commandHistory.length; i++) {
-			commandHistory[i] = null;
-		}
+		cmd.execute();
 	}
 	
 	/**
 	 *
 	 */
 	public void undoCommand() {
-		if (lastCommandPos >= 0 && lastCommandPos <= commandHistory.length - 1) {
-			commandHistory[lastCommandPos].undo();
-			lastCommandPos--;
+		if (historyUndoable > 0) {
+			historyUndoable--;
+			commandHistory[(historyStart + historyUndoable) % commandHistory.length].undo();
 		}
 	}
 
@@ -191,9 +243,9 @@ public class Controller implements GameManager {
 	 *
 	 */
 	public void redoCommand() {
-		if (lastCommandPos >= -1 && lastCommandPos < commandHistory.length - 1 && commandHistory[lastCommandPos + 1] != null) {
-			lastCommandPos++;
-			commandHistory[lastCommandPos].execute();
+		if (historyUndoable < historySize) {
+			commandHistory[(historyStart + historyUndoable) % commandHistory.length].execute();
+			historyUndoable++;
 		}
 	}
 	
@@ -35,6 +35,7 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.bombinggames.wurfelengine.core.gameobjects.AbstractGameObject;
+import com.bombinggames.wurfelengine.core.map.Map;
 import com.bombinggames.wurfelengine.mapeditor.EditorView;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
@@ -109,6 +110,25 @@ public class DevTools {
             //draw FPS-String
             view.drawString("FPS: "+ Gdx.graphics.getFramesPerSecond(), 15, 15,true);
             view.drawString("Drawcalls: "+ AbstractGameObject.getDrawCalls(), 15, 30,true);
+			Map map = Controller.getMap();
+			if (map != null) {
+				view.drawString(
+					"Chunks: " + map.getLoadedChunks().size() + "/" + map.getMaxChunks()
+					+ " (" + map.getChunkMemoryUse() / 1024 + " KB), evicted: " + map.getEvictedChunks()
+					+ " (saved " + map.getEvictedChunksSaved() + ")",
+					15, 45, true
+				);
+			}
+			FrameGovernor governor = Controller.getFrameGovernor();
+			view.drawString(
+				"Quality level: " + governor.getLevel() + "/" + FrameGovernor.MAXLEVEL
+				+ ", p: " + new DecimalFormat("#.#").format(governor.getPercentile()) + " ms"
+				+ ", changes: " + governor.getChanges(),
+				15, 60, true
+			);
+			for (int i = 0; i < governor.getLogCount(); i++) {
+				view.drawString(governor.getLog(i), 15, 75 + i * 15, true);
+			}
             
             //draw diagramm
             ShapeRenderer shr = view.getShapeRenderer();
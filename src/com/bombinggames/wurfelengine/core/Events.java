@@ -111,7 +111,13 @@ public enum Events {
 	/**
 	 * if a cell is changed
 	 */
-	cellChanged(25);
+	cellChanged(25),
+
+	/**
+	 * sent once after area damage was applied. extra info contains the
+	 * {@link com.bombinggames.wurfelengine.core.map.AreaDamage} with the destroyed cells
+	 */
+	areaDamaged(26);
 	
 	private final int id;
 
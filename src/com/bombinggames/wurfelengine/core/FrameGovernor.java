@@ -0,0 +1,269 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core;
+
+import com.badlogic.gdx.Gdx;
+import com.bombinggames.wurfelengine.WE;
+import java.util.Arrays;
+
+/**
+ * Holds a target frame time by stepping the render quality down and up. The
+ * time of the last frames is kept in a ring buffer and a percentile of it
+ * (cvar "governorPercentile") is compared with the target (cvar
+ * "governorTarget"). If it is above the target by the hysteresis the quality
+ * level is increased, if it is well below the level is decreased. After a
+ * change the window is cleared and no other change is made for
+ * "governorCooldown" ms, so that the effect of a step is measured before the
+ * next one.<br>
+ * The governor never writes the cvars. It only lowers them: the effective
+ * values are read via the getters of this class and are never higher than the
+ * setting of the user. Level 0 means the settings of the user.
+ *
+ * @author Benedikt Vogler
+ * @see Controller#getFrameGovernor()
+ */
+public class FrameGovernor {
+
+	/**
+	 * amount of frames in the window
+	 */
+	private static final int WINDOW = 60;
+	/**
+	 * the percentile must be this much above the target to degrade
+	 */
+	private static final float DEGRADE = 1.1f;
+	/**
+	 * the percentile must be below this part of the target to upgrade
+	 */
+	private static final float UPGRADE = 0.75f;
+	/**
+	 * maximum amount of chunk shadows computed per frame for every level,
+	 * -1 uses the cvar
+	 */
+	private static final int[] SHADOWCHUNKS = {-1, 1, 1, 1, 1, 0, 0};
+	/**
+	 * chunks baked per frame ahead of time for every level
+	 */
+	private static final int[] PREFETCHBAKES = {1, 0, 0, 0, 0, 0, 0};
+	/**
+	 * factor of the radius of point lights for every level
+	 */
+	private static final float[] LIGHTRADIUS = {1, 1, 0.75f, 0.75f, 0.5f, 0.5f, 0.5f};
+	/**
+	 * normal maps for every level if enabled by the user
+	 */
+	private static final boolean[] NORMALMAPS = {true, true, true, false, false, false, false};
+	/**
+	 * factor of the cvar "MaxSprites" for every level
+	 */
+	private static final float[] MAXSPRITES = {1, 1, 1, 1, 0.75f, 0.5f, 0.35f};
+	/**
+	 * highest level
+	 */
+	public static final int MAXLEVEL = SHADOWCHUNKS.length - 1;
+	/**
+	 * amount of kept log lines
+	 */
+	private static final int LOGSIZE = 4;
+
+	private final float[] samples = new float[WINDOW];
+	private final float[] sorted = new float[WINDOW];
+	private int sampleCount;
+	private int field;
+	private float percentile;
+	/**
+	 * time in ms until the next change is allowed
+	 */
+	private float cooldown;
+	private int level;
+	private int changes;
+	private final String[] log = new String[LOGSIZE];
+	private int logCount;
+
+	/**
+	 * Adds the time of a frame and changes the level if needed. The work time
+	 * does not contain the time waited for vsync so it shows the headroom. If
+	 * the frame was late the real time is used instead, because then the
+	 * work of the GPU which is not measured by the work time is visible.
+	 *
+	 * @param workTime time in ms the frame took to update and render
+	 * @param delta real time since the last frame in ms
+	 */
+	public void update(float workTime, float delta) {
+		if (!WE.getCVars().getValueB("governorEnabled")) {
+			if (level != 0) {
+				setLevel(0, "disabled");
+			}
+			return;
+		}
+		float target = WE.getCVars().getValueF("governorTarget");
+		float sample = delta > target * DEGRADE ? Math.max(delta, workTime) : workTime;
+		field = (field + 1) % WINDOW;
+		samples[field] = sample;
+		if (sampleCount < WINDOW) {
+			sampleCount++;
+		}
+
+		if (cooldown > 0) {
+			cooldown -= delta;
+			return;
+		}
+		if (sampleCount < WINDOW) {
+			return;
+		}
+
+		System.arraycopy(samples, 0, sorted, 0, WINDOW);
+		Arrays.sort(sorted);
+		float p = Math.max(0, Math.min(1, WE.getCVars().getValueF("governorPercentile")));
+		percentile = sorted[Math.min(WINDOW - 1, (int) (p * WINDOW))];
+
+		if (percentile > target * DEGRADE && level < MAXLEVEL) {
+			setLevel(level + 1, "p=" + format(percentile) + " ms > " + format(target * DEGRADE) + " ms");
+		} else if (percentile < target * UPGRADE && level > 0) {
+			setLevel(level - 1, "p=" + format(percentile) + " ms < " + format(target * UPGRADE) + " ms");
+		}
+	}
+
+	/**
+	 * Sets the quality level and starts the cooldown.
+	 *
+	 * @param level 0 is the setting of the user, {@link #MAXLEVEL} is the
+	 * lowest quality
+	 * @param reason shown in the log
+	 */
+	public void setLevel(int level, String reason) {
+		level = Math.max(0, Math.min(MAXLEVEL, level));
+		if (level == this.level) {
+			return;
+		}
+		String message = "quality level " + this.level + " -> " + level + " (" + reason + ")";
+		this.level = level;
+		changes++;
+		cooldown = WE.getCVars().getValueF("governorCooldown");
+		sampleCount = 0;
+		Gdx.app.log("FrameGovernor", message);
+		System.arraycopy(log, 0, log, 1, LOGSIZE - 1);
+		log[0] = message;
+		if (logCount < LOGSIZE) {
+			logCount++;
+		}
+	}
+
+	private static String format(float ms) {
+		return Float.toString(Math.round(ms * 10) / 10f);
+	}
+
+	/**
+	 *
+	 * @return 0 is the setting of the user, {@link #MAXLEVEL} is the lowest
+	 * quality
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 *
+	 * @return the percentile of the frame time in ms at the last check
+	 */
+	public float getPercentile() {
+		return percentile;
+	}
+
+	/**
+	 *
+	 * @return amount of level changes since creation
+	 */
+	public int getChanges() {
+		return changes;
+	}
+
+	/**
+	 *
+	 * @return amount of kept log lines
+	 */
+	public int getLogCount() {
+		return logCount;
+	}
+
+	/**
+	 *
+	 * @param i 0 is the newest line
+	 * @return a logged change
+	 */
+	public String getLog(int i) {
+		return log[i];
+	}
+
+	/**
+	 *
+	 * @return the maximum amount of sprites which are rendered
+	 */
+	public int getMaxSprites() {
+		return (int) (WE.getCVars().getValueI("MaxSprites") * MAXSPRITES[level]);
+	}
+
+	/**
+	 *
+	 * @return true if normal maps should be used
+	 */
+	public boolean isNormalMapRendering() {
+		return NORMALMAPS[level] && WE.getCVars().getValueB("LEnormalMapRendering");
+	}
+
+	/**
+	 *
+	 * @return factor of the radius of point lights
+	 */
+	public float getLightRadiusScale() {
+		return LIGHTRADIUS[level];
+	}
+
+	/**
+	 *
+	 * @return maximum amount of chunks where the shadows are computed in a
+	 * frame
+	 */
+	public int getShadowChunksPerFrame() {
+		int cvar = WE.getCVars().getValueI("LEShadowChunksPerFrame");
+		if (SHADOWCHUNKS[level] < 0) {
+			return cvar;
+		}
+		return Math.min(cvar, SHADOWCHUNKS[level]);
+	}
+
+	/**
+	 *
+	 * @return maximum amount of chunks which are baked in a frame before a
+	 * camera needs them
+	 */
+	public int getPrefetchBakesPerFrame() {
+		return PREFETCHBAKES[level];
+	}
+}
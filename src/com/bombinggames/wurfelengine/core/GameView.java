@@ -41,12 +41,10 @@ import com.badlogic.gdx.graphics.glutils.HdpiUtils;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.math.Matrix4;
-import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.utils.viewport.StretchViewport;
 import com.bombinggames.wurfelengine.WE;
 import com.bombinggames.wurfelengine.core.gameobjects.AbstractGameObject;
-import com.bombinggames.wurfelengine.core.map.Chunk;
 import com.bombinggames.wurfelengine.core.map.Intersection;
 import com.bombinggames.wurfelengine.core.map.LoadMenu;
 import com.bombinggames.wurfelengine.core.map.Point;
@@ -91,13 +89,24 @@ public class GameView implements GameManager {
 	 * the cameras rendering the scene
 	 */
     private final ArrayList<Camera> cameras = new ArrayList<>(6);//max 6 cameras
+	/**
+	 * depth sorting done once for every camera
+	 */
+	private final SharedDepthList sharedDepthList = new SharedDepthList(this);
+	/**
+	 * finds the objects on the screen
+	 */
+	private final PickingService picking = new PickingService(this);
     
 	/**
 	 * true if current rendering is debug only
 	 */
 	private boolean inDebug;
 	
-    private ShaderProgram shader;
+	/**
+	 * the compiled shaders, the second one uses normal maps
+	 */
+	private final ShaderProgram[] shaders = new ShaderProgram[2];
     private ShapeRenderer shRenderer;
     
     private Controller controller;
@@ -168,17 +177,22 @@ public class GameView implements GameManager {
 
 		renderstorage = new RenderStorage();
 		MessageManager.getInstance().addListener(renderstorage, Events.mapChanged.getId());
+		MessageManager.getInstance().addListener(renderstorage, Events.chunkChanged.getId());
 		initalized = true;
 	}
 	
 	
 	/**
-	 * Get the loaded shader program of the view.
+	 * Get the loaded shader program of the view. Uses the normal map variant
+	 * if the frame governor allows normal maps.
 	 *
 	 * @return
 	 */
 	public ShaderProgram getShader() {
-		return shader;
+		if (Controller.getFrameGovernor().isNormalMapRendering() && shaders[1] != null) {
+			return shaders[1];
+		}
+		return shaders[0];
 	}
 	
 	/**
@@ -199,41 +213,50 @@ public class GameView implements GameManager {
 	}
 
 	/**
-	 * reloads the shaders
+	 * reloads the shaders. Both variants are compiled so that the frame
+	 * governor can switch the normal maps without compiling during a frame. A
+	 * variant which fails to compile keeps its previous program.
 	 * @throws java.lang.Exception
 	 */
 	public void loadShaders() throws Exception {
 		Gdx.app.debug("Shader", "loading");
-		//shaders are very fast to load and the asset loader does not support text files out of the box
-		String fragmentShader = Gdx.files.internal(
-			"com/bombinggames/wurfelengine/core/fragment"
-			+ (WE.getCVars().getValueB("LEnormalMapRendering") ? "NM" : "")
-			+ ".fs"
-		).readString();
-		String vertexShader = Gdx.files.internal(
-			"com/bombinggames/wurfelengine/core/vertex"
-			+ (WE.getCVars().getValueB("LEnormalMapRendering") ? "NM" : "")
-			+ ".vs"
-		).readString();
 		//Setup shader
 		ShaderProgram.pedantic = false;
-
-		ShaderProgram newshader = new ShaderProgram(vertexShader, fragmentShader);
-		if (newshader.isCompiled()) {
-			shader = newshader;
-			
-			//print any warnings
-			if (shader.getLog().length() != 0) {
-				System.out.println(shader.getLog());
+		String error = null;
+		for (int i = 0; i < shaders.length; i++) {
+			String suffix = i == 1 ? "NM" : "";
+			//shaders are very fast to load and the asset loader does not support text files out of the box
+			String fragmentShader = Gdx.files.internal(
+				"com/bombinggames/wurfelengine/core/fragment" + suffix + ".fs"
+			).readString();
+			String vertexShader = Gdx.files.internal(
+				"com/bombinggames/wurfelengine/core/vertex" + suffix + ".vs"
+			).readString();
+
+			ShaderProgram newshader = new ShaderProgram(vertexShader, fragmentShader);
+			if (newshader.isCompiled()) {
+				//print any warnings
+				if (newshader.getLog().length() != 0) {
+					System.out.println(newshader.getLog());
+				}
+
+				//setup default uniforms
+				newshader.begin();
+				//our normal map
+				newshader.setUniformi("u_normals", 1); //GL_TEXTURE1
+				newshader.end();
+
+				if (shaders[i] != null) {
+					shaders[i].dispose();
+				}
+				shaders[i] = newshader;
+			} else {
+				error = newshader.getLog();
+				newshader.dispose();
 			}
-
-			//setup default uniforms
-			shader.begin();
-			//our normal map
-			shader.setUniformi("u_normals", 1); //GL_TEXTURE1
-			shader.end();
-		} else {
-			throw new Exception("Could not compile shader: " + newshader.getLog());
+		}
+		if (error != null) {
+			throw new Exception("Could not compile shader: " + error);
 		}
 	}
 
@@ -322,6 +345,22 @@ public class GameView implements GameManager {
 		return renderstorage;
 	}
 
+	/**
+	 *
+	 * @return the depth sorted objects of every camera
+	 */
+	public SharedDepthList getSharedDepthList() {
+		return sharedDepthList;
+	}
+
+	/**
+	 *
+	 * @return the service finding the rendered objects at a position
+	 */
+	public PickingService getPicking() {
+		return picking;
+	}
+
 	/**
 	 *
 	 * @param renderstorage
@@ -329,6 +368,7 @@ public class GameView implements GameManager {
 	public void setRenderStorage(RenderStorage renderstorage) {
 		if (this.renderstorage != null) {
 			MessageManager.getInstance().removeListener(this.renderstorage, Events.mapChanged.getId());
+			MessageManager.getInstance().removeListener(this.renderstorage, Events.chunkChanged.getId());
 		}
 		this.renderstorage = renderstorage;
 	}
@@ -426,20 +466,7 @@ public class GameView implements GameManager {
      */
      public Point screenToGameBasic(final int x, final int y){
 		 if (cameras.size() > 0) {
-			 //identify clicked camera
-			 Camera camera;
-			 int i = 0;
-			 do {
-				 camera = cameras.get(i);
-				 i++;
-			} while (
-				i < cameras.size()
-				 && !(x > camera.getScreenPosX()
-				 && x < camera.getScreenPosX() + camera.getWidthInScreenSpc()
-				 && y > camera.getScreenPosY()
-				&& y < camera.getScreenPosY()+camera.getHeightInScreenSpc())
-			);
-
+			 Camera camera = getCameraAt(x, y);
 			 //find points
 			 return new Point(
 				 screenXtoView(x, camera),
@@ -450,26 +477,42 @@ public class GameView implements GameManager {
 			 return Controller.getMap().getCenter();
 		 }
     }
+
+	/**
+	 * Identifies the camera which renders at a screen position.
+	 *
+	 * @param x screen space
+	 * @param y screen space
+	 * @return the last camera if no camera renders at this position
+	 */
+	private Camera getCameraAt(final int x, final int y) {
+		Camera camera;
+		int i = 0;
+		do {
+			camera = cameras.get(i);
+			i++;
+		} while (
+			i < cameras.size()
+			&& !(x > camera.getScreenPosX()
+			&& x < camera.getScreenPosX() + camera.getWidthInScreenSpc()
+			&& y > camera.getScreenPosY()
+			&& y < camera.getScreenPosY() + camera.getHeightInScreenSpc())
+		);
+		return camera;
+	}
      
     /**
-     * Returns the approximated game position belonging to a point on the screen. Does raytracing to find the intersection. Because information is lost if you do game to screen reverting this can only be done by approximating what happens in view -&gt; game. First does screen -&gt; view and then via raytracing view -&gt; game.
+     * Returns the game position belonging to a point on the screen. First does screen -&gt; view and then finds the block rendered there.
 	 * 
      * @param x the x position on the screen from left
      * @param y the y position on the screen from bottom
      * @return the position on the map. can return null if no camera available
+	 * @see PickingService#pickBlock(float, float, java.util.function.Predicate)
      */
 	public Intersection screenToGame(final int x, final int y) {
 		if (cameras.size() > 0) {
-			Point p = screenToGameBasic(x, y);
-			//find point at top of map
-			float deltaZ = Chunk.getGameHeight() - RenderCell.GAME_EDGELENGTH - p.getZ();
-			p.add(0, deltaZ * Point.SQRT2, deltaZ);//top of map
-
-			return p.rayMarching(new Vector3(0, -1, -RenderCell.ZAXISSHORTENING),//shoot in viewing direction, can not find correct vector: todo. Was -Point.SQRT12
-				Float.POSITIVE_INFINITY,
-				this,
-				null
-			);
+			Camera camera = getCameraAt(x, y);
+			return picking.pickBlock(screenXtoView(x, camera), screenYtoView(y, camera), null);
 		} else {
 			return null;
 		}
@@ -654,11 +697,18 @@ public class GameView implements GameManager {
 		for (Camera camera : cameras) {
 			camera.dispose();
 		}
-		if (this.renderstorage != null)
-			MessageManager.getInstance().removeListener(this.renderstorage, Events.mapChanged.getId());	
+		if (this.renderstorage != null) {
+			MessageManager.getInstance().removeListener(this.renderstorage, Events.mapChanged.getId());
+			MessageManager.getInstance().removeListener(this.renderstorage, Events.chunkChanged.getId());
+		}
 		renderstorage.dispose();
 		shRenderer.dispose();
 		spriteBatch.dispose();
+		for (ShaderProgram program : shaders) {
+			if (program != null) {
+				program.dispose();
+			}
+		}
 		stage.dispose();
 		
 		cameraIdCounter=0;
@@ -110,6 +110,7 @@ public class GameplayScreen extends WEScreen {
 
 	@Override
 	public void renderImpl(final float delta) {
+		long frameStart = System.nanoTime();
 		frameNum++;
 		
 		//aply game world speed
@@ -118,12 +119,20 @@ public class GameplayScreen extends WEScreen {
 		MessageManager.getInstance().update(delta);
 		view.preUpdate(dt);
 		controller.update(dt);
-		Controller.staticUpdate(dt);
+		Controller.simulate(delta);//fixed steps, independent of the frame rate
+		boolean interpolate = WE.getCVars().getValueB("simulationInterpolation");
+		if (interpolate) {
+			getMap().beginInterpolation(Controller.getSimulationClock().getAlpha());
+		}
 		view.update(dt);
 		getMap().postUpdate(dt);//hack to prevent 1-frame lag by too late write access via view update
 		//render data
 		view.render();
+		if (interpolate) {
+			getMap().endInterpolation();
+		}
 		WE.getEngineView().getStage().draw();
+		Controller.getFrameGovernor().update((System.nanoTime() - frameStart) / 1e6f, delta);
 	}
 
 	@Override
@@ -0,0 +1,465 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core;
+
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.bombinggames.wurfelengine.core.gameobjects.AbstractGameObject;
+import com.bombinggames.wurfelengine.core.gameobjects.Side;
+import com.bombinggames.wurfelengine.core.map.Coordinate;
+import com.bombinggames.wurfelengine.core.map.Intersection;
+import com.bombinggames.wurfelengine.core.map.Point;
+import com.bombinggames.wurfelengine.core.map.Position;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import static com.bombinggames.wurfelengine.core.map.rendering.RenderCell.GAME_DIAGLENGTH;
+import static com.bombinggames.wurfelengine.core.map.rendering.RenderCell.GAME_DIAGLENGTH2;
+import static com.bombinggames.wurfelengine.core.map.rendering.RenderCell.GAME_EDGELENGTH;
+import static com.bombinggames.wurfelengine.core.map.rendering.RenderCell.VIEW_DEPTH2;
+import static com.bombinggames.wurfelengine.core.map.rendering.RenderCell.VIEW_HEIGHT;
+import static com.bombinggames.wurfelengine.core.map.rendering.RenderCell.VIEW_HEIGHT2;
+import static com.bombinggames.wurfelengine.core.map.rendering.RenderCell.VIEW_WIDTH2;
+import static com.bombinggames.wurfelengine.core.map.rendering.RenderCell.ZAXISSHORTENING;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderStorage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Answers which objects are rendered at a position in view space.<br>
+ * The objects of the last {@link SharedDepthList} are sorted into a grid of
+ * buckets by the rectangle they cover on the screen. The grid is built once
+ * after the depth list changed and only when a query arrives, so that a query
+ * only tests the objects in the buckets it touches. Because the buckets keep
+ * the order of the rendering the topmost object is the last one containing the
+ * position.<br>
+ * Blocks are picked exactly with a voxel traversal along the viewing
+ * direction.
+ *
+ * @author Benedikt Vogler
+ */
+public class PickingService {
+
+	/**
+	 * minimum size of a bucket in view space
+	 */
+	private static final int BUCKETSIZE = 128;
+	/**
+	 * maximum amount of buckets per axis
+	 */
+	private static final int MAXBUCKETS = 256;
+	/**
+	 * The offset between the projected game position and the drawn position in
+	 * view space. Blocks are drawn half a block height lower than the
+	 * projection of their bottom.
+	 */
+	private static final int RENDEROFFSETY = VIEW_DEPTH2 - VIEW_HEIGHT2;
+
+	private final GameView gameView;
+	/**
+	 * version of the depth list used in the grid
+	 */
+	private int version = -1;
+	/**
+	 * the objects in the order of the rendering
+	 */
+	private AbstractGameObject[] objects = new AbstractGameObject[0];
+	private int size;
+	/**
+	 * left, bottom, right, top in view space for every object
+	 */
+	private int[] rects = new int[0];
+	private int gridLeft, gridBottom, bucketSize, columns, rows;
+	/**
+	 * index of the first entry of every bucket in {@link #entries}, one more
+	 * than buckets
+	 */
+	private int[] bucketStart = new int[1];
+	/**
+	 * object indices sorted by bucket and in every bucket by the order of the
+	 * rendering
+	 */
+	private int[] entries = new int[0];
+	/**
+	 * used to visit every object once in a rectangle query
+	 */
+	private int[] visited = new int[0];
+	private int query;
+	private final Coordinate tmpCoord = new Coordinate(0, 0, 0);
+
+	/**
+	 *
+	 * @param gameView the view with the depth list and the render storage
+	 */
+	public PickingService(GameView gameView) {
+		this.gameView = gameView;
+	}
+
+	/**
+	 * Get the topmost object rendered at a position.
+	 *
+	 * @param <T>
+	 * @param x view space
+	 * @param y view space
+	 * @param type only objects of this class are found, others are ignored
+	 * also if they cover
+	 * @param filter can be null
+	 * @return null if there is no object
+	 */
+	public <T> T getTopmost(int x, int y, Class<T> type, Predicate<? super T> filter) {
+		updateGrid();
+		if (size == 0 || x < gridLeft || y < gridBottom) {
+			return null;
+		}
+		int column = (x - gridLeft) / bucketSize;
+		int row = (y - gridBottom) / bucketSize;
+		if (column >= columns || row >= rows) {
+			return null;
+		}
+		int bucket = row * columns + column;
+		for (int i = bucketStart[bucket + 1] - 1; i >= bucketStart[bucket]; i--) {
+			int index = entries[i];
+			AbstractGameObject object = objects[index];
+			if (type.isInstance(object)
+				&& contains(index, x, y)
+				&& (filter == null || filter.test(type.cast(object)))) {
+				return type.cast(object);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get every object which is rendered in a rectangle.
+	 *
+	 * @param <T>
+	 * @param x1 view space
+	 * @param y1 view space
+	 * @param x2 view space
+	 * @param y2 view space
+	 * @param type only objects of this class are found
+	 * @param filter can be null
+	 * @return new list in the order of the rendering
+	 */
+	public <T> ArrayList<T> getAllInRect(int x1, int y1, int x2, int y2, Class<T> type, Predicate<? super T> filter) {
+		updateGrid();
+		ArrayList<T> result = new ArrayList<>(4);
+		int left = Math.min(x1, x2);
+		int right = Math.max(x1, x2);
+		int bottom = Math.min(y1, y2);
+		int top = Math.max(y1, y2);
+		if (size == 0) {
+			return result;
+		}
+		int minColumn = Math.max(0, Math.floorDiv(left - gridLeft, bucketSize));
+		int maxColumn = Math.min(columns - 1, Math.floorDiv(right - gridLeft, bucketSize));
+		int minRow = Math.max(0, Math.floorDiv(bottom - gridBottom, bucketSize));
+		int maxRow = Math.min(rows - 1, Math.floorDiv(top - gridBottom, bucketSize));
+		if (minColumn > maxColumn || minRow > maxRow) {
+			return result;
+		}
+
+		query++;
+		if (query == 0) {//overflow, reset marks
+			Arrays.fill(visited, 0);
+			query = 1;
+		}
+		int found = 0;
+		int[] indices = new int[16];
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				int bucket = row * columns + column;
+				for (int i = bucketStart[bucket]; i < bucketStart[bucket + 1]; i++) {
+					int index = entries[i];
+					if (visited[index] != query) {
+						visited[index] = query;
+						if (rects[index * 4] <= right
+							&& rects[index * 4 + 2] >= left
+							&& rects[index * 4 + 1] <= top
+							&& rects[index * 4 + 3] >= bottom
+							&& type.isInstance(objects[index])) {
+							if (found == indices.length) {
+								indices = Arrays.copyOf(indices, found * 2);
+							}
+							indices[found++] = index;
+						}
+					}
+				}
+			}
+		}
+		Arrays.sort(indices, 0, found);
+		for (int i = 0; i < found; i++) {
+			T object = type.cast(objects[indices[i]]);
+			if (filter == null || filter.test(object)) {
+				result.add(object);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the block which is rendered at a position by traversing every
+	 * cell along the viewing direction from the top of the rendered layers
+	 * down to the ground. Cells which are clipped are skipped.<br>
+	 * The map is staggered. Rotated by 45° the diamonds of the cells form a
+	 * regular grid in which the cells along the ray can be visited exactly.
+	 *
+	 * @param x view space
+	 * @param y view space
+	 * @param hitCondition can be null
+	 * @return the intersection with the side which is seen at this position,
+	 * null if the ground below is not loaded
+	 */
+	public Intersection pickBlock(float x, float y, Predicate<Byte> hitCondition) {
+		RenderStorage renderStorage = gameView.getRenderStorage();
+		int layers = renderStorage.getZCutLayer();
+		float slope = 2 * ZAXISSHORTENING;//change of game y per game z on the ray
+		//start at the top of the rendered layers, t is the distance in z
+		float startZ = layers * GAME_EDGELENGTH;
+		float startY = 2 * (startZ * ZAXISSHORTENING + RENDEROFFSETY - y);
+
+		//u=x+y, v=x-y, shifted so that the cells are squares starting at multiples of the diagonal
+		float startU = x + startY + GAME_DIAGLENGTH2;
+		float startV = x - startY + GAME_DIAGLENGTH2;
+		int u = (int) Math.floor(startU / GAME_DIAGLENGTH);
+		int v = (int) Math.floor(startV / GAME_DIAGLENGTH);
+		int z = layers - 1;
+
+		float deltaUV = GAME_DIAGLENGTH / slope;
+		float tMaxU = (startU - u * GAME_DIAGLENGTH) / slope;//u decreases
+		float tMaxV = ((v + 1) * GAME_DIAGLENGTH - startV) / slope;//v increases
+		float tMaxZ = GAME_EDGELENGTH;
+		float tEntered = 0;
+		Side entered = Side.TOP;
+
+		while (z >= 0) {
+			int coordX = Math.floorDiv(u + v, 2);
+			int coordY = u - v;
+			tmpCoord.set(coordX, coordY, z);
+			if (!renderStorage.isClipped(tmpCoord)) {
+				byte id = Controller.getMap().getBlockId(coordX, coordY, z);
+				if (id != 0 && (hitCondition == null || hitCondition.test(id))) {
+					//move a bit into the cell so that the point belongs to it, also when the ray only touches a corner
+					float tExit = Math.min(tMaxZ, Math.min(tMaxU, tMaxV));
+					float t = tEntered + Math.min(1, (tExit - tEntered) / 2);
+					Point point = new Point(x, startY - slope * t, startZ - t);
+					return new Intersection(point, entered, t * (float) Math.sqrt(1 + slope * slope));
+				}
+			}
+
+			if (tMaxZ <= tMaxU && tMaxZ <= tMaxV) {
+				tEntered = tMaxZ;
+				tMaxZ += GAME_EDGELENGTH;
+				z--;
+				entered = Side.TOP;
+			} else if (tMaxU <= tMaxV) {
+				tEntered = tMaxU;
+				tMaxU += deltaUV;
+				u--;
+				entered = Side.RIGHT;
+			} else {
+				tEntered = tMaxV;
+				tMaxV += deltaUV;
+				v++;
+				entered = Side.LEFT;
+			}
+		}
+
+		//ground hit
+		Point ground = new Point(x, startY - slope * startZ, 0);
+		if (Controller.getMap().getChunkContaining(ground) == null) {
+			return null;
+		}
+		return new Intersection(ground, Side.TOP, startZ * (float) Math.sqrt(1 + slope * slope));
+	}
+
+	/**
+	 * Rebuilds the grid if the depth list changed.
+	 */
+	private void updateGrid() {
+		SharedDepthList depthList = gameView.getSharedDepthList();
+		if (version == depthList.getVersion()) {
+			return;
+		}
+		version = depthList.getVersion();
+
+		int capacity = depthList.size();
+		if (objects.length < capacity) {
+			objects = new AbstractGameObject[capacity];
+			rects = new int[capacity * 4];
+			visited = new int[capacity];
+		}
+		Arrays.fill(objects, null);
+		query = 0;
+		Arrays.fill(visited, 0);
+
+		//bounds of every object
+		size = 0;
+		int left = Integer.MAX_VALUE;
+		int bottom = Integer.MAX_VALUE;
+		int right = Integer.MIN_VALUE;
+		int top = Integer.MIN_VALUE;
+		for (int i = 0; i < capacity; i++) {
+			AbstractGameObject object = depthList.get(i);
+			if (calcRect(object, size * 4)) {
+				objects[size] = object;
+				left = Math.min(left, rects[size * 4]);
+				bottom = Math.min(bottom, rects[size * 4 + 1]);
+				right = Math.max(right, rects[size * 4 + 2]);
+				top = Math.max(top, rects[size * 4 + 3]);
+				size++;
+			}
+		}
+		if (size == 0) {
+			return;
+		}
+
+		gridLeft = left;
+		gridBottom = bottom;
+		bucketSize = Math.max(
+			BUCKETSIZE,
+			Math.max(right - left, top - bottom) / MAXBUCKETS + 1
+		);
+		columns = (right - left) / bucketSize + 1;
+		rows = (top - bottom) / bucketSize + 1;
+		int buckets = columns * rows;
+		if (bucketStart.length < buckets + 1) {
+			bucketStart = new int[buckets + 1];
+		} else {
+			Arrays.fill(bucketStart, 0);
+		}
+
+		//count the entries of every bucket
+		for (int i = 0; i < size; i++) {
+			int minColumn = (rects[i * 4] - gridLeft) / bucketSize;
+			int maxColumn = (rects[i * 4 + 2] - gridLeft) / bucketSize;
+			int minRow = (rects[i * 4 + 1] - gridBottom) / bucketSize;
+			int maxRow = (rects[i * 4 + 3] - gridBottom) / bucketSize;
+			for (int row = minRow; row <= maxRow; row++) {
+				for (int column = minColumn; column <= maxColumn; column++) {
+					bucketStart[row * columns + column + 1]++;
+				}
+			}
+		}
+		for (int i = 0; i < buckets; i++) {
+			bucketStart[i + 1] += bucketStart[i];
+		}
+		if (entries.length < bucketStart[buckets]) {
+			entries = new int[bucketStart[buckets]];
+		}
+
+		//fill in the order of the rendering, the counts are restored afterwards
+		for (int i = 0; i < size; i++) {
+			int minColumn = (rects[i * 4] - gridLeft) / bucketSize;
+			int maxColumn = (rects[i * 4 + 2] - gridLeft) / bucketSize;
+			int minRow = (rects[i * 4 + 1] - gridBottom) / bucketSize;
+			int maxRow = (rects[i * 4 + 3] - gridBottom) / bucketSize;
+			for (int row = minRow; row <= maxRow; row++) {
+				for (int column = minColumn; column <= maxColumn; column++) {
+					entries[bucketStart[row * columns + column]++] = i;
+				}
+			}
+		}
+		for (int i = buckets; i > 0; i--) {
+			bucketStart[i] = bucketStart[i - 1];
+		}
+		bucketStart[0] = 0;
+	}
+
+	/**
+	 * Computes the rectangle covered by the sprite like
+	 * {@link AbstractGameObject#render(GameView, int, int, com.badlogic.gdx.graphics.Color)}.
+	 *
+	 * @param object
+	 * @param offset start in {@link #rects}
+	 * @return false if the object is not drawn
+	 */
+	private boolean calcRect(AbstractGameObject object, int offset) {
+		Position pos = object.getPosition();
+		if (pos == null || object.isHidden()) {
+			return false;
+		}
+		int x = pos.getViewSpcX();
+		int y = pos.getViewSpcY();
+		if (object instanceof RenderCell && ((RenderCell) object).hasSides()) {
+			rects[offset] = x - VIEW_WIDTH2;
+			rects[offset + 1] = y - VIEW_HEIGHT2;
+			rects[offset + 2] = x + VIEW_WIDTH2;
+			rects[offset + 3] = y - VIEW_HEIGHT2 + VIEW_HEIGHT + 2 * VIEW_DEPTH2;
+			return true;
+		}
+		byte id = object.getSpriteId();
+		byte value = object.getSpriteValue();
+		if (id <= 0 || value < 0) {
+			return false;
+		}
+		AtlasRegion texture = AbstractGameObject.getSprite(object.getSpriteCategory(), id, value);
+		if (texture == null) {
+			return false;
+		}
+		float scaling = object.getScaling();
+		//the sprite is scaled and rotated around x, y
+		float left = (texture.offsetX - texture.originalWidth / 2) * scaling;
+		float bottom = (texture.offsetY - VIEW_HEIGHT2) * scaling;
+		float right = left + texture.getRegionWidth() * scaling;
+		float top = bottom + texture.getRegionHeight() * scaling;
+		if (object.getRotation() != 0) {
+			float radius = (float) Math.sqrt(
+				Math.max(left * left, right * right) + Math.max(bottom * bottom, top * top)
+			);
+			left = -radius;
+			bottom = -radius;
+			right = radius;
+			top = radius;
+		}
+		rects[offset] = x + (int) Math.floor(left);
+		rects[offset + 1] = y + (int) Math.floor(bottom);
+		rects[offset + 2] = x + (int) Math.ceil(right);
+		rects[offset + 3] = y + (int) Math.ceil(top);
+		return true;
+	}
+
+	/**
+	 * Blocks with sides are tested against their hexagonal outline, other
+	 * objects against their rectangle.
+	 */
+	private boolean contains(int index, int x, int y) {
+		int offset = index * 4;
+		if (x < rects[offset] || x > rects[offset + 2] || y < rects[offset + 1] || y > rects[offset + 3]) {
+			return false;
+		}
+		AbstractGameObject object = objects[index];
+		if (object instanceof RenderCell && ((RenderCell) object).hasSides()) {
+			int centerX = rects[offset] + VIEW_WIDTH2;
+			//half height of the diamonds at this x
+			float diamond = VIEW_DEPTH2 * (1 - Math.abs(x - centerX) / (float) VIEW_WIDTH2);
+			float bottomCenter = rects[offset + 1] + VIEW_DEPTH2;
+			return y >= bottomCenter - diamond && y <= bottomCenter + VIEW_HEIGHT + diamond;
+		}
+		return true;
+	}
+}
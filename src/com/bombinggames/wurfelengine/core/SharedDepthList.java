@@ -0,0 +1,297 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core;
+
+import com.badlogic.gdx.Gdx;
+import com.bombinggames.wurfelengine.core.gameobjects.AbstractEntity;
+import com.bombinggames.wurfelengine.core.gameobjects.AbstractGameObject;
+import com.bombinggames.wurfelengine.core.gameobjects.ParticleBatch;
+import com.bombinggames.wurfelengine.core.gameobjects.ParticleSystem;
+import com.bombinggames.wurfelengine.core.map.Iterators.CoveredByCameraIterator;
+import com.bombinggames.wurfelengine.core.map.Position;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderChunk;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderStorage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The depth sorted list of every object visible by at least one camera. The
+ * entities are inserted into the cells and the topological sort runs once per
+ * frame over the union of the camera windows. Every camera then only filters
+ * this list with its own view frustum, so that split screen does not sort the
+ * same objects more than once.<br>
+ * A topological order of the union is also a valid order for every subset, so
+ * the filtered lists are sorted correctly.
+ *
+ * @author Benedikt Vogler
+ * @see Camera#render(GameView, Camera)
+ */
+public class SharedDepthList {
+
+	/**
+	 * the mark bit used for the depth sort. Cameras use their id starting at
+	 * 1.
+	 */
+	private static final int MARK_ID = 31;
+
+	private final GameView gameView;
+	/**
+	 * cameras included in the last bake
+	 */
+	private final ArrayList<Camera> baked = new ArrayList<>(6);
+	private long frame = -1;
+	/**
+	 * sorted cells and entities, entities without a cell at the end
+	 */
+	private final ArrayList<AbstractGameObject> sorted = new ArrayList<>(3000);
+	/**
+	 * index of the first entity which is rendered at the end
+	 */
+	private int appendixStart;
+	private final ArrayList<RenderCell> modifiedCells = new ArrayList<>(30);
+	private final ArrayList<AbstractGameObject> renderAppendix = new ArrayList<>(30);
+	private float zLimit;
+	/**
+	 * incremented with every bake
+	 */
+	private int version;
+
+	/**
+	 *
+	 * @param gameView the view with the render storage and the cameras
+	 */
+	public SharedDepthList(GameView gameView) {
+		this.gameView = gameView;
+	}
+
+	/**
+	 * Makes sure that the list is up to date in this frame and contains the
+	 * objects visible by the camera.
+	 *
+	 * @param camera the camera which renders
+	 */
+	public void update(Camera camera) {
+		if (frame != Gdx.graphics.getFrameId() || !baked.contains(camera)) {
+			baked.clear();
+			for (Camera cam : gameView.getCameras()) {
+				if (cam.isEnabled()) {
+					baked.add(cam);
+				}
+			}
+			if (!baked.contains(camera)) {
+				baked.add(camera);
+			}
+			bake();
+			frame = Gdx.graphics.getFrameId();
+		}
+	}
+
+	/**
+	 * Fills the content of every camera plus entities into one list and sorts
+	 * it in the order of the rendering.
+	 */
+	private void bake() {
+		sorted.clear();
+		RenderStorage renderStorage = gameView.getRenderStorage();
+		zLimit = renderStorage.getZRenderingLimit();
+
+		//inverse dirty flag
+		AbstractGameObject.inverseMarkedFlag(MARK_ID);
+
+		//add entities by inserting them into the render store
+		ArrayList<AbstractEntity> ents = Controller.getMap().getEntities();
+		modifiedCells.clear();
+		modifiedCells.ensureCapacity(ents.size());
+		renderAppendix.clear();
+		for (AbstractEntity ent : ents) {
+			if (ent.hasPosition()
+				&& !ent.isHidden()
+				&& inAnyViewFrustum(ent.getPosition())
+				&& ent.getPosition().getZ() < zLimit
+			) {
+				RenderCell cellAbove = renderStorage.getCell(ent.getPosition().add(0, 0, RenderCell.GAME_EDGELENGTH));//add in cell above
+				ent.getPosition().add(0, 0, -RenderCell.GAME_EDGELENGTH);//reverse change from line above
+				if (cellAbove == RenderChunk.NULLPOINTEROBJECT) {
+					renderAppendix.add(ent);//render at the end
+				} else {
+					cellAbove.addCoveredEnts(ent);//cell covers entities inside
+					modifiedCells.add(cellAbove);
+				}
+			}
+		}
+
+		//add the particles the same way, grouped by cell
+		ParticleSystem particles = Controller.getMap().getParticleSystem();
+		int batchCount = particles.batch(renderStorage, zLimit, baked);
+		for (int i = 0; i < batchCount; i++) {
+			ParticleBatch batch = particles.getBatch(i);
+			batch.unmarkDS(MARK_ID);//batches are reused
+			if (batch.getCell() == RenderChunk.NULLPOINTEROBJECT) {
+				renderAppendix.add(batch);
+			} else {
+				batch.getCell().addCoveredEnts(batch);
+				modifiedCells.add(batch.getCell());
+			}
+		}
+
+		//visit every cell in the windows of the cameras, shared cells are only visited once
+		for (int i = 0; i < baked.size(); i++) {
+			Camera camera = baked.get(i);
+			if (sameWindowBefore(i)) {
+				continue;
+			}
+			CoveredByCameraIterator iterator = new CoveredByCameraIterator(
+				renderStorage,
+				camera.getCenterChunkX(),
+				camera.getCenterChunkY(),
+				0,
+				renderStorage.getZCutLayer() - 1
+			);
+			while (iterator.hasNext()) {
+				RenderCell cell = iterator.next();
+				if (cell != RenderChunk.NULLPOINTEROBJECT && inAnyViewFrustum(cell.getPosition())) {
+					visit(cell);
+				}
+			}
+		}
+		//remove ents from modified blocks
+		for (RenderCell modifiedCell : modifiedCells) {
+			modifiedCell.clearCoveredEnts();
+		}
+
+		//sort by depth
+		renderAppendix.sort((AbstractGameObject o1, AbstractGameObject o2) -> Float.compare(o1.getDepth(), o2.getDepth()));
+		appendixStart = sorted.size();
+		sorted.addAll(renderAppendix);//render every entity which has no parent block at the end of the list
+		version++;
+	}
+
+	/**
+	 * topological sort
+	 *
+	 * @param o root node
+	 */
+	private void visit(AbstractGameObject o) {
+		if (!o.isMarkedDS(MARK_ID)) {
+			List<AbstractGameObject> covered = o.getCovered(gameView.getRenderStorage());
+			o.markPermanentDS(MARK_ID);
+			for (AbstractGameObject m : covered) {
+				if (inAnyViewFrustum(m.getPosition())) {
+					visit(m);
+				}
+			}
+			if (o.getPosition().getZPoint() < zLimit && shouldBeRenderedByAny(o)) {
+				sorted.add(o);
+			}
+		}
+	}
+
+	private boolean sameWindowBefore(int index) {
+		Camera camera = baked.get(index);
+		for (int i = 0; i < index; i++) {
+			if (baked.get(i).getCenterChunkX() == camera.getCenterChunkX()
+				&& baked.get(i).getCenterChunkY() == camera.getCenterChunkY()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean inAnyViewFrustum(Position pos) {
+		for (int i = 0; i < baked.size(); i++) {
+			if (baked.get(i).inViewFrustum(pos)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean shouldBeRenderedByAny(AbstractGameObject o) {
+		for (int i = 0; i < baked.size(); i++) {
+			if (o.shouldBeRendered(baked.get(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Fills the objects visible by the camera into the list in the order of
+	 * the rendering.
+	 *
+	 * @param camera the camera which filters the list
+	 * @param out the list where the result is added
+	 * @param maxSprites maximum amount of sorted objects
+	 * @return the amount of sorted objects which were added excluding the entities without a cell
+	 */
+	public int slice(Camera camera, List<? super AbstractGameObject> out, int maxSprites) {
+		int count = 0;
+		for (int i = 0; i < appendixStart && count < maxSprites; i++) {
+			AbstractGameObject o = sorted.get(i);
+			if (camera.inViewFrustum(o.getPosition()) && o.shouldBeRendered(camera)) {
+				out.add(o);
+				count++;
+			}
+		}
+		for (int i = appendixStart; i < sorted.size(); i++) {
+			AbstractGameObject o = sorted.get(i);
+			if (camera.inViewFrustum(o.getPosition())) {
+				out.add(o);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 *
+	 * @return amount of objects in the shared list
+	 */
+	public int size() {
+		return sorted.size();
+	}
+
+	/**
+	 *
+	 * @param index smaller than {@link #size()}
+	 * @return the object at the position in the order of the rendering
+	 */
+	public AbstractGameObject get(int index) {
+		return sorted.get(index);
+	}
+
+	/**
+	 * Changes every time the list is filled again.
+	 *
+	 * @return the version of the content
+	 */
+	public int getVersion() {
+		return version;
+	}
+}
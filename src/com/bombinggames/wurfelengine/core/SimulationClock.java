@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core;
+
+import com.bombinggames.wurfelengine.WE;
+
+/**
+ * Decouples the simulation from the frame rate. The time of the frames is
+ * accumulated and the simulation is advanced in steps of a fixed length set
+ * by the cvar "simulationRate". The rest which is smaller than a step is kept
+ * for the next frame and can be used to interpolate between the last two
+ * simulated states.<br>
+ * If a frame took very long at most "simulationMaxSteps" steps are done and the
+ * remaining time is dropped, so that a hitch does not make the next frames
+ * even slower.
+ *
+ * @author Benedikt Vogler
+ * @see Controller#simulate(float)
+ */
+public class SimulationClock {
+
+	/**
+	 * time in ms which is not simulated yet
+	 */
+	private float accumulator;
+	/**
+	 * length of a step in ms
+	 */
+	private float step = 1000f / 60f;
+	private long steps;
+	private long droppedSteps;
+
+	/**
+	 * Adds the time of a frame.
+	 *
+	 * @param delta real time in ms
+	 * @return the amount of steps which should be simulated now
+	 */
+	public int advance(float delta) {
+		float rate = WE.getCVars().getValueF("simulationRate");
+		if (rate > 0) {
+			step = 1000f / rate;
+		}
+		int maxSteps = Math.max(1, WE.getCVars().getValueI("simulationMaxSteps"));
+
+		accumulator += delta;
+		int due = (int) (accumulator / step);
+		if (due > maxSteps) {
+			droppedSteps += due - maxSteps;
+			accumulator -= (due - maxSteps) * step;
+			due = maxSteps;
+		}
+		accumulator -= due * step;
+		steps += due;
+		return due;
+	}
+
+	/**
+	 *
+	 * @return length of a step in ms
+	 */
+	public float getStep() {
+		return step;
+	}
+
+	/**
+	 * The part of the next step which is already passed but not simulated
+	 * yet.
+	 *
+	 * @return [0;1]
+	 */
+	public float getAlpha() {
+		return Math.min(accumulator / step, 1);
+	}
+
+	/**
+	 *
+	 * @return amount of simulated steps since creation
+	 */
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 *
+	 * @return amount of steps which were skipped because the simulation could
+	 * not catch up
+	 */
+	public long getDroppedSteps() {
+		return droppedSteps;
+	}
+}
@@ -5,10 +5,15 @@
  */
 package com.bombinggames.wurfelengine.core.console;
 
+import com.bombinggames.wurfelengine.WE;
 import com.bombinggames.wurfelengine.core.Controller;
 import com.bombinggames.wurfelengine.core.gameobjects.BenchmarkBall;
 import com.bombinggames.wurfelengine.core.GameplayScreen;
 import com.bombinggames.wurfelengine.core.map.Chunk;
+import com.bombinggames.wurfelengine.core.map.ChunkMap;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Random;
 import java.util.StringTokenizer;
 
 /**
@@ -17,6 +22,18 @@ import java.util.StringTokenizer;
  */
 public class BenchmarkCommand implements ConsoleCommand {
 
+	private static final int LOOKUPS = 2_000_000;
+	/**
+	 * untimed rounds so that the JIT compiled both loops before measuring
+	 */
+	private static final int WARMUP = 5;
+	private static final int ROUNDS = 10;
+
+	/**
+	 * the hits are written here so the JIT can not remove the lookups
+	 */
+	private static volatile int sink;
+
 	@Override
 	public String getCommandName() {
 		return "benchmark";
@@ -25,18 +42,119 @@ public class BenchmarkCommand implements ConsoleCommand {
 
 	@Override
 	public boolean perform(StringTokenizer par1, GameplayScreen gameplay) {
+		if (par1.hasMoreTokens() && "chunkmap".equals(par1.nextToken())) {
+			benchmarkChunkMap();
+			return true;
+		}
 		new BenchmarkBall().spawn(Controller.getMap().getCenter(Chunk.getGameHeight()));
             //add("Spawned a benchmark ball.", "System");
         return true;
 	}
 
+	/**
+	 * Compares chunk lookups of the old integer hashed HashMap with the
+	 * {@link ChunkMap} using the currently loaded chunks. After some warmup
+	 * rounds both are timed in several rounds in alternating order and the
+	 * fastest round of each is reported.
+	 */
+	private void benchmarkChunkMap() {
+		LinkedList<Chunk> chunks = Controller.getMap().getLoadedChunks();
+		if (chunks.isEmpty()) {
+			WE.getConsole().add("No chunks loaded.", "System");
+			return;
+		}
+		int chunkDim = WE.getCVars().getValueI("mapIndexSpaceSize");
+		HashMap<Integer, Chunk> hashMap = new HashMap<>(chunkDim * chunkDim, 0.5f);
+		ChunkMap chunkMap = new ChunkMap(chunks.size());
+		int[] coords = new int[chunks.size() * 2];
+		int i = 0;
+		for (Chunk chunk : chunks) {
+			hashMap.put(chunk.getChunkX() * chunkDim + chunk.getChunkY(), chunk);
+			chunkMap.put(chunk);
+			coords[i++] = chunk.getChunkX();
+			coords[i++] = chunk.getChunkY();
+		}
+		//same random order for both
+		int[] order = new int[LOOKUPS];
+		Random random = new Random(0);
+		for (int j = 0; j < order.length; j++) {
+			order[j] = random.nextInt(chunks.size()) * 2;
+		}
+
+		for (int round = 0; round < WARMUP; round++) {
+			sink += lookupHashMap(hashMap, chunkDim, coords, order);
+			sink += lookupChunkMap(chunkMap, coords, order);
+		}
+
+		long hashMapTime = Long.MAX_VALUE;
+		long chunkMapTime = Long.MAX_VALUE;
+		int hashMapFound = 0;
+		int chunkMapFound = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			//alternate which one runs first
+			if (round % 2 == 0) {
+				long start = System.nanoTime();
+				hashMapFound = lookupHashMap(hashMap, chunkDim, coords, order);
+				hashMapTime = Math.min(hashMapTime, System.nanoTime() - start);
+				start = System.nanoTime();
+				chunkMapFound = lookupChunkMap(chunkMap, coords, order);
+				chunkMapTime = Math.min(chunkMapTime, System.nanoTime() - start);
+			} else {
+				long start = System.nanoTime();
+				chunkMapFound = lookupChunkMap(chunkMap, coords, order);
+				chunkMapTime = Math.min(chunkMapTime, System.nanoTime() - start);
+				start = System.nanoTime();
+				hashMapFound = lookupHashMap(hashMap, chunkDim, coords, order);
+				hashMapTime = Math.min(hashMapTime, System.nanoTime() - start);
+			}
+			sink += hashMapFound + chunkMapFound;
+		}
+		if (hashMapFound != chunkMapFound) {
+			WE.getConsole().add(
+				"The maps disagree: HashMap found " + hashMapFound + ", ChunkMap found " + chunkMapFound,
+				"Warning"
+			);
+		}
+
+		WE.getConsole().add(
+			LOOKUPS + " lookups in " + chunks.size() + " chunks (" + chunkMapFound + " hits per run), best of " + ROUNDS + " rounds\n"
+			+ "HashMap: " + lookupsPerMs(hashMapTime) + " lookups/ms\n"
+			+ "ChunkMap: " + lookupsPerMs(chunkMapTime) + " lookups/ms",
+			"System"
+		);
+	}
+
+	private static int lookupHashMap(HashMap<Integer, Chunk> hashMap, int chunkDim, int[] coords, int[] order) {
+		int found = 0;
+		for (int j : order) {
+			if (hashMap.get(coords[j] * chunkDim + coords[j + 1]) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	private static int lookupChunkMap(ChunkMap chunkMap, int[] coords, int[] order) {
+		int found = 0;
+		for (int j : order) {
+			if (chunkMap.get(coords[j], coords[j + 1]) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	private static long lookupsPerMs(long nanos) {
+		return LOOKUPS * 1_000_000L / Math.max(1, nanos);
+	}
+
 	/**
 	 *
 	 * @return
 	 */
 	@Override
 	public String getManual() {
-		return "spawns a benchmark ball";
+		return "spawns a benchmark ball\n'benchmark chunkmap' compares chunk lookup speed";
 	}
 	
 }
@@ -7,7 +7,8 @@ package com.bombinggames.wurfelengine.core.console;
 
 import com.bombinggames.wurfelengine.core.Controller;
 import com.bombinggames.wurfelengine.core.GameplayScreen;
-import com.bombinggames.wurfelengine.core.map.Generators.AirGenerator;
+import com.bombinggames.wurfelengine.core.map.Chunk;
+import com.bombinggames.wurfelengine.core.map.Coordinate;
 import java.util.StringTokenizer;
 
 /**
@@ -19,10 +20,25 @@ public class FillWithAirCommand implements ConsoleCommand {
 	@Override
 	public boolean perform(StringTokenizer parameters, GameplayScreen gameplay) {
 		if (parameters.hasMoreElements()) {
-			Controller.getMap().getChunk(
+			Chunk chunk = Controller.getMap().getChunk(
 				Integer.valueOf(parameters.nextToken()),
 				Integer.valueOf(parameters.nextToken())
-			).fill(new AirGenerator());
+			);
+			if (chunk == null) {
+				return false;
+			}
+			//as one transaction so that it can be undone
+			gameplay.getController().executeCommand(
+				Controller.getMap().beginTransaction().fill(
+					new Coordinate(chunk.getTopLeftCoordinateX(), chunk.getTopLeftCoordinateY(), 0),
+					new Coordinate(
+						chunk.getTopLeftCoordinateX() + Chunk.getBlocksX() - 1,
+						chunk.getTopLeftCoordinateY() + Chunk.getBlocksY() - 1,
+						Chunk.getBlocksZ() - 1
+					),
+					100 << 16//air with full health
+				)
+			);
 			return true;
 		}
 		return false;
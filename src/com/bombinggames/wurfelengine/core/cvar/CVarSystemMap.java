@@ -63,6 +63,7 @@ public class CVarSystemMap extends AbstractCVarSystem {
 		register(new IntCVar(10), "chunkBlocksX");
 		register(new IntCVar(40), "chunkBlocksY");
 		register(new IntCVar(10), "chunkBlocksZ");
+		register(new IntCVar(0), "generatorSeed");
 		register(new StringCVar(""), "mapname");
 		register(new StringCVar(""), "description");
 		register(new IntCVar(-1), "currentSaveSlot", CVarFlags.VOlATILE);
@@ -52,6 +52,10 @@ public class CVarSystemRoot extends AbstractCVarSystem {
 		register(new BooleanCVar(false), "loadPixmap");
 		register(new FloatCVar(0.00078125f), "LEazimutSpeed");
 		register(new BooleanCVar(false), "LEnormalMapRendering");
+		register(new FloatCVar(2f), "LEShadowAngle");//degrees a light must move before the shadows are computed again
+		register(new IntCVar(8), "LEShadowDistance");//blocks a shadow can reach, at most one chunk
+		register(new IntCVar(1), "LEShadowChunksPerFrame");//max chunks getting new shadows per frame because the light moved
+		register(new IntCVar(4), "LEShadowEditChunksPerFrame");//max chunks getting new shadows per frame because blocks changed
 		register(new IntCVar(1920), "renderResolutionWidth");
 		register(new BooleanCVar(true), "enableLightEngine");
 		register(new BooleanCVar(true), "enableFog");
@@ -85,6 +89,7 @@ public class CVarSystemRoot extends AbstractCVarSystem {
 		register(new FloatCVar(0.001f), "friction");
 		register(new FloatCVar(0.03f), "playerfriction");
 		register(new IntCVar(6000), "soundDecay");
+		register(new IntCVar(32), "soundMaxVoices");//max sounds playing at the same time
 		register(new IntCVar(4), "controllermacButtonStart");
 		register(new IntCVar(5), "controllermacButtonSelect");
 		register(new IntCVar(8), "controllermacButtonLB");
@@ -133,5 +138,15 @@ public class CVarSystemRoot extends AbstractCVarSystem {
 		register(new IntCVar(500), "mapIndexSpaceSize");
 		register(new IntCVar(536870912), "mapMaxMemoryUseBytes");//bytes, 512MB->17,9km^2
 		register(new BooleanCVar(false), "showMiniMapChunk");
+		register(new IntCVar(100000), "maxParticles");
+		register(new IntCVar(1500), "mapPrefetchTime");//ms the chunk streaming looks ahead, 0 disables prefetching
+		register(new IntCVar(2), "mapPrefetchLoads");//max prefetched chunks loading at the same time
+		register(new FloatCVar(60), "simulationRate");//simulation steps per second
+		register(new IntCVar(5), "simulationMaxSteps");//max simulation steps per frame, more are dropped
+		register(new BooleanCVar(true), "simulationInterpolation");//render entities between the last two simulation steps
+		register(new BooleanCVar(true), "governorEnabled");//lower the render quality if the frames take too long
+		register(new FloatCVar(16.6f), "governorTarget");//frame time in ms which the governor tries to hold
+		register(new FloatCVar(0.9f), "governorPercentile");//percentile of the last frames which is compared with the target
+		register(new FloatCVar(2000), "governorCooldown");//ms after a quality change before the next one
 	}
 }
@@ -28,7 +28,6 @@
  */
 package com.bombinggames.wurfelengine.core.gameobjects;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.ai.msg.Telegraph;
 import com.bombinggames.wurfelengine.WE;
 import com.bombinggames.wurfelengine.core.Controller;
@@ -51,6 +50,11 @@ import java.util.LinkedList;
 public abstract class AbstractEntity extends AbstractGameObject implements Telegraph {
 
 	private static final long serialVersionUID = 2L;
+	/**
+	 * game space, movements in one simulation step which are longer are
+	 * treated as teleport
+	 */
+	private static final float MAXINTERPOLATIONDISTANCE = GAME_EDGELENGTH * 4;
 	private static java.util.HashMap<String, Class<? extends AbstractEntity>> entityMap = new java.util.HashMap<>(10);//map string to class
 
 	/**
@@ -93,8 +97,13 @@ public abstract class AbstractEntity extends AbstractGameObject implements Teleg
 	private boolean obstacle;
 	private String name = "undefined";
 	private boolean indestructible = false;
-		/**
-	 * time in ms to pass before new sound can be played
+	/**
+	 * minimum game time in ms between two damage sounds
+	 */
+	private static final float DAMAGESOUNDCOOLDOWN = 100;
+	/**
+	 * game time in ms to pass before new sound can be played. Counted down
+	 * with the dt of {@link #update(float)}.
 	 */
 	private transient float soundTimeLimit;
 	
@@ -110,6 +119,16 @@ public abstract class AbstractEntity extends AbstractGameObject implements Teleg
 	private final LinkedList<Component> components = new LinkedList<>();
 	private byte value;
 	private byte id;
+	/**
+	 * position at the beginning of the last simulation step
+	 */
+	private transient Point stepStart;
+	/**
+	 * the simulated position while the interpolated position is set
+	 */
+	private transient Point simulatedPosition;
+	private transient Point interpolatedPosition;
+	private transient boolean interpolated;
 	/**
 	 * Create an abstractEntity.
 	 *
@@ -135,7 +154,7 @@ public abstract class AbstractEntity extends AbstractGameObject implements Teleg
 	/**
 	 * Updates the logic of the object.
 	 *
-	 * @param dt time since last update in game time
+	 * @param dt time since last update in ms game time
 	 */
 	public void update(float dt) {
 		if (getHealth() <= 0 && !indestructible) {
@@ -143,7 +162,7 @@ public abstract class AbstractEntity extends AbstractGameObject implements Teleg
 		}
 
 		if (soundTimeLimit > 0) {
-			soundTimeLimit -= Gdx.graphics.getRawDeltaTime();
+			soundTimeLimit -= dt;
 		}
 
 		//update the components
@@ -180,6 +199,63 @@ public abstract class AbstractEntity extends AbstractGameObject implements Teleg
 		this.position = pos;
 	}
 
+	/**
+	 * Remembers the position before a simulation step.
+	 *
+	 * @see #beginInterpolation(float)
+	 */
+	public void beginStep() {
+		if (position != null) {
+			if (stepStart == null) {
+				stepStart = position.cpy();
+			} else {
+				stepStart.set(position);
+			}
+		}
+	}
+
+	/**
+	 * Sets the position between the positions before and after the last
+	 * simulation step. Jumps which are too far for one step are not
+	 * interpolated.
+	 *
+	 * @param alpha 0 is the position before the step, 1 the simulated
+	 * position
+	 * @see #endInterpolation()
+	 */
+	public void beginInterpolation(float alpha) {
+		if (position == null || stepStart == null || interpolated || alpha >= 1) {
+			return;
+		}
+		float distance = stepStart.dst2(position);
+		if (distance == 0 || distance > MAXINTERPOLATIONDISTANCE * MAXINTERPOLATIONDISTANCE) {
+			return;
+		}
+		if (simulatedPosition == null) {
+			simulatedPosition = position.cpy();
+			interpolatedPosition = position.cpy();
+		} else {
+			simulatedPosition.set(position);
+		}
+		//the rendered state trails the simulation by one step
+		interpolatedPosition.set(stepStart).lerp(position, alpha);
+		position.set(interpolatedPosition);
+		interpolated = true;
+	}
+
+	/**
+	 * Restores the simulated position if it was not changed while the
+	 * interpolated position was set.
+	 */
+	public void endInterpolation() {
+		if (interpolated) {
+			interpolated = false;
+			if (position != null && position.dst2(interpolatedPosition) == 0) {
+				position.set(simulatedPosition);
+			}
+		}
+	}
+
     /**
      * Is the entity laying/standing on the ground?
      * @return true when on the ground. False if in air or not in memory.
@@ -371,7 +447,8 @@ public abstract class AbstractEntity extends AbstractGameObject implements Teleg
 	}
 
 	/**
-	 * Called when gets damage. Health is between 0 and 100. Plays a sound. It
+	 * Called when gets damage. Health is between 0 and 100. Plays a sound, at
+	 * most one every {@link #DAMAGESOUNDCOOLDOWN} ms. It
 	 * is recommended to use an event to trigger the damaging so that each
 	 * object manages it's own damage. If is set to indestructible via {@link #setIndestructible(boolean)
 	 * } can not be damaged.
@@ -385,7 +462,7 @@ public abstract class AbstractEntity extends AbstractGameObject implements Teleg
 				if (damageSounds != null && soundTimeLimit <= 0) {
 					//play random sound
 					WE.SOUND.play(damageSounds[(int) (Math.random() * (damageSounds.length - 1))], getPosition());
-					soundTimeLimit = 100;
+					soundTimeLimit = DAMAGESOUNDCOOLDOWN;
 				}
 				setHealth(health - value);
 			} else {
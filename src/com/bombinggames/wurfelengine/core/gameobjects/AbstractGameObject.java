@@ -66,7 +66,7 @@ public abstract class AbstractGameObject implements Serializable, Renderable {
 	/**
 	 * indexed acces to the spritesheet
 	 */
-	private transient static AtlasRegion[][][] sprites = new AtlasRegion['z'][RenderCell.OBJECTTYPESNUM][RenderCell.VALUESNUM];//{category}{id}{value}
+	private transient static SpriteRegistry registry;
 	private transient static int drawCalls = 0;
 	private static Texture textureDiff;
 	private static Texture textureNormal;
@@ -80,13 +80,7 @@ public abstract class AbstractGameObject implements Serializable, Renderable {
 		WE.getAssetManager().unload(spritesheetPath + ".txt");
 		spritesheet = null;
 		//clear index
-		for (AtlasRegion[][] type : sprites) {
-			for (AtlasRegion[] id : type) {
-				for (int i = 0; i < id.length; i++) {
-					id[i] = null;
-				}
-			}
-		}
+		registry = null;
 		if (pixmap != null) {
 			pixmap.dispose();
 		}
@@ -166,6 +160,7 @@ public abstract class AbstractGameObject implements Serializable, Renderable {
 			spritesheet = WE.getAsset(spritesheetPath + ".txt");
 		}
 		textureDiff = spritesheet.getTextures().first();
+		registry = new SpriteRegistry(spritesheet);
 		if (WE.getCVars().getValueB("LEnormalMapRendering")) {
 			textureNormal = WE.getAsset(spritesheetPath + "Normal.png");
 		}
@@ -190,26 +185,21 @@ public abstract class AbstractGameObject implements Serializable, Renderable {
 	 * @return
 	 */
 	public static AtlasRegion getSprite(final char category, final byte id, final byte value) {
-		if (spritesheet == null || id <= 0 || value < 0) {
+		if (registry == null || id <= 0 || value < 0) {
 			return null;
 		}
-		if (sprites[category][id][value] == null) { //load if not already loaded
-			AtlasRegion sprite = spritesheet.findRegion(category + Integer.toString(id) + "-" + value);
-			if (sprite == null) { //if there is no sprite show the default "sprite not found sprite" for this category
-				Gdx.app.debug("Spritesheet", category + Integer.toString(id) + "-" + value + " not found");
-				sprite = spritesheet.findRegion(category + "0-0");
-				if (sprite == null) {//load generic error sprite if category sprite failed
-					sprite = spritesheet.findRegion("error");
-					if (sprite == null) {
-						throw new NullPointerException("Sprite and category error not found and even the generic error sprite could not be found. Something with the sprites is fucked up.");
-					}
-				}
-			}
-			sprites[category][id][value] = sprite;
-			return sprite;
-		} else {
-			return sprites[category][id][value];
-		}
+		//if there is no sprite the registry returns the default "sprite not found sprite" for this category
+		return registry.getRegion(registry.getSpriteIndex(category, id, value));
+	}
+
+	/**
+	 * The index of the sprites. Available after the spritesheet is loaded.
+	 *
+	 * @return null if the spritesheet is not loaded
+	 * @see #loadSheet()
+	 */
+	public static SpriteRegistry getSpriteRegistry() {
+		return registry;
 	}
 
 	//getter & setter
@@ -534,6 +524,15 @@ public abstract class AbstractGameObject implements Serializable, Renderable {
 		marked ^= (-((AbstractGameObject.currentMarkedFlag >> id) & 1) ^ marked) & (1 << id);
 	}
 
+	/**
+	 * Removes the mark of the depth sorting algorithm. Needed for objects
+	 * which are reused after they were not visited for some frames.
+	 * @param id camera id
+	 */
+	public void unmarkDS(final int id) {
+		marked ^= (-(((AbstractGameObject.currentMarkedFlag >> id) & 1) ^ 1) ^ marked) & (1 << id);
+	}
+
 	@Override
 	public boolean shouldBeRendered(Camera camera) {
 		return true;
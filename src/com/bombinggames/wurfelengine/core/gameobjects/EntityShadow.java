@@ -30,7 +30,9 @@ package com.bombinggames.wurfelengine.core.gameobjects;
 
 import com.badlogic.gdx.ai.msg.Telegram;
 import com.bombinggames.wurfelengine.core.Camera;
+import com.bombinggames.wurfelengine.core.Controller;
 import com.bombinggames.wurfelengine.core.GameView;
+import com.bombinggames.wurfelengine.core.map.Coordinate;
 import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
 
 /**
@@ -65,10 +67,17 @@ public class EntityShadow extends AbstractEntity implements Component {
 			}
 			//find height of shadow surface
 			getPoint().set(character.getPosition());//start at character
-			while (getPoint().getZ() > 0
-				&& (RenderCell.isTransparent(getPoint().getBlock()))
-			) {
-				getPoint().add(0, 0, -RenderCell.GAME_EDGELENGTH);
+			Coordinate coord = getPoint().getCoord();
+			int opaqueHeight = Controller.getMap().getOpaqueHeight(coord.getX(), coord.getY());
+			if (getPoint().getZGrid() > opaqueHeight) {
+				//above the column, no need to probe
+				getPoint().setZ(Math.max(opaqueHeight, 0) * RenderCell.GAME_EDGELENGTH);
+			} else {
+				while (getPoint().getZ() > 0
+					&& (RenderCell.isTransparent(getPoint().getBlock()))
+				) {
+					getPoint().add(0, 0, -RenderCell.GAME_EDGELENGTH);
+				}
 			}
 			//last level
 			if (character.getPosition().getZPoint() < RenderCell.GAME_EDGELENGTH) {
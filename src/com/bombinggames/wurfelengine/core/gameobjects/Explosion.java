@@ -1,16 +1,13 @@
 package com.bombinggames.wurfelengine.core.gameobjects;
 
-import com.badlogic.gdx.ai.msg.MessageManager;
 import com.badlogic.gdx.ai.msg.Telegram;
 import com.badlogic.gdx.ai.msg.Telegraph;
+import com.badlogic.gdx.math.Vector3;
 import com.bombinggames.wurfelengine.WE;
 import com.bombinggames.wurfelengine.core.Camera;
 import com.bombinggames.wurfelengine.core.Controller;
-import com.bombinggames.wurfelengine.core.Events;
-import com.bombinggames.wurfelengine.core.map.Coordinate;
+import com.bombinggames.wurfelengine.core.map.AreaDamage;
 import com.bombinggames.wurfelengine.core.map.Point;
-import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
-import java.util.LinkedList;
 
 /**
  *
@@ -64,57 +61,26 @@ public class Explosion extends AbstractEntity implements Telegraph {
 	@Override
 	public AbstractEntity spawn(Point point) {
 		super.spawn(point);
-		//replace blocks by air
-		for (int x = -radius; x < radius; x++) {
-			for (int y = -radius * 2; y < radius * 2; y++) {
-				for (int z = -radius; z < radius; z++) {
-					Coordinate coord = point.toCoord().add(x, y, z);
-   					int intdamage = (int) (damage
-						* (1 - getPosition().distanceToSquared(coord)
-						/ (radius * radius * RenderCell.GAME_EDGELENGTH * RenderCell.GAME_EDGELENGTH)));
-					if (intdamage > 0) {
-						if (intdamage > 100) {
-							intdamage = 100; //clamp so it's under 127 to avoid byte overflow
-						}
-						coord.damage(
-							(byte) intdamage
-						);
-					}
-					
-					//get every entity which is attacked
-					LinkedList<MovableEntity> list
-						= Controller.getMap().getEntitysOnCoord(
-							coord,
-							MovableEntity.class
-						);
+		//damage blocks and entities in one pass
+		AreaDamage area = Controller.getMap().damageArea(point, radius, damage, this);
 
-					for (MovableEntity ent : list) {
-						intdamage = (int) (damage
-						* (1 - getPosition().distanceToSquared(ent)
-						/ (radius * radius * RenderCell.GAME_EDGELENGTH * RenderCell.GAME_EDGELENGTH)));
-						intdamage*=1.2;//entities should break a little easier
-						if (intdamage > 100) {
-							intdamage = 100; //clamp so it's under 127 to avoid byte overflow
-						}
-						MessageManager.getInstance().dispatchMessage(
-							this,
-							(Telegraph) ent,
-							Events.damage.getId(),
-							(byte) intdamage
-						);
-					}
-
-					Particle dust = (Particle) new Particle(
-						(byte) 22,
-						1700
-					).spawn(point.cpy().add((float) Math.random()*20f, (float) Math.random()*20f, (float) Math.random()*20f));//spawn at center
-					dust.getColor().set(0.6f, 0.55f, 0.4f, 1f);
-					dust.setType(ParticleType.FIRE);
-					dust.addMovement(
-						coord.toPoint().sub(point).nor().scl(4f)
-					);//move from center to outside
-				}
-			}
+		ParticleSystem particles = Controller.getMap().getParticleSystem();
+		Point cellCenter = new Point();
+		for (int i = 0; i < area.getCellCount(); i++) {
+			//move from center to outside
+			Vector3 dir = area.getCellCenter(i, cellCenter).sub(point).nor().scl(4f);
+			particles.add(
+				ParticleType.FIRE,
+				(byte) 22,
+				point.getX() + (float) Math.random() * 20f,//spawn at center
+				point.getY() + (float) Math.random() * 20f,
+				point.getZ() + (float) Math.random() * 20f,
+				dir.x,
+				dir.y,
+				dir.z,
+				0.6f, 0.55f, 0.4f, 1f,
+				1700
+			);
 		}
 
 		if (camera != null) {
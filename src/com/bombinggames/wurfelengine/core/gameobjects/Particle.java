@@ -2,9 +2,14 @@ package com.bombinggames.wurfelengine.core.gameobjects;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Interpolation;
-import com.badlogic.gdx.utils.Pool;
+import com.bombinggames.wurfelengine.core.Controller;
+import com.bombinggames.wurfelengine.core.map.Point;
 
 /**
+ * A template for particles. Spawning a particle adds a copy to the
+ * {@link ParticleSystem} of the map. Unlike other entities the particle itself
+ * is not added to the map: it gets no position, is not updated and is not in
+ * the entity list. It can be spawned again with other values.
  *
  * @author Benedikt Vogler
  */
@@ -24,7 +29,6 @@ public class Particle extends MovableEntity {
 	private float startingAlpha = 1f;
 	private ParticleType type = ParticleType.REGULAR;
 	private boolean rotateRight;
-	private Pool<Particle> pool;
 
 	/**
 	 * With TTL 2000.
@@ -163,19 +167,17 @@ public class Particle extends MovableEntity {
 	}
 
 	/**
-	 * set the pool where to put itself in after destruction
-	 * @param pool 
+	 * Adds a copy to the particle system of the map. Changes after spawning
+	 * have no effect on the spawned particle. Does not add this entity to the
+	 * map.
+	 *
+	 * @param point
+	 * @return itself, {@link #hasPosition()} stays false
 	 */
-	void setPool(Pool<Particle> pool) {
-		this.pool = pool;
-	}
-
 	@Override
-	public void dispose() {
-		super.dispose();
-		if (pool != null) {
-			pool.free(this);
-		}
+	public MovableEntity spawn(Point point) {
+		Controller.getMap().getParticleSystem().add(this, point);
+		return this;
 	}
 
 }
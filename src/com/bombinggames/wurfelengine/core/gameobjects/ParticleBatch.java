@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.gameobjects;
+
+import com.bombinggames.wurfelengine.core.Camera;
+import com.bombinggames.wurfelengine.core.GameView;
+import com.bombinggames.wurfelengine.core.map.Coordinate;
+import com.bombinggames.wurfelengine.core.map.Point;
+import com.bombinggames.wurfelengine.core.map.Position;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderStorage;
+import java.util.LinkedList;
+
+/**
+ * The particles of a {@link ParticleSystem} inside one cell. A batch is
+ * inserted into the depth list like an entity so that the particles are
+ * hidden by the blocks in front of them. The batches are reused every frame
+ * and are only valid until the particle system is updated again.
+ *
+ * @author Benedikt Vogler
+ * @see ParticleSystem#batch(RenderStorage, float, java.util.List)
+ */
+public class ParticleBatch extends AbstractGameObject {
+
+	private static final long serialVersionUID = 1L;
+	/**
+	 * a batch covers nothing itself, it is covered by its cell
+	 */
+	private static final LinkedList<AbstractGameObject> COVERED = new LinkedList<>();
+
+	private final transient ParticleSystem system;
+	private final Point position = new Point(0, 0, 0);
+	/**
+	 * the cell above the particles, {@link com.bombinggames.wurfelengine.core.map.rendering.RenderChunk#NULLPOINTEROBJECT}
+	 * if the particles are not inside a cell of the render storage
+	 */
+	private transient RenderCell cell;
+	/**
+	 * buffer and index of every particle in this batch
+	 */
+	int[] particles = new int[16];
+	int size;
+
+	ParticleBatch(ParticleSystem system) {
+		this.system = system;
+	}
+
+	/**
+	 * Removes the particles and sets the cell.
+	 *
+	 * @param cell
+	 * @param x game space of the first particle
+	 * @param y game space of the first particle
+	 * @param z game space of the first particle
+	 */
+	void reset(RenderCell cell, float x, float y, float z) {
+		this.cell = cell;
+		position.set(x, y, z);
+		size = 0;
+	}
+
+	void add(int buffer, int index) {
+		if (size * 2 == particles.length) {
+			int[] grown = new int[particles.length * 2];
+			System.arraycopy(particles, 0, grown, 0, particles.length);
+			particles = grown;
+		}
+		particles[size * 2] = buffer;
+		particles[size * 2 + 1] = index;
+		size++;
+	}
+
+	/**
+	 *
+	 * @return the cell which covers the particles
+	 */
+	public RenderCell getCell() {
+		return cell;
+	}
+
+	/**
+	 *
+	 * @return amount of particles in this batch
+	 */
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void render(GameView view, Camera camera) {
+		system.render(view, camera, this);
+	}
+
+	@Override
+	public char getSpriteCategory() {
+		return 'e';
+	}
+
+	@Override
+	public int getDimensionZ() {
+		return 0;
+	}
+
+	@Override
+	public void setPosition(Position pos) {
+		position.set(pos.toPoint());
+	}
+
+	@Override
+	public Point getPosition() {
+		return position;
+	}
+
+	@Override
+	public Point getPoint() {
+		return position;
+	}
+
+	@Override
+	public Coordinate getCoord() {
+		return position.toCoord();
+	}
+
+	@Override
+	public LinkedList<AbstractGameObject> getCovered(RenderStorage rs) {
+		return COVERED;
+	}
+
+	/**
+	 *
+	 * @return 0 because the particles have their own sprites
+	 */
+	@Override
+	public byte getSpriteId() {
+		return 0;
+	}
+
+	@Override
+	public byte getSpriteValue() {
+		return 0;
+	}
+
+	@Override
+	public String getName() {
+		return "Particles";
+	}
+
+	@Override
+	public float getLightlevelR() {
+		return 1;
+	}
+
+	@Override
+	public float getLightlevelG() {
+		return 1;
+	}
+
+	@Override
+	public float getLightlevelB() {
+		return 1;
+	}
+
+	@Override
+	public void setLightlevel(float lightlevel) {
+	}
+}
@@ -34,8 +34,8 @@ package com.bombinggames.wurfelengine.core.gameobjects;
 import com.badlogic.gdx.ai.msg.Telegram;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Vector3;
-import com.badlogic.gdx.utils.Pool;
 import com.bombinggames.wurfelengine.WE;
+import com.bombinggames.wurfelengine.core.Controller;
 import com.bombinggames.wurfelengine.core.map.Point;
 
 /**
@@ -60,47 +60,17 @@ public class ParticleEmitter extends AbstractEntity {
 	private Vector3 spread = new Vector3(0, 0, 0);
 	private PointLightSource lightsource;
 	private Particle prototype = new Particle((byte) 22);
-	private Pool<Particle> pool;
 
 	/**
-	 * Initializes with defautl size
+	 * active by default. The particles are stored in the
+	 * {@link ParticleSystem} of the map so there is no pool size.
 	 */
 	public ParticleEmitter() {
-		this(50);
-	}
-
-	/**
-	 * active by default
-	 *
-	 * @param size size of pool
-	 */
-	//public Emitter(Class<MovableEntity> emitterClass) {
-	public ParticleEmitter(int size) {
 		super((byte) 14);
 		//this.particleClass = Dust.class;
 		setIndestructible(true);
 		setName("Particle Emitter");
 		setActive(true);
-		pool = new Pool<Particle>(size) {
-			@Override
-			protected Particle newObject() {
-				Particle particle = new Particle(prototype.getSpriteId(), prototype.getLivingTime());
-				return particle;
-			}
-
-			@Override
-			public Particle obtain() {
-				boolean init = false;
-				if (getFree() > 0) {
-					init = true;//will obtain from pool
-				}
-				Particle particle = super.obtain();
-				if (init) {
-					particle.init(2000f);
-				}
-				return particle;
-			}
-		};
 	}
 
 	@Override
@@ -124,26 +94,26 @@ public class ParticleEmitter extends AbstractEntity {
 			}
 
 			timer += dt;
+			ParticleSystem particles = Controller.getMap().getParticleSystem();
+			Color color = prototype.getColor();
 			//loop to allow more then one spawn each frame
 			while (timer >= timeEachSpawn) {
 				timer -= timeEachSpawn;
-				Particle particle = pool.obtain();
-				particle.setPool(pool);
-				particle.setType(prototype.getType());
-				particle.setColor(prototype.getColor());
-				particle.setRotation((float) (Math.random() * 360f));
-				particle.addMovement(
-					startingVector.add(
-						(float) (Math.random() - 0.5f) * 2 * spread.x,
-						(float) (Math.random() - 0.5f) * 2 * spread.y,
-						(float) (Math.random() - 0.5f) * 2 * spread.z
-					)
+				particles.add(
+					prototype.getType(),
+					prototype.getSpriteId(),
+					getPosition().getX(),
+					getPosition().getY(),
+					getPosition().getZ(),
+					startingVector.x + (float) (Math.random() - 0.5f) * 2 * spread.x,
+					startingVector.y + (float) (Math.random() - 0.5f) * 2 * spread.y,
+					startingVector.z + (float) (Math.random() - 0.5f) * 2 * spread.z,
+					color.r,
+					color.g,
+					color.b,
+					color.a,
+					prototype.getLivingTime()
 				);
-				if (particle.hasPosition()) {
-					particle.getPosition().set(getPosition());
-				} else {
-					particle.spawn(getPosition().cpy());
-				}
 			}
 		} else {
 			getColor().set(0.5f, 0.5f, 0.5f, 1);
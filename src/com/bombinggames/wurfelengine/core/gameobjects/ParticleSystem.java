@@ -0,0 +1,530 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * If this software is used for a game the official „Wurfel Engine“ logo or its name must be
+ *   visible in an intro screen or main menu.
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.gameobjects;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.bombinggames.wurfelengine.WE;
+import com.bombinggames.wurfelengine.core.Camera;
+import com.bombinggames.wurfelengine.core.Controller;
+import com.bombinggames.wurfelengine.core.GameView;
+import com.bombinggames.wurfelengine.core.map.Chunk;
+import com.bombinggames.wurfelengine.core.map.ChunkSnapshot;
+import com.bombinggames.wurfelengine.core.map.Coordinate;
+import com.bombinggames.wurfelengine.core.map.Map;
+import com.bombinggames.wurfelengine.core.map.Point;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderChunk;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderStorage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Stores and simulates particles without creating an entity for each one.
+ * Particles of the same {@link ParticleType} are stored in primitive arrays so
+ * that the update is a tight loop. Particles stop when they hit a block.<br>
+ * For rendering the visible particles are grouped by the cell above them into
+ * {@link ParticleBatch}es which are sorted into the depth list like entities,
+ * so blocks in front of the particles hide them.
+ *
+ * @author Benedikt Vogler
+ */
+public class ParticleSystem {
+
+	/**
+	 * the scaling used when a particle is not growing
+	 */
+	private static final float SCALING = 0.3f;
+	/**
+	 * in degree per ms
+	 */
+	private static final float ROTATIONSPEED = 0.1f;
+
+	private final ParticleBuffer[] buffers;
+	private final Point tmpPoint = new Point(0, 0, 0);
+	private final Coordinate tmpCoord = new Coordinate(0, 0, 0);
+	/**
+	 * every batch ever created, the first {@link #batchCount} are in use
+	 */
+	private final ArrayList<ParticleBatch> batches = new ArrayList<>(64);
+	private int batchCount;
+	private final IdentityHashMap<RenderCell, ParticleBatch> batchOfCell = new IdentityHashMap<>(64);
+	/**
+	 * copy of the cvar "maxParticles", updated every frame
+	 */
+	private int maxParticles;
+
+	/**
+	 *
+	 */
+	public ParticleSystem() {
+		ParticleType[] types = ParticleType.values();
+		buffers = new ParticleBuffer[types.length];
+		for (int i = 0; i < types.length; i++) {
+			buffers[i] = new ParticleBuffer(types[i], 64);
+		}
+		maxParticles = WE.getCVars().getValueI("maxParticles");
+	}
+
+	/**
+	 * Adds a particle. Ignored if the limit set in the cvar "maxParticles" is
+	 * reached.
+	 *
+	 * @param type
+	 * @param spriteId
+	 * @param x game space
+	 * @param y game space
+	 * @param z game space
+	 * @param vx in m/s
+	 * @param vy in m/s
+	 * @param vz in m/s
+	 * @param r tint
+	 * @param g tint
+	 * @param b tint
+	 * @param a tint
+	 * @param ttl time to live in ms
+	 * @return false if the particle was not added
+	 */
+	public boolean add(
+		ParticleType type,
+		byte spriteId,
+		float x,
+		float y,
+		float z,
+		float vx,
+		float vy,
+		float vz,
+		float r,
+		float g,
+		float b,
+		float a,
+		float ttl
+	) {
+		if (size() >= maxParticles) {
+			return false;
+		}
+		buffers[type.ordinal()].add(
+			spriteId,
+			x, y, z,
+			vx * RenderCell.GAME_EDGELENGTH,
+			vy * RenderCell.GAME_EDGELENGTH,
+			vz * RenderCell.GAME_EDGELENGTH,
+			r, g, b, a,
+			ttl,
+			(float) (Math.random() * 360f),
+			Math.random() > 0.5f ? -ROTATIONSPEED : ROTATIONSPEED
+		);
+		return true;
+	}
+
+	/**
+	 * Adds a particle with the color, type, sprite, movement and time to live
+	 * of the given particle.
+	 *
+	 * @param particle used as template, is not added to the map
+	 * @param pos
+	 * @return false if the particle was not added
+	 */
+	public boolean add(Particle particle, Point pos) {
+		Color color = particle.getColor();
+		return add(
+			particle.getType(),
+			particle.getSpriteId(),
+			pos.getX(), pos.getY(), pos.getZ(),
+			particle.getMovement().x, particle.getMovement().y, particle.getMovement().z,
+			color.r, color.g, color.b, color.a,
+			particle.getLivingTime()
+		);
+	}
+
+	/**
+	 * Moves the particles and removes the dead ones.
+	 *
+	 * @param dt time in ms
+	 */
+	public void update(float dt) {
+		maxParticles = WE.getCVars().getValueI("maxParticles");
+		float t = dt * 0.001f;
+		Map map = Controller.getMap();
+		for (ParticleBuffer buffer : buffers) {
+			if (buffer.size > 0) {
+				if (map != null) {
+					collide(buffer, map, t);
+				}
+				buffer.integrate(dt, t);
+				buffer.removeDead();
+			}
+		}
+	}
+
+	/**
+	 * Stops every particle which would move into a block in this step. The
+	 * blocks are read from the snapshots of the chunks so that edits of the
+	 * blocks do not change a chunk while it is read.
+	 *
+	 * @param buffer
+	 * @param map
+	 * @param t time in s
+	 */
+	private void collide(ParticleBuffer buffer, Map map, float t) {
+		//remember the last chunk because particles are usually close together
+		ChunkSnapshot chunk = null;
+		int blocksZ = Chunk.getBlocksZ();
+		for (int i = 0; i < buffer.size; i++) {
+			float vx = buffer.vx[i];
+			float vy = buffer.vy[i];
+			float vz = buffer.vz[i];
+			if (vx == 0 && vy == 0 && vz == 0) {
+				continue;
+			}
+			float z = buffer.z[i] + vz * t;
+			boolean obstacle;
+			if (z < 0) {
+				obstacle = true;//ground
+			} else {
+				tmpPoint.set(buffer.x[i] + vx * t, buffer.y[i] + vy * t, z);
+				tmpCoord.setFromPoint(tmpPoint);
+				if (tmpCoord.getZ() >= blocksZ) {
+					obstacle = false;
+				} else {
+					if (chunk == null || !chunk.contains(tmpCoord.getX(), tmpCoord.getY())) {
+						Chunk mapChunk = map.getChunkContaining(tmpCoord.getX(), tmpCoord.getY());
+						chunk = mapChunk == null ? null : mapChunk.getSnapshot();
+					}
+					if (chunk == null) {
+						obstacle = false;
+					} else {
+						obstacle = chunk.isObstacle(tmpCoord.getX(), tmpCoord.getY(), tmpCoord.getZ());
+					}
+				}
+			}
+			if (obstacle) {
+				buffer.vx[i] = 0;
+				buffer.vy[i] = 0;
+				buffer.vz[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Groups the particles which are visible by at least one camera by the
+	 * cell above them. The batches are valid until the next call or until the
+	 * particles are updated.
+	 *
+	 * @param rs the cells
+	 * @param zLimit particles at or above this height are not rendered
+	 * @param cameras the cameras which render
+	 * @return amount of batches, get them with {@link #getBatch(int)}
+	 */
+	public int batch(RenderStorage rs, float zLimit, List<Camera> cameras) {
+		batchCount = 0;
+		batchOfCell.clear();
+		//particles are usually close together so remember the last cell
+		RenderCell lastCell = null;
+		int lastX = 0, lastY = 0, lastZ = 0;
+		for (int b = 0; b < buffers.length; b++) {
+			ParticleBuffer buffer = buffers[b];
+			for (int i = 0; i < buffer.size; i++) {
+				if (buffer.z[i] >= zLimit || !inAnyViewFrustum(cameras, buffer.getViewX(i), buffer.getViewY(i))) {
+					continue;
+				}
+				//add in cell above like the entities
+				tmpPoint.set(buffer.x[i], buffer.y[i], buffer.z[i] + RenderCell.GAME_EDGELENGTH);
+				tmpCoord.setFromPoint(tmpPoint);
+				if (lastCell == null || tmpCoord.getX() != lastX || tmpCoord.getY() != lastY || tmpCoord.getZ() != lastZ) {
+					lastCell = rs.getCell(tmpCoord);
+					if (lastCell == null) {
+						lastCell = RenderChunk.NULLPOINTEROBJECT;
+					}
+					lastX = tmpCoord.getX();
+					lastY = tmpCoord.getY();
+					lastZ = tmpCoord.getZ();
+				}
+				ParticleBatch batch = batchOfCell.get(lastCell);
+				if (batch == null) {
+					if (batchCount == batches.size()) {
+						batches.add(new ParticleBatch(this));
+					}
+					batch = batches.get(batchCount);
+					batchCount++;
+					batch.reset(lastCell, buffer.x[i], buffer.y[i], buffer.z[i]);
+					batchOfCell.put(lastCell, batch);
+				}
+				batch.add(b, i);
+			}
+		}
+		batchOfCell.clear();
+		return batchCount;
+	}
+
+	private static boolean inAnyViewFrustum(List<Camera> cameras, int viewX, int viewY) {
+		for (int i = 0; i < cameras.size(); i++) {
+			if (cameras.get(i).inViewFrustum(viewX, viewY)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 *
+	 * @param i smaller than the amount returned by the last
+	 * {@link #batch(RenderStorage, float, List)}
+	 * @return a batch of the last grouping
+	 */
+	public ParticleBatch getBatch(int i) {
+		return batches.get(i);
+	}
+
+	/**
+	 * Draws the particles of a batch which are in the view frustum of the
+	 * camera. The sprite batch must have begun.
+	 *
+	 * @param view
+	 * @param camera
+	 * @param particles
+	 */
+	void render(GameView view, Camera camera, ParticleBatch particles) {
+		SpriteBatch batch = view.getSpriteBatch();
+		float oldColor = batch.getPackedColor();
+		int[] entries = particles.particles;
+		for (int i = 0; i < particles.size; i++) {
+			ParticleBuffer buffer = buffers[entries[i * 2]];
+			//skip particles removed after the grouping
+			if (entries[i * 2 + 1] < buffer.size) {
+				buffer.render(batch, camera, entries[i * 2 + 1]);
+			}
+		}
+		batch.setColor(oldColor);
+	}
+
+	/**
+	 *
+	 * @return amount of living particles
+	 */
+	public int size() {
+		int size = 0;
+		for (ParticleBuffer buffer : buffers) {
+			size += buffer.size;
+		}
+		return size;
+	}
+
+	/**
+	 * Removes every particle.
+	 */
+	public void clear() {
+		for (ParticleBuffer buffer : buffers) {
+			buffer.size = 0;
+		}
+		batchCount = 0;
+	}
+
+	/**
+	 * The particles of one type.
+	 */
+	private static class ParticleBuffer {
+
+		private final ParticleType type;
+		private int size;
+		private byte[] spriteId;
+		private float[] x;
+		private float[] y;
+		private float[] z;
+		/**
+		 * game space per s
+		 */
+		private float[] vx;
+		private float[] vy;
+		private float[] vz;
+		private float[] r;
+		private float[] g;
+		private float[] b;
+		private float[] a;
+		private float[] ttl;
+		private float[] maxTtl;
+		private float[] rotation;
+		private float[] rotationSpeed;
+
+		ParticleBuffer(ParticleType type, int capacity) {
+			this.type = type;
+			spriteId = new byte[capacity];
+			x = new float[capacity];
+			y = new float[capacity];
+			z = new float[capacity];
+			vx = new float[capacity];
+			vy = new float[capacity];
+			vz = new float[capacity];
+			r = new float[capacity];
+			g = new float[capacity];
+			b = new float[capacity];
+			a = new float[capacity];
+			ttl = new float[capacity];
+			maxTtl = new float[capacity];
+			rotation = new float[capacity];
+			rotationSpeed = new float[capacity];
+		}
+
+		void add(byte spriteId, float x, float y, float z, float vx, float vy, float vz, float r, float g, float b, float a, float ttl, float rotation, float rotationSpeed) {
+			if (size == this.spriteId.length) {
+				grow(size * 2);
+			}
+			int i = size;
+			this.spriteId[i] = spriteId;
+			this.x[i] = x;
+			this.y[i] = y;
+			this.z[i] = z;
+			this.vx[i] = vx;
+			this.vy[i] = vy;
+			this.vz[i] = vz;
+			this.r[i] = r;
+			this.g[i] = g;
+			this.b[i] = b;
+			this.a[i] = a;
+			this.ttl[i] = ttl;
+			this.maxTtl[i] = ttl;
+			this.rotation[i] = rotation;
+			this.rotationSpeed[i] = rotationSpeed;
+			size++;
+		}
+
+		private void grow(int capacity) {
+			spriteId = Arrays.copyOf(spriteId, capacity);
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			z = Arrays.copyOf(z, capacity);
+			vx = Arrays.copyOf(vx, capacity);
+			vy = Arrays.copyOf(vy, capacity);
+			vz = Arrays.copyOf(vz, capacity);
+			r = Arrays.copyOf(r, capacity);
+			g = Arrays.copyOf(g, capacity);
+			b = Arrays.copyOf(b, capacity);
+			a = Arrays.copyOf(a, capacity);
+			ttl = Arrays.copyOf(ttl, capacity);
+			maxTtl = Arrays.copyOf(maxTtl, capacity);
+			rotation = Arrays.copyOf(rotation, capacity);
+			rotationSpeed = Arrays.copyOf(rotationSpeed, capacity);
+		}
+
+		/**
+		 * Branch free so that the JIT can vectorize it.
+		 *
+		 * @param dt in ms
+		 * @param t in s
+		 */
+		void integrate(float dt, float t) {
+			final int n = size;
+			final float[] x = this.x, y = this.y, z = this.z;
+			final float[] vx = this.vx, vy = this.vy, vz = this.vz;
+			final float[] ttl = this.ttl;
+			for (int i = 0; i < n; i++) {
+				x[i] += vx[i] * t;
+				y[i] += vy[i] * t;
+				z[i] += vz[i] * t;
+				ttl[i] -= dt;
+			}
+		}
+
+		/**
+		 * Fills the gaps of dead particles with the last ones.
+		 */
+		void removeDead() {
+			int i = 0;
+			while (i < size) {
+				if (ttl[i] <= 0) {
+					size--;
+					copy(size, i);
+				} else {
+					i++;
+				}
+			}
+		}
+
+		private void copy(int from, int to) {
+			spriteId[to] = spriteId[from];
+			x[to] = x[from];
+			y[to] = y[from];
+			z[to] = z[from];
+			vx[to] = vx[from];
+			vy[to] = vy[from];
+			vz[to] = vz[from];
+			r[to] = r[from];
+			g[to] = g[from];
+			b[to] = b[from];
+			a[to] = a[from];
+			ttl[to] = ttl[from];
+			maxTtl[to] = maxTtl[from];
+			rotation[to] = rotation[from];
+			rotationSpeed[to] = rotationSpeed[from];
+		}
+
+		int getViewX(int i) {
+			return (int) x[i];
+		}
+
+		int getViewY(int i) {
+			return (int) (-y[i] / 2 + (int) (z[i] * RenderCell.ZAXISSHORTENING));
+		}
+
+		void render(SpriteBatch batch, Camera camera, int i) {
+			int viewX = getViewX(i);
+			int viewY = getViewY(i);
+			if (!camera.inViewFrustum(viewX, viewY)) {
+				return;
+			}
+			AtlasRegion texture = AbstractGameObject.getSprite('e', spriteId[i], (byte) 0);
+			if (texture == null) {
+				return;
+			}
+			float life = ttl[i] / maxTtl[i];
+			float age = maxTtl[i] - ttl[i];
+			float brightness = type.fadeToBlack() ? life : 1;
+			float alpha = type.fade() ? a[i] * life * life * life * (life * (life * 6 - 15) + 10) : a[i];//fade interpolation
+			batch.setColor(r[i] * brightness, g[i] * brightness, b[i] * brightness, alpha);
+			float scaling = type.isGrowing() ? age / 800f : SCALING;
+			batch.draw(
+				texture,
+				viewX + texture.offsetX - texture.originalWidth / 2,
+				viewY - RenderCell.VIEW_HEIGHT2 + texture.offsetY,
+				texture.originalWidth / 2 - texture.offsetX,
+				RenderCell.VIEW_HEIGHT2 - texture.offsetY,
+				texture.getRegionWidth(),
+				texture.getRegionHeight(),
+				scaling,
+				scaling,
+				rotation[i] + rotationSpeed[i] * age
+			);
+		}
+	}
+}
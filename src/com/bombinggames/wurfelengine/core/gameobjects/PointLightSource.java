@@ -3,6 +3,7 @@ package com.bombinggames.wurfelengine.core.gameobjects;
 import com.badlogic.gdx.ai.msg.Telegram;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Vector3;
+import com.bombinggames.wurfelengine.core.Controller;
 import com.bombinggames.wurfelengine.core.GameView;
 import com.bombinggames.wurfelengine.core.map.Coordinate;
 import com.bombinggames.wurfelengine.core.map.Intersection;
@@ -20,6 +21,12 @@ public class PointLightSource extends AbstractEntity {
 
 	private final int radius;
 	private final float floatradius;
+	/**
+	 * the radius which is lit, smaller than {@link #radius} if the
+	 * {@link com.bombinggames.wurfelengine.core.FrameGovernor} lowered the
+	 * quality
+	 */
+	private int reach;
 	/**
 	 * brightness coordiante relative to center, last dimension is side
 	 */
@@ -45,6 +52,7 @@ public class PointLightSource extends AbstractEntity {
 		setName("LightSource");
 		this.floatradius = maxRadius;
 		this.radius = (int) Math.ceil(maxRadius);
+		this.reach = radius;
 		this.brightness = brightness;
 		setColor(color);
 		if (radius == 0) {
@@ -99,9 +107,9 @@ public class PointLightSource extends AbstractEntity {
 			
 			//light blocks around
 			Vector3 dir = new Vector3();
-			for (int z = -radius; z < radius; z++) {
-				for (int x = -radius; x < radius; x++) {
-					for (int y = -radius * 2; y < radius * 2; y++) {
+			for (int z = -reach; z < reach; z++) {
+				for (int x = -reach; x < reach; x++) {
+					for (int y = -reach * 2; y < reach * 2; y++) {
 
 						//reset cell in cache
 						if (lightcache[x + radius][y + radius * 2][z + radius][0] > 0) {
@@ -117,7 +125,7 @@ public class PointLightSource extends AbstractEntity {
 						//send rays
 						dir.set(x + 0.1f, y + 0.2f, z - 0.4f).nor();//offset because???
 						Intersection inters = origin.raycast(dir,
-							floatradius * 2,
+							floatradius * 2 * reach / Math.max(radius, 1),
 							null,
 							(Byte t) -> !RenderCell.isTransparent(t, (byte) 0)
 						);
@@ -165,8 +173,13 @@ public class PointLightSource extends AbstractEntity {
 		super.update(dt);
 
 		if (enabled && hasPosition()) {
-			//check if moved and therefore has to be recalculated
-			if (!getPosition().equals(lastPos)) {
+			int newReach = Math.min(radius, (int) Math.ceil(floatradius * Controller.getFrameGovernor().getLightRadiusScale()));
+			if (newReach != reach) {
+				reach = newReach;
+				clearCache();
+				lightNearbyBlocks(dt);
+			} else if (!getPosition().equals(lastPos)) {
+				//check if moved and therefore has to be recalculated
 				lightNearbyBlocks(dt);
 			}
 
@@ -177,9 +190,9 @@ public class PointLightSource extends AbstractEntity {
 			int xCenter = tmpCoord.getX();
 			int yCenter = tmpCoord.getY();
 			int zCenter = tmpCoord.getZ();
-			for (int x = -radius; x < radius; x++) {
-				for (int y = -radius * 2; y < radius * 2; y++) {
-					for (int z = -radius; z < radius; z++) {
+			for (int x = -reach; x < reach; x++) {
+				for (int y = -reach * 2; y < reach * 2; y++) {
+					for (int z = -reach; z < reach; z++) {
 						//get the light in the cache
 						float[] blocklight = lightcache[x + radius][y + radius * 2][z + radius];
 						tmpCoord.set(xCenter + x, yCenter + y, zCenter + z);
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.gameobjects;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.badlogic.gdx.utils.Array;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import static com.bombinggames.wurfelengine.core.map.rendering.RenderCell.OBJECTTYPESNUM;
+import static com.bombinggames.wurfelengine.core.map.rendering.RenderCell.VALUESNUM;
+import static com.bombinggames.wurfelengine.core.map.rendering.RenderCell.VIEW_DEPTH2;
+import static com.bombinggames.wurfelengine.core.map.rendering.RenderCell.VIEW_DEPTH4;
+import java.util.Arrays;
+
+/**
+ * Index of the sprites in the spritesheet. Every region gets a dense integer
+ * id when the sheet is loaded. The names of the regions are parsed once and
+ * every (category, id, value) and (id, value, side) combination is resolved to
+ * a sprite id including the fallbacks, so that a lookup is a single array
+ * access without string building.<br>
+ * The texture coordinates of every sprite are stored in a float array. The
+ * normal map uses the same layout as the diffuse map so the coordinates are
+ * valid for both.
+ *
+ * @author Benedikt Vogler
+ */
+public class SpriteRegistry {
+
+	private static final int SIDES = 3;
+	private static final int CELLS = OBJECTTYPESNUM * VALUESNUM;
+	private static final String ERRORMESSAGE = "Sprite and category error not found and even the generic error sprite could not be found. Something with the sprites is fucked up.";
+
+	/**
+	 * every region of the sheet, index is the sprite id
+	 */
+	private final AtlasRegion[] regions;
+	/**
+	 * u, v, u2, v2 for every sprite id
+	 */
+	private final float[] uvs;
+	/**
+	 * category letter to index of the table in {@link #objectSprites}. -1 if
+	 * there is no sprite with this category.
+	 */
+	private final byte[] categorySlot = new byte[128];
+	/**
+	 * {category slot}{id}{value} to sprite id
+	 */
+	private final int[] objectSprites;
+	/**
+	 * {id}{value}{side} to sprite id
+	 */
+	private final int[] blockSprites;
+	private final int errorSprite;
+	/**
+	 * representing color of blocks as RGBA8888 {id}{value}
+	 */
+	private final int[] colors = new int[CELLS];
+	private final boolean[] colorCached = new boolean[CELLS];
+
+	/**
+	 * Indexes every region of the sheet.
+	 *
+	 * @param sheet the loaded spritesheet
+	 */
+	public SpriteRegistry(TextureAtlas sheet) {
+		Array<AtlasRegion> atlasRegions = sheet.getRegions();
+		regions = new AtlasRegion[atlasRegions.size];
+		uvs = new float[atlasRegions.size * 4];
+		Arrays.fill(categorySlot, (byte) -1);
+
+		//first pass to find the categories
+		int categories = 0;
+		for (int i = 0; i < atlasRegions.size; i++) {
+			String name = atlasRegions.get(i).name;
+			char category = name.charAt(0);
+			if (category < 128 && categorySlot[category] == -1 && parseNumbers(name, 1) >= 2) {
+				categorySlot[category] = (byte) categories++;
+			}
+		}
+		objectSprites = new int[categories * CELLS];
+		Arrays.fill(objectSprites, -1);
+		blockSprites = new int[CELLS * SIDES];
+		Arrays.fill(blockSprites, -1);
+
+		int error = -1;
+		int[] numbers = new int[4];
+		for (int i = 0; i < atlasRegions.size; i++) {
+			AtlasRegion region = atlasRegions.get(i);
+			regions[i] = region;
+			uvs[i * 4] = region.getU();
+			uvs[i * 4 + 1] = region.getV();
+			uvs[i * 4 + 2] = region.getU2();
+			uvs[i * 4 + 3] = region.getV2();
+
+			String name = region.name;
+			if (error == -1 && "error".equals(name)) {
+				error = i;
+				continue;
+			}
+			char category = name.charAt(0);
+			int count = parseNumbers(name, 1, numbers);
+			if (category >= 128 || count < 2) {
+				continue;
+			}
+			int id = numbers[0];
+			int value = numbers[1];
+			if (id >= OBJECTTYPESNUM || value >= VALUESNUM) {
+				continue;
+			}
+			//the first region with a name wins like TextureAtlas#findRegion
+			if (count == 2) {
+				int index = categorySlot[category] * CELLS + id * VALUESNUM + value;
+				if (objectSprites[index] == -1) {
+					objectSprites[index] = i;
+				}
+			} else if (count == 3 && category == 'b' && numbers[2] < SIDES) {
+				int index = (id * VALUESNUM + value) * SIDES + numbers[2];
+				if (blockSprites[index] == -1) {
+					blockSprites[index] = i;
+				}
+			}
+		}
+		errorSprite = error;
+
+		//resolve the fallbacks once
+		for (int slot = 0; slot < categories; slot++) {
+			int fallback = objectSprites[slot * CELLS];
+			if (fallback == -1) {
+				fallback = errorSprite;
+			}
+			for (int i = slot * CELLS; i < (slot + 1) * CELLS; i++) {
+				if (objectSprites[i] == -1) {
+					objectSprites[i] = fallback;
+				}
+			}
+		}
+		for (int side = 0; side < SIDES; side++) {
+			int fallback = blockSprites[side];
+			if (fallback == -1) {
+				fallback = errorSprite;
+			}
+			for (int i = side; i < blockSprites.length; i += SIDES) {
+				if (blockSprites[i] == -1) {
+					blockSprites[i] = fallback;
+				}
+			}
+		}
+		Gdx.app.debug("SpriteRegistry", regions.length + " sprites in " + categories + " categories");
+	}
+
+	/**
+	 * parses numbers separated by "-"
+	 *
+	 * @param name
+	 * @param start index of first number
+	 * @param out where the numbers are stored. can hold up to four numbers.
+	 * @return amount of parsed numbers or 0 if the name has a different format
+	 */
+	private static int parseNumbers(String name, int start, int[] out) {
+		int count = 0;
+		int number = 0;
+		boolean digit = false;
+		for (int i = start; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c >= '0' && c <= '9') {
+				number = number * 10 + c - '0';
+				digit = true;
+				if (number > 0xFFFF) {
+					return 0;
+				}
+			} else if (c == '-' && digit && count < out.length - 1) {
+				out[count++] = number;
+				number = 0;
+				digit = false;
+			} else {
+				return 0;
+			}
+		}
+		if (!digit) {
+			return 0;
+		}
+		out[count++] = number;
+		return count;
+	}
+
+	private static int parseNumbers(String name, int start) {
+		return parseNumbers(name, start, new int[4]);
+	}
+
+	/**
+	 * Get the sprite id of an object. Missing sprites are resolved to the
+	 * sprite "category0-0" or the error sprite.
+	 *
+	 * @param category the category of the sprite e.g. 'b' for blocks
+	 * @param id the id of the object
+	 * @param value the value of the object
+	 * @return sprite id, -1 if not even the error sprite exists
+	 */
+	public int getSpriteIndex(final char category, final byte id, final byte value) {
+		if (category >= 128 || categorySlot[category] == -1
+			|| id < 0 || id >= OBJECTTYPESNUM || value < 0 || value >= VALUESNUM) {
+			return errorSprite;
+		}
+		return objectSprites[categorySlot[category] * CELLS + id * VALUESNUM + value];
+	}
+
+	/**
+	 * Get the sprite id of a block side. Missing sprites are resolved to the
+	 * sprite "b0-0-side" or the error sprite.
+	 *
+	 * @param id the id of the block
+	 * @param value the value of the block
+	 * @param side code of the side
+	 * @return sprite id, -1 if not even the error sprite exists
+	 */
+	public int getBlockSideIndex(final byte id, final byte value, final int side) {
+		if (id < 0 || id >= OBJECTTYPESNUM || value < 0 || value >= VALUESNUM) {
+			return errorSprite;
+		}
+		return blockSprites[(id * VALUESNUM + value) * SIDES + side];
+	}
+
+	/**
+	 *
+	 * @param index sprite id
+	 * @return the region of the sprite id
+	 * @throws NullPointerException if the index is -1 because there is no error
+	 * sprite
+	 */
+	public AtlasRegion getRegion(int index) {
+		if (index < 0) {
+			throw new NullPointerException(ERRORMESSAGE);
+		}
+		return regions[index];
+	}
+
+	/**
+	 * The texture coordinates u, v, u2, v2 of sprite i are at [i*4] to
+	 * [i*4+3].
+	 *
+	 * @return the texture coordinates of every sprite. Do not modify.
+	 */
+	public float[] getUVs() {
+		return uvs;
+	}
+
+	/**
+	 *
+	 * @return amount of indexed sprites
+	 */
+	public int getSize() {
+		return regions.length;
+	}
+
+	/**
+	 * Returns a color representing the block. Picks from the sprite and caches
+	 * the result.
+	 *
+	 * @param id id of the block
+	 * @param value the value of the block.
+	 * @return color as RGBA8888, 0 if there is no sprite or pixmap
+	 */
+	public int getRepresentingColor(final byte id, final byte value) {
+		if (id < 0 || id >= OBJECTTYPESNUM || value < 0 || value >= VALUESNUM) {
+			return 0;
+		}
+		int index = id * VALUESNUM + value;
+		if (!colorCached[index]) {
+			Pixmap pixmap = AbstractGameObject.getPixmap();
+			int sprite;
+			int offsetY;
+			if (RenderCell.hasSides(id, value)) {//if has sides, take top block
+				sprite = getBlockSideIndex(id, value, 1);
+				offsetY = VIEW_DEPTH4;
+			} else {
+				sprite = id > 0 ? getSpriteIndex('b', id, value) : -1;
+				offsetY = VIEW_DEPTH2;
+			}
+			if (pixmap != null && sprite >= 0) {
+				AtlasRegion texture = regions[sprite];
+				colors[index] = pixmap.getPixel(
+					texture.getRegionX() + VIEW_DEPTH2,
+					texture.getRegionY() + offsetY
+				);
+			}
+			colorCached[index] = true;
+		}
+		return colors[index];
+	}
+}
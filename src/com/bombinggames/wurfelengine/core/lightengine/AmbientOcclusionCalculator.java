@@ -31,18 +31,44 @@
 package com.bombinggames.wurfelengine.core.lightengine;
 
 import com.bombinggames.wurfelengine.core.map.Chunk;
-import com.bombinggames.wurfelengine.core.map.Coordinate;
-import com.bombinggames.wurfelengine.core.map.Iterators.DataIterator;
 import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
 import com.bombinggames.wurfelengine.core.map.rendering.RenderChunk;
 import com.bombinggames.wurfelengine.core.map.rendering.RenderStorage;
 
 /**
+ * Calculates the ambient occlusion flags of the blocks. The occluders of a
+ * chunk are stored in a grid padded by the cells of the neighbours which are
+ * needed: one column at each side, two rows above and below and one layer
+ * above and below. The flags are then read from the grid with index offsets.
+ * If a neighbour is loaded or unloaded only its strip of the grid and the
+ * cells next to it are computed again.
  *
  * @author Benedikt Vogler
+ * @see RenderChunk#getOccupancy()
  */
 public class AmbientOcclusionCalculator {
 
+	/**
+	 * y offset of the neighbours, index is the side
+	 */
+	private static final int[] NEIGHBOURY = {-2, -1, 0, 1, 2, 1, 0, -1};
+	/**
+	 * x offset of the neighbours in odd rows, index is the side
+	 */
+	private static final int[] NEIGHBOURXODD = {0, 1, 1, 1, 0, 0, -1, 0};
+	/**
+	 * x offset of the neighbours in even rows, index is the side
+	 */
+	private static final int[] NEIGHBOURXEVEN = {0, 0, 1, 0, 0, -1, -1, -1};
+
+	/**
+	 *
+	 * @return the size of the padded grid of a chunk
+	 */
+	public static int getOccupancySize() {
+		return (Chunk.getBlocksX() + 2) * (Chunk.getBlocksY() + 4) * (Chunk.getBlocksZ() + 2);
+	}
+
 	/**
 	 * calcualtes the ambient occlusion for a chunk.
 	 *
@@ -51,142 +77,208 @@ public class AmbientOcclusionCalculator {
 	 */
 	public static void calcAO(RenderStorage rS, RenderChunk chunk) {
 		if (chunk==null) throw new IllegalArgumentException("Chunk can not be null.");
-		//iterate over every block in chunk
-		Coordinate coord = new Coordinate(0, 0, 0);
-		DataIterator<RenderCell> iterator = chunk.getIterator(0, Chunk.getBlocksZ() - 1);
-		//Algorithm runs similar to marching cubes, could be optimized to cache neighbor row at the side and below todo
-		while (iterator.hasNext()) {
-			RenderCell next = iterator.next();
-			//skip air and blocks without sides
-			if (next.hasSides()) {
-				//analyze top side
-				coord = coord.set(
-					chunk.getTopLeftCoordinateX() + iterator.getCurrentIndex()[0],
-					chunk.getTopLeftCoordinateY() + iterator.getCurrentIndex()[1],
-					iterator.getCurrentIndex()[2] + 1
-				);
-
-				int aoFlags = 0;
-				//first check 0,2,4,6 then check 1,3,5,7
-				for (int side = 0; side < 9; side += 2) {//first round even sides
-					//second round odd sides
-					if (side == 8) {
-						side = 1;
-					}
-					RenderCell neighBlock = coord.goToNeighbour(side).getRenderCell(rS);
-					byte neighborId = neighBlock.getSpriteId();
-					byte neighborValue = neighBlock.getSpriteValue();
-					if (neighborId != 0 && !RenderCell.isTransparent(neighborId, neighborValue) && RenderCell.hasSides(neighborId, neighborValue)) {
-						aoFlags |= 1 << (side + 8);
-						//don't double draw the sides in between
-						if (side % 2 == 1) {
-							aoFlags &= ~(1 << (((side + 1) % 8) + 8));//set next to false
-							aoFlags &= ~(1 << (((side + 7) % 8) + 8));//Set previous to false
-						}
-					} else {
-						aoFlags &= ~(1 << (side + 8));
-					}
-					coord.goToNeighbour((side+4) % 8);//go back to center
+		boolean[] grid = chunk.getOccupancy();
+		fill(chunk, chunk, grid, 0, Chunk.getBlocksX() - 1, 0, Chunk.getBlocksY() - 1);
+		for (int x = -1; x <= 1; x++) {
+			for (int y = -1; y <= 1; y++) {
+				if (x != 0 || y != 0) {
+					fillBorder(rS, chunk, grid, x, y);
 				}
-				
-				//analyze right side of block, side id 2
-				//check right half, which is equivalent to top right at pos 1
-				coord = coord.set(
-					chunk.getTopLeftCoordinateX() + iterator.getCurrentIndex()[0],
-					chunk.getTopLeftCoordinateY() + iterator.getCurrentIndex()[1],
-					iterator.getCurrentIndex()[2]
-				);//get current coordinate
+			}
+		}
+		calcFlags(chunk, grid, 0, Chunk.getBlocksX() - 1, 0, Chunk.getBlocksY() - 1);
+	}
 
-				//left side, side 0
-				//right corner
-				RenderCell neighBlock = coord.add(0, 2, -1).getRenderCell(rS);
-				byte neighborId = neighBlock.getSpriteId();
-				byte neighborValue = neighBlock.getSpriteValue();
-				if (!RenderCell.isTransparent(neighborId, neighborValue)&& RenderCell.hasSides(neighborId, neighborValue)) {
-					aoFlags |= 1 << 3;//first byte position 3
-				}
-				coord.add(0, -2, 1);//revert
+	/**
+	 * Updates the ambient occlusion at the border to a neighbour which was
+	 * loaded, unloaded or changed.
+	 *
+	 * @param rS the renderStorage where this calculation is performed
+	 * @param chunk
+	 * @param dx chunk x offset of the neighbour, -1, 0 or 1
+	 * @param dy chunk y offset of the neighbour, -1, 0 or 1
+	 */
+	public static void updateBorder(RenderStorage rS, RenderChunk chunk, int dx, int dy) {
+		if (chunk==null) throw new IllegalArgumentException("Chunk can not be null.");
+		boolean[] grid = chunk.getOccupancy();
+		fillBorder(rS, chunk, grid, dx, dy);
+		int blocksX = Chunk.getBlocksX();
+		int blocksY = Chunk.getBlocksY();
+		calcFlags(
+			chunk,
+			grid,
+			dx > 0 ? blocksX - 1 : 0,
+			dx < 0 ? 0 : blocksX - 1,
+			dy > 0 ? blocksY - 2 : 0,
+			dy < 0 ? 1 : blocksY - 1
+		);
+	}
 
-				//check bottom left
-				neighBlock = coord.add(-1, 0, -1).getRenderCell(rS);
-				neighborId = neighBlock.getSpriteId();
-				neighborValue = neighBlock.getSpriteValue();
-				if (neighborId != 0 && !RenderCell.isTransparent(neighborId, neighborValue) && RenderCell.hasSides(neighborId, neighborValue)) {
-					aoFlags |= 1 << 5;//first byte position 5
-				}
-				coord.add(1, 0, 1);
+	/**
+	 * Copies the occluders of the neighbour into its strip of the padded grid.
+	 */
+	private static void fillBorder(RenderStorage rS, RenderChunk chunk, boolean[] grid, int dx, int dy) {
+		int blocksX = Chunk.getBlocksX();
+		int blocksY = Chunk.getBlocksY();
+		fill(
+			rS.getChunk(chunk.getChunkX() + dx, chunk.getChunkY() + dy),
+			chunk,
+			grid,
+			dx < 0 ? -1 : (dx > 0 ? blocksX : 0),
+			dx < 0 ? -1 : (dx > 0 ? blocksX : blocksX - 1),
+			dy < 0 ? -2 : (dy > 0 ? blocksY : 0),
+			dy < 0 ? -1 : (dy > 0 ? blocksY + 1 : blocksY - 1)
+		);
+	}
 
-				//check left half, which is equivalent to top right at pos 7
-				neighBlock = coord.add(-1, 0, 0).getRenderCell(rS);//go to left
-				neighborId = neighBlock.getSpriteId();
-				neighborValue = neighBlock.getSpriteValue();
-				if (neighborId != 0 && !RenderCell.isTransparent(neighborId, neighborValue) && RenderCell.hasSides(neighborId, neighborValue)) {
-					aoFlags |= 1 << 6;//first byte position 6
-					aoFlags &= ~(1 << 5);//set next to false
-					aoFlags &= ~(1 << 7);//Set previous to false
+	/**
+	 * Fills a box of the grid with the occluders of a chunk.
+	 *
+	 * @param source the chunk containing the cells, null if not loaded
+	 * @param chunk the chunk owning the grid
+	 * @param grid
+	 * @param minX local x, inclusive
+	 * @param maxX local x, inclusive
+	 * @param minY local y, inclusive
+	 * @param maxY local y, inclusive
+	 */
+	private static void fill(RenderChunk source, RenderChunk chunk, boolean[] grid, int minX, int maxX, int minY, int maxY) {
+		int blocksZ = Chunk.getBlocksZ();
+		int tlX = chunk.getTopLeftCoordinateX();
+		int tlY = chunk.getTopLeftCoordinateY();
+		for (int x = minX; x <= maxX; x++) {
+			for (int y = minY; y <= maxY; y++) {
+				int index = index(x, y, 0);
+				for (int z = 0; z < blocksZ; z++) {
+					boolean occluder = false;
+					if (source != null) {
+						RenderCell cell = source.getCell(tlX + x, tlY + y, z);
+						byte id = cell.getSpriteId();
+						byte value = cell.getSpriteValue();
+						occluder = !RenderCell.isTransparent(id, value) && RenderCell.hasSides(id, value);
+					}
+					grid[index + z] = occluder;
 				}
-				coord.add(1, 0, 0);//revert
+			}
+		}
+	}
 
-				//check bottom side, which is equivalent ot top right at pos 5
-				neighBlock = coord.add(0, 0, -1).goToNeighbour(5).getRenderCell(rS);//revert changes and go to neighbor
-				neighborId = neighBlock.getSpriteId();
-				neighborValue = neighBlock.getSpriteValue();
-				if (neighborId != 0 && !RenderCell.isTransparent(neighborId, neighborValue) && RenderCell.hasSides(neighborId, neighborValue)) {
-					aoFlags |= 1 << 4;//first byte position 4
-					aoFlags &= ~(1 << 5);//set next to false
-					aoFlags &= ~(1 << 3);//Set previous to false
-				}
-				coord.goToNeighbour(1).add(0, 0, 1);//revert
+	/**
+	 * Index in the padded grid. The layers below and above the chunk are
+	 * always empty.
+	 *
+	 * @param x local x, -1 to blocksX
+	 * @param y local y, -2 to blocksY+1
+	 * @param z -1 to blocksZ
+	 * @return
+	 */
+	private static int index(int x, int y, int z) {
+		return ((x + 1) * (Chunk.getBlocksY() + 4) + y + 2) * (Chunk.getBlocksZ() + 2) + z + 1;
+	}
 
-				//right side, side 2
-				//check bottom left
-				neighBlock =coord.add(1, 0, -1).getRenderCell(rS);
-				neighborId = neighBlock.getSpriteId();
-				neighborValue = neighBlock.getSpriteValue();
-				if (neighborId != 0 && !RenderCell.isTransparent(neighborId, neighborValue) && RenderCell.hasSides(neighborId, neighborValue)) {
-					aoFlags |= 1 << 19;//third byte position 3
-				}
-				coord.add(-1, 0, 1);
+	/**
+	 * Sets the flags of the cells in a box.
+	 *
+	 * @param chunk
+	 * @param grid
+	 * @param minX local x, inclusive
+	 * @param maxX local x, inclusive
+	 * @param minY local y, inclusive
+	 * @param maxY local y, inclusive
+	 */
+	private static void calcFlags(RenderChunk chunk, boolean[] grid, int minX, int maxX, int minY, int maxY) {
+		int blocksZ = Chunk.getBlocksZ();
+		int strideY = blocksZ + 2;
+		int strideX = (Chunk.getBlocksY() + 4) * strideY;
+		int tlX = chunk.getTopLeftCoordinateX();
+		int tlY = chunk.getTopLeftCoordinateY();
+		int[] neighbours = new int[8];
+		for (int y = minY; y <= maxY; y++) {
+			//the offsets to the neighbours depend on the row
+			int[] neighbourX = (tlY + y) % 2 == 0 ? NEIGHBOURXEVEN : NEIGHBOURXODD;
+			for (int side = 0; side < 8; side++) {
+				neighbours[side] = neighbourX[side] * strideX + NEIGHBOURY[side] * strideY;
+			}
+			for (int x = minX; x <= maxX; x++) {
+				int column = index(x, y, 0);
+				for (int z = 0; z < blocksZ; z++) {
+					RenderCell cell = chunk.getCell(tlX + x, tlY + y, z);
+					//skip air and blocks without sides
+					if (!cell.hasSides()) {
+						continue;
+					}
+					int center = column + z;
+					int aoFlags = 0;
 
-				//check left corner
-				neighBlock = coord.add(0, 2, -1).getRenderCell(rS);//revert changes and go to neighbor
-				neighborId = neighBlock.getSpriteId();
-				neighborValue = neighBlock.getSpriteValue();
-				if (neighborId != 0 && !RenderCell.isTransparent(neighborId, neighborValue) && RenderCell.hasSides(neighborId, neighborValue)) {
-					aoFlags |= 1 << 21;//third byte position 5
-				}
-				coord.add(0, -2, 1);
+					//top side, neighbours in the layer above
+					//first check 0,2,4,6 then check 1,3,5,7
+					int above = center + 1;
+					for (int side = 0; side < 8; side += 2) {
+						if (grid[above + neighbours[side]]) {
+							aoFlags |= 1 << (side + 8);
+						}
+					}
+					for (int side = 1; side < 8; side += 2) {
+						if (grid[above + neighbours[side]]) {
+							aoFlags |= 1 << (side + 8);
+							//don't double draw the sides in between
+							aoFlags &= ~(1 << (((side + 1) % 8) + 8));//set next to false
+							aoFlags &= ~(1 << (((side + 7) % 8) + 8));//Set previous to false
+						}
+					}
 
-				//right
-				neighBlock = coord.add(1, 0, 0).getRenderCell(rS);
-				neighborId = neighBlock.getSpriteId();
-				neighborValue = neighBlock.getSpriteValue();
-				if (neighborId != 0 && !RenderCell.isTransparent(neighborId, neighborValue) && RenderCell.hasSides(neighborId, neighborValue)) {
-					aoFlags |= 1 << 18;//third byte position 2
-					aoFlags &= ~(1 << 17);//set next to false
-					aoFlags &= ~(1 << 19);//Set previous to false
-				}
-				coord.add(-1, 0, 0);
+					//left side, side 0
+					int below = center - 1;
+					//right corner
+					if (grid[below + 2 * strideY]) {
+						aoFlags |= 1 << 3;//first byte position 3
+					}
+					//bottom left
+					if (grid[below - strideX]) {
+						aoFlags |= 1 << 5;//first byte position 5
+					}
+					//left half, which is equivalent to top right at pos 7
+					if (grid[center - strideX]) {
+						aoFlags |= 1 << 6;//first byte position 6
+						aoFlags &= ~(1 << 5);//set next to false
+						aoFlags &= ~(1 << 7);//Set previous to false
+					}
+					//bottom side, which is equivalent ot top right at pos 5
+					if (grid[below + neighbours[5]]) {
+						aoFlags |= 1 << 4;//first byte position 4
+						aoFlags &= ~(1 << 5);//set next to false
+						aoFlags &= ~(1 << 3);//Set previous to false
+					}
 
-				//check bottom side, which is equivalent to top right at pos 3
-				neighBlock = coord.add(0, 0, -1).goToNeighbour(3).getRenderCell(rS);//revert changes and go to neighbor
-				neighborId = neighBlock.getSpriteId();
-				neighborValue = neighBlock.getSpriteValue();
-				if (neighborId != 0 && !RenderCell.isTransparent(neighborId, neighborValue) && RenderCell.hasSides(neighborId, neighborValue)) {
-					aoFlags |= 1 << 20;//third byte position 4
-					aoFlags &= ~(1 << 21);//set next to false
-					aoFlags &= ~(1 << 19);//Set previous to false
-				}
-				coord.goToNeighbour(7).add(0, 0, 1);
+					//right side, side 2
+					//bottom left
+					if (grid[below + strideX]) {
+						aoFlags |= 1 << 19;//third byte position 3
+					}
+					//left corner
+					if (grid[below + 2 * strideY]) {
+						aoFlags |= 1 << 21;//third byte position 5
+					}
+					//right
+					if (grid[center + strideX]) {
+						aoFlags |= 1 << 18;//third byte position 2
+						aoFlags &= ~(1 << 17);//set next to false
+						aoFlags &= ~(1 << 19);//Set previous to false
+					}
+					//bottom side, which is equivalent to top right at pos 3
+					if (grid[below + neighbours[3]]) {
+						aoFlags |= 1 << 20;//third byte position 4
+						aoFlags &= ~(1 << 21);//set next to false
+						aoFlags &= ~(1 << 19);//Set previous to false
+					}
 
-				neighBlock = coord.add(0, 2, 0).getRenderCell(rS);//revert changes and go to neighbor
-				neighborId = neighBlock.getSpriteId();
-				neighborValue = neighBlock.getSpriteValue();
-				if (neighborId != 0 && !RenderCell.isTransparent(neighborId, neighborValue) && RenderCell.hasSides(neighborId, neighborValue)) {
-					aoFlags |= 1 << 2;//first byte position 2
-					aoFlags |= 1 << 22;//third byte position 6
+					//the block in front
+					if (grid[center + 2 * strideY]) {
+						aoFlags |= 1 << 2;//first byte position 2
+						aoFlags |= 1 << 22;//third byte position 6
+					}
+					cell.setAoFlags(aoFlags);
 				}
-				next.setAoFlags(aoFlags);
 			}
 		}
 	}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.lightengine;
+
+import com.badlogic.gdx.math.Vector3;
+import com.bombinggames.wurfelengine.WE;
+import com.bombinggames.wurfelengine.core.map.BlockProperties;
+import com.bombinggames.wurfelengine.core.map.Chunk;
+import com.bombinggames.wurfelengine.core.map.Coordinate;
+import com.bombinggames.wurfelengine.core.map.Map;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import java.util.Arrays;
+
+/**
+ * Shadows cast by the sun and the moon. For every side of a block it is
+ * computed once per chunk whether another block lies between the side and the
+ * light. The directions of the lights are only taken over when a light moved
+ * more than the angle in the cvar "LEShadowAngle", so that the chunks are
+ * not computed again every frame.<br>
+ * Rays look at most "LEShadowDistance" blocks far, so the result of a chunk
+ * depends only on the chunk and its eight neighbours. Their generations are
+ * combined to {@link #getNeighbourhoodKey(Map, int, int)} to find out when a
+ * chunk must be computed again.
+ *
+ * @author Benedikt Vogler
+ */
+public class DirectionalShadows {
+
+	/**
+	 * the bits of the moon are the bits of the sun shifted by this amount
+	 */
+	public static final int MOONSHIFT = 3;
+
+	/**
+	 * length of a step of a ray in game space
+	 */
+	private static final float STEP = RenderCell.GAME_DIAGLENGTH / 8f;
+
+	/**
+	 * direction to the sun, only valid if {@link #sunUp}
+	 */
+	private final Vector3 sunDir = new Vector3(0, 0, 1);
+	private final Vector3 moonDir = new Vector3(0, 0, 1);
+	private boolean sunUp = true;
+	private boolean moonUp = false;
+	/**
+	 * increased every time a direction changed
+	 */
+	private int version;
+	private float cosThreshold = 1;
+	private float lastThreshold = Float.NaN;
+	private final Coordinate origin = new Coordinate(0, 0, 0);
+
+	//state of the current ray
+	private Chunk rayChunk;
+
+	/**
+	 * Takes over the directions of the lights if they moved more than the
+	 * threshold angle. Without a light engine the light comes from straight
+	 * above.
+	 *
+	 * @param lightEngine can be null
+	 */
+	public void update(LightEngine lightEngine) {
+		float threshold = WE.getCVars().getValueF("LEShadowAngle");
+		if (threshold != lastThreshold) {
+			lastThreshold = threshold;
+			cosThreshold = (float) Math.cos(Math.toRadians(threshold));
+		}
+
+		boolean changed;
+		if (lightEngine == null) {
+			changed = setDirection(sunDir, !sunUp, 0, 0, 1);
+			sunUp = true;
+			changed |= moonUp;
+			moonUp = false;
+		} else {
+			Vector3 normal = lightEngine.getSun(origin).getNormal();
+			boolean up = normal.z > 0;
+			changed = up != sunUp;
+			sunUp = up;
+			if (up) {
+				changed |= setDirection(sunDir, changed, normal.x, normal.y, normal.z);
+			}
+
+			GlobalLightSource moon = lightEngine.getMoon(origin);
+			if (moon == null) {
+				changed |= moonUp;
+				moonUp = false;
+			} else {
+				normal = moon.getNormal();
+				up = normal.z > 0;
+				boolean moonChanged = up != moonUp;
+				moonUp = up;
+				if (up) {
+					moonChanged |= setDirection(moonDir, moonChanged, normal.x, normal.y, normal.z);
+				}
+				changed |= moonChanged;
+			}
+		}
+		if (changed) {
+			version++;
+		}
+	}
+
+	/**
+	 * Sets the direction if it differs more than the threshold angle.
+	 *
+	 * @param dir
+	 * @param force set even if the angle is small
+	 * @return true if the direction was set
+	 */
+	private boolean setDirection(Vector3 dir, boolean force, float x, float y, float z) {
+		if (force || dir.dot(x, y, z) < cosThreshold) {
+			dir.set(x, y, z);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 *
+	 * @return changes every time the direction of a light changed
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 *
+	 * @return true if the sun casts shadows
+	 */
+	public boolean isSunUp() {
+		return sunUp;
+	}
+
+	/**
+	 *
+	 * @return true if the moon casts shadows
+	 */
+	public boolean isMoonUp() {
+		return moonUp;
+	}
+
+	/**
+	 * Combines the generations of the chunk and its eight neighbours. Changes
+	 * if one of the chunks changed, got loaded or unloaded.
+	 *
+	 * @param map
+	 * @param chunkX
+	 * @param chunkY
+	 * @return
+	 */
+	public static long getNeighbourhoodKey(Map map, int chunkX, int chunkY) {
+		long key = 1;
+		for (int x = -1; x <= 1; x++) {
+			for (int y = -1; y <= 1; y++) {
+				Chunk chunk = map.getChunk(chunkX + x, chunkY + y);
+				key = key * 31 + (chunk == null ? 0 : chunk.getGeneration() + 1);
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * Computes the shadows of every block in the chunk. The sides are stored
+	 * as bits with the code of the side. The bits of the sun are in the lower
+	 * three bits, the bits of the moon are shifted by {@link #MOONSHIFT}.
+	 * Sides facing away from a light get no bit because the light engine
+	 * already shades them.
+	 *
+	 * @param map the map containing the chunk and its neighbours
+	 * @param chunk the chunk to compute
+	 * @param out one byte for each cell, index is (x*blocksY+y)*blocksZ+z
+	 */
+	public void compute(Map map, Chunk chunk, byte[] out) {
+		Arrays.fill(out, (byte) 0);
+		if (!sunUp && !moonUp) {
+			return;
+		}
+		int blocksX = Chunk.getBlocksX();
+		int blocksY = Chunk.getBlocksY();
+		int blocksZ = Chunk.getBlocksZ();
+		int tlX = chunk.getTopLeftCoordinateX();
+		int tlY = chunk.getTopLeftCoordinateY();
+		//the rays must stay in the neighbourhood
+		float maxDistance = Math.min(
+			WE.getCVars().getValueI("LEShadowDistance"),
+			Math.min(blocksX, blocksY / 2)
+		) * RenderCell.GAME_DIAGLENGTH;
+		float quarter = RenderCell.GAME_DIAGLENGTH / 4f;
+		byte[][][] data = chunk.getData();
+
+		for (int x = 0; x < blocksX; x++) {
+			for (int y = 0; y < blocksY; y++) {
+				int surface = chunk.getSurfaceHeight(tlX + x, tlY + y);
+				float gx = (tlX + x) * RenderCell.GAME_DIAGLENGTH + ((tlY + y) % 2 != 0 ? RenderCell.VIEW_WIDTH2 : 0);
+				float gy = (tlY + y) * RenderCell.GAME_DIAGLENGTH2;
+				for (int z = 0; z <= surface; z++) {
+					byte id = data[x][y][z * 3];
+					if (id == 0 || !BlockProperties.is(id, data[x][y][z * 3 + 1], BlockProperties.SIDES)) {
+						continue;
+					}
+					float gz = z * RenderCell.GAME_EDGELENGTH;
+					int bits = 0;
+					rayChunk = chunk;
+					//left
+					bits |= shadowBits(map, gx - quarter, gy + quarter, gz + RenderCell.GAME_EDGELENGTH2, -1, 1, 0, maxDistance, blocksZ) << 0;
+					//top
+					bits |= shadowBits(map, gx, gy, gz + RenderCell.GAME_EDGELENGTH, 0, 0, 1, maxDistance, blocksZ) << 1;
+					//right
+					bits |= shadowBits(map, gx + quarter, gy + quarter, gz + RenderCell.GAME_EDGELENGTH2, 1, 1, 0, maxDistance, blocksZ) << 2;
+					out[(x * blocksY + y) * blocksZ + z] = (byte) bits;
+				}
+			}
+		}
+		rayChunk = null;
+	}
+
+	/**
+	 *
+	 * @return bit 0 for the sun, bit {@link #MOONSHIFT} for the moon
+	 */
+	private int shadowBits(Map map, float px, float py, float pz, float nx, float ny, float nz, float maxDistance, int blocksZ) {
+		int bits = 0;
+		if (sunUp && sunDir.dot(nx, ny, nz) > 0 && isOccluded(map, px, py, pz, sunDir, maxDistance, blocksZ)) {
+			bits |= 1;
+		}
+		if (moonUp && moonDir.dot(nx, ny, nz) > 0 && isOccluded(map, px, py, pz, moonDir, maxDistance, blocksZ)) {
+			bits |= 1 << MOONSHIFT;
+		}
+		return bits;
+	}
+
+	/**
+	 * Marches from a point towards the light.
+	 *
+	 * @param dir direction to the light with z &gt; 0
+	 * @return true if an opaque block is hit
+	 */
+	private boolean isOccluded(Map map, float px, float py, float pz, Vector3 dir, float maxDistance, int blocksZ) {
+		float horizontal = (float) Math.sqrt(dir.x * dir.x + dir.y * dir.y);
+		float maxT = (blocksZ * RenderCell.GAME_EDGELENGTH - pz) / dir.z;
+		if (horizontal * maxT > maxDistance) {
+			maxT = maxDistance / horizontal;
+		}
+		int lastX = Integer.MIN_VALUE, lastY = 0, lastZ = 0;
+		for (float t = STEP / 2; t < maxT; t += STEP) {
+			float x = px + dir.x * t;
+			float y = py + dir.y * t;
+			int zCoord = (int) ((pz + dir.z * t) / RenderCell.GAME_EDGELENGTH);
+			//same as Point#toCoord() without creating a coordinate
+			int xCoord = Math.floorDiv((int) x, RenderCell.GAME_DIAGLENGTH);
+			int yCoord = Math.floorDiv((int) y, RenderCell.GAME_DIAGLENGTH) * 2 + 1;
+			switch (Coordinate.getNeighbourSide(x % RenderCell.GAME_DIAGLENGTH, y % RenderCell.GAME_DIAGLENGTH)) {
+				case 0:
+					yCoord -= 2;
+					break;
+				case 1:
+					xCoord += yCoord % 2 == 0 ? 0 : 1;
+					yCoord--;
+					break;
+				case 2:
+					xCoord++;
+					break;
+				case 3:
+					xCoord += yCoord % 2 == 0 ? 0 : 1;
+					yCoord++;
+					break;
+				case 4:
+					yCoord += 2;
+					break;
+				case 5:
+					xCoord -= yCoord % 2 == 0 ? 1 : 0;
+					yCoord++;
+					break;
+				case 6:
+					xCoord--;
+					break;
+				case 7:
+					xCoord -= yCoord % 2 == 0 ? 1 : 0;
+					yCoord--;
+					break;
+			}
+			if (xCoord == lastX && yCoord == lastY && zCoord == lastZ) {
+				continue;
+			}
+			lastX = xCoord;
+			lastY = yCoord;
+			lastZ = zCoord;
+
+			Chunk chunk = rayChunk;
+			if (chunk == null
+				|| xCoord < chunk.getTopLeftCoordinateX() || xCoord >= chunk.getTopLeftCoordinateX() + Chunk.getBlocksX()
+				|| yCoord < chunk.getTopLeftCoordinateY() || yCoord >= chunk.getTopLeftCoordinateY() + Chunk.getBlocksY()) {
+				chunk = map.getChunkContaining(xCoord, yCoord);
+				if (chunk == null) {
+					continue;//not loaded, so nothing casts a shadow
+				}
+				rayChunk = chunk;
+			}
+			//nothing opaque in this column at this height
+			if (zCoord > chunk.getOpaqueHeight(xCoord, yCoord)) {
+				continue;
+			}
+			byte[] column = chunk.getData()[xCoord - chunk.getTopLeftCoordinateX()][yCoord - chunk.getTopLeftCoordinateY()];
+			byte id = column[zCoord * 3];
+			if (id != 0 && !BlockProperties.is(id, column[zCoord * 3 + 1], BlockProperties.TRANSPARENT)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
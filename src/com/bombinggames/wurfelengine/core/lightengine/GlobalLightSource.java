@@ -65,6 +65,11 @@ public class GlobalLightSource {
 	 */
 	private boolean fixedPosition;	
 	private final float brightnessF;
+	/**
+	 * cached result of {@link #getNormal()}
+	 */
+	private final Vector3 normal = new Vector3();
+	private boolean normalDirty = true;
 
     /**
      * A GlobalLightSource can be the moon, the sun or even something new.
@@ -140,6 +145,7 @@ public class GlobalLightSource {
         this.height = height % 360;
         if (this.height < 0)
             this.height += 360;
+		normalDirty = true;
     }
 
     /**
@@ -150,6 +156,7 @@ public class GlobalLightSource {
         this.azimuth = azimuth % 360;
         if (this.azimuth < 0)
             this.azimuth += 360;
+		normalDirty = true;
     }
 
     /**
@@ -177,6 +184,7 @@ public class GlobalLightSource {
 		if (!fixedPosition && getAzimuthSpeed() != 0) {
 			setAzimuth(getAzimuth() + getAzimuthSpeed() * dt);
 			height = (float) (amplitude * Math.sin((azimuth + WE.getCVars().getValueI("worldSpinAngle")) * Math.PI / 180));
+			normalDirty = true;
 		}
 
 		//brightness calculation
@@ -202,6 +210,16 @@ public class GlobalLightSource {
     public Color getLight() {
         return tone.cpy().mul(power);
     }
+
+	/**
+	 * Returns the diffuse light which this object emits.
+	 *
+	 * @param out the color where the result is stored
+	 * @return out
+	 */
+	public Color getLight(Color out) {
+		return out.set(tone).mul(power);
+	}
     
     /**
      * Returns the ambient light the GLS emits.
@@ -210,16 +228,31 @@ public class GlobalLightSource {
     public Color getAmbient() {
         return ambient.cpy().mul(power);
     }
+
+	/**
+	 * Returns the ambient light the GLS emits.
+	 *
+	 * @param out the color where the result is stored
+	 * @return out
+	 */
+	public Color getAmbient(Color out) {
+		return out.set(ambient).mul(power);
+	}
 	
 	/**
+	 * The normal is only computed again if the position changed.
 	 *
-	 * @return the normal of the GlobalLightSource
+	 * @return the normal of the GlobalLightSource. Reused, do not modify.
 	 */
 	public Vector3 getNormal() {
-		return new Vector3(
-			(float) -Math.cos(getAzimuth() * Math.PI / 180f),
-			(float) Math.sin(getAzimuth() * Math.PI / 180f),
-			(float) Math.sin(getHeight() * Math.PI / 180f)
-		).nor();
+		if (normalDirty) {
+			normal.set(
+				(float) -Math.cos(getAzimuth() * Math.PI / 180f),
+				(float) Math.sin(getAzimuth() * Math.PI / 180f),
+				(float) Math.sin(getHeight() * Math.PI / 180f)
+			).nor();
+			normalDirty = false;
+		}
+		return normal;
 	}
 }
@@ -80,6 +80,12 @@ public class LightEngine {
     
     private GlobalLightSource sun;
     private GlobalLightSource moon; 
+	/**
+	 * state of the lights when the intensities were computed
+	 */
+	private float lastSunAzimuth = Float.NaN, lastSunHeight, lastSunPower;
+	private float lastMoonAzimuth, lastMoonHeight, lastMoonPower;
+	private final Color tmpColor = new Color();
 
     /**
      * 
@@ -133,9 +139,52 @@ public class LightEngine {
 		) {
 			moon.setAzimuth(210 + WE.getCVars().getValueI("worldSpinAngle"));
 		}
-		
-        if (moon != null) {
+		if (moon != null) {
 			moon.update(dt);
+		}
+
+		if (hasLightChanged()) {
+			computeIntensities();
+		}
+
+       //update input
+		if (Gdx.input.isButtonPressed(0) && debuging) {
+			//sun.setHeight(sun.getHeight()+Gdx.input.getDeltaY()*30f);
+			sun.setAzimuth(Gdx.input.getX());
+			if (moon != null) {
+				moon.setAzimuth(Gdx.input.getX() - 180);
+			}
+		}
+    }
+
+	/**
+	 * Stores the current state of the lights.
+	 *
+	 * @return true if a light moved or changed its power since the last call
+	 */
+	private boolean hasLightChanged() {
+		boolean changed = sun.getAzimuth() != lastSunAzimuth
+			|| sun.getHeight() != lastSunHeight
+			|| sun.getPower() != lastSunPower;
+		lastSunAzimuth = sun.getAzimuth();
+		lastSunHeight = sun.getHeight();
+		lastSunPower = sun.getPower();
+		if (moon != null) {
+			changed |= moon.getAzimuth() != lastMoonAzimuth
+				|| moon.getHeight() != lastMoonHeight
+				|| moon.getPower() != lastMoonPower;
+			lastMoonAzimuth = moon.getAzimuth();
+			lastMoonHeight = moon.getHeight();
+			lastMoonPower = moon.getPower();
+		}
+		return changed;
+	}
+
+	/**
+	 * Computes the diffuse and specular intensities of the sides.
+	 */
+	private void computeIntensities() {
+        if (moon != null) {
 			float moonI = moon.getPower();
 			//calcualte moon light in diff and spec
 			float tmp = (float) (moonI * k_diff * Math.cos(((moon.getHeight()) * Math.PI)/180) * Math.cos(((moon.getAzimuth()-45)*Math.PI)/180));
@@ -216,16 +265,6 @@ public class LightEngine {
         I_0 = I_diff0;
         I_1 = I_diff1 + I_spec1;
         I_2 = I_diff2;
-        
-        
-       //update input
-		if (Gdx.input.isButtonPressed(0) && debuging) {
-			//sun.setHeight(sun.getHeight()+Gdx.input.getDeltaY()*30f);
-			sun.setAzimuth(Gdx.input.getX());
-			if (moon != null) {
-				moon.setAzimuth(Gdx.input.getX() - 180);
-			}
-		}
     }
     
   /**
@@ -277,10 +316,12 @@ public class LightEngine {
 	/**
 	 * The light engine can shade the world pixel based or vertext based.
 	 *
-	 * @return true if rendering via normal map false if vertext based
+	 * @return true if rendering via normal map false if vertext based. False
+	 * if the {@link com.bombinggames.wurfelengine.core.FrameGovernor} turned the
+	 * normal maps off.
 	 */
 	public boolean isShadingPixelBased() {
-		return pixelBasedShading;
+		return pixelBasedShading && Controller.getFrameGovernor().isNormalMapRendering();
 	}
     
 //        /**
@@ -371,6 +412,21 @@ public class LightEngine {
 		return amb;
 	}
 
+	/**
+	 * Returns the sum of every light source's ambient light
+	 *
+	 * @param pos
+	 * @param out the color where the result is stored
+	 * @return out
+	 */
+	public Color getAmbient(Position pos, Color out) {
+		getSun(pos).getAmbient(out);
+		if (getMoon(pos) != null) {
+			out.add(getMoon(pos).getAmbient(tmpColor));
+		}
+		return out;
+	}
+
 	/**
 	 * Mix of both light sources. Used for diff and spec.
 	 *
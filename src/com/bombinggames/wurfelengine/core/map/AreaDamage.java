@@ -0,0 +1,288 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map;
+
+import com.badlogic.gdx.ai.msg.MessageManager;
+import com.badlogic.gdx.ai.msg.Telegraph;
+import com.bombinggames.wurfelengine.core.Events;
+import com.bombinggames.wurfelengine.core.gameobjects.MovableEntity;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import java.util.LinkedList;
+
+/**
+ * Damage in a volume around a center, e.g. from an explosion. The affected
+ * cells and their falloff are computed once. Applying it edits the blocks in
+ * one pass over the chunks, collects the entities with one range query and
+ * sends a single {@link Events#areaDamaged} event instead of one event per
+ * cell.
+ *
+ * @author Benedikt Vogler
+ */
+public class AreaDamage {
+
+	private final Point center;
+	private final int radius;
+	private final int damage;
+	/**
+	 * box in which the cells are affected, inclusive
+	 */
+	private final int minX, minY, minZ, maxX, maxY, maxZ;
+	/**
+	 * x,y,z triples of the affected cells
+	 */
+	private final int[] cells;
+	/**
+	 * damage per cell, 1-100
+	 */
+	private final byte[] cellDamage;
+	private final int cellCount;
+	/**
+	 * x,y,z triples of the cells which were destroyed during {@link #apply(Map, Telegraph)}
+	 */
+	private int[] destroyed;
+	private int destroyedCount;
+	private int entitiesHit;
+
+	/**
+	 * Computes the affected cells and the damage they get.
+	 *
+	 * @param center center of the damage
+	 * @param radius the radius in game world blocks
+	 * @param damage damage at the center
+	 */
+	public AreaDamage(Point center, int radius, int damage) {
+		this.center = center.cpy();
+		this.radius = radius;
+		this.damage = damage;
+		Coordinate centerCoord = center.toCoord();
+		minX = centerCoord.getX() - radius;
+		maxX = centerCoord.getX() + radius - 1;
+		minY = centerCoord.getY() - radius * 2;
+		maxY = centerCoord.getY() + radius * 2 - 1;
+		minZ = centerCoord.getZ() - radius;
+		maxZ = centerCoord.getZ() + radius - 1;
+
+		int volume = Math.max(0, 2 * radius) * Math.max(0, 4 * radius) * Math.max(0, 2 * radius);
+		int[] cellsTmp = new int[volume * 3];
+		byte[] damageTmp = new byte[volume];
+		int count = 0;
+		for (int x = minX; x <= maxX; x++) {
+			for (int y = minY; y <= maxY; y++) {
+				for (int z = minZ; z <= maxZ; z++) {
+					int intdamage = (int) (damage * (1 - distanceToCellSquared(x, y, z) / getRadiusSquared()));
+					if (intdamage > 0) {
+						if (intdamage > 100) {
+							intdamage = 100; //clamp so it's under 127 to avoid byte overflow
+						}
+						cellsTmp[count * 3] = x;
+						cellsTmp[count * 3 + 1] = y;
+						cellsTmp[count * 3 + 2] = z;
+						damageTmp[count] = (byte) intdamage;
+						count++;
+					}
+				}
+			}
+		}
+		cellCount = count;
+		cells = cellsTmp;
+		cellDamage = damageTmp;
+		destroyed = new int[0];
+	}
+
+	/**
+	 * Applies the damage to the blocks and the entities in the area and
+	 * sends {@link Events#areaDamaged} once.
+	 *
+	 * @param map the map which gets damaged
+	 * @param sender sender of the damage messages to the entities. can be null
+	 * @return this
+	 */
+	public AreaDamage apply(Map map, Telegraph sender) {
+		destroyedCount = 0;
+		destroyed = new int[Math.min(cellCount, 64) * 3];
+		Chunk chunk = null;
+		for (int i = 0; i < cellCount; i++) {
+			int x = cells[i * 3];
+			int y = cells[i * 3 + 1];
+			int z = cells[i * 3 + 2];
+			if (z < 0 || z >= Chunk.getBlocksZ()) {
+				continue;
+			}
+			if (chunk == null
+				|| x < chunk.getTopLeftCoordinateX() || x >= chunk.getTopLeftCoordinateX() + Chunk.getBlocksX()
+				|| y < chunk.getTopLeftCoordinateY() || y >= chunk.getTopLeftCoordinateY() + Chunk.getBlocksY()) {
+				chunk = map.getChunkContaining(x, y);
+				if (chunk == null) {
+					continue;
+				}
+			}
+			byte[] column = chunk.getData()[x - chunk.getTopLeftCoordinateX()][y - chunk.getTopLeftCoordinateY()];
+			byte id = column[z * 3];
+			if (id == 0) {
+				continue;
+			}
+			int health = column[z * 3 + 2] - cellDamage[i];
+			if (health <= 0 && !RenderCell.isIndestructible(id, column[z * 3 + 1])) {
+				chunk.setBlock(x, y, z, 100 << 16);//air
+				addDestroyed(x, y, z);
+			} else {
+				chunk.setHealth(x, y, z, (byte) Math.max(0, health));
+			}
+		}
+
+		//get every entity which is attacked
+		entitiesHit = 0;
+		LinkedList<MovableEntity> list = map.getEntitysInBox(
+			new Coordinate(minX, minY, minZ),
+			new Coordinate(maxX, maxY, maxZ),
+			MovableEntity.class
+		);
+		for (MovableEntity ent : list) {
+			int intdamage = (int) (damage * (1 - center.distanceToSquared(ent.getPosition()) / getRadiusSquared()));
+			intdamage *= 1.2;//entities should break a little easier
+			if (intdamage > 100) {
+				intdamage = 100; //clamp so it's under 127 to avoid byte overflow
+			}
+			MessageManager.getInstance().dispatchMessage(
+				sender,
+				(Telegraph) ent,
+				Events.damage.getId(),
+				(byte) intdamage
+			);
+			entitiesHit++;
+		}
+
+		MessageManager.getInstance().dispatchMessage(sender, Events.areaDamaged.getId(), this);
+		return this;
+	}
+
+	private void addDestroyed(int x, int y, int z) {
+		if (destroyedCount * 3 >= destroyed.length) {
+			int[] grown = new int[Math.max(destroyed.length * 2, 3)];
+			System.arraycopy(destroyed, 0, grown, 0, destroyed.length);
+			destroyed = grown;
+		}
+		destroyed[destroyedCount * 3] = x;
+		destroyed[destroyedCount * 3 + 1] = y;
+		destroyed[destroyedCount * 3 + 2] = z;
+		destroyedCount++;
+	}
+
+	private float getRadiusSquared() {
+		return radius * radius * RenderCell.GAME_EDGELENGTH * RenderCell.GAME_EDGELENGTH;
+	}
+
+	/**
+	 * Same as {@link Point#distanceToSquared(Position)} with the center of the
+	 * cell without creating a coordinate.
+	 */
+	private float distanceToCellSquared(int x, int y, int z) {
+		float dX = center.x - (x * RenderCell.GAME_DIAGLENGTH + (y % 2 != 0 ? RenderCell.VIEW_WIDTH2 : 0));
+		float dY = center.y - y * RenderCell.GAME_DIAGLENGTH2;
+		float dZ = center.z - z * RenderCell.GAME_EDGELENGTH;
+		return dX * dX + dY * dY + dZ * dZ;
+	}
+
+	/**
+	 *
+	 * @return the center of the damage
+	 */
+	public Point getCenter() {
+		return center;
+	}
+
+	/**
+	 *
+	 * @return the radius in game world blocks
+	 */
+	public int getRadius() {
+		return radius;
+	}
+
+	/**
+	 *
+	 * @return amount of cells which get damaged
+	 */
+	public int getCellCount() {
+		return cellCount;
+	}
+
+	/**
+	 * Get the game position of the center of an affected cell.
+	 *
+	 * @param i index of the cell, smaller than {@link #getCellCount()}
+	 * @param out the point where the result is stored
+	 * @return out
+	 */
+	public Point getCellCenter(int i, Point out) {
+		int x = cells[i * 3];
+		int y = cells[i * 3 + 1];
+		int z = cells[i * 3 + 2];
+		out.set(
+			x * RenderCell.GAME_DIAGLENGTH + (y % 2 != 0 ? RenderCell.VIEW_WIDTH2 : 0),
+			y * RenderCell.GAME_DIAGLENGTH2,
+			z * RenderCell.GAME_EDGELENGTH
+		);
+		return out;
+	}
+
+	/**
+	 *
+	 * @param i index of the cell, smaller than {@link #getCellCount()}
+	 * @return damage the cell gets, 1-100
+	 */
+	public byte getCellDamage(int i) {
+		return cellDamage[i];
+	}
+
+	/**
+	 *
+	 * @return amount of blocks destroyed by the last {@link #apply(Map, Telegraph)}
+	 */
+	public int getDestroyedCount() {
+		return destroyedCount;
+	}
+
+	/**
+	 *
+	 * @param i index smaller than {@link #getDestroyedCount()}
+	 * @return a new coordinate of a destroyed block
+	 */
+	public Coordinate getDestroyed(int i) {
+		return new Coordinate(destroyed[i * 3], destroyed[i * 3 + 1], destroyed[i * 3 + 2]);
+	}
+
+	/**
+	 *
+	 * @return amount of entities which got a damage message by the last {@link #apply(Map, Telegraph)}
+	 */
+	public int getEntitiesHit() {
+		return entitiesHit;
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map;
+
+/**
+ * Table of the properties of every combination of block id and value. The
+ * properties are computed once from the engine defaults and the
+ * {@link CustomBlocks} factory so that a query is a single array access.<br>
+ * The index is the lower 16 bits of a block int (id and value), so a block
+ * can be used directly via {@link #get(int)}.
+ *
+ * @author Benedikt Vogler
+ * @see com.bombinggames.wurfelengine.core.map.rendering.RenderCell#setCustomBlockFactory(CustomBlocks)
+ */
+public final class BlockProperties {
+
+	/**
+	 * flag if the block is an obstacle
+	 */
+	public static final byte OBSTACLE = 1;
+	/**
+	 * flag if the block is transparent
+	 */
+	public static final byte TRANSPARENT = 1 << 1;
+	/**
+	 * flag if the block is liquid
+	 */
+	public static final byte LIQUID = 1 << 2;
+	/**
+	 * flag if the block is rendered with three sides
+	 */
+	public static final byte SIDES = 1 << 3;
+	/**
+	 * flag if the block can not be destroyed
+	 */
+	public static final byte INDESTRUCTIBLE = 1 << 4;
+	/**
+	 * flag if the block has a logic instance
+	 */
+	public static final byte LOGIC = 1 << 5;
+
+	/**
+	 * {value}{id}
+	 */
+	private static final byte[] TABLE = new byte[1 << 16];
+
+	static {
+		rebuild(null);
+	}
+
+	private BlockProperties() {
+	}
+
+	/**
+	 * Computes the table for every id and value.
+	 *
+	 * @param customBlocks the factory for ids &gt; 9. can be null.
+	 */
+	public static void rebuild(CustomBlocks customBlocks) {
+		for (int v = 0; v < 256; v++) {
+			byte value = (byte) v;
+			for (int i = 0; i < 256; i++) {
+				byte id = (byte) i;
+				boolean custom = id > 9 && customBlocks != null;
+				byte flags = 0;
+
+				if (custom ? customBlocks.isObstacle(id, value) : id != 9 && id != 0) {
+					flags |= OBSTACLE;
+				}
+				if (id == 0 || id == 9 || id == 4) {
+					flags |= TRANSPARENT;
+				} else if (custom && customBlocks.isTransparent(id, value)) {
+					flags |= TRANSPARENT;
+				}
+				if (custom ? customBlocks.isLiquid(id, value) : id == 9) {
+					flags |= LIQUID;
+				}
+				if (id != 0 && id != 4 && (!custom || customBlocks.hasSides(id, value))) {
+					flags |= SIDES;
+				}
+				if (customBlocks != null && customBlocks.isIndestructible(id, value)) {
+					flags |= INDESTRUCTIBLE;
+				}
+				if (customBlocks != null && customBlocks.hasLogic(id, value)) {
+					flags |= LOGIC;
+				}
+				TABLE[i | v << 8] = flags;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param id
+	 * @param value
+	 * @return the property flags of the combination
+	 */
+	public static byte get(byte id, byte value) {
+		return TABLE[(id & 255) | (value & 255) << 8];
+	}
+
+	/**
+	 *
+	 * @param block id in first byte, value in second byte. other bits are
+	 * ignored.
+	 * @return the property flags of the block
+	 */
+	public static byte get(int block) {
+		return TABLE[block & 0xFFFF];
+	}
+
+	/**
+	 *
+	 * @param id
+	 * @param value
+	 * @param flag one of the flags of this class
+	 * @return true if the flag is set for this combination
+	 */
+	public static boolean is(byte id, byte value, byte flag) {
+		return (TABLE[(id & 255) | (value & 255) << 8] & flag) != 0;
+	}
+
+	/**
+	 *
+	 * @param block id in first byte, value in second byte. other bits are
+	 * ignored.
+	 * @param flag one of the flags of this class
+	 * @return true if the flag is set for this block
+	 */
+	public static boolean is(int block, byte flag) {
+		return (TABLE[block & 0xFFFF] & flag) != 0;
+	}
+}
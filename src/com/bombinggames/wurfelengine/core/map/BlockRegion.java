@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * If this software is used for a game the official „Wurfel Engine“ logo or its name must be
+ *   visible in an intro screen or main menu.
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map;
+
+/**
+ * A copy of the blocks inside a box of the map.
+ *
+ * @author Benedikt Vogler
+ * @see Map#copyRegion(Coordinate, Coordinate)
+ * @see BlockTransaction#paste(BlockRegion, Coordinate)
+ */
+public class BlockRegion {
+
+	private final int sizeX;
+	private final int sizeY;
+	private final int sizeZ;
+	/**
+	 * id, value and health of every cell
+	 */
+	private final int[] blocks;
+
+	/**
+	 * Creates an empty region filled with air.
+	 *
+	 * @param sizeX
+	 * @param sizeY
+	 * @param sizeZ
+	 */
+	public BlockRegion(int sizeX, int sizeY, int sizeZ) {
+		this.sizeX = sizeX;
+		this.sizeY = sizeY;
+		this.sizeZ = sizeZ;
+		blocks = new int[sizeX * sizeY * sizeZ];
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getSizeX() {
+		return sizeX;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getSizeY() {
+		return sizeY;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getSizeZ() {
+		return sizeZ;
+	}
+
+	/**
+	 *
+	 * @param x relative to the region
+	 * @param y relative to the region
+	 * @param z relative to the region
+	 * @return id, value and health
+	 */
+	public int getBlock(int x, int y, int z) {
+		return blocks[(x * sizeY + y) * sizeZ + z];
+	}
+
+	/**
+	 *
+	 * @param x relative to the region
+	 * @param y relative to the region
+	 * @param z relative to the region
+	 * @param block id, value and health
+	 */
+	public void setBlock(int x, int y, int z, int block) {
+		blocks[(x * sizeY + y) * sizeZ + z] = block;
+	}
+}
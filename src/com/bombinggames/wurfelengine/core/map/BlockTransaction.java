@@ -0,0 +1,268 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * If this software is used for a game the official „Wurfel Engine“ logo or its name must be
+ *   visible in an intro screen or main menu.
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map;
+
+import com.bombinggames.wurfelengine.Command;
+import java.util.Arrays;
+
+/**
+ * A bulk edit of blocks. The edits are queued and applied together when the
+ * transaction is executed. The first execution records the previous blocks so
+ * the transaction can be undone and redone, e.g. by passing it to
+ * {@link com.bombinggames.wurfelengine.core.Controller#executeCommand(Command)}.
+ * Only the chunks containing edited cells are marked as modified so the
+ * rendering gets rebaked once for the whole transaction.<br>
+ * Cells outside of the loaded chunks are skipped.
+ *
+ * @author Benedikt Vogler
+ * @see Map#beginTransaction()
+ */
+public class BlockTransaction implements Command {
+
+	private final Map map;
+	/**
+	 * x, y and z of every edited cell
+	 */
+	private int[] cells = new int[48];
+	/**
+	 * the blocks before the edit, valid after the first execution
+	 */
+	private int[] before = new int[16];
+	private int[] after = new int[16];
+	private int size;
+	private boolean recorded;
+
+	/**
+	 *
+	 * @param map the map which is edited
+	 */
+	public BlockTransaction(Map map) {
+		this.map = map;
+	}
+
+	/**
+	 * Queues setting a single block.
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param block id, value and health
+	 * @return this transaction
+	 */
+	public BlockTransaction setBlock(int x, int y, int z, int block) {
+		if (recorded) {
+			throw new IllegalStateException("Transaction already executed.");
+		}
+		if (size == after.length) {
+			int capacity = size * 2;
+			cells = Arrays.copyOf(cells, capacity * 3);
+			before = Arrays.copyOf(before, capacity);
+			after = Arrays.copyOf(after, capacity);
+		}
+		cells[size * 3] = x;
+		cells[size * 3 + 1] = y;
+		cells[size * 3 + 2] = z;
+		after[size] = block;
+		size++;
+		return this;
+	}
+
+	/**
+	 * Queues setting a single block.
+	 *
+	 * @param coord not altered
+	 * @param block id, value and health
+	 * @return this transaction
+	 */
+	public BlockTransaction setBlock(Coordinate coord, int block) {
+		return setBlock(coord.getX(), coord.getY(), coord.getZ(), block);
+	}
+
+	/**
+	 * Queues filling a box with a block.
+	 *
+	 * @param from corner of the box, inclusive
+	 * @param to opposite corner of the box, inclusive
+	 * @param block id, value and health
+	 * @return this transaction
+	 */
+	public BlockTransaction fill(Coordinate from, Coordinate to, int block) {
+		int z0 = Math.max(0, Math.min(from.getZ(), to.getZ()));
+		int z1 = Math.min(Chunk.getBlocksZ() - 1, Math.max(from.getZ(), to.getZ()));
+		for (int x = Math.min(from.getX(), to.getX()); x <= Math.max(from.getX(), to.getX()); x++) {
+			for (int y = Math.min(from.getY(), to.getY()); y <= Math.max(from.getY(), to.getY()); y++) {
+				for (int z = z0; z <= z1; z++) {
+					setBlock(x, y, z, block);
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Queues replacing every block with a specific id inside a box. The map is
+	 * read when the edit is queued.
+	 *
+	 * @param from corner of the box, inclusive
+	 * @param to opposite corner of the box, inclusive
+	 * @param id the id of the blocks which get replaced
+	 * @param block id, value and health
+	 * @return this transaction
+	 */
+	public BlockTransaction replace(Coordinate from, Coordinate to, byte id, int block) {
+		int z0 = Math.max(0, Math.min(from.getZ(), to.getZ()));
+		int z1 = Math.min(Chunk.getBlocksZ() - 1, Math.max(from.getZ(), to.getZ()));
+		Chunk chunk = null;
+		for (int x = Math.min(from.getX(), to.getX()); x <= Math.max(from.getX(), to.getX()); x++) {
+			for (int y = Math.min(from.getY(), to.getY()); y <= Math.max(from.getY(), to.getY()); y++) {
+				chunk = getChunk(chunk, x, y);
+				if (chunk != null) {
+					byte[] column = chunk.getData()[x - chunk.getTopLeftCoordinateX()][y - chunk.getTopLeftCoordinateY()];
+					for (int z = z0; z <= z1; z++) {
+						if (column[z * 3] == id) {
+							setBlock(x, y, z, block);
+						}
+					}
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Queues pasting a copied region. Air in the region overwrites the map.
+	 * Pasting at a y coordinate with a different parity than the copied one
+	 * shifts every second row by half a block because of the staggered map.
+	 *
+	 * @param region
+	 * @param at the cell where the region's first cell is pasted
+	 * @return this transaction
+	 * @see Map#copyRegion(Coordinate, Coordinate)
+	 */
+	public BlockTransaction paste(BlockRegion region, Coordinate at) {
+		for (int x = 0; x < region.getSizeX(); x++) {
+			for (int y = 0; y < region.getSizeY(); y++) {
+				for (int z = 0; z < region.getSizeZ(); z++) {
+					setBlock(at.getX() + x, at.getY() + y, at.getZ() + z, region.getBlock(x, y, z));
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 *
+	 * @return the amount of edited cells
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Applies the edits. The first call also records the blocks which are
+	 * replaced and drops edits which change nothing.
+	 */
+	@Override
+	public void execute() {
+		if (!recorded) {
+			Chunk chunk = null;
+			int kept = 0;
+			for (int i = 0; i < size; i++) {
+				int x = cells[i * 3];
+				int y = cells[i * 3 + 1];
+				int z = cells[i * 3 + 2];
+				chunk = getChunk(chunk, x, y);
+				if (chunk == null || z < 0 || z >= Chunk.getBlocksZ()) {
+					continue;
+				}
+				byte[] column = chunk.getData()[x - chunk.getTopLeftCoordinateX()][y - chunk.getTopLeftCoordinateY()];
+				int previous = (column[z * 3] & 255)
+					| (column[z * 3 + 1] & 255) << 8
+					| (column[z * 3 + 2] & 255) << 16;
+				if (previous == after[i]) {
+					continue;
+				}
+				chunk.setBlock(x, y, z, after[i]);
+				//compact in place, the kept entry is never ahead of the read one
+				cells[kept * 3] = x;
+				cells[kept * 3 + 1] = y;
+				cells[kept * 3 + 2] = z;
+				before[kept] = previous;
+				after[kept] = after[i];
+				kept++;
+			}
+			size = kept;
+			recorded = true;
+		} else {
+			Chunk chunk = null;
+			for (int i = 0; i < size; i++) {
+				chunk = apply(chunk, i, after[i]);
+			}
+		}
+	}
+
+	/**
+	 * Restores the blocks in reverse order.
+	 */
+	@Override
+	public void undo() {
+		Chunk chunk = null;
+		for (int i = size - 1; i >= 0; i--) {
+			chunk = apply(chunk, i, before[i]);
+		}
+	}
+
+	private Chunk apply(Chunk chunk, int i, int block) {
+		int x = cells[i * 3];
+		int y = cells[i * 3 + 1];
+		chunk = getChunk(chunk, x, y);
+		if (chunk != null) {
+			chunk.setBlock(x, y, cells[i * 3 + 2], block);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Returns the chunk containing the cell and reuses the last one if
+	 * possible.
+	 */
+	private Chunk getChunk(Chunk last, int x, int y) {
+		if (last != null
+			&& x >= last.getTopLeftCoordinateX()
+			&& x < last.getTopLeftCoordinateX() + Chunk.getBlocksX()
+			&& y >= last.getTopLeftCoordinateY()
+			&& y < last.getTopLeftCoordinateY() + Chunk.getBlocksY()
+		) {
+			return last;
+		}
+		return map.getChunkContaining(x, y);
+	}
+}
@@ -50,6 +50,7 @@ import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -81,6 +82,12 @@ public class Chunk implements Telegraph {
 	private final static char SIGN_COMMAND = '~';//126 OR 0x7e
 	private final static char SIGN_EMTPYLAYER = 'e';//only valid after a command sign
 	private final static char SIGN_ENDBLOCKS = 'b';//only valid after a command sign
+	private final static char SIGN_HEIGHTMAP = 'h';//only valid after a command sign
+
+	/**
+	 * a buffer for each loading thread where the generator writes to
+	 */
+	private final static ThreadLocal<int[]> GENERATORBUFFER = ThreadLocal.withInitial(() -> new int[0]);
 
 	/**
 	 * The amount of blocks in X direction
@@ -158,12 +165,47 @@ public class Chunk implements Telegraph {
 	 * the ids are stored here. A block is defined by three fields. In the last dimension first is id, second value, third is health.
 	 */
     private final byte data[][][];
+	/**
+	 * z of the highest block which is not air in every column, -1 if the
+	 * column is empty. index is x*blocksY+y
+	 */
+	private final short[] surfaceHeight;
+	/**
+	 * z of the highest block which is not transparent in every column, -1 if
+	 * there is none. index is x*blocksY+y
+	 */
+	private final short[] opaqueHeight;
 	
 	/**
 	 * A list containing the logic blocks. Each logic block points to some block in this chunk.
 	 */
 	private final ArrayList<AbstractBlockLogicExtension> logicBlocks = new ArrayList<>(4);
 	private boolean modified;
+	/**
+	 * increased with every change of the blocks
+	 */
+	private int generation;
+	/**
+	 * the last snapshot, reused while the generation did not change
+	 */
+	private ChunkSnapshot snapshot;
+	/**
+	 * true for every column which is referenced by a snapshot and therefore
+	 * must be copied before it is written
+	 */
+	private boolean[][] shared;
+	/**
+	 * true if the chunk was filled by a generator
+	 */
+	private boolean generated;
+	/**
+	 * true if the blocks changed since the last save or load
+	 */
+	private boolean unsaved = true;
+	/**
+	 * the last frame of the map in which this chunk was needed by a camera or an entity
+	 */
+	private long lastNeededFrame;
 
 	/**
 	 * contains the entities on this chunk
@@ -190,6 +232,10 @@ public class Chunk implements Telegraph {
 		topleftX = coordX*blocksX;
 		topleftY = coordY*blocksY;
 		data = new byte[blocksX][blocksY][blocksZ*3];
+		surfaceHeight = new short[blocksX * blocksY];
+		opaqueHeight = new short[blocksX * blocksY];
+		Arrays.fill(surfaceHeight, (short) -1);
+		Arrays.fill(opaqueHeight, (short) -1);
 
        for (int x = 0; x < blocksX; x++) {
 			for (int y = 0; y < blocksY; y++) {
@@ -214,16 +260,17 @@ public class Chunk implements Telegraph {
 	 * @param coordX the chunk coordinate
 	 * @param coordY the chunk coordinate
 	 * @param path filename, can be null to skip file loading
-	 * @param generator used for generating if laoding fails
+	 * @param generator used for generating if laoding fails. Entities are not
+	 * spawned.
 	 */
 	public Chunk(final Map map, final File path, final int coordX, final int coordY, final Generator generator) {
 		this(map, coordX, coordY);
 		if (path != null && WE.getCVars().getValueB("shouldLoadMap")) {
 			if (!load(path, map.getCurrentSaveSlot(), coordX, coordY)) {
-				fill(generator);
+				fill(generator, map.getSeed());
 			}
 		} else {
-			fill(generator);
+			fill(generator, map.getSeed());
 		}
 	}
 
@@ -265,44 +312,108 @@ public class Chunk implements Telegraph {
 		}
 	}
 
-   /**
-	 * Fills the chunk's block using a generator.
+	/**
+	 * Fills the chunk's block using a generator and spawns the entities of the
+	 * generator. Must be called on the main thread.
 	 *
 	 * @param generator
 	 */
 	public void fill(final Generator generator) {
+		fill(generator, Controller.getMap().getSeed());
+		generator.spawnEntities(this);
+	}
+
+	/**
+	 * Fills the chunk's block using a generator. Does not spawn entities so it
+	 * can be called from a loading thread.
+	 *
+	 * @param generator
+	 * @param seed the seed of the map
+	 * @see Generator#spawnEntities(Chunk)
+	 */
+	public void fill(final Generator generator, long seed) {
+		int[] buffer = GENERATORBUFFER.get();
+		if (buffer.length < blocksX * blocksY * blocksZ) {
+			buffer = new int[blocksX * blocksY * blocksZ];
+			GENERATORBUFFER.set(buffer);
+		}
+		generator.generateChunk(chunkX, chunkY, seed, buffer);
+
 		int left = blocksX * chunkX;
 		int top = blocksY * chunkY;
+		int i = 0;
+		unshareAll();
 		for (int x = 0; x < blocksX; x++) {
 			for (int y = 0; y < blocksY; y++) {
-				for (int z = 0; z < blocksZ * 3; z += 3) {
-					int generated = generator.generate(
-						left + x,
-						top + y,
-						z
-					);
-					data[x][y][z] = (byte) (generated&255);
-					data[x][y][z + 1] = (byte) ((generated>>8)&255);
-					data[x][y][z + 2] = 100;//health
-					if (data[x][y][z] != 0) {
-						AbstractBlockLogicExtension logic = RenderCell.createLogicInstance(data[x][y][z],
-							data[x][y][z + 1],
+				for (int z = 0; z < blocksZ; z++) {
+					int block = buffer[i];
+					i++;
+					data[x][y][z * 3] = (byte) (block & 255);
+					data[x][y][z * 3 + 1] = (byte) ((block >> 8) & 255);
+					data[x][y][z * 3 + 2] = 100;//health
+					if (data[x][y][z * 3] != 0) {
+						AbstractBlockLogicExtension logic = RenderCell.createLogicInstance(data[x][y][z * 3],
+							data[x][y][z * 3 + 1],
 							new Coordinate(left + x, top + y, z)
 						);
 						if (logic != null) {
 							logicBlocks.add(logic);
 						}
 					}
-
-					generator.spawnEntities(
-						left + x,
-						top + y,
-						z
-					);
 				}
 			}
 		}
+		computeHeightmap();
+		generated = true;
 		modified = true;
+		generation++;
+		unsaved = true;
+	}
+
+	/**
+	 * Has a block changed since the chunk was loaded or saved the last time?
+	 *
+	 * @return
+	 */
+	public boolean isUnsaved() {
+		return unsaved;
+	}
+
+	/**
+	 * Mark that a camera or an entity needs this chunk in this frame.
+	 *
+	 * @param frame the frame counter of the map
+	 * @see Map#markChunkNeeded(int, int)
+	 */
+	public void markNeeded(long frame) {
+		lastNeededFrame = frame;
+	}
+
+	/**
+	 *
+	 * @return the last frame in which this chunk was needed
+	 * @see #markNeeded(long)
+	 */
+	public long getLastNeededFrame() {
+		return lastNeededFrame;
+	}
+
+	/**
+	 * The amount of bytes used by the block data of one chunk.
+	 *
+	 * @return
+	 */
+	public static int getMemorySize() {
+		return blocksX * blocksY * blocksZ * 3;
+	}
+
+	/**
+	 * Was this chunk filled by a generator instead of loaded from disk?
+	 *
+	 * @return
+	 */
+	public boolean isGenerated() {
+		return generated;
 	}
 
 	/**
@@ -332,6 +443,7 @@ public class Chunk implements Telegraph {
 	 * @throws IOException
 	 */
 	private byte loadBlocks(FileInputStream fis) throws IOException{
+		unshareAll();
 		byte[][][] data = this.data;
 		int z = 0;
 		int x = 0;
@@ -429,6 +541,47 @@ public class Chunk implements Telegraph {
 		return bChar;
 	}
 
+	/**
+	 * Reads a heightmap after the blocks. It is not saved anymore because
+	 * older engine versions can not read it, but files of the development
+	 * version in between may contain it. If the next bytes are no heightmap
+	 * the stream is reset.
+	 *
+	 * @param fis
+	 * @return true if a valid heightmap was read
+	 * @throws IOException
+	 */
+	private boolean loadHeightmap(FileInputStream fis) throws IOException {
+		if (fis.available() < 2) {
+			return false;
+		}
+		long start = fis.getChannel().position();
+		if (fis.read() != SIGN_COMMAND || fis.read() != SIGN_HEIGHTMAP) {
+			fis.getChannel().position(start);
+			return false;
+		}
+		byte[] bytes = new byte[surfaceHeight.length * 4];
+		int read = 0;
+		while (read < bytes.length) {
+			int n = fis.read(bytes, read, bytes.length - read);
+			if (n < 0) {
+				return false;
+			}
+			read += n;
+		}
+		for (int i = 0; i < surfaceHeight.length; i++) {
+			short surface = (short) ((bytes[i * 4] << 8) | (bytes[i * 4 + 1] & 255));
+			short opaque = (short) ((bytes[i * 4 + 2] << 8) | (bytes[i * 4 + 3] & 255));
+			if (surface < -1 || surface >= blocksZ || opaque < -1 || opaque > surface) {
+				Gdx.app.error("Chunk", "Heightmap of chunk " + chunkX + "," + chunkY + " is corrupt. Rebuilding it.");
+				return false;
+			}
+			surfaceHeight[i] = surface;
+			opaqueHeight[i] = opaque;
+		}
+		return true;
+	}
+
 	/**
 	 * fills entitie cache
 	 *
@@ -497,12 +650,17 @@ public class Chunk implements Telegraph {
 				byte bChar = loadBlocks(fis);
 				//if (bChar == SIGN_ENDBLOCKS)
 					//Gdx.app.debug("Chunk","Loaded blocks sucessfull");
+				if (bChar != SIGN_ENDBLOCKS || !loadHeightmap(fis)) {
+					computeHeightmap();//the heightmap is derived from the blocks
+				}
 
 				if (fis.available() > 0) {//not eof
 					loadEntities(fis, path);
 				}
 
 				modified = true;
+				generation++;
+				unsaved = false;
 				return true;
 
 			} catch (IOException ex){
@@ -570,7 +728,9 @@ public class Chunk implements Telegraph {
 			}
 		}
 		fos.write(new byte[]{SIGN_COMMAND, SIGN_ENDBLOCKS});
+		//the heightmap is not saved so that older engine versions can read the file
 		fos.flush();
+		unsaved = false;
 
 		ArrayList<AbstractEntity> entities = map.getEntitiesOnChunkSavedOnly(chunkX, chunkY);
 
@@ -598,8 +758,72 @@ public class Chunk implements Telegraph {
     }
 
 	/**
-     * Returns the data of the chunk
+	 * Returns the column for writing. If a snapshot references the column it
+	 * gets copied first so that the snapshot stays unchanged.
+	 *
+	 * @param xIndex index inside this chunk
+	 * @param yIndex index inside this chunk
+	 * @return
+	 */
+	private byte[] getWritableColumn(int xIndex, int yIndex) {
+		if (shared != null && shared[xIndex][yIndex]) {
+			data[xIndex][yIndex] = data[xIndex][yIndex].clone();
+			shared[xIndex][yIndex] = false;
+		}
+		return data[xIndex][yIndex];
+	}
+
+	/**
+	 * Copies every column referenced by a snapshot. Used before the whole
+	 * chunk is written.
+	 */
+	private void unshareAll() {
+		if (shared != null) {
+			for (int x = 0; x < blocksX; x++) {
+				for (int y = 0; y < blocksY; y++) {
+					getWritableColumn(x, y);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get an immutable view of the blocks which can be read by other threads
+	 * while this chunk is edited. The columns are shared with the chunk until
+	 * the chunk writes them. Must be called on the main thread.
+	 *
+	 * @return the same snapshot as long as the blocks did not change
+	 * @see Map#snapshotRegion(int, int, int)
+	 */
+	public ChunkSnapshot getSnapshot() {
+		if (snapshot == null || snapshot.getGeneration() != generation) {
+			if (shared == null) {
+				shared = new boolean[blocksX][blocksY];
+			}
+			byte[][][] columns = new byte[blocksX][][];
+			for (int x = 0; x < blocksX; x++) {
+				columns[x] = data[x].clone();
+				Arrays.fill(shared[x], true);
+			}
+			snapshot = new ChunkSnapshot(chunkX, chunkY, topleftX, topleftY, generation, columns);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * The generation is increased with every change of the blocks.
+	 *
+	 * @return
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+     * Returns the data of the chunk. Only read it, writing directly would
+     * change snapshots.
      * @return
+     * @see #getSnapshot()
      */
     public byte[][][] getData() {
         return data;
@@ -703,10 +927,14 @@ public class Chunk implements Telegraph {
 		int yIndex = rblock.getPosition().getY()-topleftY;
 		int z = rblock.getPosition().getZ()*3;
 		if (z >= 0){
-			data[xIndex][yIndex][z] = rblock.getId();
-			data[xIndex][yIndex][z+1] = rblock.getValue();
-			data[xIndex][yIndex][z+2] = rblock.getHealth();
+			byte[] column = getWritableColumn(xIndex, yIndex);
+			column[z] = rblock.getId();
+			column[z+1] = rblock.getValue();
+			column[z+2] = rblock.getHealth();
+			updateHeight(xIndex, yIndex, z / 3);
 			modified = true;
+			generation++;
+			unsaved = true;
 		}
 		
 		//get corresponding logic and update
@@ -732,10 +960,14 @@ public class Chunk implements Telegraph {
 		int yIndex = coord.getY() - topleftY;
 		int z = coord.getZ()*3;
 		if (z >= 0){
-			data[xIndex][yIndex][z] = id;
-			data[xIndex][yIndex][z+1] = value;
-			data[xIndex][yIndex][z+2] = health;
+			byte[] column = getWritableColumn(xIndex, yIndex);
+			column[z] = id;
+			column[z+1] = value;
+			column[z+2] = health;
+			updateHeight(xIndex, yIndex, z / 3);
 			modified = true;
+			generation++;
+			unsaved = true;
 		}
 		
 		//get corresponding logic and update
@@ -759,10 +991,14 @@ public class Chunk implements Telegraph {
 		int yIndex = coord.getY() - topleftY;
 		int z = coord.getZ()*3;
 		if (z >= 0){
-			data[xIndex][yIndex][z] = id;
-			data[xIndex][yIndex][z+1] = value;
-			data[xIndex][yIndex][z+2] = 100;
+			byte[] column = getWritableColumn(xIndex, yIndex);
+			column[z] = id;
+			column[z+1] = value;
+			column[z+2] = 100;
+			updateHeight(xIndex, yIndex, z / 3);
 			modified = true;
+			generation++;
+			unsaved = true;
 		}
 		
 		//get corresponding logic and update
@@ -785,10 +1021,14 @@ public class Chunk implements Telegraph {
 		int yIndex = coord.getY() - topleftY;
 		int z = coord.getZ()*3;
 		if (z >= 0){
-			data[xIndex][yIndex][z] = id;
-			data[xIndex][yIndex][z+1] = 0;
-			data[xIndex][yIndex][z+2] = 100;
+			byte[] column = getWritableColumn(xIndex, yIndex);
+			column[z] = id;
+			column[z+1] = 0;
+			column[z+2] = 100;
+			updateHeight(xIndex, yIndex, z / 3);
 			modified = true;
+			generation++;
+			unsaved = true;
 		}
 		
 		//get corresponding logic and update
@@ -799,6 +1039,41 @@ public class Chunk implements Telegraph {
 		}
 	}
 	
+	/**
+	 * Sets a block without a coordinate object. If the block has logic a new
+	 * logicinstance will be created.
+	 *
+	 * @param x global coordinate inside this chunk
+	 * @param y global coordinate inside this chunk
+	 * @param z if outside the chunk does nothing
+	 * @param block id, value and health
+	 * @see BlockTransaction
+	 */
+	void setBlock(int x, int y, int z, int block) {
+		if (z < 0 || z >= blocksZ) {
+			return;
+		}
+		byte id = (byte) (block & 255);
+		byte value = (byte) ((block >> 8) & 255);
+		byte[] column = getWritableColumn(x - topleftX, y - topleftY);
+		boolean sameBlock = column[z * 3] == id && column[z * 3 + 1] == value;
+		column[z * 3] = id;
+		column[z * 3 + 1] = value;
+		column[z * 3 + 2] = (byte) ((block >> 16) & 255);
+		updateHeight(x - topleftX, y - topleftY, z);
+		modified = true;
+		generation++;
+		unsaved = true;
+
+		//a change of the health only keeps the existing logic
+		if (id != 0 && !sameBlock && RenderCell.hasLogic(id, value)) {
+			AbstractBlockLogicExtension logic = RenderCell.createLogicInstance(id, value, new Coordinate(x, y, z));
+			if (logic != null) {
+				logicBlocks.add(logic);
+			}
+		}
+	}
+
 	/**
 	 *
 	 * @param coord
@@ -811,12 +1086,38 @@ public class Chunk implements Telegraph {
 		if (z >= 0) {
 			//check if actually changed
 			if (data[xIndex][yIndex][z+1] != value) {
-				data[xIndex][yIndex][z+1] = value;
+				getWritableColumn(xIndex, yIndex)[z+1] = value;
+				updateHeight(xIndex, yIndex, z / 3);//the value can change the transparency
 				modified = true;
+				generation++;
+				unsaved = true;
 			}
 		}
 	}
 	
+	/**
+	 * Set health of a cell without sending an event.
+	 *
+	 * @param x global coordinate inside this chunk
+	 * @param y global coordinate inside this chunk
+	 * @param z if outside the chunk does nothing
+	 * @param health 0-100.
+	 * @see AreaDamage
+	 */
+	void setHealth(int x, int y, int z, byte health) {
+		if (z < 0 || z >= blocksZ) {
+			return;
+		}
+		int xIndex = x - topleftX;
+		int yIndex = y - topleftY;
+		if (data[xIndex][yIndex][z * 3 + 2] != health) {
+			getWritableColumn(xIndex, yIndex)[z * 3 + 2] = health;
+			modified = true;
+			generation++;
+			unsaved = true;
+		}
+	}
+
 	/**
 	 * Set health of a cell.
 	 * @param coord
@@ -829,12 +1130,93 @@ public class Chunk implements Telegraph {
 		int z = coord.getZ()*3;
 		if (z >= 0) {
 			if (data[xIndex][yIndex][z+2] != health) {
-				data[xIndex][yIndex][z+2] = health;
+				getWritableColumn(xIndex, yIndex)[z+2] = health;
 				modified = true;
+				generation++;
+				unsaved = true;
+			}
+		}
+	}
+
+	/**
+	 * Updates the heightmap after a block in a column changed.
+	 *
+	 * @param xIndex index inside this chunk
+	 * @param yIndex index inside this chunk
+	 * @param z the changed layer
+	 */
+	private void updateHeight(int xIndex, int yIndex, int z) {
+		int i = xIndex * blocksY + yIndex;
+		byte[] column = data[xIndex][yIndex];
+		byte id = column[z * 3];
+		if (id != 0) {
+			if (z > surfaceHeight[i]) {
+				surfaceHeight[i] = (short) z;
+			}
+		} else if (z == surfaceHeight[i]) {
+			surfaceHeight[i] = scanHeight(column, z - 1, false);
+		}
+		if (id != 0 && !BlockProperties.is(id, column[z * 3 + 1], BlockProperties.TRANSPARENT)) {
+			if (z > opaqueHeight[i]) {
+				opaqueHeight[i] = (short) z;
+			}
+		} else if (z == opaqueHeight[i]) {
+			opaqueHeight[i] = scanHeight(column, z - 1, true);
+		}
+	}
+
+	/**
+	 * Finds the highest block in a column starting at a layer.
+	 *
+	 * @param column
+	 * @param from the layer where the search starts
+	 * @param opaque true if transparent blocks are skipped
+	 * @return the layer, -1 if there is none
+	 */
+	private static short scanHeight(byte[] column, int from, boolean opaque) {
+		for (int z = from; z >= 0; z--) {
+			byte id = column[z * 3];
+			if (id != 0 && (!opaque || !BlockProperties.is(id, column[z * 3 + 1], BlockProperties.TRANSPARENT))) {
+				return (short) z;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Computes the heightmap of every column.
+	 */
+	private void computeHeightmap() {
+		for (int x = 0; x < blocksX; x++) {
+			for (int y = 0; y < blocksY; y++) {
+				surfaceHeight[x * blocksY + y] = scanHeight(data[x][y], blocksZ - 1, false);
+				opaqueHeight[x * blocksY + y] = scanHeight(data[x][y], blocksZ - 1, true);
 			}
 		}
 	}
 
+	/**
+	 * Get the highest block of a column which is not air. O(1)
+	 *
+	 * @param x global coordinate inside this chunk
+	 * @param y global coordinate inside this chunk
+	 * @return z coordinate, -1 if the column is empty
+	 */
+	public int getSurfaceHeight(int x, int y) {
+		return surfaceHeight[(x - topleftX) * blocksY + y - topleftY];
+	}
+
+	/**
+	 * Get the highest block of a column which is not transparent. O(1)
+	 *
+	 * @param x global coordinate inside this chunk
+	 * @param y global coordinate inside this chunk
+	 * @return z coordinate, -1 if there is none
+	 */
+	public int getOpaqueHeight(int x, int y) {
+		return opaqueHeight[(x - topleftX) * blocksY + y - topleftY];
+	}
+
 	/**
 	 *
 	 * @param block
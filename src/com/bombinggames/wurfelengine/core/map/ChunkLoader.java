@@ -31,18 +31,71 @@
 package com.bombinggames.wurfelengine.core.map;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Loads or generates a single chunk. Use {@link #submit(ChunkLoader)} to run
+ * it. Chunks with a thread-safe generator are generated concurrently on a
+ * pool, other generators get their chunks one after another.
  *
  * @author Benedikt Vogler
  */
 public class ChunkLoader implements Runnable{
-	private Chunk chunk;
+	private static ExecutorService parallelPool;
+	private static ExecutorService serialPool;
+
+	/**
+	 * Runs the loader on a background thread.
+	 *
+	 * @param loader
+	 * @see Generator#isThreadSafe()
+	 */
+	public static void submit(ChunkLoader loader) {
+		if (loader.generator.isThreadSafe()) {
+			if (parallelPool == null) {
+				parallelPool = Executors.newFixedThreadPool(
+					Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+					new LoaderThreadFactory()
+				);
+			}
+			parallelPool.execute(loader);
+		} else {
+			if (serialPool == null) {
+				serialPool = Executors.newSingleThreadExecutor(new LoaderThreadFactory());
+			}
+			serialPool.execute(loader);
+		}
+	}
+
+	/**
+	 * Stops a loader. If it is still waiting in the queue it is removed,
+	 * otherwise the result is not used.
+	 *
+	 * @param loader
+	 */
+	public static void cancel(ChunkLoader loader) {
+		loader.cancelled = true;
+		ExecutorService pool = loader.generator.isThreadSafe() ? parallelPool : serialPool;
+		if (pool instanceof ThreadPoolExecutor) {
+			((ThreadPoolExecutor) pool).remove(loader);
+		}
+	}
+
+	private volatile Chunk chunk;
 	private final Generator generator;
 	private final File path;
 	private final int coordY;
 	private final int coordX;
 	private final Map map;
+	private volatile boolean cancelled;
+	/**
+	 * true if the chunk was requested ahead of time and can be cancelled
+	 */
+	private boolean prefetch;
 
 	/**
 	 *
@@ -63,7 +116,35 @@ public class ChunkLoader implements Runnable{
 	
 	@Override
 	public void run() {
-		chunk = new Chunk(map, path, coordX, coordY, generator);
+		if (!cancelled) {
+			chunk = new Chunk(map, path, coordX, coordY, generator);
+		}
+	}
+
+	/**
+	 *
+	 * @return true if the loading was cancelled
+	 * @see #cancel(ChunkLoader)
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 *
+	 * @return true if the chunk was requested ahead of time
+	 */
+	public boolean isPrefetch() {
+		return prefetch;
+	}
+
+	/**
+	 * Prefetched chunks can be cancelled when they are not needed anymore.
+	 *
+	 * @param prefetch
+	 */
+	public void setPrefetch(boolean prefetch) {
+		this.prefetch = prefetch;
 	}
 
 	/**
@@ -73,6 +154,14 @@ public class ChunkLoader implements Runnable{
 	public Chunk getChunk() {
 		return chunk;
 	}
+
+	/**
+	 * The generator used if the chunk could not be loaded.
+	 * @return 
+	 */
+	public Generator getGenerator() {
+		return generator;
+	}
 	
 	/**
 	 * Get the chunk coordinate.
@@ -89,5 +178,20 @@ public class ChunkLoader implements Runnable{
 	public int getCoordY() {
 		return coordY;
 	}
+
+	/**
+	 * Creates daemon threads so that loading does not block the shutdown.
+	 */
+	private static class LoaderThreadFactory implements ThreadFactory {
+
+		private static final AtomicInteger COUNT = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "chunkLoader" + COUNT.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
 	
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * If this software is used for a game the official „Wurfel Engine“ logo or its name must be
+ *   visible in an intro screen or main menu.
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map;
+
+import java.util.Arrays;
+
+/**
+ * Stores chunks by their chunk coordinates. The coordinates are packed into a
+ * long key so there are no collisions for any chunk coordinate. Uses open
+ * addressing with linear probing so a lookup does not allocate.
+ *
+ * @author Benedikt Vogler
+ */
+public class ChunkMap {
+
+	private long[] keys;
+	private Chunk[] values;
+	/**
+	 * capacity - 1, capacity is always a power of two
+	 */
+	private int mask;
+	private int size;
+
+	/**
+	 *
+	 * @param expectedSize amount of chunks which can be stored before the
+	 * table grows
+	 */
+	public ChunkMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+		keys = new long[capacity];
+		values = new Chunk[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Packs chunk coordinates into one key.
+	 *
+	 * @param chunkX
+	 * @param chunkY
+	 * @return
+	 */
+	public static long key(int chunkX, int chunkY) {
+		return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+	}
+
+	/**
+	 *
+	 * @param chunkX
+	 * @param chunkY
+	 * @return null if not stored
+	 */
+	public Chunk get(int chunkX, int chunkY) {
+		long key = key(chunkX, chunkY);
+		int i = index(key);
+		Chunk value;
+		while ((value = values[i]) != null) {
+			if (keys[i] == key) {
+				return value;
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Adds a chunk using its chunk coordinates. Replaces a chunk at the same
+	 * coordinates.
+	 *
+	 * @param chunk not null
+	 * @return the replaced chunk, can be null
+	 */
+	public Chunk put(Chunk chunk) {
+		long key = key(chunk.getChunkX(), chunk.getChunkY());
+		int i = index(key);
+		Chunk value;
+		while ((value = values[i]) != null) {
+			if (keys[i] == key) {
+				values[i] = chunk;
+				return value;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = chunk;
+		size++;
+		if (size * 2 > values.length) {
+			resize(values.length * 2);
+		}
+		return null;
+	}
+
+	/**
+	 *
+	 * @param chunkX
+	 * @param chunkY
+	 * @return the removed chunk, can be null
+	 */
+	public Chunk remove(int chunkX, int chunkY) {
+		long key = key(chunkX, chunkY);
+		int i = index(key);
+		Chunk value;
+		while ((value = values[i]) != null) {
+			if (keys[i] == key) {
+				values[i] = null;
+				size--;
+				shiftBack(i);
+				return value;
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 *
+	 * @return amount of stored chunks
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes every chunk.
+	 */
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * Fills the free slot by moving following entries of the same probe
+	 * sequence back so that lookups do not need tombstones.
+	 *
+	 * @param free the index of the free slot
+	 */
+	private void shiftBack(int free) {
+		int i = (free + 1) & mask;
+		while (values[i] != null) {
+			int home = index(keys[i]);
+			//move if the home slot is not between the free slot and the current one
+			if (((i - home) & mask) >= ((i - free) & mask)) {
+				keys[free] = keys[i];
+				values[free] = values[i];
+				values[i] = null;
+				free = i;
+			}
+			i = (i + 1) & mask;
+		}
+	}
+
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		Chunk[] oldValues = values;
+		keys = new long[capacity];
+		values = new Chunk[capacity];
+		mask = capacity - 1;
+		size = 0;
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				put(oldValues[i]);
+			}
+		}
+	}
+
+	private int index(long key) {
+		//murmur3 finalizer
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key & mask;
+	}
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map;
+
+
+import com.badlogic.gdx.math.Vector3;
+import com.bombinggames.wurfelengine.WE;
+import com.bombinggames.wurfelengine.core.Camera;
+import com.bombinggames.wurfelengine.core.gameobjects.AbstractEntity;
+import com.bombinggames.wurfelengine.core.gameobjects.MovableEntity;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Loads chunks before a camera reaches them. The velocity of every camera is
+ * estimated from its movement or taken from the followed entity. The path is
+ * sampled up to the horizon set in the cvar "mapPrefetchTime" and the chunks
+ * around every predicted center are requested. The requests are sorted by the
+ * time until they become visible so that the nearest ones are loaded first.
+ * At most "mapPrefetchLoads" chunks are loaded at the same time. If the
+ * camera changes its direction loads which are not requested anymore are
+ * cancelled.
+ *
+ * @author Benedikt Vogler
+ */
+public class ChunkPrefetcher {
+
+	/**
+	 * amount of points on the predicted path
+	 */
+	private static final int SAMPLES = 8;
+	/**
+	 * weight of the last frame in the velocity estimation
+	 */
+	private static final float SMOOTHING = 0.2f;
+
+	private final Map map;
+	private final IdentityHashMap<Camera, Viewer> viewers = new IdentityHashMap<>(2);
+
+	/**
+	 * requested chunks sorted by time to visibility
+	 */
+	private int[] requestX = new int[32];
+	private int[] requestY = new int[32];
+	/**
+	 * time in ms until the chunk becomes visible
+	 */
+	private float[] requestTime = new float[32];
+	private int requestCount;
+
+	/**
+	 * chunks which were prefetched by this and are still loading
+	 */
+	private int[] pendingX = new int[8];
+	private int[] pendingY = new int[8];
+	private int pendingCount;
+
+	/**
+	 * state of one camera
+	 */
+	private static class Viewer {
+
+		float lastX, lastY;
+		/**
+		 * view space pixels per ms
+		 */
+		float velX, velY;
+		boolean valid;
+	}
+
+	/**
+	 *
+	 * @param map the map which loads the chunks
+	 */
+	public ChunkPrefetcher(Map map) {
+		this.map = map;
+	}
+
+	/**
+	 * Predicts the cameras, requests the chunks ahead and cancels loads which
+	 * are not needed anymore. Cameras which are not in the list anymore are
+	 * forgotten.
+	 *
+	 * @param cameras every camera of the view
+	 * @param dt time in ms
+	 */
+	public void update(List<Camera> cameras, float dt) {
+		requestCount = 0;
+		//forget the cameras which were removed from the view
+		if (viewers.size() > cameras.size()) {
+			viewers.keySet().retainAll(cameras);
+		}
+		int horizon = WE.getCVars().getValueI("mapPrefetchTime");
+		if (horizon > 0 && dt > 0) {
+			for (int i = 0; i < cameras.size(); i++) {
+				Camera camera = cameras.get(i);
+				if (camera.isEnabled()) {
+					predict(camera, dt, horizon);
+				}
+			}
+		}
+
+		//load and keep the requested chunks
+		int budget = WE.getCVars().getValueI("mapPrefetchLoads");
+		for (int i = 0; i < requestCount; i++) {
+			int x = requestX[i];
+			int y = requestY[i];
+			if (map.getChunk(x, y) != null) {
+				map.markChunkNeeded(x, y);
+			} else if (countLoading() < budget && map.prefetchChunk(x, y)) {
+				addPending(x, y);
+			}
+		}
+
+		//cancel what is not on the path anymore
+		for (int i = 0; i < pendingCount; i++) {
+			int x = pendingX[i];
+			int y = pendingY[i];
+			if (!map.isLoading(x, y) || !isRequested(x, y)) {
+				if (map.isLoading(x, y)) {
+					map.cancelPrefetch(x, y);
+				}
+				pendingCount--;
+				pendingX[i] = pendingX[pendingCount];
+				pendingY[i] = pendingY[pendingCount];
+				i--;
+			}
+		}
+	}
+
+	/**
+	 * Updates the velocity of the camera and requests the chunks on the
+	 * predicted path.
+	 */
+	private void predict(Camera camera, float dt, int horizon) {
+		Viewer viewer = viewers.get(camera);
+		if (viewer == null) {
+			viewer = new Viewer();
+			viewers.put(camera, viewer);
+		}
+		float x = camera.getViewSpaceX();
+		float y = camera.getViewSpaceY();
+		if (viewer.valid) {
+			float dX = x - viewer.lastX;
+			float dY = y - viewer.lastY;
+			if (Math.abs(dX) > Chunk.getViewWidth() || Math.abs(dY) > Chunk.getViewDepth()) {
+				//teleported
+				viewer.velX = 0;
+				viewer.velY = 0;
+			} else {
+				viewer.velX += (dX / dt - viewer.velX) * SMOOTHING;
+				viewer.velY += (dY / dt - viewer.velY) * SMOOTHING;
+			}
+		}
+		viewer.lastX = x;
+		viewer.lastY = y;
+		viewer.valid = true;
+
+		float velX = viewer.velX;
+		float velY = viewer.velY;
+		AbstractEntity focus = camera.getFocusEntity();
+		if (focus instanceof MovableEntity && focus.hasPosition()) {
+			//the entity knows where it is heading, m/s to view space px/ms
+			Vector3 mov = ((MovableEntity) focus).getMovement();
+			velX = mov.x * RenderCell.GAME_EDGELENGTH / 1000f;
+			velY = (-mov.y / 2f + mov.z * RenderCell.ZAXISSHORTENING) * RenderCell.GAME_EDGELENGTH / 1000f;
+		}
+		if (velX == 0 && velY == 0) {
+			return;
+		}
+
+		int centerX = camera.getCenterChunkX();
+		int centerY = camera.getCenterChunkY();
+		int lastX = centerX;
+		int lastY = centerY;
+		for (int s = 1; s <= SAMPLES; s++) {
+			float t = horizon * s / (float) SAMPLES;
+			//same as the center chunk calculation of the camera
+			int chunkX = (int) Math.floor((x + velX * t) / Chunk.getViewWidth());
+			int chunkY = (int) Math.floor(-(y + velY * t) / Chunk.getViewDepth());
+			if (chunkX == lastX && chunkY == lastY) {
+				continue;
+			}
+			lastX = chunkX;
+			lastY = chunkY;
+			for (int cX = chunkX - 1; cX <= chunkX + 1; cX++) {
+				for (int cY = chunkY - 1; cY <= chunkY + 1; cY++) {
+					//the 3x3 around the center is loaded by the camera
+					if (Math.abs(cX - centerX) > 1 || Math.abs(cY - centerY) > 1) {
+						addRequest(cX, cY, t);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a request or lowers the time of an existing one. Keeps the
+	 * requests sorted.
+	 */
+	private void addRequest(int x, int y, float time) {
+		int i = 0;
+		while (i < requestCount && (requestX[i] != x || requestY[i] != y)) {
+			i++;
+		}
+		if (i < requestCount) {
+			if (requestTime[i] <= time) {
+				return;
+			}
+		} else {
+			if (requestCount == requestX.length) {
+				requestX = Arrays.copyOf(requestX, requestCount * 2);
+				requestY = Arrays.copyOf(requestY, requestCount * 2);
+				requestTime = Arrays.copyOf(requestTime, requestCount * 2);
+			}
+			requestCount++;
+		}
+		//insertion sort by time
+		while (i > 0 && requestTime[i - 1] > time) {
+			requestX[i] = requestX[i - 1];
+			requestY[i] = requestY[i - 1];
+			requestTime[i] = requestTime[i - 1];
+			i--;
+		}
+		requestX[i] = x;
+		requestY[i] = y;
+		requestTime[i] = time;
+	}
+
+	private void addPending(int x, int y) {
+		if (pendingCount == pendingX.length) {
+			pendingX = Arrays.copyOf(pendingX, pendingCount * 2);
+			pendingY = Arrays.copyOf(pendingY, pendingCount * 2);
+		}
+		pendingX[pendingCount] = x;
+		pendingY[pendingCount] = y;
+		pendingCount++;
+	}
+
+	private int countLoading() {
+		int count = 0;
+		for (int i = 0; i < pendingCount; i++) {
+			if (map.isLoading(pendingX[i], pendingY[i])) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private boolean isRequested(int x, int y) {
+		for (int i = 0; i < requestCount; i++) {
+			if (requestX[i] == x && requestY[i] == y) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 *
+	 * @return amount of chunks requested in the last update
+	 */
+	public int getRequestCount() {
+		return requestCount;
+	}
+
+	/**
+	 *
+	 * @param i index smaller than {@link #getRequestCount()}
+	 * @return chunk x coordinate of the request, sorted by time to visibility
+	 */
+	public int getRequestX(int i) {
+		return requestX[i];
+	}
+
+	/**
+	 *
+	 * @param i index smaller than {@link #getRequestCount()}
+	 * @return chunk y coordinate of the request
+	 */
+	public int getRequestY(int i) {
+		return requestY[i];
+	}
+
+	/**
+	 *
+	 * @param i index smaller than {@link #getRequestCount()}
+	 * @return predicted time in ms until the chunk becomes visible
+	 */
+	public float getRequestTime(int i) {
+		return requestTime[i];
+	}
+
+	/**
+	 * Forgets the velocity of a camera, e.g. after it was removed.
+	 *
+	 * @param camera
+	 */
+	public void removeCamera(Camera camera) {
+		viewers.remove(camera);
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * If this software is used for a game the official „Wurfel Engine“ logo or its name must be
+ *   visible in an intro screen or main menu.
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map;
+
+import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+
+/**
+ * An immutable copy of the blocks of a chunk at one generation. Can be read
+ * from any thread. The arrays are shared with the chunk until the chunk writes
+ * them, so taking a snapshot is cheap.
+ *
+ * @author Benedikt Vogler
+ * @see Chunk#getSnapshot()
+ */
+public class ChunkSnapshot {
+
+	private final int chunkX;
+	private final int chunkY;
+	private final int topleftX;
+	private final int topleftY;
+	private final int generation;
+	private final int blocksZ;
+	/**
+	 * same layout as {@link Chunk#getData()}, never written
+	 */
+	private final byte[][][] data;
+
+	ChunkSnapshot(int chunkX, int chunkY, int topleftX, int topleftY, int generation, byte[][][] data) {
+		this.chunkX = chunkX;
+		this.chunkY = chunkY;
+		this.topleftX = topleftX;
+		this.topleftY = topleftY;
+		this.generation = generation;
+		this.blocksZ = data.length > 0 && data[0].length > 0 ? data[0][0].length / 3 : 0;
+		this.data = data;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getChunkX() {
+		return chunkX;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getChunkY() {
+		return chunkY;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getTopLeftCoordinateX() {
+		return topleftX;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getTopLeftCoordinateY() {
+		return topleftY;
+	}
+
+	/**
+	 *
+	 * @return the generation of the chunk when the snapshot was taken
+	 * @see Chunk#getGeneration()
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 *
+	 * @param x global coordinate
+	 * @param y global coordinate
+	 * @return true if the cell is inside this chunk
+	 */
+	public boolean contains(int x, int y) {
+		return x >= topleftX
+			&& x < topleftX + data.length
+			&& y >= topleftY
+			&& y < topleftY + data[0].length;
+	}
+
+	/**
+	 *
+	 * @param x global coordinate inside the chunk
+	 * @param y global coordinate inside the chunk
+	 * @param z must be &gt;= 0
+	 * @return
+	 */
+	public byte getBlockId(int x, int y, int z) {
+		if (z >= blocksZ) {
+			return 0;
+		}
+		return data[x - topleftX][y - topleftY][z * 3];
+	}
+
+	/**
+	 *
+	 * @param x global coordinate inside the chunk
+	 * @param y global coordinate inside the chunk
+	 * @param z must be &gt;= 0
+	 * @return
+	 */
+	public byte getBlockValue(int x, int y, int z) {
+		if (z >= blocksZ) {
+			return 0;
+		}
+		return data[x - topleftX][y - topleftY][z * 3 + 1];
+	}
+
+	/**
+	 *
+	 * @param x global coordinate inside the chunk
+	 * @param y global coordinate inside the chunk
+	 * @param z must be &gt;= 0
+	 * @return
+	 */
+	public byte getHealth(int x, int y, int z) {
+		if (z >= blocksZ) {
+			return 0;
+		}
+		return data[x - topleftX][y - topleftY][z * 3 + 2];
+	}
+
+	/**
+	 *
+	 * @param x global coordinate inside the chunk
+	 * @param y global coordinate inside the chunk
+	 * @param z must be &gt;= 0
+	 * @return first byte id, second value, third is health.
+	 */
+	public int getBlock(int x, int y, int z) {
+		if (z >= blocksZ) {
+			return 0;
+		}
+		byte[] column = data[x - topleftX][y - topleftY];
+		return (column[z * 3] & 255) | (column[z * 3 + 1] & 255) << 8 | (column[z * 3 + 2] & 255) << 16;
+	}
+
+	/**
+	 *
+	 * @param x global coordinate inside the chunk
+	 * @param y global coordinate inside the chunk
+	 * @param z must be &gt;= 0
+	 * @return
+	 */
+	public boolean isObstacle(int x, int y, int z) {
+		if (z >= blocksZ) {
+			return false;
+		}
+		byte[] column = data[x - topleftX][y - topleftY];
+		return RenderCell.isObstacle(column[z * 3], column[z * 3 + 1]);
+	}
+}
@@ -38,8 +38,9 @@ import com.badlogic.gdx.ai.pfa.Connection;
  */
 public class CoordConnection implements Connection<PfNode>	{
 
-	private final PfNode from;
-	private final PfNode to;
+	private PfNode from;
+	private PfNode to;
+	private float cost;
 
 	/**
 	 *
@@ -47,14 +48,37 @@ public class CoordConnection implements Connection<PfNode>	{
 	 * @param to
 	 */
 	public CoordConnection(PfNode from, PfNode to) {
+		this(from, to, from.distanceTo(to));
+	}
+
+	/**
+	 *
+	 * @param from
+	 * @param to
+	 * @param cost
+	 */
+	public CoordConnection(PfNode from, PfNode to, float cost) {
 		this.from = from;
 		this.to = to;
+		this.cost = cost;
+	}
+
+	/**
+	 * Reuses this connection.
+	 *
+	 * @param from
+	 * @param to
+	 * @param cost
+	 */
+	void set(PfNode from, PfNode to, float cost) {
+		this.from = from;
+		this.to = to;
+		this.cost = cost;
 	}
-	
 
 	@Override
 	public float getCost() {
-		return from.distanceTo(to);
+		return cost;
 	}
 
 	@Override
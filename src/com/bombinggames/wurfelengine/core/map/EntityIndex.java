@@ -0,0 +1,331 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map;
+
+import com.bombinggames.wurfelengine.core.gameobjects.AbstractEntity;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Spatial hash of the entities on the map. Every entity is put in the bucket
+ * of its position so that a query only has to test the buckets it covers.
+ * Rebuilt with a counting sort on the first query after the entities moved.
+ * The positions are the ones at the time of the rebuild.
+ *
+ * @author Benedikt Vogler
+ * @see Map#getEntityIndex()
+ */
+public class EntityIndex {
+
+	/**
+	 * horizontal size of a bucket in game space
+	 */
+	public static final int BUCKETSIZE = RenderCell.GAME_DIAGLENGTH;
+
+	private final ArrayList<AbstractEntity> source;
+	private AbstractEntity[] entities = new AbstractEntity[64];
+	private float[] x = new float[64];
+	private float[] y = new float[64];
+	private float[] z = new float[64];
+	/**
+	 * the query which tested the entity last, to test every entity only once
+	 * per query
+	 */
+	private int[] stamp = new int[64];
+	private int count;
+	private int[] bucketStart = new int[65];
+	private int[] bucketItems = new int[64];
+	private int mask;
+	private int query;
+	/**
+	 * true if the index must be rebuilt before the next query
+	 */
+	private boolean dirty = true;
+	/**
+	 * result of the last segment query
+	 */
+	private AbstractEntity hitEntity;
+	private final Coordinate tmpCoord = new Coordinate(0, 0, 0);
+
+	/**
+	 *
+	 * @param source the entities which are indexed
+	 */
+	EntityIndex(ArrayList<AbstractEntity> source) {
+		this.source = source;
+	}
+
+	private static int hash(int bx, int by) {
+		return bx * 73856093 ^ by * 19349663;
+	}
+
+	/**
+	 * The index is rebuilt before the next query.
+	 */
+	void markDirty() {
+		dirty = true;
+	}
+
+	private int nextQuery() {
+		if (dirty) {
+			build();
+			dirty = false;
+		}
+		query++;
+		if (query == 0) {
+			//overflow, reset the stamps
+			Arrays.fill(stamp, 0);
+			query = 1;
+		}
+		return query;
+	}
+
+	private void build() {
+		count = 0;
+		for (AbstractEntity entity : source) {
+			if (entity.hasPosition()) {
+				if (count == entities.length) {
+					int capacity = count * 2;
+					entities = Arrays.copyOf(entities, capacity);
+					x = Arrays.copyOf(x, capacity);
+					y = Arrays.copyOf(y, capacity);
+					z = Arrays.copyOf(z, capacity);
+					stamp = Arrays.copyOf(stamp, capacity);
+				}
+				Point pos = entity.getPosition();
+				entities[count] = entity;
+				x[count] = pos.getX();
+				y[count] = pos.getY();
+				z[count] = pos.getZ();
+				count++;
+			}
+		}
+		Arrays.fill(entities, count, entities.length, null);
+
+		int buckets = Integer.highestOneBit(Math.max(32, count) * 2);
+		mask = buckets - 1;
+		if (bucketStart.length < buckets + 1) {
+			bucketStart = new int[buckets + 1];
+		} else {
+			Arrays.fill(bucketStart, 0, buckets + 1, 0);
+		}
+		if (bucketItems.length < count) {
+			bucketItems = new int[Math.max(count, bucketItems.length * 2)];
+		}
+
+		//count
+		for (int e = 0; e < count; e++) {
+			bucketStart[bucketOf(x[e], y[e]) + 1]++;
+		}
+		for (int b = 0; b < buckets; b++) {
+			bucketStart[b + 1] += bucketStart[b];
+		}
+		//fill, the start of each bucket is used as cursor and restored afterwards
+		for (int e = 0; e < count; e++) {
+			bucketItems[bucketStart[bucketOf(x[e], y[e])]++] = e;
+		}
+		for (int b = buckets; b > 0; b--) {
+			bucketStart[b] = bucketStart[b - 1];
+		}
+		bucketStart[0] = 0;
+	}
+
+	private int bucketOf(float px, float py) {
+		return hash(
+			(int) Math.floor(px / BUCKETSIZE),
+			(int) Math.floor(py / BUCKETSIZE)
+		) & mask;
+	}
+
+	/**
+	 * Finds the entities whose position is inside a horizontal rectangle.
+	 *
+	 * @param minX in game space, inclusive
+	 * @param minY
+	 * @param maxX
+	 * @param maxY
+	 * @param result the found entities are added to this collection
+	 */
+	public void query(float minX, float minY, float maxX, float maxY, Collection<AbstractEntity> result) {
+		int q = nextQuery();
+		if (count == 0) {
+			return;
+		}
+		int minBX = (int) Math.floor(minX / BUCKETSIZE);
+		int maxBX = (int) Math.floor(maxX / BUCKETSIZE);
+		int minBY = (int) Math.floor(minY / BUCKETSIZE);
+		int maxBY = (int) Math.floor(maxY / BUCKETSIZE);
+		//a huge area is faster scanned directly
+		if ((long) (maxBX - minBX + 1) * (maxBY - minBY + 1) > count) {
+			for (int e = 0; e < count; e++) {
+				if (x[e] >= minX && x[e] <= maxX && y[e] >= minY && y[e] <= maxY) {
+					result.add(entities[e]);
+				}
+			}
+			return;
+		}
+		for (int bx = minBX; bx <= maxBX; bx++) {
+			for (int by = minBY; by <= maxBY; by++) {
+				int bucket = hash(bx, by) & mask;
+				for (int k = bucketStart[bucket]; k < bucketStart[bucket + 1]; k++) {
+					int e = bucketItems[k];
+					if (stamp[e] != q) {
+						stamp[e] = q;
+						if (x[e] >= minX && x[e] <= maxX && y[e] >= minY && y[e] <= maxY) {
+							result.add(entities[e]);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the first obstacle entity touched by a segment. Every entity is
+	 * treated as a sphere. The entity is returned by {@link #getHitEntity()}.
+	 *
+	 * @param x0 start of the segment
+	 * @param y0
+	 * @param z0
+	 * @param dx the segment
+	 * @param dy
+	 * @param dz
+	 * @param radius the sum of the radii of the entity and the thing moving
+	 * along the segment
+	 * @param ignoreCoord entities in this cell are ignored, can be null
+	 * @param ignore this entity is ignored, can be null
+	 * @return segment parameter in [0,1] of the hit, or a value &gt;1 if
+	 * nothing is hit
+	 */
+	public float traceSegment(float x0, float y0, float z0, float dx, float dy, float dz, float radius, Coordinate ignoreCoord, AbstractEntity ignore) {
+		int q = nextQuery();
+		hitEntity = null;
+		if (count == 0) {
+			return Float.POSITIVE_INFINITY;
+		}
+
+		//an entity in this many buckets around a crossed bucket can be touched
+		int reach = (int) Math.ceil(radius / BUCKETSIZE);
+
+		//walk the buckets along the horizontal part of the segment
+		float bxf = x0 / BUCKETSIZE;
+		float byf = y0 / BUCKETSIZE;
+		int bx = (int) Math.floor(bxf);
+		int by = (int) Math.floor(byf);
+		float dbx = dx / BUCKETSIZE;
+		float dby = dy / BUCKETSIZE;
+		int stepX = dbx > 0 ? 1 : -1;
+		int stepY = dby > 0 ? 1 : -1;
+		float tDeltaX = dbx == 0 ? Float.POSITIVE_INFINITY : Math.abs(1 / dbx);
+		float tDeltaY = dby == 0 ? Float.POSITIVE_INFINITY : Math.abs(1 / dby);
+		float tMaxX = dbx == 0 ? Float.POSITIVE_INFINITY : (dbx > 0 ? bx + 1 - bxf : bxf - bx) * tDeltaX;
+		float tMaxY = dby == 0 ? Float.POSITIVE_INFINITY : (dby > 0 ? by + 1 - byf : byf - by) * tDeltaY;
+
+		float a = dx * dx + dy * dy + dz * dz;
+		float best = Float.POSITIVE_INFINITY;
+		float tEntry = 0;
+		while (tEntry <= 1 && tEntry <= best) {
+			for (int nx = bx - reach; nx <= bx + reach; nx++) {
+				for (int ny = by - reach; ny <= by + reach; ny++) {
+					int bucket = hash(nx, ny) & mask;
+					for (int k = bucketStart[bucket]; k < bucketStart[bucket + 1]; k++) {
+						int e = bucketItems[k];
+						if (stamp[e] == q) {
+							continue;
+						}
+						stamp[e] = q;
+						AbstractEntity entity = entities[e];
+						if (entity == ignore || !entity.isObstacle()) {
+							continue;
+						}
+						//segment vs sphere
+						float mx = x0 - x[e];
+						float my = y0 - y[e];
+						float mz = z0 - z[e];
+						float b = mx * dx + my * dy + mz * dz;
+						float c = mx * mx + my * my + mz * mz - radius * radius;
+						float t;
+						if (c <= 0) {
+							t = 0;//starts inside
+						} else {
+							float disc = b * b - a * c;
+							if (b > 0 || disc < 0 || a == 0) {
+								continue;
+							}
+							t = (-b - (float) Math.sqrt(disc)) / a;
+						}
+						if (t <= 1 && t < best) {
+							if (ignoreCoord != null) {
+								tmpCoord.setFromPoint(entity.getPosition());
+								if (tmpCoord.getX() == ignoreCoord.getX()
+									&& tmpCoord.getY() == ignoreCoord.getY()
+									&& tmpCoord.getZ() == ignoreCoord.getZ()) {
+									continue;
+								}
+							}
+							best = t;
+							hitEntity = entity;
+						}
+					}
+				}
+			}
+			if (tMaxX < tMaxY) {
+				tEntry = tMaxX;
+				bx += stepX;
+				tMaxX += tDeltaX;
+			} else {
+				tEntry = tMaxY;
+				by += stepY;
+				tMaxY += tDeltaY;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 *
+	 * @return the entity hit by the last {@link #traceSegment}, null if
+	 * nothing was hit
+	 */
+	public AbstractEntity getHitEntity() {
+		return hitEntity;
+	}
+
+	/**
+	 * Forgets every indexed entity.
+	 */
+	void clear() {
+		Arrays.fill(entities, null);
+		count = 0;
+		hitEntity = null;
+		dirty = true;
+	}
+}
@@ -31,7 +31,16 @@
 package com.bombinggames.wurfelengine.core.map;
 
 /**
- * An interface for a map generator.
+ * An interface for a map generator.<br>
+ * The engine asks a generator for whole chunks via
+ * {@link #generateChunk(int, int, long, int[])}. The default implementation
+ * bridges to {@link #generateColumn(int, int, long, int[], int)} which by
+ * default bridges to the per cell method {@link #generate(int, int, int)}, so
+ * simple generators only have to implement the latter. Generators which
+ * compute something per column (e.g. a heightmap) should override
+ * {@link #generateColumn(int, int, long, int[], int)}.<br>
+ * If {@link #isThreadSafe()} returns true the chunks are generated in
+ * parallel.
  *
  * @author Benedikt Vogler
  */
@@ -57,4 +66,75 @@ public interface Generator {
 	 * @param z
 	 */
 	public abstract void spawnEntities(int x, int y, int z);
+
+	/**
+	 * Fills a whole column with blocks.
+	 *
+	 * @param x absolute coord
+	 * @param y absolute coord
+	 * @param seed the seed of the map
+	 * @param buffer the buffer where the blocks are written to. A block is
+	 * stored like in {@link #generate(int, int, int)}.
+	 * @param offset the index in the buffer where z=0 of this column is stored.
+	 * The column has the length {@link Chunk#getBlocksZ()}.
+	 */
+	public default void generateColumn(int x, int y, long seed, int[] buffer, int offset) {
+		int blocksZ = Chunk.getBlocksZ();
+		for (int z = 0; z < blocksZ; z++) {
+			buffer[offset + z] = generate(x, y, z);
+		}
+	}
+
+	/**
+	 * Fills a whole chunk with blocks. The buffer is ordered column by column:
+	 * index = (x * blocksY + y) * blocksZ + z with x,y,z relative to the chunk.
+	 *
+	 * @param chunkX chunk coordinate
+	 * @param chunkY chunk coordinate
+	 * @param seed the seed of the map
+	 * @param buffer must have at least the length of blocksX*blocksY*blocksZ
+	 * @see #generateColumn(int, int, long, int[], int)
+	 */
+	public default void generateChunk(int chunkX, int chunkY, long seed, int[] buffer) {
+		int blocksX = Chunk.getBlocksX();
+		int blocksY = Chunk.getBlocksY();
+		int blocksZ = Chunk.getBlocksZ();
+		int left = chunkX * blocksX;
+		int top = chunkY * blocksY;
+		for (int x = 0; x < blocksX; x++) {
+			for (int y = 0; y < blocksY; y++) {
+				generateColumn(left + x, top + y, seed, buffer, (x * blocksY + y) * blocksZ);
+			}
+		}
+	}
+
+	/**
+	 * Spawns the entities of a freshly generated chunk. Called on the main
+	 * thread after the chunk got added to the map. By default calls
+	 * {@link #spawnEntities(int, int, int)} for every cell.
+	 *
+	 * @param chunk the generated chunk
+	 */
+	public default void spawnEntities(Chunk chunk) {
+		int left = chunk.getTopLeftCoordinateX();
+		int top = chunk.getTopLeftCoordinateY();
+		for (int x = 0; x < Chunk.getBlocksX(); x++) {
+			for (int y = 0; y < Chunk.getBlocksY(); y++) {
+				for (int z = 0; z < Chunk.getBlocksZ(); z++) {
+					spawnEntities(left + x, top + y, z);
+				}
+			}
+		}
+	}
+
+	/**
+	 * If true {@link #generateChunk(int, int, long, int[])} may be called from
+	 * multiple threads at the same time. The result must only depend on the
+	 * parameters.
+	 *
+	 * @return false by default
+	 */
+	public default boolean isThreadSafe() {
+		return false;
+	}
 }
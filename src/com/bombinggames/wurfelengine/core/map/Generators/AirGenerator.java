@@ -31,7 +31,9 @@
 
 package com.bombinggames.wurfelengine.core.map.Generators;
 
+import com.bombinggames.wurfelengine.core.map.Chunk;
 import com.bombinggames.wurfelengine.core.map.Generator;
+import java.util.Arrays;
 
 /**
  * A simple generator who returns only air.
@@ -45,8 +47,22 @@ public class AirGenerator implements Generator {
         return 0;
     }
 
+	@Override
+	public void generateColumn(int x, int y, long seed, int[] buffer, int offset) {
+		Arrays.fill(buffer, offset, offset + Chunk.getBlocksZ(), 0);
+	}
+
 	@Override
 	public void spawnEntities(int x, int y, int z) {
 	}
 
+	@Override
+	public void spawnEntities(Chunk chunk) {
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 }
@@ -51,4 +51,9 @@ public class BlockTestGenerator implements Generator{
 	@Override
 	public void spawnEntities(int x, int y, int z) {
 	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
 }
@@ -30,7 +30,9 @@
  */
 package com.bombinggames.wurfelengine.core.map.Generators;
 
+import com.bombinggames.wurfelengine.core.map.Chunk;
 import com.bombinggames.wurfelengine.core.map.Generator;
+import java.util.Arrays;
 
 /**
  * Fills the complete map with a block of a specific id.
@@ -55,8 +57,22 @@ public class FullMapGenerator implements Generator {
         return id;
     }
 
+	@Override
+	public void generateColumn(int x, int y, long seed, int[] buffer, int offset) {
+		Arrays.fill(buffer, offset, offset + Chunk.getBlocksZ(), id);
+	}
+
 	@Override
 	public void spawnEntities(int x, int y, int z) {
 	}
 
+	@Override
+	public void spawnEntities(Chunk chunk) {
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
 }
@@ -31,33 +31,54 @@
 
 package com.bombinggames.wurfelengine.core.map.Generators;
 
+import com.bombinggames.wurfelengine.core.Controller;
 import com.bombinggames.wurfelengine.core.map.Chunk;
 import com.bombinggames.wurfelengine.core.map.Generator;
 
 /**
- *Fenerates islands
+ * Generates islands. The position of the mountain is derived from the seed.
  * @author Benedikt Vogler
  */
 public class IslandGenerator implements Generator {
-    private int mountainX;
-    private int mountainY;
 
     /**
-     *
+     * Uses the seed of the current map, like the generation of whole chunks.
+     * @param x
+     * @param y
+     * @param z
+     * @return 
      */
-    public IslandGenerator() {
-        //mountain
-        mountainX = (int) (Math.random()*Chunk.getBlocksX()-1);
-        mountainY = (int) (Math.random()*Chunk.getBlocksY()-1);
+    @Override
+    public int generate(int x, int y, int z) {
+        return generate(x, y, z, getHeight(x, y, Controller.getMap() == null ? 0 : Controller.getMap().getSeed()));
     }
-    
-    
 
-    @Override
-    public int generate(int x, int y, int z) {  
+	@Override
+	public void generateColumn(int x, int y, long seed, int[] buffer, int offset) {
+		int height = getHeight(x, y, seed);//once per column
+		for (int z = 0; z < Chunk.getBlocksZ(); z++) {
+			buffer[offset + z] = generate(x, y, z, height);
+		}
+	}
+
+	/**
+	 * The height of the mountain at this column.
+	 * @param x
+	 * @param y
+	 * @param seed
+	 * @return 
+	 */
+	private int getHeight(int x, int y, long seed) {
+		//mountain
+		long hash = seed * 0x9E3779B97F4A7C15L;
+		int mountainX = (int) Math.floorMod(hash >>> 32, (long) Chunk.getBlocksX());
+		int mountainY = (int) Math.floorMod(hash & 0xFFFFFFFFL, (long) Chunk.getBlocksY());
+		return Chunk.getBlocksZ() - 1 - Math.abs(mountainY - y) - Math.abs(mountainX - x);
+	}
+
+	private int generate(int x, int y, int z, int height) {
         if (z==0) return (byte)8;
         
-        int height = Chunk.getBlocksZ()-1- Math.abs(mountainY-y)- Math.abs(mountainX-x);
         if (height>0 && z<height){//part of mountain?
             if (height-1 == z && z>2)
                 return (byte)1;//grass on top
@@ -72,12 +93,14 @@ public class IslandGenerator implements Generator {
         if (z==1 || z==2) return (byte)9;
                
         return 0;
-        
-        //if (Math.random() < 0.15f && height < getBlocksZ()-1 && height > 2) data[x][y][height+1] = new Cell(34);
-        //if (Math.random() < 0.15f && height < getBlocksZ()-1 && height > 2) data[x][y][height+1] = new Cell(35);
     }
 
 	@Override
 	public void spawnEntities(int x, int y, int z) {
 	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
 }
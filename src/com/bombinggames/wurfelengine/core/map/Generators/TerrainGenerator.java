@@ -0,0 +1,473 @@
+/*
+ * If this software is used for a game the official „Wurfel Engine“ logo or its name must be visible in an intro screen or main menu.
+ *
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, 
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, 
+ *   this list of conditions and the following disclaimer in the documentation 
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Benedikt Vogler nor the names of its contributors 
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map.Generators;
+
+import com.bombinggames.wurfelengine.core.Controller;
+import com.bombinggames.wurfelengine.core.map.Chunk;
+import com.bombinggames.wurfelengine.core.map.Generator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Generates terrain with a heightmap made of fractal value noise, biomes and a
+ * water level. The result only depends on the seed and the chunk dimensions,
+ * so it is the same across runs and independent of the amount of loading
+ * threads.<br>
+ * The heightmap is sampled on a grid every {@link #SAMPLESTEP} blocks and
+ * interpolated in between. The grid is aligned to the chunk borders, so the
+ * samples on a border are shared by the two neighbouring chunks. They are kept
+ * in a LRU cache so that the second chunk does not compute them again.
+ *
+ * @author Benedikt Vogler
+ */
+public class TerrainGenerator implements Generator {
+
+	/**
+	 * distance between two heightmap samples in blocks
+	 */
+	public static final int SAMPLESTEP = 2;
+
+	/**
+	 * The biomes and the blocks they are made of.
+	 */
+	public enum Biome {
+
+		/**
+		 * dirt under water
+		 */
+		OCEAN((byte) 2, (byte) 2),
+		/**
+		 * sand on dirt near water
+		 */
+		BEACH((byte) 8, (byte) 2),
+		/**
+		 * dry land, deep sand
+		 */
+		DESERT((byte) 8, (byte) 8),
+		/**
+		 * grass on dirt
+		 */
+		PLAINS((byte) 1, (byte) 2),
+		/**
+		 * high land
+		 */
+		MOUNTAIN((byte) 3, (byte) 3);
+
+		private final byte topBlock;
+		private final byte fillBlock;
+
+		private Biome(byte topBlock, byte fillBlock) {
+			this.topBlock = topBlock;
+			this.fillBlock = fillBlock;
+		}
+
+		/**
+		 * The id of the highest block of a column.
+		 *
+		 * @return
+		 */
+		public byte getTopBlock() {
+			return topBlock;
+		}
+
+		/**
+		 * The id of the blocks under the top block.
+		 *
+		 * @return
+		 */
+		public byte getFillBlock() {
+			return fillBlock;
+		}
+	}
+
+	private static final byte STONE = 3;
+	private static final byte WATER = 9;
+	/**
+	 * how many blocks of the fill block are under the top block before stone
+	 * begins
+	 */
+	private static final int SOILDEPTH = 3;
+
+	private final int waterLevel;
+	private final float scale;
+	private final int octaves;
+	private final NoiseBorderCache cache;
+	private final ThreadLocal<float[]> sampleBuffer = ThreadLocal.withInitial(() -> new float[0]);
+
+	/**
+	 * Uses a water level of a third of the chunk height.
+	 */
+	public TerrainGenerator() {
+		this(Chunk.getBlocksZ() / 3, 0.03f, 4, 512);
+	}
+
+	/**
+	 *
+	 * @param waterLevel blocks under this z are filled with water
+	 * @param scale frequency of the heightmap noise per block
+	 * @param octaves octaves of the heightmap noise
+	 * @param cacheSize amount of chunk borders kept in memory
+	 */
+	public TerrainGenerator(int waterLevel, float scale, int octaves, int cacheSize) {
+		this.waterLevel = waterLevel;
+		this.scale = scale;
+		this.octaves = octaves;
+		this.cache = new NoiseBorderCache(cacheSize);
+	}
+
+	/**
+	 * Uses the seed of the current map, like the generation of whole chunks.
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @return
+	 */
+	@Override
+	public int generate(int x, int y, int z) {
+		return getBlock(x, y, z, Controller.getMap() == null ? 0 : Controller.getMap().getSeed());
+	}
+
+	/**
+	 * Get the block at a position without generating the whole chunk.
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param seed
+	 * @return id and value
+	 */
+	public int getBlock(int x, int y, int z, long seed) {
+		int height = getHeight(x, y, seed);
+		return getBlock(z, height, getBiome(x, y, height, seed));
+	}
+
+	@Override
+	public void generateColumn(int x, int y, long seed, int[] buffer, int offset) {
+		int height = getHeight(x, y, seed);
+		fillColumn(buffer, offset, height, getBiome(x, y, height, seed));
+	}
+
+	@Override
+	public void generateChunk(int chunkX, int chunkY, long seed, int[] buffer) {
+		int blocksX = Chunk.getBlocksX();
+		int blocksY = Chunk.getBlocksY();
+		int blocksZ = Chunk.getBlocksZ();
+		int left = chunkX * blocksX;
+		int top = chunkY * blocksY;
+		int samplesX = samplesCount(blocksX);
+		int samplesY = samplesCount(blocksY);
+
+		float[] samples = sampleBuffer.get();
+		if (samples.length < samplesX * samplesY) {
+			samples = new float[samplesX * samplesY];
+			sampleBuffer.set(samples);
+		}
+
+		//borders are shared with the neighbours
+		float[] leftBorder = cache.getVertical(this, chunkX, chunkY, seed);
+		float[] rightBorder = cache.getVertical(this, chunkX + 1, chunkY, seed);
+		float[] topBorder = cache.getHorizontal(this, chunkX, chunkY, seed);
+		float[] bottomBorder = cache.getHorizontal(this, chunkX, chunkY + 1, seed);
+		for (int j = 0; j < samplesY; j++) {
+			samples[j * samplesX] = leftBorder[j];
+			samples[j * samplesX + samplesX - 1] = rightBorder[j];
+		}
+		for (int i = 0; i < samplesX; i++) {
+			samples[i] = topBorder[i];
+			samples[(samplesY - 1) * samplesX + i] = bottomBorder[i];
+		}
+		//inner samples
+		for (int j = 1; j < samplesY - 1; j++) {
+			for (int i = 1; i < samplesX - 1; i++) {
+				samples[j * samplesX + i] = sampleNoise(left + samplePos(i, blocksX), top + samplePos(j, blocksY), seed);
+			}
+		}
+
+		for (int x = 0; x < blocksX; x++) {
+			int i = x / SAMPLESTEP;
+			float tx = (x - samplePos(i, blocksX)) / (float) (samplePos(i + 1, blocksX) - samplePos(i, blocksX));
+			for (int y = 0; y < blocksY; y++) {
+				int j = y / SAMPLESTEP;
+				float ty = (y - samplePos(j, blocksY)) / (float) (samplePos(j + 1, blocksY) - samplePos(j, blocksY));
+				int height = toHeight(interpolate(
+					samples[j * samplesX + i],
+					samples[j * samplesX + i + 1],
+					samples[(j + 1) * samplesX + i],
+					samples[(j + 1) * samplesX + i + 1],
+					tx,
+					ty
+				));
+				fillColumn(
+					buffer,
+					(x * blocksY + y) * blocksZ,
+					height,
+					getBiome(left + x, top + y, height, seed)
+				);
+			}
+		}
+	}
+
+	/**
+	 * The height of the terrain at this column. Same result as the chunk wise
+	 * generation.
+	 *
+	 * @param x
+	 * @param y
+	 * @param seed
+	 * @return the z of the first air block above the ground
+	 */
+	public int getHeight(int x, int y, long seed) {
+		int blocksX = Chunk.getBlocksX();
+		int blocksY = Chunk.getBlocksY();
+		int left = Math.floorDiv(x, blocksX) * blocksX;
+		int top = Math.floorDiv(y, blocksY) * blocksY;
+		int i = (x - left) / SAMPLESTEP;
+		int j = (y - top) / SAMPLESTEP;
+		int x0 = samplePos(i, blocksX);
+		int x1 = samplePos(i + 1, blocksX);
+		int y0 = samplePos(j, blocksY);
+		int y1 = samplePos(j + 1, blocksY);
+		return toHeight(interpolate(
+			sampleNoise(left + x0, top + y0, seed),
+			sampleNoise(left + x1, top + y0, seed),
+			sampleNoise(left + x0, top + y1, seed),
+			sampleNoise(left + x1, top + y1, seed),
+			(x - left - x0) / (float) (x1 - x0),
+			(y - top - y0) / (float) (y1 - y0)
+		));
+	}
+
+	/**
+	 * Get the biome of a column.
+	 *
+	 * @param x
+	 * @param y
+	 * @param height the height of the column
+	 * @param seed
+	 * @return
+	 * @see #getHeight(int, int, long)
+	 */
+	public Biome getBiome(int x, int y, int height, long seed) {
+		if (height <= waterLevel) {
+			return Biome.OCEAN;
+		}
+		if (height <= waterLevel + 1) {
+			return Biome.BEACH;
+		}
+		if (height >= Chunk.getBlocksZ() - 2) {
+			return Biome.MOUNTAIN;
+		}
+		//moisture
+		if (ValueNoise.fbm(seed ^ 0x5DEECE66DL, x * scale * 0.5f, y * scale * 0.25f, 2, 2f, 0.5f) < -0.25f) {
+			return Biome.DESERT;
+		}
+		return Biome.PLAINS;
+	}
+
+	/**
+	 *
+	 * @return z of the highest water block + 1
+	 */
+	public int getWaterLevel() {
+		return waterLevel;
+	}
+
+	@Override
+	public void spawnEntities(int x, int y, int z) {
+	}
+
+	@Override
+	public void spawnEntities(Chunk chunk) {
+	}
+
+	@Override
+	public boolean isThreadSafe() {
+		return true;
+	}
+
+	private void fillColumn(int[] buffer, int offset, int height, Biome biome) {
+		int blocksZ = Chunk.getBlocksZ();
+		for (int z = 0; z < blocksZ; z++) {
+			buffer[offset + z] = getBlock(z, height, biome);
+		}
+	}
+
+	private int getBlock(int z, int height, Biome biome) {
+		if (z < height) {
+			if (z == height - 1) {
+				return biome.getTopBlock();
+			}
+			if (z >= height - 1 - SOILDEPTH) {
+				return biome.getFillBlock();
+			}
+			return STONE;
+		}
+		if (z < waterLevel) {
+			return WATER;
+		}
+		return 0;
+	}
+
+	/**
+	 * Noise in the grid. The y axis is squashed because each second row is
+	 * shifted.
+	 */
+	private float sampleNoise(int x, int y, long seed) {
+		return ValueNoise.fbm(seed, x * scale, y * scale * 0.5f, octaves, 2f, 0.5f);
+	}
+
+	private int toHeight(float noise) {
+		int blocksZ = Chunk.getBlocksZ();
+		int height = (int) ((noise * 0.8f + 0.5f) * blocksZ) + 1;//fbm rarely reaches the extremes
+		if (height < 1) {
+			return 1;
+		}
+		if (height > blocksZ) {
+			return blocksZ;
+		}
+		return height;
+	}
+
+	private static float interpolate(float topLeft, float topRight, float bottomLeft, float bottomRight, float tx, float ty) {
+		float top = topLeft + (topRight - topLeft) * tx;
+		float bottom = bottomLeft + (bottomRight - bottomLeft) * tx;
+		return top + (bottom - top) * ty;
+	}
+
+	/**
+	 * amount of samples in one dimension including both borders
+	 */
+	private static int samplesCount(int blocks) {
+		return (blocks + SAMPLESTEP - 1) / SAMPLESTEP + 1;
+	}
+
+	/**
+	 * position of a sample relative to the chunk
+	 */
+	private static int samplePos(int index, int blocks) {
+		return Math.min(index * SAMPLESTEP, blocks);
+	}
+
+	/**
+	 * LRU cache of the heightmap samples on the chunk borders. A vertical
+	 * border is the left border of a chunk, a horizontal border the top one.
+	 */
+	private static class NoiseBorderCache {
+
+		private final LinkedHashMap<Long, float[]> vertical;
+		private final LinkedHashMap<Long, float[]> horizontal;
+		private long seed;
+
+		NoiseBorderCache(final int size) {
+			vertical = new LinkedHashMap<Long, float[]>(size, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Long, float[]> eldest) {
+					return size() > size;
+				}
+			};
+			horizontal = new LinkedHashMap<Long, float[]>(size, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Long, float[]> eldest) {
+					return size() > size;
+				}
+			};
+		}
+
+		float[] getVertical(TerrainGenerator gen, int chunkX, int chunkY, long seed) {
+			long key = key(chunkX, chunkY);
+			synchronized (this) {
+				checkSeed(seed);
+				float[] border = vertical.get(key);
+				if (border != null) {
+					return border;
+				}
+			}
+			//compute outside of the lock
+			int blocksY = Chunk.getBlocksY();
+			int x = chunkX * Chunk.getBlocksX();
+			int top = chunkY * blocksY;
+			float[] border = new float[samplesCount(blocksY)];
+			for (int j = 0; j < border.length; j++) {
+				border[j] = gen.sampleNoise(x, top + samplePos(j, blocksY), seed);
+			}
+			synchronized (this) {
+				if (this.seed == seed) {
+					vertical.put(key, border);
+				}
+			}
+			return border;
+		}
+
+		float[] getHorizontal(TerrainGenerator gen, int chunkX, int chunkY, long seed) {
+			long key = key(chunkX, chunkY);
+			synchronized (this) {
+				checkSeed(seed);
+				float[] border = horizontal.get(key);
+				if (border != null) {
+					return border;
+				}
+			}
+			int blocksX = Chunk.getBlocksX();
+			int left = chunkX * blocksX;
+			int y = chunkY * Chunk.getBlocksY();
+			float[] border = new float[samplesCount(blocksX)];
+			for (int i = 0; i < border.length; i++) {
+				border[i] = gen.sampleNoise(left + samplePos(i, blocksX), y, seed);
+			}
+			synchronized (this) {
+				if (this.seed == seed) {
+					horizontal.put(key, border);
+				}
+			}
+			return border;
+		}
+
+		/**
+		 * clears the cache if the seed changed
+		 */
+		private void checkSeed(long seed) {
+			if (this.seed != seed) {
+				this.seed = seed;
+				vertical.clear();
+				horizontal.clear();
+			}
+		}
+
+		private static long key(int chunkX, int chunkY) {
+			return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * If this software is used for a game the official „Wurfel Engine“ logo or its name must be visible in an intro screen or main menu.
+ *
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, 
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, 
+ *   this list of conditions and the following disclaimer in the documentation 
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Benedikt Vogler nor the names of its contributors 
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map.Generators;
+
+/**
+ * Seeded two dimensional value noise. The result only depends on the seed and
+ * the position so it can be used from multiple threads and is reproducible.
+ *
+ * @author Benedikt Vogler
+ */
+public class ValueNoise {
+
+	private ValueNoise() {
+	}
+
+	/**
+	 * Fractal noise by summing up octaves with increasing frequency.
+	 *
+	 * @param seed
+	 * @param x
+	 * @param y
+	 * @param octaves amount of octaves, at least one
+	 * @param lacunarity frequency factor from one octave to the next, usually
+	 * 2
+	 * @param gain amplitude factor from one octave to the next, usually 0.5
+	 * @return value in [-1,1]
+	 */
+	public static float fbm(long seed, float x, float y, int octaves, float lacunarity, float gain) {
+		float sum = 0;
+		float amplitude = 1;
+		float totalAmplitude = 0;
+		for (int i = 0; i < octaves; i++) {
+			sum += sample(x, y, seed + i * 0x632BE59BD9B4E019L) * amplitude;
+			totalAmplitude += amplitude;
+			x *= lacunarity;
+			y *= lacunarity;
+			amplitude *= gain;
+		}
+		return sum / totalAmplitude;
+	}
+
+	private static float sample(float x, float y, long seed) {
+		int x0 = (int) Math.floor(x);
+		int y0 = (int) Math.floor(y);
+		float tx = smoothstep(x - x0);
+		float ty = smoothstep(y - y0);
+		float top = lerp(lattice(x0, y0, seed), lattice(x0 + 1, y0, seed), tx);
+		float bottom = lerp(lattice(x0, y0 + 1, seed), lattice(x0 + 1, y0 + 1, seed), tx);
+		return lerp(top, bottom, ty);
+	}
+
+	/**
+	 * The random value at a lattice point.
+	 *
+	 * @param x
+	 * @param y
+	 * @param seed
+	 * @return [-1,1]
+	 */
+	private static float lattice(int x, int y, long seed) {
+		long h = seed ^ (x * 0x9E3779B97F4A7C15L) ^ (y * 0xC2B2AE3D27D4EB4FL);
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		h ^= h >>> 31;
+		return (h & 0xFFFFFF) / (float) 0xFFFFFF * 2f - 1f;
+	}
+
+	private static float smoothstep(float t) {
+		return t * t * (3 - 2 * t);
+	}
+
+	private static float lerp(float a, float b, float t) {
+		return a + (b - a) * t;
+	}
+}
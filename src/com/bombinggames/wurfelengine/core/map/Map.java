@@ -32,13 +32,9 @@ package com.bombinggames.wurfelengine.core.map;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.ai.msg.MessageManager;
-import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.msg.Telegraph;
 import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
-import com.badlogic.gdx.ai.pfa.Heuristic;
-import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
-import com.badlogic.gdx.ai.pfa.indexed.IndexedGraph;
 import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.utils.Array;
 import com.bombinggames.wurfelengine.WE;
 import com.bombinggames.wurfelengine.core.Controller;
 import com.bombinggames.wurfelengine.core.Events;
@@ -46,14 +42,15 @@ import com.bombinggames.wurfelengine.core.GameView;
 import com.bombinggames.wurfelengine.core.cvar.CVarSystemMap;
 import com.bombinggames.wurfelengine.core.cvar.CVarSystemSave;
 import com.bombinggames.wurfelengine.core.gameobjects.AbstractEntity;
+import com.bombinggames.wurfelengine.core.gameobjects.ParticleSystem;
 import com.bombinggames.wurfelengine.core.map.Generators.AirGenerator;
 import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import com.bombinggames.wurfelengine.extension.shooting.ProjectileSystem;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -64,7 +61,7 @@ import java.util.logging.Logger;
  *
  * @author Benedikt Vogler
  */
-public class Map implements IndexedGraph<PfNode> {
+public class Map {
 
 	private static Generator defaultGenerator = new AirGenerator();
 
@@ -73,6 +70,15 @@ public class Map implements IndexedGraph<PfNode> {
 	 */
 	public final static Integer MAPVERSION = 4;
 
+	/**
+	 * Chunks needed in the last frames are not evicted.
+	 */
+	private final static int EVICTIONGRACEFRAMES = 120;
+	/**
+	 * Limits the amount of chunks unloaded per frame.
+	 */
+	private final static int MAXEVICTIONSPERFRAME = 4;
+
 	/**
 	 *
 	 * @param generator
@@ -141,6 +147,10 @@ public class Map implements IndexedGraph<PfNode> {
 	 * every entity on the map is stored in this field
 	 */
 	private final ArrayList<AbstractEntity> entityList = new ArrayList<>(40);
+	/**
+	 * spatial index of {@link #entityList}
+	 */
+	private final EntityIndex entityIndex = new EntityIndex(entityList);
 	private boolean modified = true;
 	/**
 	 * observer pattern
@@ -150,9 +160,9 @@ public class Map implements IndexedGraph<PfNode> {
 	private int activeSaveSlot;
 
 	/**
-	 * Stores the data of the map. Hash function is chunkX*chunkDim + chunkY. This means that there are only collision once you are outside the possible range specified in chunkDim. Was a 2d array before with same functionality but limited to dimensions of the array. HashMap now allows (slower) access to out-of-scope areas. TODO: Collisions can be avoided if areas, which are not active are pruned.
+	 * Stores the data of the map. The chunk coordinates are packed into a long key, so there are no collisions and no boxing on lookup.
 	 */
-	private HashMap<Integer, Chunk> data;
+	private final ChunkMap data;
 	/**
 	 * contains evey loaded chunk for fast iteration
 	 */
@@ -160,14 +170,26 @@ public class Map implements IndexedGraph<PfNode> {
 	
 	private final ArrayList<ChunkLoader> loadingRunnables = new ArrayList<>(9);
 	/**
-	 * The amount of chunks in memory in one dimension.
-	 */
-	private final int chunkDim;
-	/**
-	 * Limits the amount of chunks which can be loaded into memory.
+	 * Limits the amount of chunks which can be loaded into memory. If more are loaded the least recently needed are unloaded.
 	 */
 	private final int maxChunks;
+	private final PathfindingService pathfinding = new PathfindingService();
+	private final ParticleSystem particles = new ParticleSystem();
+	private final ProjectileSystem projectiles = new ProjectileSystem();
+	private final ChunkPrefetcher prefetcher = new ChunkPrefetcher(this);
 	private final CVarSystemMap cVars;
+	/**
+	 * counts the calls of {@link #update(float)}. Used to find the least recently needed chunks.
+	 */
+	private long frame;
+	/**
+	 * amount of chunks unloaded because the memory budget was exceeded
+	 */
+	private int evictedChunks;
+	/**
+	 * amount of evicted chunks which had to be saved before
+	 */
+	private int evictedChunksSaved;
 
 	/**
 	 * Loads a map using the default generator.
@@ -195,10 +217,10 @@ public class Map implements IndexedGraph<PfNode> {
 		this.generator = generator;
 		
 		//init data array
-		chunkDim = WE.getCVars().getValueI("mapIndexSpaceSize");
-		data = new HashMap<>(chunkDim*chunkDim, 0.5f);
+		data = new ChunkMap(WE.getCVars().getValueI("mapIndexSpaceSize"));
 		
-		maxChunks = WE.getCVars().getValueI("mapMaxMemoryUseBytes") / (Chunk.getBlocksX()*Chunk.getBlocksY()*Chunk.getBlocksZ()*3); //
+		maxChunks = WE.getCVars().getValueI("mapMaxMemoryUseBytes") / Chunk.getMemorySize();
+		MessageManager.getInstance().addListener(pathfinding, Events.chunkChanged.getId());
 		loadedChunks = new LinkedList<>();
 		WE.getCVars().get("loadedMap").setValue(name.getName());
 		
@@ -235,24 +257,35 @@ public class Map implements IndexedGraph<PfNode> {
 	}
 
 	/**
-	 * Updates amostly the entities.
+	 * Updates amostly the entities. Called once per simulation step.
 	 *
-	 * @param dt time in ms
+	 * @param dt real time in ms, the game speed is applied here
+	 * @see com.bombinggames.wurfelengine.core.Controller#simulate(float)
 	 */
 	public void update(float dt) {
+		float rawDelta = dt;
 		dt *= WE.getCVars().getValueF("timespeed");//apply game speed
 
+		frame++;
 		//add parralell loaded chunks serial to avoid conflicts
 		for (int i = 0; i < loadingRunnables.size(); i++) {
 			ChunkLoader runnable = loadingRunnables.get(i);
-			if (runnable.getChunk() != null) {//loaded
-				if (loadedChunks.size() < maxChunks ) {
-					loadedChunks.add(runnable.getChunk());
-					data.put(runnable.getCoordX()*chunkDim+runnable.getCoordY(), runnable.getChunk());
-					addEntities(runnable.getChunk().retrieveEntities());
-					setModified();
+			if (runnable.isCancelled()) {
+				loadingRunnables.remove(i);
+				i--;
+			} else if (runnable.getChunk() != null) {//loaded
+				Chunk chunk = runnable.getChunk();
+				chunk.markNeeded(frame);
+				loadedChunks.add(chunk);
+				data.put(chunk);
+				addEntities(chunk.retrieveEntities());
+				if (chunk.isGenerated()) {
+					//spawn on the main thread
+					runnable.getGenerator().spawnEntities(chunk);
 				}
+				setModified();
 				loadingRunnables.remove(i);
+				i--;
 			}
 		}
 		
@@ -262,13 +295,23 @@ public class Map implements IndexedGraph<PfNode> {
 			}
 		}
 
+		//remember the state before the step for the interpolation
+		for (int i = 0; i < entityList.size(); i++) {
+			entityList.get(i).beginStep();
+		}
+
 		//update every entity
 		//old style for loop because allows modification during loop
-		float rawDelta = Gdx.graphics.getRawDeltaTime() * 1000f;
 		for (int i = 0; i < entityList.size(); i++) {
 			AbstractEntity entity = entityList.get(i);
 			if (!entity.isInMemoryArea()) {
 				entity.requestChunk();
+			} else if (!entity.isSavedPersistent()) {
+				//would be lost if the chunk gets unloaded
+				Chunk chunk = getChunkContaining(entity.getPosition());
+				if (chunk != null) {
+					chunk.markNeeded(frame);
+				}
 			}
 			if (entity.useRawDelta()) {
 				entity.update(rawDelta);
@@ -279,6 +322,124 @@ public class Map implements IndexedGraph<PfNode> {
 
 		//remove not spawned objects from list
 		entityList.removeIf((AbstractEntity entity) -> !entity.hasPosition());
+		entityIndex.markDirty();
+
+		projectiles.update(dt);
+		particles.update(dt);
+
+		evictChunks();
+	}
+
+	/**
+	 * Unloads the least recently needed chunks if more memory than allowed by
+	 * the cvar "mapMaxMemoryUseBytes" is used. Chunks needed in the last
+	 * {@link #EVICTIONGRACEFRAMES} frames are kept. Unsaved chunks are saved
+	 * before.
+	 */
+	private void evictChunks() {
+		int overBudget = loadedChunks.size() - maxChunks;
+		if (overBudget <= 0) {
+			return;
+		}
+		ArrayList<Chunk> candidates = new ArrayList<>(overBudget);
+		for (Chunk chunk : loadedChunks) {
+			if (chunk.getLastNeededFrame() < frame - EVICTIONGRACEFRAMES) {
+				candidates.add(chunk);
+			}
+		}
+		candidates.sort((Chunk c1, Chunk c2) -> Long.compare(c1.getLastNeededFrame(), c2.getLastNeededFrame()));
+
+		//limit work per frame because saving is slow
+		int amount = Math.min(Math.min(overBudget, candidates.size()), MAXEVICTIONSPERFRAME);
+		for (int i = 0; i < amount; i++) {
+			Chunk chunk = candidates.get(i);
+			boolean save = chunk.isUnsaved()
+				|| !getEntitiesOnChunkSavedOnly(chunk.getChunkX(), chunk.getChunkY()).isEmpty();
+			chunk.dispose(this, save ? getPath() : null);
+			data.remove(chunk.getChunkX(), chunk.getChunkY());
+			loadedChunks.remove(chunk);
+			evictedChunks++;
+			if (save) {
+				evictedChunksSaved++;
+			}
+		}
+		if (amount > 0) {
+			Gdx.app.debug("Map", "Evicted " + amount + " chunks. " + loadedChunks.size() + " chunks loaded.");
+		}
+	}
+
+	/**
+	 * Marks a chunk as needed in this frame so that it does not get evicted.
+	 * Cameras call this for every chunk around them.
+	 *
+	 * @param chunkX
+	 * @param chunkY
+	 */
+	public void markChunkNeeded(int chunkX, int chunkY) {
+		Chunk chunk = getChunk(chunkX, chunkY);
+		if (chunk != null) {
+			chunk.markNeeded(frame);
+		}
+	}
+
+	/**
+	 * Amount of chunks which got unloaded because the memory budget was
+	 * exceeded.
+	 *
+	 * @return
+	 */
+	public int getEvictedChunks() {
+		return evictedChunks;
+	}
+
+	/**
+	 * Amount of evicted chunks which had to be saved before unloading.
+	 *
+	 * @return
+	 */
+	public int getEvictedChunksSaved() {
+		return evictedChunksSaved;
+	}
+
+	/**
+	 * The memory used by the block data of the loaded chunks.
+	 *
+	 * @return in bytes
+	 */
+	public long getChunkMemoryUse() {
+		return (long) loadedChunks.size() * Chunk.getMemorySize();
+	}
+
+	/**
+	 *
+	 * @return the maximum amount of chunks before chunks get evicted
+	 */
+	public int getMaxChunks() {
+		return maxChunks;
+	}
+
+	/**
+	 * Moves every entity between its position before and after the last
+	 * simulation step so that the movement is smooth when more frames than
+	 * steps are rendered. Must be followed by {@link #endInterpolation()}.
+	 *
+	 * @param alpha part of the next step which already passed, 0 renders the
+	 * state before the last step
+	 * @see com.bombinggames.wurfelengine.core.SimulationClock#getAlpha()
+	 */
+	public void beginInterpolation(float alpha) {
+		for (int i = 0; i < entityList.size(); i++) {
+			entityList.get(i).beginInterpolation(alpha);
+		}
+	}
+
+	/**
+	 * Restores the simulated positions after rendering.
+	 */
+	public void endInterpolation() {
+		for (int i = entityList.size() - 1; i >= 0; i--) {
+			entityList.get(i).endInterpolation();
+		}
 	}
 
 	/**
@@ -294,6 +455,7 @@ public class Map implements IndexedGraph<PfNode> {
 			}
 		}
 
+		pathfinding.update(loadedChunks);
 		modificationCheck();
 	}
 
@@ -304,16 +466,71 @@ public class Map implements IndexedGraph<PfNode> {
 	 * @param chunkY
 	 */
 	public void loadChunk(int chunkX, int chunkY) {
-		if (loadedChunks.size() < maxChunks && Map.this.getChunk(chunkX, chunkY) == null) {
-			if (!isLoading(chunkX, chunkY)) {
+		if (Map.this.getChunk(chunkX, chunkY) == null) {
+			ChunkLoader loading = getLoader(chunkX, chunkY);
+			if (loading == null) {
 				ChunkLoader cl = new ChunkLoader(this, getPath(), chunkX, chunkY, getGenerator());
 				loadingRunnables.add(cl);
-				Thread thread = new Thread(cl, "loadChunk "+chunkX+","+chunkY);
-				thread.start();
+				ChunkLoader.submit(cl);
+			} else {
+				//now it is needed, so it must not be cancelled
+				loading.setPrefetch(false);
 			}
 		}
 	}
 
+	/**
+	 * Loads a chunk ahead of time. In contrast to
+	 * {@link #loadChunk(int, int)} the loading can be cancelled via
+	 * {@link #cancelPrefetch(int, int)}.
+	 *
+	 * @param chunkX
+	 * @param chunkY
+	 * @return true if a new loader was started
+	 * @see ChunkPrefetcher
+	 */
+	public boolean prefetchChunk(int chunkX, int chunkY) {
+		if (getChunk(chunkX, chunkY) == null && getLoader(chunkX, chunkY) == null) {
+			ChunkLoader cl = new ChunkLoader(this, getPath(), chunkX, chunkY, getGenerator());
+			cl.setPrefetch(true);
+			loadingRunnables.add(cl);
+			ChunkLoader.submit(cl);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Cancels the loading of a chunk if it was only prefetched.
+	 *
+	 * @param chunkX
+	 * @param chunkY
+	 * @return true if a loader was cancelled
+	 */
+	public boolean cancelPrefetch(int chunkX, int chunkY) {
+		ChunkLoader loader = getLoader(chunkX, chunkY);
+		if (loader != null && loader.isPrefetch()) {
+			ChunkLoader.cancel(loader);
+			loadingRunnables.remove(loader);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 *
+	 * @return amount of prefetched chunks which are still loading
+	 */
+	public int getPrefetchingCount() {
+		int count = 0;
+		for (ChunkLoader loader : loadingRunnables) {
+			if (loader.isPrefetch()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
 	/**
 	 * loads a chunk from disk if not already loaded.
 	 *
@@ -324,10 +541,9 @@ public class Map implements IndexedGraph<PfNode> {
 	}
 	/**
 	 * Get the data of the map.
-	 * From range in X [-chunkDim/2,chunkDim/2]
 	 * @return
 	 */
-	public HashMap<Integer, Chunk> getData() {
+	public ChunkMap getData() {
 		return data;
 	}
 	
@@ -380,6 +596,37 @@ public class Map implements IndexedGraph<PfNode> {
 		}
 	}
 
+	/**
+	 * Get the highest block of a column which is not air. O(1)
+	 *
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @return z coordinate, -1 if the column is empty or not loaded
+	 * @see #getOpaqueHeight(int, int)
+	 */
+	public int getSurfaceHeight(int x, int y) {
+		Chunk chunk = getChunkContaining(x, y);
+		if (chunk == null) {
+			return -1;
+		}
+		return chunk.getSurfaceHeight(x, y);
+	}
+
+	/**
+	 * Get the highest block of a column which is not transparent. O(1)
+	 *
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @return z coordinate, -1 if there is none or the chunk is not loaded
+	 */
+	public int getOpaqueHeight(int x, int y) {
+		Chunk chunk = getChunkContaining(x, y);
+		if (chunk == null) {
+			return -1;
+		}
+		return chunk.getOpaqueHeight(x, y);
+	}
+
 	/**
 	 *
 	 * @param x
@@ -461,6 +708,85 @@ public class Map implements IndexedGraph<PfNode> {
 		}
 	}
 
+	/**
+	 * Starts a bulk edit. The edits are applied when the transaction is
+	 * executed, usually via
+	 * {@link com.bombinggames.wurfelengine.core.Controller#executeCommand(com.bombinggames.wurfelengine.Command)}
+	 * so that it can be undone.
+	 *
+	 * @return a new empty transaction for this map
+	 */
+	public BlockTransaction beginTransaction() {
+		return new BlockTransaction(this);
+	}
+
+	/**
+	 * Copies the blocks inside a box. Cells which are not loaded are copied as
+	 * air.
+	 *
+	 * @param from corner of the box, inclusive
+	 * @param to opposite corner of the box, inclusive
+	 * @return
+	 * @see BlockTransaction#paste(BlockRegion, Coordinate)
+	 */
+	public BlockRegion copyRegion(Coordinate from, Coordinate to) {
+		int left = Math.min(from.getX(), to.getX());
+		int top = Math.min(from.getY(), to.getY());
+		int bottom = Math.max(0, Math.min(from.getZ(), to.getZ()));
+		int topZ = Math.min(Chunk.getBlocksZ() - 1, Math.max(from.getZ(), to.getZ()));
+		BlockRegion region = new BlockRegion(
+			Math.abs(to.getX() - from.getX()) + 1,
+			Math.abs(to.getY() - from.getY()) + 1,
+			Math.max(0, topZ - bottom + 1)
+		);
+		for (int x = 0; x < region.getSizeX(); x++) {
+			for (int y = 0; y < region.getSizeY(); y++) {
+				Chunk chunk = getChunkContaining(left + x, top + y);
+				if (chunk != null) {
+					byte[] column = chunk.getData()[left + x - chunk.getTopLeftCoordinateX()][top + y - chunk.getTopLeftCoordinateY()];
+					for (int z = 0; z < region.getSizeZ(); z++) {
+						int i = (bottom + z) * 3;
+						region.setBlock(x, y, z,
+							(column[i] & 255) | (column[i + 1] & 255) << 8 | (column[i + 2] & 255) << 16
+						);
+					}
+				}
+			}
+		}
+		return region;
+	}
+
+	/**
+	 * Takes snapshots of the chunks around a chunk. The snapshot can be passed
+	 * to other threads while the map keeps changing. Must be called on the
+	 * main thread.
+	 *
+	 * @param chunkX center chunk
+	 * @param chunkY center chunk
+	 * @param radius amount of chunks around the center, 1 gives 3x3 chunks
+	 * @return
+	 * @see Chunk#getSnapshot()
+	 */
+	public RegionSnapshot snapshotRegion(int chunkX, int chunkY, int radius) {
+		int size = radius * 2 + 1;
+		ChunkSnapshot[] chunks = new ChunkSnapshot[size * size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Chunk chunk = getChunk(chunkX - radius + x, chunkY - radius + y);
+				if (chunk != null) {
+					chunks[x * size + y] = chunk.getSnapshot();
+				}
+			}
+		}
+		return new RegionSnapshot(
+			chunkX - radius,
+			chunkY - radius,
+			size,
+			chunks,
+			(byte) WE.getCVars().getValueI("groundBlockID")
+		);
+	}
+
 	/**
 	 *
 	 * @param coord
@@ -495,7 +821,7 @@ public class Map implements IndexedGraph<PfNode> {
 	 * @return can return null if not loaded
 	 */
 	public Chunk getChunkContaining(final Coordinate coord) {
-		return data.get(Math.floorDiv(coord.getX(), Chunk.getBlocksX())*chunkDim + Math.floorDiv(coord.getY(), Chunk.getBlocksY()));
+		return data.get(Math.floorDiv(coord.getX(), Chunk.getBlocksX()), Math.floorDiv(coord.getY(), Chunk.getBlocksY()));
 	
 	}
 
@@ -507,7 +833,7 @@ public class Map implements IndexedGraph<PfNode> {
 	 * @return can return null if not loaded
 	 */
 	public Chunk getChunkContaining(int x, int y) {
-		return data.get(Math.floorDiv(x, Chunk.getBlocksX())*chunkDim + Math.floorDiv(y, Chunk.getBlocksY()));
+		return data.get(Math.floorDiv(x, Chunk.getBlocksX()), Math.floorDiv(y, Chunk.getBlocksY()));
 	}
 	
 	/**
@@ -564,7 +890,7 @@ public class Map implements IndexedGraph<PfNode> {
 	 * @return if not in memory returns null
 	 */
 	public Chunk getChunk(int chunkX, int chunkY) {
-		return data.get(chunkX*chunkDim + chunkY);//this is the hash function
+		return data.get(chunkX, chunkY);
 	}
 
 	/**
@@ -759,6 +1085,15 @@ public class Map implements IndexedGraph<PfNode> {
 		return generator;
 	}
 
+	/**
+	 * The seed used by the generator. Stored in the map cvar "generatorSeed".
+	 *
+	 * @return
+	 */
+	public long getSeed() {
+		return cVars.getValueI("generatorSeed");
+	}
+
 	/**
 	 *
 	 * @return
@@ -836,6 +1171,7 @@ public class Map implements IndexedGraph<PfNode> {
 			entityList.remove(e);
 		}
 		entityList.addAll(Arrays.asList(ent));
+		entityIndex.markDirty();
 	}
 	
 	/**
@@ -850,6 +1186,7 @@ public class Map implements IndexedGraph<PfNode> {
 				entityList.remove(e);
 			}
 			entityList.addAll(ent);
+			entityIndex.markDirty();
 		}
 	}
 	
@@ -860,6 +1197,7 @@ public class Map implements IndexedGraph<PfNode> {
 	public void disposeEntities() {
 		entityList.forEach((AbstractEntity e) -> e.dispose());
 		entityList.clear();
+		entityIndex.clear();
 	}
 
 	/**
@@ -926,6 +1264,64 @@ public class Map implements IndexedGraph<PfNode> {
 		return result;
 	}
 
+	/**
+	 * Get every entity of the wanted type whose position is in a cell inside
+	 * a box. Only the entities near the box are tested, found with the
+	 * {@link #getEntityIndex() entity index}.
+	 *
+	 * @param <T> the class you want to filter.
+	 * @param from corner of the box, inclusive
+	 * @param to other corner of the box, inclusive
+	 * @param filter the class you want to filter.
+	 * @return a list with the entitys of the wanted type
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> LinkedList<T> getEntitysInBox(final Coordinate from, final Coordinate to, final Class<T> filter) {
+		int minX = Math.min(from.getX(), to.getX());
+		int maxX = Math.max(from.getX(), to.getX());
+		int minY = Math.min(from.getY(), to.getY());
+		int maxY = Math.max(from.getY(), to.getY());
+		int minZ = Math.min(from.getZ(), to.getZ());
+		int maxZ = Math.max(from.getZ(), to.getZ());
+		//the cells in game space with a margin because of the staggered rows and the rounding of negative positions
+		ArrayList<AbstractEntity> candidates = new ArrayList<>();
+		entityIndex.query(
+			(minX - 2) * RenderCell.GAME_DIAGLENGTH,
+			(minY - 3) * RenderCell.GAME_DIAGLENGTH2,
+			(maxX + 2) * RenderCell.GAME_DIAGLENGTH,
+			(maxY + 3) * RenderCell.GAME_DIAGLENGTH2,
+			candidates
+		);
+		LinkedList<T> result = new LinkedList<>();
+		Coordinate tmp = new Coordinate(0, 0, 0);
+		for (AbstractEntity ent : candidates) {
+			if (ent.hasPosition() && filter.isInstance(ent)) {
+				tmp.setFromPoint(ent.getPosition());
+				if (tmp.getX() >= minX && tmp.getX() <= maxX
+					&& tmp.getY() >= minY && tmp.getY() <= maxY
+					&& tmp.getZ() >= minZ && tmp.getZ() <= maxZ
+				) {
+					result.add((T) ent);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Damages blocks and entities around a point in a single pass.
+	 *
+	 * @param center center of the damage
+	 * @param radius the radius in game world blocks
+	 * @param damage damage at the center
+	 * @param sender sender of the damage messages. can be null
+	 * @return the applied damage containing the destroyed cells
+	 * @see AreaDamage
+	 */
+	public AreaDamage damageArea(Point center, int radius, int damage, Telegraph sender) {
+		return new AreaDamage(center, radius, damage).apply(this, sender);
+	}
+
 	/**
 	 * True if some block has changed in loaded chunks.
 	 *
@@ -935,39 +1331,58 @@ public class Map implements IndexedGraph<PfNode> {
 		return modified;
 	}
 
-	@Override
-	public Array<Connection<PfNode>> getConnections(PfNode fromNode) {
-		return fromNode.getConnections();
-
-	}
-
 	/**
+	 * Finds a walkable path over the loaded chunks.
 	 *
 	 * @param start
 	 * @param goal
-	 * @return
+	 * @return empty if there is no path
+	 * @see PathfindingService#findPath(Coordinate, Coordinate)
 	 */
 	public DefaultGraphPath<PfNode> findPath(Coordinate start, Coordinate goal) {
-		IndexedAStarPathFinder<PfNode> pathFinder;
-		pathFinder = new IndexedAStarPathFinder<>(this, true);
-
-		DefaultGraphPath<PfNode> path = new DefaultGraphPath<>();
-		path.clear();
-		Heuristic<PfNode> heuristic = new ManhattanDistanceHeuristic();
-
-		boolean found = pathFinder.searchNodePath(
-			new PfNode(start),
-			new PfNode(goal),
-			heuristic,
-			path
-		);
+		return pathfinding.findPath(start, goal);
+	}
 
-		return path;
+	/**
+	 *
+	 * @return the particles in this map
+	 */
+	public ParticleSystem getParticleSystem() {
+		return particles;
 	}
 
-	@Override
-	public int getNodeCount() {
-		return Chunk.getBlocksX() * Chunk.getBlocksY();
+	/**
+	 * The spatial index of the entities. It is rebuilt after every entity
+	 * update and when entities are added.
+	 *
+	 * @return the spatial index of the entities in this map
+	 */
+	public EntityIndex getEntityIndex() {
+		return entityIndex;
+	}
+
+	/**
+	 *
+	 * @return the system moving the bullets in this map
+	 */
+	public ProjectileSystem getProjectileSystem() {
+		return projectiles;
+	}
+
+	/**
+	 *
+	 * @return the pathfinding over the loaded chunks
+	 */
+	public PathfindingService getPathfinding() {
+		return pathfinding;
+	}
+
+	/**
+	 *
+	 * @return the chunk streaming which loads chunks ahead of the cameras
+	 */
+	public ChunkPrefetcher getPrefetcher() {
+		return prefetcher;
 	}
 
 	/**
@@ -977,12 +1392,22 @@ public class Map implements IndexedGraph<PfNode> {
 	 * @return 
 	 */
 	public boolean isLoading(int chunkX, int chunkY) {
+		return getLoader(chunkX, chunkY) != null;
+	}
+
+	/**
+	 *
+	 * @param chunkX
+	 * @param chunkY
+	 * @return the loader of this chunk, null if not loading
+	 */
+	private ChunkLoader getLoader(int chunkX, int chunkY) {
 		for (ChunkLoader lR : loadingRunnables) {
 			if (lR.getCoordX() == chunkX && lR.getCoordY() == chunkY) {
-				return true;
+				return lR;
 			}
 		}
-		return false;
+		return null;
 	}
 	
 	/**
@@ -991,6 +1416,7 @@ public class Map implements IndexedGraph<PfNode> {
 	 * @param save
 	 */
 	public void dispose(boolean save) {
+		MessageManager.getInstance().removeListener(pathfinding, Events.chunkChanged.getId());
 		for (Chunk chunk : loadedChunks) {
 			if (save) {
 				chunk.dispose(this, getPath());
@@ -999,21 +1425,7 @@ public class Map implements IndexedGraph<PfNode> {
 			}
 		}
 		disposeEntities();
-	}
-
-	private static class ManhattanDistanceHeuristic implements Heuristic<PfNode> {
-
-		@Override
-		public float estimate(PfNode node, PfNode endNode) {
-			return Math.abs(endNode.getX() - node.getX()) + Math.abs(endNode.getY() - node.getY());
-		}
-	}
-
-	private static class EuklideanDistanceHeuristic implements Heuristic<PfNode> {
-
-		@Override
-		public float estimate(PfNode node, PfNode endNode) {
-			return node.distanceTo(endNode);
-		}
+		particles.clear();
+		projectiles.clear();
 	}
 }
@@ -0,0 +1,966 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * If this software is used for a game the official „Wurfel Engine“ logo or its name must be
+ *   visible in an intro screen or main menu.
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map;
+
+import com.badlogic.gdx.ai.msg.Telegram;
+import com.badlogic.gdx.ai.msg.Telegraph;
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.HierarchicalPathFinder;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedHierarchicalGraph;
+import com.badlogic.gdx.utils.Array;
+import com.bombinggames.wurfelengine.core.Events;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Finds paths over the loaded chunks. The walkable cells of every chunk are
+ * precomputed in a {@link WalkabilityGrid}. A search first plans on a graph
+ * where every chunk is a node and then refines the route on the cells. Every
+ * thread reuses its own search state. Recent paths are cached until a block
+ * in a chunk on the path changes.<br>
+ * Can be used from any thread. {@link #update(List)} must be called on the
+ * main thread.
+ *
+ * @author Benedikt Vogler
+ */
+public class PathfindingService implements Telegraph {
+
+	/**
+	 * amount of paths in the cache
+	 */
+	private static final int CACHESIZE = 64;
+	/**
+	 * the four neighbours of a cell, same order as the chunk neighbours
+	 */
+	private static final int[] DX = {-1, 1, 0, 0};
+	private static final int[] DY = {0, 0, 2, -2};
+	private static final int[] CHUNKDX = {-1, 1, 0, 0};
+	private static final int[] CHUNKDY = {0, 0, 1, -1};
+	private static final ManhattanDistanceHeuristic HEURISTIC = new ManhattanDistanceHeuristic();
+	/**
+	 * amount of cell nodes a new searcher can hold, grows if a search needs
+	 * more
+	 */
+	private static final int INITIALNODES = 1 << 12;
+
+	private final ThreadLocal<Searcher> searchers = new ThreadLocal<>();
+	private volatile Snapshot snapshot;
+	/**
+	 * chunks changed since the last update, only used on the main thread
+	 */
+	private final ArrayList<Chunk> changedChunks = new ArrayList<>(4);
+	/**
+	 * keys of the chunks whose cached paths are dropped, only used on the main
+	 * thread
+	 */
+	private final ArrayList<Long> invalid = new ArrayList<>(8);
+	private final LinkedHashMap<Long, CachedPath> cache = new LinkedHashMap<Long, CachedPath>(CACHESIZE, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Entry<Long, CachedPath> eldest) {
+			return size() > CACHESIZE;
+		}
+	};
+	private int cacheHits;
+	private int cacheMisses;
+
+	/**
+	 * Rebuilds the grids of new and changed chunks and drops the cached paths
+	 * through them. Does not allocate if nothing changed. Must be called on
+	 * the main thread.
+	 *
+	 * @param loadedChunks
+	 */
+	public void update(List<Chunk> loadedChunks) {
+		Snapshot old = snapshot;
+		boolean changed = old == null || old.size != loadedChunks.size() || !changedChunks.isEmpty();
+		if (!changed) {
+			//same chunks as in the snapshot?
+			for (Chunk chunk : loadedChunks) {
+				int slot = old.getSlot(chunk.getChunkX(), chunk.getChunkY());
+				if (slot < 0 || old.grids[slot].getChunk() != chunk) {
+					changed = true;
+					break;
+				}
+			}
+			if (!changed) {
+				return;
+			}
+		}
+
+		WalkabilityGrid[] grids = new WalkabilityGrid[loadedChunks.size()];
+		invalid.clear();
+		int i = 0;
+		for (Chunk chunk : loadedChunks) {
+			WalkabilityGrid grid = null;
+			if (old != null) {
+				int slot = old.getSlot(chunk.getChunkX(), chunk.getChunkY());
+				if (slot >= 0 && old.grids[slot].getChunk() == chunk && !changedChunks.contains(chunk)) {
+					grid = old.grids[slot];
+				}
+			}
+			if (grid == null) {
+				grid = new WalkabilityGrid(chunk);
+				invalid.add(ChunkMap.key(chunk.getChunkX(), chunk.getChunkY()));
+			}
+			grids[i++] = grid;
+		}
+		changedChunks.clear();
+
+		Snapshot newSnapshot = new Snapshot(grids, old);
+		//chunks which are no longer loaded
+		if (old != null) {
+			for (WalkabilityGrid grid : old.grids) {
+				if (newSnapshot.getSlot(grid.getChunkX(), grid.getChunkY()) < 0) {
+					invalid.add(ChunkMap.key(grid.getChunkX(), grid.getChunkY()));
+				}
+			}
+		}
+		synchronized (cache) {
+			snapshot = newSnapshot;
+			if (!invalid.isEmpty()) {
+				Iterator<CachedPath> it = cache.values().iterator();
+				while (it.hasNext()) {
+					if (it.next().touchesAny(invalid)) {
+						it.remove();
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean handleMessage(Telegram msg) {
+		if (msg.message == Events.chunkChanged.getId()) {
+			Chunk chunk = (Chunk) msg.extraInfo;
+			if (!changedChunks.contains(chunk)) {
+				changedChunks.add(chunk);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Finds a walkable path. A cell is walkable if it is not an obstacle and
+	 * the cell below is an obstacle or the ground. Only loaded chunks are
+	 * searched. If the goal is not walkable, e.g. the position of a block or
+	 * an entity in the air, the path ends at the nearest walkable cell in its
+	 * column or next to it.
+	 *
+	 * @param start
+	 * @param goal
+	 * @return the nodes from start to goal, empty if there is no path
+	 */
+	public DefaultGraphPath<PfNode> findPath(Coordinate start, Coordinate goal) {
+		Snapshot snap = snapshot;
+		if (snap == null) {
+			return new DefaultGraphPath<>(0);
+		}
+		long startKey = pack(start.getX(), start.getY(), start.getZ());
+		long goalKey = pack(goal.getX(), goal.getY(), goal.getZ());
+		Long cacheKey = startKey * 31 + goalKey;
+		synchronized (cache) {
+			CachedPath cached = cache.get(cacheKey);
+			if (cached != null && cached.start == startKey && cached.goal == goalKey) {
+				cacheHits++;
+				return cached.toGraphPath();
+			}
+			cacheMisses++;
+		}
+
+		Searcher searcher = searchers.get();
+		if (searcher == null || searcher.capacity < snap.size) {
+			//leave room for chunks loaded later
+			searcher = new Searcher(
+				Math.max(16, snap.size * 2),
+				searcher == null ? INITIALNODES : searcher.nodeCapacity
+			);
+			searchers.set(searcher);
+		}
+		CachedPath path = searcher.search(snap, start, goal);
+		//the search needed more cells, repeat with more node slots
+		while (searcher.isOverflowed() && searcher.nodeCapacity < snap.size * WalkabilityGrid.getCellCount()) {
+			searcher = new Searcher(
+				searcher.capacity,
+				Math.min(searcher.nodeCapacity * 2, snap.size * WalkabilityGrid.getCellCount())
+			);
+			searchers.set(searcher);
+			path = searcher.search(snap, start, goal);
+		}
+		if (path == null) {
+			return new DefaultGraphPath<>(0);
+		}
+		path.start = startKey;
+		path.goal = goalKey;
+		synchronized (cache) {
+			//results of an outdated snapshot are not cached
+			if (snap == snapshot) {
+				cache.put(cacheKey, path);
+			}
+		}
+		return path.toGraphPath();
+	}
+
+	/**
+	 *
+	 * @return amount of requests answered by the path cache
+	 */
+	public int getCacheHits() {
+		return cacheHits;
+	}
+
+	/**
+	 *
+	 * @return amount of requests which needed a search
+	 */
+	public int getCacheMisses() {
+		return cacheMisses;
+	}
+
+	/**
+	 * Drops every cached path.
+	 */
+	public void clearCache() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	private static long pack(int x, int y, int z) {
+		return ((x & 0xFFFFFL) << 40) | ((y & 0xFFFFFL) << 20) | (z & 0xFFFFFL);
+	}
+
+	/**
+	 * The grids of the loaded chunks at one point in time. Does not change
+	 * after creation.
+	 */
+	private static class Snapshot {
+
+		private final WalkabilityGrid[] grids;
+		private final int size;
+		private final long[] keys;
+		private final int[] slots;
+		private final int mask;
+		/**
+		 * for every chunk a bit for each direction in which a cell of the
+		 * neighbour chunk can be reached
+		 */
+		private final byte[] portals;
+
+		/**
+		 *
+		 * @param grids
+		 * @param old the previous snapshot, can be null. The portals of
+		 * chunks whose grid and neighbour grids did not change are taken from
+		 * it.
+		 */
+		Snapshot(WalkabilityGrid[] grids, Snapshot old) {
+			this.grids = grids;
+			size = grids.length;
+			int capacity = Integer.highestOneBit(Math.max(4, size * 2 - 1)) << 1;
+			keys = new long[capacity];
+			slots = new int[capacity];
+			Arrays.fill(slots, -1);
+			mask = capacity - 1;
+			for (int s = 0; s < size; s++) {
+				long key = ChunkMap.key(grids[s].getChunkX(), grids[s].getChunkY());
+				int i = index(key);
+				while (slots[i] >= 0) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = key;
+				slots[i] = s;
+			}
+
+			portals = new byte[size];
+			for (int s = 0; s < size; s++) {
+				int oldSlot = old == null ? -1 : old.getSlot(grids[s].getChunkX(), grids[s].getChunkY());
+				if (oldSlot >= 0 && old.grids[oldSlot] == grids[s] && sameNeighbours(grids[s], old)) {
+					portals[s] = old.portals[oldSlot];
+				} else {
+					for (int dir = 0; dir < 4; dir++) {
+						if (hasPortal(grids[s], dir)) {
+							portals[s] |= 1 << dir;
+						}
+					}
+				}
+			}
+		}
+
+		/**
+		 * Checks if the four neighbour chunks have the same grids as in
+		 * another snapshot.
+		 */
+		private boolean sameNeighbours(WalkabilityGrid grid, Snapshot other) {
+			for (int dir = 0; dir < 4; dir++) {
+				int slot = getSlot(grid.getChunkX() + CHUNKDX[dir], grid.getChunkY() + CHUNKDY[dir]);
+				int otherSlot = other.getSlot(grid.getChunkX() + CHUNKDX[dir], grid.getChunkY() + CHUNKDY[dir]);
+				if (slot < 0 || otherSlot < 0) {
+					if (slot != otherSlot) {
+						return false;
+					}
+				} else if (grids[slot] != other.grids[otherSlot]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 *
+		 * @param chunkX
+		 * @param chunkY
+		 * @return -1 if not loaded
+		 */
+		int getSlot(int chunkX, int chunkY) {
+			long key = ChunkMap.key(chunkX, chunkY);
+			int i = index(key);
+			int slot;
+			while ((slot = slots[i]) >= 0) {
+				if (keys[i] == key) {
+					return slot;
+				}
+				i = (i + 1) & mask;
+			}
+			return -1;
+		}
+
+		private int index(long key) {
+			key ^= key >>> 33;
+			key *= 0xff51afd7ed558ccdL;
+			key ^= key >>> 33;
+			return (int) key & mask;
+		}
+
+		/**
+		 *
+		 * @param x
+		 * @param y
+		 * @param z
+		 * @return global node index, -1 if not loaded
+		 */
+		int getNodeIndex(int x, int y, int z) {
+			if (z < 0 || z >= Chunk.getBlocksZ()) {
+				return -1;
+			}
+			int slot = getSlot(Math.floorDiv(x, Chunk.getBlocksX()), Math.floorDiv(y, Chunk.getBlocksY()));
+			if (slot < 0) {
+				return -1;
+			}
+			WalkabilityGrid grid = grids[slot];
+			return slot * WalkabilityGrid.getCellCount()
+				+ WalkabilityGrid.getLocalIndex(x - grid.getTopLeftX(), y - grid.getTopLeftY(), z);
+		}
+
+		/**
+		 *
+		 * @param x
+		 * @param y
+		 * @param z
+		 * @return true if not loaded
+		 */
+		boolean isObstacle(int x, int y, int z) {
+			int slot = getSlot(Math.floorDiv(x, Chunk.getBlocksX()), Math.floorDiv(y, Chunk.getBlocksY()));
+			if (slot < 0) {
+				return true;
+			}
+			WalkabilityGrid grid = grids[slot];
+			return grid.isObstacleLocal(x - grid.getTopLeftX(), y - grid.getTopLeftY(), z);
+		}
+
+		boolean isWalkable(int x, int y, int z) {
+			int slot = getSlot(Math.floorDiv(x, Chunk.getBlocksX()), Math.floorDiv(y, Chunk.getBlocksY()));
+			if (slot < 0) {
+				return false;
+			}
+			WalkabilityGrid grid = grids[slot];
+			return grid.isWalkableLocal(x - grid.getTopLeftX(), y - grid.getTopLeftY(), z);
+		}
+
+		/**
+		 * Finds the walkable cell nearest to a cell. The column of the cell is
+		 * searched first, alternating up and down, then the columns of the four
+		 * neighbours at the same height.
+		 *
+		 * @param x
+		 * @param y
+		 * @param z
+		 * @param out receives x, y and z of the found cell
+		 * @return false if there is no walkable cell nearby
+		 */
+		boolean findWalkable(int x, int y, int z, int[] out) {
+			int blocksZ = Chunk.getBlocksZ();
+			int cz = Math.max(0, Math.min(z, blocksZ - 1));
+			for (int d = 0; d < 2 * blocksZ; d++) {
+				int nz = (d & 1) == 0 ? cz - d / 2 : cz + d / 2 + 1;
+				if (nz >= 0 && nz < blocksZ && isWalkable(x, y, nz)) {
+					out[0] = x;
+					out[1] = y;
+					out[2] = nz;
+					return true;
+				}
+			}
+			for (int dir = 0; dir < DX.length; dir++) {
+				for (int dz = 0; dz < 3; dz++) {
+					int nz = cz + (dz == 2 ? 1 : -dz);
+					if (nz >= 0 && nz < blocksZ && isWalkable(x + DX[dir], y + DY[dir], nz)) {
+						out[0] = x + DX[dir];
+						out[1] = y + DY[dir];
+						out[2] = nz;
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Moves into a direction. Climbs or drops one block if needed.
+		 *
+		 * @param x
+		 * @param y
+		 * @param z
+		 * @param dir index of {@link #DX}
+		 * @return the new z, -1 if the neighbour can not be reached
+		 */
+		int step(int x, int y, int z, int dir) {
+			int nx = x + DX[dir];
+			int ny = y + DY[dir];
+			if (isWalkable(nx, ny, z)) {
+				return z;
+			}
+			if (isWalkable(nx, ny, z + 1) && !isObstacle(x, y, z + 1)) {
+				return z + 1;
+			}
+			if (z > 0 && isWalkable(nx, ny, z - 1) && !isObstacle(nx, ny, z)) {
+				return z - 1;
+			}
+			return -1;
+		}
+
+		/**
+		 * Checks if a cell of the neighbour chunk in a direction can be
+		 * reached from this chunk.
+		 */
+		private boolean hasPortal(WalkabilityGrid grid, int dir) {
+			if (getSlot(grid.getChunkX() + CHUNKDX[dir], grid.getChunkY() + CHUNKDY[dir]) < 0) {
+				return false;
+			}
+			int blocksX = Chunk.getBlocksX();
+			int blocksY = Chunk.getBlocksY();
+			//the cells at the border which can leave the chunk in this direction
+			int fromX = dir == 1 ? blocksX - 1 : 0;
+			int toX = dir == 0 ? 1 : blocksX;
+			int fromY = dir == 2 ? blocksY - 2 : 0;
+			int toY = dir == 3 ? 2 : blocksY;
+			for (int x = fromX; x < toX; x++) {
+				for (int y = fromY; y < toY; y++) {
+					for (int z = 0; z < Chunk.getBlocksZ(); z++) {
+						if (grid.isWalkableLocal(x, y, z)
+							&& step(grid.getTopLeftX() + x, grid.getTopLeftY() + y, z, dir) >= 0) {
+							return true;
+						}
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The search state of one thread. Level 0 are the cells, level 1 the
+	 * chunks. Nodes and connections are reused across searches.<br>
+	 * Cell nodes are only created for the cells which a search touches. They
+	 * get a compact index in the order they are touched, which is valid
+	 * during one search. The global cell index is mapped to the compact
+	 * index with an open addressed table. If a search touches more cells than
+	 * there are node slots it fails with {@link #isOverflowed()} and can be
+	 * repeated with a bigger searcher.
+	 */
+	private static class Searcher extends IndexedHierarchicalGraph<PfNode> {
+
+		private final int capacity;
+		/**
+		 * maximum amount of cell nodes in one search
+		 */
+		private final int nodeCapacity;
+		private final PfNode[] cellNodes;
+		/**
+		 * chunk slot of every cell node
+		 */
+		private final int[] cellSlots;
+		private int usedNodes;
+		private boolean overflowed;
+		/**
+		 * global cell index to compact index, a slot is used if its stamp is
+		 * the current search
+		 */
+		private final int[] tableKeys;
+		private final int[] tableValues;
+		private final int[] tableStamps;
+		private final int tableMask;
+		private int stamp;
+		private final PfNode[] chunkNodes;
+		private final IndexedAStarPathFinder<PfNode> astar;
+		private final HierarchicalPathFinder<PfNode> hierarchical;
+		private final Array<Connection<PfNode>> connections = new Array<>(4);
+		private final ArrayList<CoordConnection> connectionPool = new ArrayList<>(256);
+		private int usedConnections;
+		private final DefaultGraphPath<PfNode> levelPath = new DefaultGraphPath<>();
+		private final Array<PfNode> result = new Array<>();
+		private Snapshot snap;
+		private PfNode target;
+		private final int[] snapped = new int[3];
+
+		/**
+		 *
+		 * @param capacity amount of chunks
+		 * @param nodeCapacity maximum amount of cells in one search
+		 */
+		Searcher(int capacity, int nodeCapacity) {
+			super(2);
+			this.capacity = capacity;
+			this.nodeCapacity = nodeCapacity;
+			cellNodes = new PfNode[nodeCapacity];
+			cellSlots = new int[nodeCapacity];
+			int tableSize = Integer.highestOneBit(nodeCapacity * 2 - 1) << 1;
+			tableKeys = new int[tableSize];
+			tableValues = new int[tableSize];
+			tableStamps = new int[tableSize];
+			tableMask = tableSize - 1;
+			chunkNodes = new PfNode[capacity];
+			astar = new IndexedAStarPathFinder<>(this);
+			hierarchical = new HierarchicalPathFinder<>(this, astar);
+		}
+
+		/**
+		 * The chunk nodes are indexed after the cell nodes because both
+		 * levels share the node records of the path finder.
+		 */
+		@Override
+		public int getNodeCount() {
+			return nodeCapacity + capacity;
+		}
+
+		/**
+		 *
+		 * @return true if the last search touched more cells than there are
+		 * node slots
+		 */
+		boolean isOverflowed() {
+			return overflowed;
+		}
+
+		/**
+		 *
+		 * @param snap
+		 * @param start
+		 * @param goal
+		 * @return null if there is no path
+		 */
+		CachedPath search(Snapshot snap, Coordinate start, Coordinate goal) {
+			this.snap = snap;
+			usedNodes = 0;
+			overflowed = false;
+			if (++stamp == 0) {
+				Arrays.fill(tableStamps, 0);
+				stamp = 1;
+			}
+			try {
+				PfNode startNode = getCellNode(start.getX(), start.getY(), start.getZ());
+				if (!snap.findWalkable(goal.getX(), goal.getY(), goal.getZ(), snapped)) {
+					return null;
+				}
+				PfNode goalNode = getCellNode(snapped[0], snapped[1], snapped[2]);
+				if (startNode == null || goalNode == null) {
+					return null;
+				}
+				target = goalNode;
+				result.clear();
+				result.add(startNode);
+				if (startNode == goalNode) {
+					return toCachedPath();
+				}
+
+				PfNode current = startNode;
+				int goalChunk = getSlot(goalNode);
+				PfNode startChunkNode = convertNodeBetweenLevels(0, startNode, 1);
+				if (startChunkNode == null) {
+					return searchDirect(startNode, goalNode);
+				}
+				//cheap check if the goal can be reached at all
+				if (snap.isWalkable(start.getX(), start.getY(), start.getZ())) {
+					usedConnections = 0;
+					setLevel(1);
+					levelPath.clear();
+					PfNode goalChunkNode = convertNodeBetweenLevels(0, goalNode, 1);
+					if (startChunkNode != goalChunkNode
+						&& !astar.searchNodePath(startChunkNode, goalChunkNode, HEURISTIC, levelPath)) {
+						return null;
+					}
+				}
+				//plan on the chunks and walk into the next chunk until the goal chunk is reached
+				for (int iterations = 0; iterations < snap.size * 4; iterations++) {
+					int currentChunk = getSlot(current);
+					if (currentChunk == goalChunk) {
+						break;
+					}
+					if (!searchHierarchical(current, goalNode)) {
+						//the entry cell can not be reached, search on the cells only
+						return searchDirect(startNode, goalNode);
+					}
+					//keep only the part until the next chunk is entered
+					int i = 1;
+					while (i < levelPath.getCount() - 1
+						&& getSlot(levelPath.get(i)) == currentChunk) {
+						i++;
+					}
+					for (int j = 1; j <= i; j++) {
+						result.add(levelPath.get(j));
+					}
+					current = levelPath.get(i);
+				}
+
+				if (getSlot(current) != goalChunk) {
+					return searchDirect(startNode, goalNode);
+				}
+				if (current != goalNode) {
+					if (!searchHierarchical(current, goalNode)) {
+						return searchDirect(startNode, goalNode);
+					}
+					for (int j = 1; j < levelPath.getCount(); j++) {
+						result.add(levelPath.get(j));
+					}
+				}
+				return toCachedPath();
+			} finally {
+				this.snap = null;
+				target = null;
+			}
+		}
+
+		/**
+		 *
+		 * @param cellNode
+		 * @return the slot of the chunk containing the cell
+		 */
+		private int getSlot(PfNode cellNode) {
+			return cellSlots[cellNode.getIndex()];
+		}
+
+		/**
+		 * One step of the hierarchical search. The found path is in
+		 * {@link #levelPath}.
+		 */
+		private boolean searchHierarchical(PfNode from, PfNode goalNode) {
+			usedConnections = 0;
+			levelPath.clear();
+			boolean found = hierarchical.searchNodePath(from, goalNode, HEURISTIC, levelPath);
+			return found && levelPath.getCount() > 1;
+		}
+
+		/**
+		 * Plain A* on the cells.
+		 */
+		private CachedPath searchDirect(PfNode startNode, PfNode goalNode) {
+			usedConnections = 0;
+			setLevel(0);
+			levelPath.clear();
+			if (!astar.searchNodePath(startNode, goalNode, HEURISTIC, levelPath)) {
+				return null;
+			}
+			result.clear();
+			for (int i = 0; i < levelPath.getCount(); i++) {
+				result.add(levelPath.get(i));
+			}
+			return toCachedPath();
+		}
+
+		private CachedPath toCachedPath() {
+			CachedPath path = new CachedPath(result.size);
+			long lastChunk = 0;
+			for (int i = 0; i < result.size; i++) {
+				PfNode node = result.get(i);
+				path.coords[i * 3] = node.getX();
+				path.coords[i * 3 + 1] = node.getY();
+				path.coords[i * 3 + 2] = node.getZ();
+				long chunk = ChunkMap.key(
+					Math.floorDiv(node.getX(), Chunk.getBlocksX()),
+					Math.floorDiv(node.getY(), Chunk.getBlocksY())
+				);
+				if (i == 0 || chunk != lastChunk) {
+					path.addChunk(chunk);
+					lastChunk = chunk;
+				}
+			}
+			return path;
+		}
+
+		/**
+		 * Get the node of a cell. The node objects are reused.
+		 *
+		 * @return null if not loaded or if there are no free node slots
+		 */
+		private PfNode getCellNode(int x, int y, int z) {
+			int key = snap.getNodeIndex(x, y, z);
+			if (key < 0) {
+				return null;
+			}
+			int i = hash(key);
+			while (tableStamps[i] == stamp) {
+				if (tableKeys[i] == key) {
+					return cellNodes[tableValues[i]];
+				}
+				i = (i + 1) & tableMask;
+			}
+			if (usedNodes == nodeCapacity) {
+				overflowed = true;
+				return null;
+			}
+			int index = usedNodes++;
+			tableStamps[i] = stamp;
+			tableKeys[i] = key;
+			tableValues[i] = index;
+			cellSlots[index] = key / WalkabilityGrid.getCellCount();
+			PfNode node = cellNodes[index];
+			if (node == null) {
+				node = new PfNode(x, y, z, index);
+				cellNodes[index] = node;
+			} else {
+				node.set(x, y, z);
+			}
+			return node;
+		}
+
+		private int hash(int key) {
+			key *= 0x9E3779B1;
+			return (key ^ key >>> 16) & tableMask;
+		}
+
+		/**
+		 *
+		 * @param slot
+		 * @return null if the chunk has no walkable cell
+		 */
+		private PfNode getChunkNode(int slot) {
+			WalkabilityGrid grid = snap.grids[slot];
+			int rep = grid.getRepresentative();
+			if (rep < 0) {
+				return null;
+			}
+			int z = rep % Chunk.getBlocksZ();
+			int y = grid.getTopLeftY() + (rep / Chunk.getBlocksZ()) % Chunk.getBlocksY();
+			int x = grid.getTopLeftX() + rep / (Chunk.getBlocksZ() * Chunk.getBlocksY());
+			PfNode node = chunkNodes[slot];
+			if (node == null) {
+				node = new PfNode(x, y, z, nodeCapacity + slot);
+				chunkNodes[slot] = node;
+			} else if (node.getX() != x || node.getY() != y || node.getZ() != z) {
+				node.set(x, y, z);
+			}
+			return node;
+		}
+
+		@Override
+		public PfNode convertNodeBetweenLevels(int inputLevel, PfNode node, int outputLevel) {
+			if (inputLevel == outputLevel) {
+				return node;
+			}
+			if (outputLevel == 1) {
+				return getChunkNode(getSlot(node));
+			}
+			return getEntryNode(node.getIndex() - nodeCapacity);
+		}
+
+		/**
+		 * The cell of a chunk to walk to when the chunk is on the planned
+		 * route. This is the walkable cell nearest to the goal so that the
+		 * refined path heads into the direction of the goal.
+		 *
+		 * @param slot
+		 * @return
+		 */
+		private PfNode getEntryNode(int slot) {
+			WalkabilityGrid grid = snap.grids[slot];
+			if (getSlot(target) == slot) {
+				return target;
+			}
+			int bestX = 0;
+			int bestY = 0;
+			int bestZ = -1;
+			float bestDist = Float.MAX_VALUE;
+			for (int x = 0; x < Chunk.getBlocksX(); x++) {
+				for (int y = 0; y < Chunk.getBlocksY(); y++) {
+					for (int z = 0; z < Chunk.getBlocksZ(); z++) {
+						if (grid.isWalkableLocal(x, y, z)) {
+							float dist = HEURISTIC.estimate(grid.getTopLeftX() + x, grid.getTopLeftY() + y, z, target);
+							if (dist < bestDist) {
+								bestDist = dist;
+								bestX = x;
+								bestY = y;
+								bestZ = z;
+							}
+						}
+					}
+				}
+			}
+			PfNode node;
+			if (bestZ < 0) {
+				//no walkable cell, use the representative
+				PfNode chunkNode = getChunkNode(slot);
+				node = getCellNode(chunkNode.getX(), chunkNode.getY(), chunkNode.getZ());
+			} else {
+				node = getCellNode(grid.getTopLeftX() + bestX, grid.getTopLeftY() + bestY, bestZ);
+			}
+			//no free node slot, the search is repeated anyway
+			return node == null ? target : node;
+		}
+
+		@Override
+		public Array<Connection<PfNode>> getConnections(PfNode fromNode) {
+			connections.clear();
+			if (level == 0) {
+				for (int dir = 0; dir < 4; dir++) {
+					int z = snap.step(fromNode.getX(), fromNode.getY(), fromNode.getZ(), dir);
+					PfNode to = z < 0 ? null : getCellNode(fromNode.getX() + DX[dir], fromNode.getY() + DY[dir], z);
+					if (to != null) {
+						float cost = z == fromNode.getZ()
+							? RenderCell.GAME_DIAGLENGTH
+							: RenderCell.GAME_DIAGLENGTH + RenderCell.GAME_EDGELENGTH;
+						connections.add(obtainConnection(fromNode, to, cost));
+					}
+				}
+			} else {
+				int slot = fromNode.getIndex() - nodeCapacity;
+				WalkabilityGrid grid = snap.grids[slot];
+				for (int dir = 0; dir < 4; dir++) {
+					if ((snap.portals[slot] & (1 << dir)) != 0) {
+						PfNode to = getChunkNode(snap.getSlot(grid.getChunkX() + CHUNKDX[dir], grid.getChunkY() + CHUNKDY[dir]));
+						if (to != null) {
+							float cost = dir < 2
+								? Chunk.getBlocksX() * RenderCell.GAME_DIAGLENGTH
+								: Chunk.getBlocksY() * RenderCell.GAME_DIAGLENGTH2;
+							connections.add(obtainConnection(fromNode, to, cost));
+						}
+					}
+				}
+			}
+			return connections;
+		}
+
+		private CoordConnection obtainConnection(PfNode from, PfNode to, float cost) {
+			CoordConnection connection;
+			if (usedConnections < connectionPool.size()) {
+				connection = connectionPool.get(usedConnections);
+				connection.set(from, to, cost);
+			} else {
+				connection = new CoordConnection(from, to, cost);
+				connectionPool.add(connection);
+			}
+			usedConnections++;
+			return connection;
+		}
+	}
+
+	/**
+	 * A found path stored as coordinates so that it does not reference the
+	 * nodes of a searcher.
+	 */
+	private static class CachedPath {
+
+		private long start;
+		private long goal;
+		private final int[] coords;
+		private long[] chunks = new long[4];
+		private int chunkCount;
+
+		CachedPath(int length) {
+			coords = new int[length * 3];
+		}
+
+		void addChunk(long chunk) {
+			for (int i = 0; i < chunkCount; i++) {
+				if (chunks[i] == chunk) {
+					return;
+				}
+			}
+			if (chunkCount == chunks.length) {
+				chunks = Arrays.copyOf(chunks, chunkCount * 2);
+			}
+			chunks[chunkCount++] = chunk;
+		}
+
+		boolean touchesAny(List<Long> chunkKeys) {
+			for (int i = 0; i < chunkCount; i++) {
+				if (chunkKeys.contains(chunks[i])) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		DefaultGraphPath<PfNode> toGraphPath() {
+			DefaultGraphPath<PfNode> path = new DefaultGraphPath<>(coords.length / 3);
+			for (int i = 0; i < coords.length; i += 3) {
+				path.add(new PfNode(coords[i], coords[i + 1], coords[i + 2], i / 3));
+			}
+			return path;
+		}
+	}
+
+	/**
+	 * Lower bound of the cost. A step in x or two steps in y cost one
+	 * diagonal.
+	 */
+	private static class ManhattanDistanceHeuristic implements Heuristic<PfNode> {
+
+		@Override
+		public float estimate(PfNode node, PfNode endNode) {
+			return estimate(node.getX(), node.getY(), node.getZ(), endNode);
+		}
+
+		float estimate(int x, int y, int z, PfNode endNode) {
+			return Math.abs(endNode.getX() - x) * RenderCell.GAME_DIAGLENGTH
+				+ Math.abs(endNode.getY() - y) * RenderCell.GAME_DIAGLENGTH2
+				+ Math.abs(endNode.getZ() - z) * RenderCell.GAME_EDGELENGTH;
+		}
+	}
+}
@@ -51,7 +51,19 @@ public class PfNode extends Coordinate implements IndexedNode<PfNode> {
 	 */
 	public PfNode(Coordinate coord, int index) {
 		super(coord);
-		this.index = calculateIndex();
+		this.index = index;
+	}
+
+	/**
+	 *
+	 * @param x
+	 * @param y
+	 * @param z
+	 * @param index
+	 */
+	public PfNode(int x, int y, int z, int index) {
+		super(x, y, z);
+		this.index = index;
 	}
 
 	/**
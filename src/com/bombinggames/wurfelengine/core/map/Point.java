@@ -553,7 +553,7 @@ public class Point extends Vector3 implements Position {
 			if (
 				view == null
 				||
-				(curZ*RenderCell.GAME_EDGELENGTH < view.getRenderStorage().getZRenderingLimit() && !view.getRenderStorage().isClipped(isectC))
+				(curZ < view.getRenderStorage().getZCutLayer() && !view.getRenderStorage().isClipped(isectC))
 			) {
 				byte id = Controller.getMap().getBlockId(isectC);
 				if (
@@ -683,7 +683,7 @@ public class Point extends Vector3 implements Position {
 			if (
 				view == null
 				||
-				(lastCoordZ*RenderCell.GAME_EDGELENGTH < view.getRenderStorage().getZRenderingLimit() && !view.getRenderStorage().isClipped(isectC))
+				(lastCoordZ < view.getRenderStorage().getZCutLayer() && !view.getRenderStorage().isClipped(isectC))
 			) {
 				byte id = isectC.getBlockId();
 				if (
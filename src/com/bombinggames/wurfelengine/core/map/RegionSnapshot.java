@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * If this software is used for a game the official „Wurfel Engine“ logo or its name must be
+ *   visible in an intro screen or main menu.
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map;
+
+/**
+ * Snapshots of a square of chunks so that algorithms working across chunk
+ * borders can read the neighbours from another thread. Cells of chunks which
+ * were not loaded are read as air.
+ *
+ * @author Benedikt Vogler
+ * @see Map#snapshotRegion(int, int, int)
+ */
+public class RegionSnapshot {
+
+	private final int left;
+	private final int top;
+	private final int size;
+	private final ChunkSnapshot[] chunks;
+	private final byte groundBlockId;
+
+	RegionSnapshot(int left, int top, int size, ChunkSnapshot[] chunks, byte groundBlockId) {
+		this.left = left;
+		this.top = top;
+		this.size = size;
+		this.chunks = chunks;
+		this.groundBlockId = groundBlockId;
+	}
+
+	/**
+	 *
+	 * @param chunkX
+	 * @param chunkY
+	 * @return null if outside the region or not loaded
+	 */
+	public ChunkSnapshot getChunk(int chunkX, int chunkY) {
+		int x = chunkX - left;
+		int y = chunkY - top;
+		if (x < 0 || y < 0 || x >= size || y >= size) {
+			return null;
+		}
+		return chunks[x * size + y];
+	}
+
+	/**
+	 *
+	 * @param x global coordinate
+	 * @param y global coordinate
+	 * @return null if outside the region or not loaded
+	 */
+	public ChunkSnapshot getChunkContaining(int x, int y) {
+		return getChunk(Math.floorDiv(x, Chunk.getBlocksX()), Math.floorDiv(y, Chunk.getBlocksY()));
+	}
+
+	/**
+	 *
+	 * @param x global coordinate
+	 * @param y global coordinate
+	 * @param z global coordinate
+	 * @return below the map the ground block
+	 */
+	public byte getBlockId(int x, int y, int z) {
+		if (z < 0) {
+			return groundBlockId;
+		}
+		ChunkSnapshot chunk = getChunkContaining(x, y);
+		if (chunk == null) {
+			return 0;
+		}
+		return chunk.getBlockId(x, y, z);
+	}
+
+	/**
+	 *
+	 * @param x global coordinate
+	 * @param y global coordinate
+	 * @param z global coordinate
+	 * @return id, value and health. Below the map the ground block.
+	 */
+	public int getBlock(int x, int y, int z) {
+		if (z < 0) {
+			return (groundBlockId & 255) | 100 << 16;
+		}
+		ChunkSnapshot chunk = getChunkContaining(x, y);
+		if (chunk == null) {
+			return 0;
+		}
+		return chunk.getBlock(x, y, z);
+	}
+
+	/**
+	 *
+	 * @param x global coordinate
+	 * @param y global coordinate
+	 * @param z global coordinate
+	 * @return true below the map
+	 */
+	public boolean isObstacle(int x, int y, int z) {
+		if (z < 0) {
+			return true;
+		}
+		ChunkSnapshot chunk = getChunkContaining(x, y);
+		if (chunk == null) {
+			return false;
+		}
+		return chunk.isObstacle(x, y, z);
+	}
+
+	/**
+	 * Checks if one of the chunks changed since the snapshot was taken. Must
+	 * be called on the main thread.
+	 *
+	 * @param map
+	 * @return true if the snapshot shows the current blocks
+	 */
+	public boolean isCurrent(Map map) {
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				Chunk chunk = map.getChunk(left + x, top + y);
+				ChunkSnapshot snapshot = chunks[x * size + y];
+				if (chunk == null ? snapshot != null : snapshot == null || chunk.getGeneration() != snapshot.getGeneration()) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * If this software is used for a game the official „Wurfel Engine“ logo or its name must be
+ *   visible in an intro screen or main menu.
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map;
+
+import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+
+/**
+ * A precomputed copy of which cells of a chunk are obstacles and on which
+ * cells a character can stand. Does not change after creation so it can be
+ * read by the pathfinding threads.
+ *
+ * @author Benedikt Vogler
+ */
+public class WalkabilityGrid {
+
+	private final Chunk chunk;
+	private final int chunkX;
+	private final int chunkY;
+	private final int topLeftX;
+	private final int topLeftY;
+	private final long[] obstacle;
+	private final long[] walkable;
+	/**
+	 * local index of the walkable cell nearest to the center, -1 if there is
+	 * none
+	 */
+	private final int representative;
+
+	/**
+	 * Reads the block data of the chunk. Must be called on the main thread.
+	 *
+	 * @param chunk
+	 */
+	public WalkabilityGrid(Chunk chunk) {
+		this.chunk = chunk;
+		chunkX = chunk.getChunkX();
+		chunkY = chunk.getChunkY();
+		topLeftX = chunk.getTopLeftCoordinateX();
+		topLeftY = chunk.getTopLeftCoordinateY();
+
+		int blocksX = Chunk.getBlocksX();
+		int blocksY = Chunk.getBlocksY();
+		int blocksZ = Chunk.getBlocksZ();
+		obstacle = new long[(getCellCount() + 63) / 64];
+		walkable = new long[obstacle.length];
+
+		byte[][][] data = chunk.getData();
+		for (int x = 0; x < blocksX; x++) {
+			for (int y = 0; y < blocksY; y++) {
+				for (int z = 0; z < blocksZ; z++) {
+					byte id = data[x][y][z * 3];
+					if (id != 0 && RenderCell.isObstacle(id, data[x][y][z * 3 + 1])) {
+						int i = getLocalIndex(x, y, z);
+						obstacle[i >> 6] |= 1L << i;
+					}
+				}
+			}
+		}
+
+		int nearest = -1;
+		int nearestDist = Integer.MAX_VALUE;
+		for (int x = 0; x < blocksX; x++) {
+			for (int y = 0; y < blocksY; y++) {
+				for (int z = 0; z < blocksZ; z++) {
+					//stand on the ground or on top of a block
+					if (!isObstacleLocal(x, y, z) && (z == 0 || isObstacleLocal(x, y, z - 1))) {
+						int i = getLocalIndex(x, y, z);
+						walkable[i >> 6] |= 1L << i;
+						//every second row is a half step in y
+						int dist = Math.abs(x - blocksX / 2) * 2 + Math.abs(y - blocksY / 2) + z;
+						if (dist < nearestDist) {
+							nearestDist = dist;
+							nearest = i;
+						}
+					}
+				}
+			}
+		}
+		representative = nearest;
+	}
+
+	/**
+	 *
+	 * @return amount of cells in a chunk
+	 */
+	public static int getCellCount() {
+		return Chunk.getBlocksX() * Chunk.getBlocksY() * Chunk.getBlocksZ();
+	}
+
+	/**
+	 *
+	 * @param x index inside the chunk
+	 * @param y index inside the chunk
+	 * @param z
+	 * @return unique index of a cell inside a chunk
+	 */
+	public static int getLocalIndex(int x, int y, int z) {
+		return (x * Chunk.getBlocksY() + y) * Chunk.getBlocksZ() + z;
+	}
+
+	/**
+	 *
+	 * @param x index inside the chunk
+	 * @param y index inside the chunk
+	 * @param z below the chunk is the ground, above is air
+	 * @return
+	 */
+	public boolean isObstacleLocal(int x, int y, int z) {
+		if (z < 0) {
+			return true;
+		}
+		if (z >= Chunk.getBlocksZ()) {
+			return false;
+		}
+		int i = getLocalIndex(x, y, z);
+		return (obstacle[i >> 6] & (1L << i)) != 0;
+	}
+
+	/**
+	 *
+	 * @param x index inside the chunk
+	 * @param y index inside the chunk
+	 * @param z
+	 * @return true if the cell is free and has ground below
+	 */
+	public boolean isWalkableLocal(int x, int y, int z) {
+		if (z < 0 || z >= Chunk.getBlocksZ()) {
+			return false;
+		}
+		int i = getLocalIndex(x, y, z);
+		return (walkable[i >> 6] & (1L << i)) != 0;
+	}
+
+	/**
+	 *
+	 * @return the chunk this grid was created from
+	 */
+	public Chunk getChunk() {
+		return chunk;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getChunkX() {
+		return chunkX;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getChunkY() {
+		return chunkY;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getTopLeftX() {
+		return topLeftX;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getTopLeftY() {
+		return topLeftY;
+	}
+
+	/**
+	 *
+	 * @return local index of a walkable cell near the center, -1 if no cell
+	 * is walkable
+	 */
+	public int getRepresentative() {
+		return representative;
+	}
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.core.map.rendering;
+
+import com.bombinggames.wurfelengine.core.map.Chunk;
+
+/**
+ * Calculates which sides of the cells are hidden by their neighbours. Every
+ * column of a chunk is stored as bits over z: one field for cells hiding the
+ * cells behind and one for liquids. The fields are padded by the columns of
+ * the neighbours which are needed: one column at each side and two rows below.
+ * A side of a whole column is then computed with a few bit operations.<br>
+ * If a neighbour is loaded, unloaded or changed only its strip of the fields
+ * and the cells next to it are computed again.<br>
+ * The layers at and above a cut are not rendered, so the top sides of the
+ * layer below the cut are never clipped. The fields are not affected by a cut,
+ * so moving the cut only computes the two layers below the old and the new
+ * cut again.
+ *
+ * @author Benedikt Vogler
+ * @see RenderStorage#occlusionCulling(RenderChunk)
+ */
+public class ClippingCalculator {
+
+	/**
+	 *
+	 * @return amount of longs used by a column
+	 */
+	private static int getWords() {
+		return (Chunk.getBlocksZ() + 63) >>> 6;
+	}
+
+	/**
+	 *
+	 * @return the size of a padded field of a chunk
+	 */
+	public static int getFieldSize() {
+		return (Chunk.getBlocksX() + 2) * (Chunk.getBlocksY() + 2) * getWords();
+	}
+
+	/**
+	 * Index of the first word of a column in the padded field.
+	 *
+	 * @param x local x, -1 to blocksX
+	 * @param y local y, 0 to blocksY+1
+	 * @return
+	 */
+	private static int column(int x, int y) {
+		return ((x + 1) * (Chunk.getBlocksY() + 2) + y) * getWords();
+	}
+
+	/**
+	 * Computes the clipping of every cell in the chunk.
+	 *
+	 * @param rS the renderStorage containing the neighbours
+	 * @param chunk
+	 * @param cut amount of visible layers
+	 */
+	public static void calcClipping(RenderStorage rS, RenderChunk chunk, int cut) {
+		if (chunk == null) {
+			throw new IllegalArgumentException();
+		}
+		fill(chunk, chunk, 0, Chunk.getBlocksX() - 1, 0, Chunk.getBlocksY() - 1);
+		for (int x = -1; x <= 1; x++) {
+			for (int y = 0; y <= 1; y++) {
+				if (x != 0 || y != 0) {
+					fillBorder(rS, chunk, x, y);
+				}
+			}
+		}
+		clip(chunk, 0, Chunk.getBlocksX() - 1, 0, Chunk.getBlocksY() - 1, 0, Chunk.getBlocksZ() - 1, cut);
+	}
+
+	/**
+	 * Moves the cut by computing the layers below the old and the new cut.
+	 *
+	 * @param chunk
+	 * @param oldCut the amount of visible layers the clipping was computed for
+	 * @param cut the new amount of visible layers
+	 */
+	public static void setCut(RenderChunk chunk, int oldCut, int cut) {
+		if (oldCut == cut) {
+			return;
+		}
+		int blocksX = Chunk.getBlocksX();
+		int blocksY = Chunk.getBlocksY();
+		int blocksZ = Chunk.getBlocksZ();
+		if (oldCut > 0 && oldCut <= blocksZ) {
+			clip(chunk, 0, blocksX - 1, 0, blocksY - 1, oldCut - 1, oldCut - 1, cut);
+		}
+		if (cut > 0 && cut <= blocksZ) {
+			clip(chunk, 0, blocksX - 1, 0, blocksY - 1, cut - 1, cut - 1, cut);
+		}
+	}
+
+	/**
+	 * Updates the clipping at the border to a neighbour which was loaded,
+	 * unloaded or changed. Chunks above do not hide cells of this chunk.
+	 *
+	 * @param rS the renderStorage containing the neighbours
+	 * @param chunk
+	 * @param dx chunk x offset of the neighbour, -1, 0 or 1
+	 * @param dy chunk y offset of the neighbour, -1, 0 or 1
+	 * @param cut amount of visible layers
+	 */
+	public static void updateBorder(RenderStorage rS, RenderChunk chunk, int dx, int dy, int cut) {
+		if (chunk == null) {
+			throw new IllegalArgumentException();
+		}
+		if (dy < 0) {
+			return;
+		}
+		fillBorder(rS, chunk, dx, dy);
+		int blocksX = Chunk.getBlocksX();
+		int blocksY = Chunk.getBlocksY();
+		clip(
+			chunk,
+			dx > 0 ? blocksX - 1 : 0,
+			dx < 0 ? 0 : blocksX - 1,
+			dy > 0 ? blocksY - 2 : 0,
+			blocksY - 1,
+			0,
+			Chunk.getBlocksZ() - 1,
+			cut
+		);
+	}
+
+	/**
+	 * Copies the columns of the neighbour into its strip of the padded fields.
+	 */
+	private static void fillBorder(RenderStorage rS, RenderChunk chunk, int dx, int dy) {
+		int blocksX = Chunk.getBlocksX();
+		int blocksY = Chunk.getBlocksY();
+		RenderChunk neighbour = rS.getChunk(chunk.getChunkX() + dx, chunk.getChunkY() + dy);
+		fill(
+			neighbour,
+			chunk,
+			dx < 0 ? -1 : (dx > 0 ? blocksX : 0),
+			dx < 0 ? -1 : (dx > 0 ? blocksX : blocksX - 1),
+			dy > 0 ? blocksY : 0,
+			dy > 0 ? blocksY + 1 : blocksY - 1
+		);
+	}
+
+	/**
+	 * Fills a box of the fields with the cells of a chunk.
+	 *
+	 * @param source the chunk containing the cells, null if not loaded
+	 * @param chunk the chunk owning the fields
+	 * @param minX local x, inclusive
+	 * @param maxX local x, inclusive
+	 * @param minY local y, inclusive
+	 * @param maxY local y, inclusive
+	 */
+	private static void fill(RenderChunk source, RenderChunk chunk, int minX, int maxX, int minY, int maxY) {
+		long[] hiding = chunk.getHidingField();
+		long[] liquid = chunk.getLiquidField();
+		int words = getWords();
+		int blocksZ = Chunk.getBlocksZ();
+		int tlX = chunk.getTopLeftCoordinateX();
+		int tlY = chunk.getTopLeftCoordinateY();
+		for (int x = minX; x <= maxX; x++) {
+			for (int y = minY; y <= maxY; y++) {
+				int column = column(x, y);
+				for (int w = 0; w < words; w++) {
+					hiding[column + w] = 0;
+					liquid[column + w] = 0;
+				}
+				if (source == null) {
+					continue;
+				}
+				for (int z = 0; z < blocksZ; z++) {
+					RenderCell cell = source.getCell(tlX + x, tlY + y, z);
+					if (cell == RenderChunk.NULLPOINTEROBJECT) {
+						continue;
+					}
+					if (cell.hidingPastBlock()) {
+						hiding[column + (z >>> 6)] |= 1L << z;
+					}
+					if (cell.isLiquid()) {
+						liquid[column + (z >>> 6)] |= 1L << z;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets the clipping of the cells in a box.
+	 *
+	 * @param chunk
+	 * @param minX local x, inclusive
+	 * @param maxX local x, inclusive
+	 * @param minY local y, inclusive
+	 * @param maxY local y, inclusive
+	 * @param minZ inclusive
+	 * @param maxZ inclusive
+	 * @param cut amount of visible layers
+	 */
+	private static void clip(RenderChunk chunk, int minX, int maxX, int minY, int maxY, int minZ, int maxZ, int cut) {
+		long[] hiding = chunk.getHidingField();
+		long[] liquid = chunk.getLiquidField();
+		byte[] clipping = chunk.getClippingData();
+		int words = getWords();
+		int blocksY = Chunk.getBlocksY();
+		int blocksZ = Chunk.getBlocksZ();
+		for (int x = minX; x <= maxX; x++) {
+			for (int y = minY; y <= maxY; y++) {
+				int own = column(x, y);
+				//next row can be shifted right
+				int left = column(x - (y % 2 == 0 ? 1 : 0), y + 1);
+				int right = column(x + (y % 2 == 0 ? 0 : 1), y + 1);
+				int front = column(x, y + 2);
+				int index = (x * blocksY + y) * blocksZ;
+				for (int w = minZ >>> 6; w <= maxZ >>> 6; w++) {
+					long ownLiquid = liquid[own + w];
+					long clippedLeft = hiding[left + w] | (liquid[left + w] & ownLiquid);
+					long clippedRight = hiding[right + w] | (liquid[right + w] & ownLiquid);
+					//the cell above or the cell above in front
+					long clippedTop = shiftDown(hiding, front, w, words)
+						| shiftDown(hiding, own, w, words)
+						| (shiftDown(liquid, own, w, words) & ownLiquid);
+					//the layer above the cut is not rendered
+					if (cut > 0 && (cut - 1) >>> 6 == w) {
+						clippedTop &= ~(1L << (cut - 1));
+					}
+
+					int start = w << 6;
+					int end = Math.min(Math.min(start + 63, blocksZ - 1), maxZ);
+					for (int z = Math.max(start, minZ); z <= end; z++) {
+						int bit = z - start;
+						clipping[index + z] = (byte) (
+							(clippedLeft >>> bit & 1)
+							| (clippedTop >>> bit & 1) << 1
+							| (clippedRight >>> bit & 1) << 2
+						);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Moves the bits of the layer above to a word.
+	 *
+	 * @return the bits of z+1 at z
+	 */
+	private static long shiftDown(long[] field, int column, int w, int words) {
+		long result = field[column + w] >>> 1;
+		if (w + 1 < words) {
+			result |= field[column + w + 1] << 63;
+		}
+		return result;
+	}
+}
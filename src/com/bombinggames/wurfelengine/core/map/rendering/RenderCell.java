@@ -28,7 +28,6 @@
  */
 package com.bombinggames.wurfelengine.core.map.rendering;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
@@ -36,16 +35,18 @@ import com.bombinggames.wurfelengine.WE;
 import com.bombinggames.wurfelengine.core.Camera;
 import com.bombinggames.wurfelengine.core.Controller;
 import com.bombinggames.wurfelengine.core.GameView;
-import com.bombinggames.wurfelengine.core.gameobjects.AbstractEntity;
 import com.bombinggames.wurfelengine.core.gameobjects.AbstractGameObject;
 import com.bombinggames.wurfelengine.core.gameobjects.Side;
 import com.bombinggames.wurfelengine.core.gameobjects.SimpleEntity;
+import com.bombinggames.wurfelengine.core.gameobjects.SpriteRegistry;
 import com.bombinggames.wurfelengine.core.map.AbstractBlockLogicExtension;
+import com.bombinggames.wurfelengine.core.map.BlockProperties;
 import com.bombinggames.wurfelengine.core.map.Chunk;
 import com.bombinggames.wurfelengine.core.map.Coordinate;
 import com.bombinggames.wurfelengine.core.map.CustomBlocks;
 import com.bombinggames.wurfelengine.core.map.Point;
 import com.bombinggames.wurfelengine.core.map.Position;
+import java.util.Arrays;
 import java.util.LinkedList;
 
 /**
@@ -55,15 +56,6 @@ import java.util.LinkedList;
  */
 public class RenderCell extends AbstractGameObject {
     private static final long serialVersionUID = 1L;
-	/**
-	 * indexed acces to spritesheet {id}{value}{side}
-	 */
-    private static AtlasRegion[][][] blocksprites = new AtlasRegion[RenderCell.OBJECTTYPESNUM][RenderCell.VALUESNUM][3];
-	
-    /**
-     * a list where a representing color of the block is stored
-     */
-    private static final Color[][] COLORLIST = new Color[RenderCell.OBJECTTYPESNUM][RenderCell.VALUESNUM];
 	private static boolean fogEnabled;
 	private static boolean staticShade;
 	/**
@@ -72,6 +64,28 @@ public class RenderCell extends AbstractGameObject {
 	private static long rebuildCoverList = 0;
 	private static SimpleEntity destruct = new SimpleEntity((byte) 3,(byte) 0);
 	private static Color tmpColor = new Color();
+	/**
+	 * Sprites used to draw the sides of every cell. They are filled right
+	 * before drawing so they can be shared. {left, top, right}
+	 */
+	private static final SideSprite[] sideSprites = new SideSprite[3];
+	/**
+	 * {value}{id} if {@link #newRenderCell(byte, byte)} returns a plain
+	 * instance which can be reused.
+	 */
+	private static final byte[] CELLKIND = new byte[1 << 16];
+	/**
+	 * the kind of instance is not known yet
+	 */
+	static final byte KIND_UNKNOWN = 0;
+	/**
+	 * a plain RenderCell which can be pooled
+	 */
+	static final byte KIND_PLAIN = 1;
+	/**
+	 * a subclass or customized instance created by the factory
+	 */
+	static final byte KIND_CUSTOM = 2;
 	
 	/**
 	 * Screen depth of a block/object sprite in pixels. This is the length from
@@ -164,6 +178,34 @@ public class RenderCell extends AbstractGameObject {
 	 */
 	public static void setCustomBlockFactory(CustomBlocks customBlockFactory) {
 		customBlocks = customBlockFactory;
+		BlockProperties.rebuild(customBlockFactory);
+		Arrays.fill(CELLKIND, KIND_UNKNOWN);
+	}
+
+	/**
+	 *
+	 * @param id
+	 * @param value
+	 * @return what kind of instance {@link #newRenderCell(byte, byte)}
+	 * returned for this combination
+	 */
+	static byte getCellKind(byte id, byte value) {
+		return CELLKIND[(id & 255) | (value & 255) << 8];
+	}
+
+	/**
+	 * Remembers what kind of instance the factory created.
+	 *
+	 * @param id
+	 * @param value
+	 * @param cell a cell created by {@link #newRenderCell(byte, byte)}
+	 */
+	static void setCellKind(byte id, byte value, RenderCell cell) {
+		boolean plain = cell.getClass() == RenderCell.class
+			&& cell.isHidden() == (id == 0 || id == 4)
+			&& cell.getScaling() == 1
+			&& cell.getRotation() == 0;
+		CELLKIND[(id & 255) | (value & 255) << 8] = plain ? KIND_PLAIN : KIND_CUSTOM;
 	}
 
 	/**
@@ -197,10 +239,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @return
 	 */
 	public static boolean hasLogic(byte id, byte value) {
-		if (customBlocks == null) {
-			return false;
-		}
-		return customBlocks.hasLogic(id, value);
+		return BlockProperties.is(id, value, BlockProperties.LOGIC);
 	}
 
 	/**
@@ -262,14 +301,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @return 
 	 */
 	public static boolean isObstacle(byte id, byte value) {
-		if (id > 9 && customBlocks != null) {
-			return customBlocks.isObstacle(id, value);
-		}
-		if (id == 9) {
-			return false;
-		}
-		
-		return id != 0;
+		return BlockProperties.is(id, value, BlockProperties.OBSTACLE);
 	}
 	
 	/**
@@ -278,7 +310,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @return 
 	 */
 	public static boolean isObstacle(int block) {
-		return isObstacle((byte)(block&255), (byte)((block>>8)&255));
+		return BlockProperties.is(block, BlockProperties.OBSTACLE);
 	}
 	
 	/**
@@ -288,14 +320,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @return 
 	 */
 	public static boolean isTransparent(byte spriteId, byte spriteValue) {
-		if (spriteId==0 || spriteId == 9 || spriteId == 4) {
-			return true;
-		}
-		
-		if (spriteId > 9 && customBlocks != null) {
-			return customBlocks.isTransparent(spriteId, spriteValue);
-		}
-		return false;
+		return BlockProperties.is(spriteId, spriteValue, BlockProperties.TRANSPARENT);
 	}
 	
 	/**
@@ -304,7 +329,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @return 
 	 */
 	public static boolean isTransparent(int spriteIdValue) {
-		return isTransparent((byte)(spriteIdValue&255), (byte)((spriteIdValue>>8)&255));
+		return BlockProperties.is(spriteIdValue, BlockProperties.TRANSPARENT);
 	}
 
 	/**
@@ -315,10 +340,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @return true if liquid, false if not
 	 */
 	public static boolean isLiquid(byte id, byte value) {
-		if (id > 9 && customBlocks != null) {
-			return customBlocks.isLiquid(id, value);
-		}
-		return id == 9;
+		return BlockProperties.is(id, value, BlockProperties.LIQUID);
 	}
 	
 		/**
@@ -328,7 +350,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @return true if liquid, false if not
 	 */
 	public static boolean isLiquid(int block) {
-		return isLiquid((byte)(block&255), (byte)((block>>8)&255));
+		return BlockProperties.is(block, BlockProperties.LIQUID);
 	}
 	
 	/**
@@ -338,10 +360,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @return
 	 */
 	public static boolean isIndestructible(byte id, byte value) {
-		if (customBlocks != null) {
-			return customBlocks.isIndestructible(id, value);
-		}
-		return false;
+		return BlockProperties.is(id, value, BlockProperties.INDESTRUCTIBLE);
 	}
 
 	/**
@@ -387,14 +406,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @return
 	 */
 	public static boolean hasSides(byte spriteId, byte spriteValue) {
-		if (spriteId == 0 || spriteId == 4) {
-			return false;
-		}
-		
-		if (spriteId > 9 && customBlocks != null) {
-			return customBlocks.hasSides(spriteId, spriteValue);
-		}
-		return true;
+		return BlockProperties.is(spriteId, spriteValue, BlockProperties.SIDES);
 	}
 	
 	/**
@@ -414,29 +426,12 @@ public class RenderCell extends AbstractGameObject {
 	 * @return an sprite of the side
 	 */
 	public static AtlasRegion getBlockSprite(final byte id, final byte value, final Side side) {
-		if (getSpritesheet() == null) {
+		SpriteRegistry registry = getSpriteRegistry();
+		if (registry == null) {
 			throw new NullPointerException("No spritesheet found.");
 		}
-
-		if (blocksprites[id][value][side.getCode()] != null) { //load if not already loaded
-			return blocksprites[id][value][side.getCode()];
-		} else {
-			AtlasRegion sprite = getSpritesheet().findRegion('b' + Byte.toString(id) + "-" + value + "-" + side.getCode());
-			if (sprite == null) {
-				Gdx.app.debug("debug", 'b' + Byte.toString(id) + "-" + value + "-" + side.getCode() + " not found");
-				//if there is no sprite show the default "sprite not found sprite" for this category
-				sprite = getSpritesheet().findRegion("b0-0-" + side.getCode());
-
-				if (sprite == null) {//load generic error sprite if category sprite failed
-					sprite = getSpritesheet().findRegion("error");
-					if (sprite == null) {
-						throw new NullPointerException("Sprite and category error not found and even the generic error sprite could not be found. Something with the sprites is fucked up.");
-					}
-				}
-			}
-			blocksprites[id][value][side.getCode()] = sprite;
-			return sprite;
-		}
+		//if there is no sprite the registry returns the default "sprite not found sprite" for this category
+		return registry.getRegion(registry.getBlockSideIndex(id, value, side.getCode()));
 	}
 	
 	/**
@@ -465,52 +460,27 @@ public class RenderCell extends AbstractGameObject {
      * @return copy of a color representing the block
      */
     public static Color getRepresentingColor(final byte id, final byte value){
-        if (COLORLIST[id][value] == null){ //if not in list, add it to the list
-            COLORLIST[id][value] = new Color();
-            int colorInt;
-            
-            if (RenderCell.hasSides(id, value)){//if has sides, take top block    
-                AtlasRegion texture = getBlockSprite(id, value, Side.TOP);
-                if (texture == null) return new Color();
-                colorInt = getPixmap().getPixel(
-                    texture.getRegionX()+VIEW_DEPTH2, texture.getRegionY()+VIEW_DEPTH4);
-            } else {
-                AtlasRegion texture = getSprite('b', id, value);
-                if (texture == null) return new Color();
-                colorInt = getPixmap().getPixel(
-                    texture.getRegionX()+VIEW_DEPTH2, texture.getRegionY()+VIEW_DEPTH2);
-            }
-            Color.rgba8888ToColor(COLORLIST[id][value], colorInt);
-            return COLORLIST[id][value].cpy(); 
-        } else return COLORLIST[id][value].cpy(); //return value when in list
-    }
-	
-	/**
-     *
-     * @return
-     */
-    public static AtlasRegion[][][] getBlocksprites() {
-        return blocksprites;
+		SpriteRegistry registry = getSpriteRegistry();
+		if (registry == null) {
+			return new Color();
+		}
+		return new Color(registry.getRepresentingColor(id, value));
     }
 	
     /**
      * dipsose the static fields
      */
     public static void staticDispose(){
-		//clear index
-		for (AtlasRegion[][] blocksprite : blocksprites) {
-			for (AtlasRegion[] atlasRegions : blocksprite) {
-				for (int i = 0; i < atlasRegions.length; i++) {
-					atlasRegions[i] = null;
-				}
-			}
-		}
+		//the sprite index is cleared by AbstractGameObject
+		sideSprites[0] = null;
+		sideSprites[1] = null;
+		sideSprites[2] = null;
     }
 
 	/**
 	 * game logic value. Sprite Id may differ.
 	 */
-	private final byte id;
+	private byte id;
 	private byte value;
 	private Coordinate coord = new Coordinate(0, 0, 0);
 	
@@ -518,26 +488,10 @@ public class RenderCell extends AbstractGameObject {
 	/**
 	 * Each side has four RGB101010 colors with a 10bit float precision per
 	 * channel. channel brightness obtained by dividing bits by fraction /2^10-1
-	 * = 1023. each field is vertex 0-3
-	 */
-	private final int[] colorLeft = new int[]{
-		(55 << 16) + (55 << 8) + 55,
-		(55 << 16) + (55 << 8) + 55,
-		(55 << 16) + (55 << 8) + 55,
-		(55 << 16) + (55 << 8) + 55
-	};
-	private final int[] colorTop = new int[]{
-		(55 << 16) + (55 << 8) + 55,
-		(55 << 16) + (55 << 8) + 55,
-		(55 << 16) + (55 << 8) + 55,
-		(55 << 16) + (55 << 8) + 55
-	};
-	private final int[] colorRight = new int[]{
-		(55 << 16) + (55 << 8) + 55,
-		(55 << 16) + (55 << 8) + 55,
-		(55 << 16) + (55 << 8) + 55,
-		(55 << 16) + (55 << 8) + 55
-	};
+	 * = 1023. Twelve ints per cell starting at {@link #index}*12, {left, top, right} each vertex 0-3.
+	 * Owned by the {@link RenderChunk} if the cell is bound to one.
+	 */
+	private int[] light;
 	/**
 	 * byte 0: left side, byte 1: top side, byte 2: right side.<br>In each byte the
 	 * bit order: <br>
@@ -550,23 +504,25 @@ public class RenderCell extends AbstractGameObject {
 	 * &nbsp;&nbsp;5/\<br>
 	 * &nbsp;&nbsp;/&nbsp;4\<br>
 	 * <br>
+	 * Entry at {@link #index}.
 	 **/
-	private int aoFlags;
+	private int[] aoFlags;
 	/**
-	 * three bits used, for each side one: TODO: move to aoFlags byte #3
+	 * three bits used, for each side one. Entry at {@link #index}. TODO: move to aoFlags byte #3
 	 */
-	private byte clipping;
+	private byte[] clipping;
 	/**
-	 * Stores references to neighbor blocks which are covered. For topological sort.
+	 * index of this cell in the state arrays
 	 */
-	private final LinkedList<AbstractGameObject> covered = new LinkedList<>();
+	private int index;
 	/**
-	 * for topological sort. At the end contains both entities and blocks
+	 * Stores references to neighbor blocks which are covered. For topological sort. Created when needed.
 	 */
-	private final LinkedList<AbstractGameObject> coveredEnts = new LinkedList<>();
-	private SideSprite site1;
-	private SideSprite site3;
-	private SideSprite site2;
+	private LinkedList<AbstractGameObject> covered;
+	/**
+	 * for topological sort. At the end contains both entities and blocks. Created when needed.
+	 */
+	private LinkedList<AbstractGameObject> coveredEnts;
 	/**
 	 * frame number to avoid multiple calculations in one frame
 	 */
@@ -580,6 +536,7 @@ public class RenderCell extends AbstractGameObject {
     public RenderCell(byte id){
         super();
 		this.id = id;
+		initState();
 	}
 	
 	/**
@@ -592,6 +549,54 @@ public class RenderCell extends AbstractGameObject {
 		super();
 		this.id = id;
 		this.value = value;
+		initState();
+	}
+
+	/**
+	 * creates the state arrays of a cell which is not part of a chunk
+	 */
+	private void initState() {
+		light = new int[12];
+		Arrays.fill(light, (55 << 16) + (55 << 8) + 55);
+		aoFlags = new int[1];
+		clipping = new byte[1];
+		index = 0;
+	}
+
+	/**
+	 * Uses the primitive arrays of a chunk to store the render state.
+	 *
+	 * @param light twelve ints per cell
+	 * @param aoFlags one int per cell
+	 * @param clipping one byte per cell
+	 * @param index index of this cell
+	 */
+	void bind(int[] light, int[] aoFlags, byte[] clipping, int index) {
+		this.light = light;
+		this.aoFlags = aoFlags;
+		this.clipping = clipping;
+		this.index = index;
+	}
+
+	/**
+	 * Reuses a plain instance for a different block. Resets the view data.
+	 *
+	 * @param id
+	 * @param value
+	 */
+	void reset(byte id, byte value) {
+		this.id = id;
+		this.value = value;
+		setHidden(id == 0 || id == 4);//air and invisible wall
+		aoFlags[index] = 0;
+		clipping[index] = 0;
+		lastRebuild = 0;
+		if (covered != null) {
+			covered.clear();
+		}
+		if (coveredEnts != null) {
+			coveredEnts.clear();
+		}
 	}
 	
 	/**
@@ -905,33 +910,26 @@ public class RenderCell extends AbstractGameObject {
 			return;
 		}
 
-		//lazy init
-		SideSprite sprite;
-		switch (side) {
-			case LEFT:
-				if (site1 == null) {
-					site1 = new SideSprite(getBlockSprite(id, value, side), side, aoFlags);
-				}
-				sprite = site1;
-				break;
-			case TOP:
-				if (site2 == null) {
-					site2 = new SideSprite(getBlockSprite(id, value, side), side, aoFlags);
-				}
-				sprite = site2;
-				break;
-			default:
-				if (site3 == null) {
-					site3 = new SideSprite(getBlockSprite(id, value, side), side, aoFlags);
-				}
-				sprite = site3;
-				break;
+		//lazy init of the shared sprite
+		SideSprite sprite = sideSprites[side.getCode()];
+		if (sprite == null) {
+			sprite = new SideSprite(getBlockSprite(id, value, side), side, 0);
+			sideSprites[side.getCode()] = sprite;
+		}
+		//precomputed texture coordinates avoid the region lookup
+		int spriteIndex = getSpriteRegistry().getBlockSideIndex(id, value, side.getCode());
+		if (spriteIndex < 0) {
+			throw new NullPointerException("No block sprite found.");
 		}
-		sprite.setRegion(getBlockSprite(id, value, side));
+		float[] uvs = getSpriteRegistry().getUVs();
+		sprite.setRegion(uvs[spriteIndex * 4], uvs[spriteIndex * 4 + 1], uvs[spriteIndex * 4 + 2], uvs[spriteIndex * 4 + 3]);
+		sprite.setAoFlags(aoFlags[index]);
 		sprite.setPosition(xPos, yPos);
 		if (getScaling() != 1) {
 			sprite.setOrigin(0, 0);
 			sprite.setScale(getScaling());
+		} else {
+			sprite.setScale(1);
 		}
 
 		//draw only outline or regularly?
@@ -1068,12 +1066,7 @@ public class RenderCell extends AbstractGameObject {
 	 */
 	public float getLightlevel(Side side, byte vertex, Channel channel) {
 		byte colorBitShift = (byte) (20 - 10 * channel.id);
-		if (side == Side.LEFT) {
-			return ((colorLeft[vertex]  >> colorBitShift) & 0x3FF) / 511f;
-		} else if (side == Side.TOP) {
-			return ((colorTop[vertex]  >> colorBitShift) & 0x3FF) / 511f;
-		}
-		return ((colorRight[vertex]  >> colorBitShift) & 0x3FF) / 511f;
+		return ((light[lightIndex(side) + vertex] >> colorBitShift) & 0x3FF) / 511f;
 	}
 
 	/**
@@ -1094,14 +1087,21 @@ public class RenderCell extends AbstractGameObject {
 			}
 			color = (l << 20) + (l << 10) + l;
 		}
-		for (int i = 0; i < colorLeft.length; i++) {
-			colorLeft[i] = color;//512 base 10 for each color channel
-		}
-		for (int i = 0; i < colorTop.length; i++) {
-			colorTop[i] = color;//512 base 10 for each color channel
-		}
-		for (int i = 0; i < colorRight.length; i++) {
-			colorRight[i] = color;//512 base 10 for each color channel
+		Arrays.fill(light, index * 12, index * 12 + 12, color);
+	}
+
+	/**
+	 * @param side
+	 * @return index of vertex 0 of the side in {@link #light}
+	 */
+	private int lightIndex(Side side) {
+		switch (side) {
+			case LEFT:
+				return index * 12;
+			case TOP:
+				return index * 12 + 4;
+			default:
+				return index * 12 + 8;
 		}
 	}
 	
@@ -1109,15 +1109,7 @@ public class RenderCell extends AbstractGameObject {
 	 * sets the light to 1
 	 */
 	public void resetLight(){
-		for (int i = 0; i < colorLeft.length; i++) {
-			colorLeft[i] = 537395712;//512 base 10 for each color channel
-		}
-		for (int i = 0; i < colorTop.length; i++) {
-			colorTop[i] = 537395712;//512 base 10 for each color channel
-		}
-		for (int i = 0; i < colorRight.length; i++) {
-			colorRight[i] = 537395712;//512 base 10 for each color channel
-		}
+		Arrays.fill(light, index * 12, index * 12 + 12, 537395712);//512 base 10 for each color channel
 	}
 
 	/**
@@ -1134,26 +1126,8 @@ public class RenderCell extends AbstractGameObject {
 			l = 1023;
 		}
 
-		switch (side) {
-			case LEFT:
-				colorLeft[0] = (l << 20) + (l << 10) + l;//RGB
-				colorLeft[1] = (l << 20) + (l << 10) + l;//RGB
-				colorLeft[2] = (l << 20) + (l << 10) + l;//RGB
-				colorLeft[3] = (l << 20) + (l << 10) + l;//RGB
-				break;
-			case TOP:
-				colorTop[0] = (l << 20) + (l << 10) + l;//RGB
-				colorTop[1] = (l << 20) + (l << 10) + l;//RGB
-				colorTop[2] = (l << 20) + (l << 10) + l;//RGB
-				colorTop[3] = (l << 20) + (l << 10) + l;//RGB
-				break;
-			default:
-				colorRight[0] = (l << 20) + (l << 10) + l;//RGB
-				colorRight[1] = (l << 20) + (l << 10) + l;//RGB
-				colorRight[2] = (l << 20) + (l << 10) + l;//RGB
-				colorRight[3] = (l << 20) + (l << 10) + l;//RGB
-				break;
-		}
+		int start = lightIndex(side);
+		Arrays.fill(light, start, start + 4, (l << 20) + (l << 10) + l);//RGB
 	}
 	
 	/**
@@ -1171,17 +1145,7 @@ public class RenderCell extends AbstractGameObject {
 			l = 1023;
 		}
 
-		switch (side) {
-			case LEFT:
-				colorLeft[vertex] = (l << 20) + (l << 10) + l;//RGB;
-				break;
-			case TOP:
-				colorTop[vertex] = (l << 20) + (l << 10) + l;//RGB;
-				break;
-			default:
-				colorRight[vertex] = (l << 20) + (l << 10) + l;//RGB
-				break;
-		}
+		light[lightIndex(side) + vertex] = (l << 20) + (l << 10) + l;//RGB
 	}
 	
 		/**
@@ -1203,17 +1167,7 @@ public class RenderCell extends AbstractGameObject {
 			l = 1023;
 		}
 		
-		switch (side) {
-			case LEFT:
-				colorLeft[vertex] |= (l << colorBitShift);
-				break;
-			case TOP:
-				colorTop[vertex] |= (l << colorBitShift);
-				break;
-			default:
-				colorRight[vertex] |= (l << colorBitShift);
-				break;
-		}
+		light[lightIndex(side) + vertex] |= (l << colorBitShift);
 	}
 	
 	/**
@@ -1235,32 +1189,12 @@ public class RenderCell extends AbstractGameObject {
 			l = 1023;
 		}
 
-		switch (side) {
-			case LEFT: {
-				int newl = (int) (((colorLeft[vertex] >> colorBitShift) & 0x3FF) / 511f + l);
-				if (newl > 1023) {
-					newl = 1023;
-				}
-				colorLeft[vertex] |= (newl << colorBitShift);
-				break;
-			}
-			case TOP: {
-				int newl = (int) (((colorTop[vertex] >> colorBitShift) & 0x3FF) / 511f + l);
-				if (newl > 1023) {
-					newl = 1023;
-				}
-				colorTop[vertex] |= (newl << colorBitShift);
-				break;
-			}
-			default: {
-				int newl = (int) (((colorRight[vertex] >> colorBitShift) & 0x3FF) / 511f + l);
-				if (newl > 1023) {
-					newl = 1023;
-				}
-				colorRight[vertex] |= (newl << colorBitShift);
-				break;
-			}
+		int i = lightIndex(side) + vertex;
+		int newl = (int) (((light[i] >> colorBitShift) & 0x3FF) / 511f + l);
+		if (newl > 1023) {
+			newl = 1023;
 		}
+		light[i] |= (newl << colorBitShift);
 	}
 	
 	/**
@@ -1276,7 +1210,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @param side
 	 */
 	public void setAOFlagTrue(int side) {
-		this.aoFlags |= 1 << side;//set n'th bit to true via OR operator
+		aoFlags[index] |= 1 << side;//set n'th bit to true via OR operator
 	}
 
 	/**
@@ -1284,7 +1218,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @param side 
 	 */
 	public void setAOFlagFalse(int side) {
-		this.aoFlags &= ~(1 << side);//set n'th bit to false via AND operator
+		aoFlags[index] &= ~(1 << side);//set n'th bit to false via AND operator
 	}
 
 	/**
@@ -1299,7 +1233,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @return four bytes in an int
 	 */
 	public int getAOFlags() {
-		return aoFlags;
+		return aoFlags[index];
 	}
 
 	/**
@@ -1308,19 +1242,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @param aoFlags
 	 */
 	public void setAoFlags(int aoFlags) {
-		if (aoFlags!=this.aoFlags){
-			if (site1 != null) {
-				site1.setAoFlags(aoFlags);
-			}
-			if (site2 != null) {
-				site2.setAoFlags(aoFlags);
-			}
-			if (site3 != null) {
-				site3.setAoFlags(aoFlags);
-			}
-		}
-			
-		this.aoFlags = aoFlags;
+		this.aoFlags[index] = aoFlags;
 	}
 
 	/**
@@ -1329,7 +1251,7 @@ public class RenderCell extends AbstractGameObject {
 	 * @return
 	 */
 	public byte getClipping() {
-		return clipping;
+		return clipping[index];
 	}
 
 	/**
@@ -1338,35 +1260,35 @@ public class RenderCell extends AbstractGameObject {
 	 * @return
 	 */
 	public boolean isClipped() {
-		return clipping == 0b111;
+		return clipping[index] == 0b111;
 	}
 
 	/**
 	 *
 	 */
 	public void setClippedLeft() {
-		clipping |= 1;
+		clipping[index] |= 1;
 	}
 
 	/**
 	 *
 	 */
 	public void setClippedTop() {
-		clipping |= 1 << 1;
+		clipping[index] |= 1 << 1;
 	}
 
 	/**
 	 *
 	 */
 	public void setClippedRight() {
-		clipping |= 1 << 2;
+		clipping[index] |= 1 << 2;
 	}
 
 	/**
 	 * Makes every side visible
 	 */
 	public void setUnclipped() {
-		clipping = 0;
+		clipping[index] = 0;
 	}
 
 	/**
@@ -1374,7 +1296,10 @@ public class RenderCell extends AbstractGameObject {
 	 *
 	 * @param ent
 	 */
-	public void addCoveredEnts(AbstractEntity ent) {
+	public void addCoveredEnts(AbstractGameObject ent) {
+		if (coveredEnts == null) {
+			coveredEnts = new LinkedList<>();
+		}
 		coveredEnts.add(ent);
 	}
 
@@ -1388,10 +1313,13 @@ public class RenderCell extends AbstractGameObject {
 
 	@Override
 	public LinkedList<AbstractGameObject> getCovered(RenderStorage rs) {
+		if (covered == null) {
+			covered = new LinkedList<>();
+		}
 		if (lastRebuild < rebuildCoverList) {//only rebuild once per frame
 			rebuildCovered(rs);
 		}
-		if (!coveredEnts.isEmpty()) {
+		if (coveredEnts != null && !coveredEnts.isEmpty()) {
 			//sort valid in order of depth
 			coveredEnts.sort((AbstractGameObject o1, AbstractGameObject o2) -> {
 				float d1 = o1.getDepth();
@@ -1475,7 +1403,9 @@ public class RenderCell extends AbstractGameObject {
 	 *
 	 */
 	public void clearCoveredEnts() {
-		coveredEnts.clear();
+		if (coveredEnts != null) {
+			coveredEnts.clear();
+		}
 	}
 
 	/**
@@ -32,9 +32,13 @@ package com.bombinggames.wurfelengine.core.map.rendering;
 
 import com.badlogic.gdx.utils.Pool;
 import com.bombinggames.wurfelengine.core.gameobjects.Side;
+import com.bombinggames.wurfelengine.core.lightengine.AmbientOcclusionCalculator;
+import com.bombinggames.wurfelengine.core.lightengine.DirectionalShadows;
 import com.bombinggames.wurfelengine.core.map.Chunk;
 import com.bombinggames.wurfelengine.core.map.Coordinate;
 import com.bombinggames.wurfelengine.core.map.Iterators.DataIterator;
+import com.bombinggames.wurfelengine.core.map.Map;
+import java.util.Arrays;
 
 /**
  *
@@ -49,22 +53,36 @@ public class RenderChunk {
 	/**
 	 * a pool containing chunkdata
 	 */
-	private static final Pool<RenderCell[][][]> DATAPOOL;
+	private static final Pool<ChunkData> DATAPOOL;
+	/**
+	 * plain cells which are not used in a chunk
+	 */
+	private static final Pool<RenderCell> CELLPOOL;
+	/**
+	 * light level of a side in the shadow of the sun
+	 */
+	private static final float SUNSHADOW = 0.8f;
+	/**
+	 * light level of a side in the shadow of the moon
+	 */
+	private static final float MOONSHADOW = 0.9f;
+	/**
+	 * the shadows before they were computed again, only used on the main
+	 * thread
+	 */
+	private static byte[] oldShadows = new byte[0];
 	
 	static {
-		DATAPOOL = new Pool<RenderCell[][][]>(3) {
+		DATAPOOL = new Pool<ChunkData>(3) {
 			@Override
-			protected RenderCell[][][] newObject() {
-				//bigger by two because overlap
-				RenderCell[][][] arr = new RenderCell[Chunk.getBlocksX()+2][Chunk.getBlocksY()+4][Chunk.getBlocksZ()];
-				for (RenderCell[][] x : arr) {
-					for (RenderCell[] y : x) {
-						for (int z = 0; z < y.length; z++) {
-							y[z] = NULLPOINTEROBJECT;
-						}
-					}
-				}
-				return arr;
+			protected ChunkData newObject() {
+				return new ChunkData();
+			}
+		};
+		CELLPOOL = new Pool<RenderCell>(64) {
+			@Override
+			protected RenderCell newObject() {
+				return new RenderCell((byte) 0, (byte) 0);
 			}
 		};
 	}
@@ -74,6 +92,53 @@ public class RenderChunk {
 	 */
 	public static void clearPool(){
 		DATAPOOL.clear();
+		CELLPOOL.clear();
+	}
+
+	/**
+	 * The cells and their render state. Pooled as one unit so that the cells
+	 * stay bound to the arrays.
+	 */
+	private static class ChunkData {
+
+		/**
+		 * bigger by two because overlap
+		 */
+		final RenderCell[][][] cells = new RenderCell[Chunk.getBlocksX() + 2][Chunk.getBlocksY() + 4][Chunk.getBlocksZ()];
+		/**
+		 * twelve light colors per cell
+		 */
+		final int[] light = new int[Chunk.getBlocksX() * Chunk.getBlocksY() * Chunk.getBlocksZ() * 12];
+		final int[] aoFlags = new int[Chunk.getBlocksX() * Chunk.getBlocksY() * Chunk.getBlocksZ()];
+		final byte[] clipping = new byte[Chunk.getBlocksX() * Chunk.getBlocksY() * Chunk.getBlocksZ()];
+		/**
+		 * sides in the shadow of the sun and the moon
+		 *
+		 * @see DirectionalShadows#compute(com.bombinggames.wurfelengine.core.map.Map, Chunk, byte[])
+		 */
+		final byte[] shadows = new byte[Chunk.getBlocksX() * Chunk.getBlocksY() * Chunk.getBlocksZ()];
+		/**
+		 * occluders of this chunk and the border of the neighbours
+		 */
+		final boolean[] occupancy = new boolean[AmbientOcclusionCalculator.getOccupancySize()];
+		/**
+		 * columns of cells hiding the cells behind, padded by the border of the neighbours
+		 */
+		final long[] hidingField = new long[ClippingCalculator.getFieldSize()];
+		/**
+		 * columns of liquid cells, padded by the border of the neighbours
+		 */
+		final long[] liquidField = new long[ClippingCalculator.getFieldSize()];
+
+		ChunkData() {
+			for (RenderCell[][] x : cells) {
+				for (RenderCell[] y : x) {
+					for (int z = 0; z < y.length; z++) {
+						y[z] = NULLPOINTEROBJECT;
+					}
+				}
+			}
+		}
 	}
 	
 	/**
@@ -84,8 +149,17 @@ public class RenderChunk {
 	/**
 	 * the actual data stored in this renderchunk
 	 */
+	private final ChunkData chunkData;
 	private final RenderCell data[][][];
 	private boolean cameraAccess;
+	/**
+	 * version of the light directions used for the shadows, -1 if not computed
+	 */
+	private int shadowVersion = -1;
+	/**
+	 * state of the neighbourhood when the shadows were computed
+	 */
+	private long shadowKey;
 
 	/**
 	 * With init
@@ -93,7 +167,9 @@ public class RenderChunk {
 	 * @param chunk linked chunk which is then rendered
 	 */
 	public RenderChunk(Chunk chunk) {
-		data = DATAPOOL.obtain();
+		chunkData = DATAPOOL.obtain();
+		data = chunkData.cells;
+		Arrays.fill(chunkData.shadows, (byte) 0);
 		this.chunk = chunk;
 		initData();
 	}
@@ -115,24 +191,64 @@ public class RenderChunk {
 				for (int z = 0; z < blocksZ; z++) {
 					//update only if cell changed
 					int blockAtPos = chunk.getBlockByIndex(xInd, yInd, z);//get block from map
+					byte id = (byte) (blockAtPos & 255);
+					byte value = (byte) ((blockAtPos >> 8) & 255);
+					int index = (xInd * blocksY + yInd) * blocksZ + z;
+					RenderCell cell = data[xInd][yInd][z];
 					//here 'null' can be value of cell if not yet initialized
-					if (data[xInd][yInd][z] == null || (blockAtPos & 255) != data[xInd][yInd][z].getId()) {
-						data[xInd][yInd][z] = RenderCell.newRenderCell((byte) (blockAtPos & 255), (byte) ((blockAtPos >> 8) & 255));
+					if (cell == null || id != cell.getId() || (id != 0 && value != cell.getValue())) {
+						cell = replaceCell(cell, id, value, index);
+						data[xInd][yInd][z] = cell;
+					}
+					if (cell != NULLPOINTEROBJECT) {
+						cell.bind(chunkData.light, chunkData.aoFlags, chunkData.clipping, index);
 					}
 					
 					//set the coordinate
-					data[xInd][yInd][z].getPosition().set(
+					cell.getPosition().set(
 						tlX + xInd,
 						tlY + yInd,
 						z
 					);
-					data[xInd][yInd][z].setUnclipped();
+					cell.setUnclipped();
 					resetShadingFor(xInd, yInd, z);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Gets a cell for a block which is different from the old cell. Plain
+	 * cells are reused, only subclasses or customized cells are created via
+	 * {@link RenderCell#newRenderCell(byte, byte)}.
+	 *
+	 * @param old the cell at this position. can be null
+	 * @param id
+	 * @param value
+	 * @param index index of the cell in the state arrays
+	 * @return
+	 */
+	private RenderCell replaceCell(RenderCell old, byte id, byte value, int index) {
+		boolean oldPlain = old != null && old != NULLPOINTEROBJECT && old.getClass() == RenderCell.class;
+		byte kind = RenderCell.getCellKind(id, value);
+		if (kind == RenderCell.KIND_PLAIN) {
+			RenderCell cell = oldPlain ? old : CELLPOOL.obtain();
+			//bind before reset so that a pooled cell does not write into the arrays of another chunk
+			cell.bind(chunkData.light, chunkData.aoFlags, chunkData.clipping, index);
+			cell.reset(id, value);
+			return cell;
+		}
+
+		RenderCell cell = RenderCell.newRenderCell(id, value);
+		if (kind == RenderCell.KIND_UNKNOWN) {
+			RenderCell.setCellKind(id, value, cell);
+		}
+		if (oldPlain) {
+			CELLPOOL.free(old);
+		}
+		return cell;
+	}
+
 	/**
 	 *
 	 * @param coord only coordinates which are in this chunk
@@ -159,6 +275,42 @@ public class RenderChunk {
 		return data[x - chunk.getTopLeftCoordinateX()][y - chunk.getTopLeftCoordinateY()][z];
 	}
 
+	/**
+	 * The grid used to calculate the ambient occlusion.
+	 *
+	 * @return the occluders padded by the border of the neighbours
+	 * @see AmbientOcclusionCalculator
+	 */
+	public boolean[] getOccupancy() {
+		return chunkData.occupancy;
+	}
+
+	/**
+	 *
+	 * @return the columns of cells hiding the cells behind
+	 * @see ClippingCalculator
+	 */
+	long[] getHidingField() {
+		return chunkData.hidingField;
+	}
+
+	/**
+	 *
+	 * @return the columns of liquid cells
+	 * @see ClippingCalculator
+	 */
+	long[] getLiquidField() {
+		return chunkData.liquidField;
+	}
+
+	/**
+	 *
+	 * @return the clipping of every cell, index is (x*blocksY+y)*blocksZ+z
+	 */
+	byte[] getClippingData() {
+		return chunkData.clipping;
+	}
+
 	/**
 	 * get the pointer to the data
 	 * @return 
@@ -186,8 +338,8 @@ public class RenderChunk {
 	}
 
 	/**
-	 * Resets the shading for one block. Calculates drop shadow from blocks
-	 * above.
+	 * Resets the shading for one block. Darkens the sides which are in the
+	 * shadow of the sun or the moon.
 	 *
 	 * @param idexX index pos
 	 * @param idexY index pos
@@ -198,32 +350,77 @@ public class RenderChunk {
 		if (idexZ < Chunk.getBlocksZ() && idexZ >= 0) {
 			RenderCell block = data[idexX][idexY][idexZ];
 			if (block != null && block != NULLPOINTEROBJECT) {
-				data[idexX][idexY][idexZ].setLightlevel(1);
-
-				//check if block above is transparent
-				if (idexZ < blocksZ - 2
-					&& (data[idexX][idexY][idexZ + 1] == null
-					|| data[idexX][idexY][idexZ + 1].isTransparent())
-				) {
-					//two cells above is a block casting shadows
-					if (data[idexX][idexY][idexZ + 2] != null
-						&& !data[idexX][idexY][idexZ + 2].isTransparent()
-					) {
-						data[idexX][idexY][idexZ].setLightlevel(0.8f, Side.TOP);
-					//three blocks above is one
-					} else if (idexZ < blocksZ - 3
-						&& (data[idexX][idexY][idexZ + 2] == null
-						|| data[idexX][idexY][idexZ + 2].isTransparent())
-						&& data[idexX][idexY][idexZ + 3] != null
-						&& !data[idexX][idexY][idexZ + 3].isTransparent()
-					) {
-						data[idexX][idexY][idexZ].setLightlevel(0.92f, Side.TOP);
-					}
+				block.setLightlevel(1);
+
+				byte shadow = chunkData.shadows[(idexX * Chunk.getBlocksY() + idexY) * blocksZ + idexZ];
+				if (shadow != 0) {
+					shadeSide(block, shadow, Side.LEFT);
+					shadeSide(block, shadow, Side.TOP);
+					shadeSide(block, shadow, Side.RIGHT);
 				}
 			}
 		}
 	}
 
+	private static void shadeSide(RenderCell block, byte shadow, Side side) {
+		float level = 1;
+		if ((shadow & (1 << side.getCode())) != 0) {
+			level *= SUNSHADOW;
+		}
+		if ((shadow & (1 << (side.getCode() + DirectionalShadows.MOONSHIFT))) != 0) {
+			level *= MOONSHADOW;
+		}
+		if (level < 1) {
+			block.setLightlevel(level, side);
+		}
+	}
+
+	/**
+	 * Computes the shadows of the sun and the moon and resets the shading of
+	 * the cells whose shadows changed.
+	 *
+	 * @param shadows
+	 * @param map the map containing this chunk
+	 * @see #isShadowOutdated(DirectionalShadows)
+	 * @see #isShadowNeighbourhoodChanged(Map)
+	 */
+	public void updateShadows(DirectionalShadows shadows, Map map) {
+		byte[] current = chunkData.shadows;
+		if (oldShadows.length != current.length) {
+			oldShadows = new byte[current.length];
+		}
+		System.arraycopy(current, 0, oldShadows, 0, current.length);
+		shadows.compute(map, chunk, current);
+		shadowVersion = shadows.getVersion();
+		shadowKey = DirectionalShadows.getNeighbourhoodKey(map, getChunkX(), getChunkY());
+		int blocksY = Chunk.getBlocksY();
+		int blocksZ = Chunk.getBlocksZ();
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] != oldShadows[i]) {
+				resetShadingFor(i / (blocksY * blocksZ), (i / blocksZ) % blocksY, i % blocksZ);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param shadows
+	 * @return true if the lights moved since the shadows were computed
+	 */
+	public boolean isShadowOutdated(DirectionalShadows shadows) {
+		return shadowVersion != shadows.getVersion();
+	}
+
+	/**
+	 *
+	 * @param map
+	 * @return true if the shadows were never computed or this chunk or a
+	 * neighbour changed since then
+	 */
+	public boolean isShadowNeighbourhoodChanged(Map map) {
+		return shadowVersion == -1 || shadowKey != DirectionalShadows.getNeighbourhoodKey(map, getChunkX(), getChunkY());
+	}
+
 	/**
 	 *
 	 * @return
@@ -303,7 +500,7 @@ public class RenderChunk {
 	 *
 	 */
 	protected void dispose() {
-		DATAPOOL.free(data);
+		DATAPOOL.free(chunkData);
 	}
 
 }
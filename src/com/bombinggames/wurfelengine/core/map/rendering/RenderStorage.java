@@ -38,9 +38,11 @@ import com.bombinggames.wurfelengine.core.Camera;
 import com.bombinggames.wurfelengine.core.Controller;
 import com.bombinggames.wurfelengine.core.Events;
 import com.bombinggames.wurfelengine.core.lightengine.AmbientOcclusionCalculator;
+import com.bombinggames.wurfelengine.core.lightengine.DirectionalShadows;
 import com.bombinggames.wurfelengine.core.map.Chunk;
+import com.bombinggames.wurfelengine.core.map.ChunkPrefetcher;
 import com.bombinggames.wurfelengine.core.map.Coordinate;
-import com.bombinggames.wurfelengine.core.map.Iterators.DataIterator;
+import com.bombinggames.wurfelengine.core.map.Map;
 import com.bombinggames.wurfelengine.core.map.Point;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -67,6 +69,18 @@ public class RenderStorage implements Telegraph  {
 	 */
 	private final HashSet<Coordinate> dirtyFlags = new HashSet<>(200);
 	private float zRenderingLimit = Float.POSITIVE_INFINITY;
+	/**
+	 * chunks which changed since the last bake
+	 */
+	private final ArrayList<Chunk> changedChunks = new ArrayList<>(9);
+	/**
+	 * chunks removed in this frame
+	 */
+	private final ArrayList<RenderChunk> removedChunks = new ArrayList<>(9);
+	/**
+	 * shadows of the sun and the moon
+	 */
+	private final DirectionalShadows shadows = new DirectionalShadows();
 
 	/**
 	 * Creates a new renderstorage.
@@ -82,15 +96,44 @@ public class RenderStorage implements Telegraph  {
 	 * @param dt
 	 */
 	public void preUpdate(float dt){
+		updateShadows();
 		resetShadingForDirty();
 	}
 
+	/**
+	 * Computes the shadows of chunks which changed in their neighbourhood,
+	 * limited by the cvar "LEShadowEditChunksPerFrame". Then the chunks where
+	 * only the light moved, limited by the cvar "LEShadowChunksPerFrame" which
+	 * can be lowered by the
+	 * {@link com.bombinggames.wurfelengine.core.FrameGovernor}. The budgets
+	 * are separate so that a moving light does not delay the shadows of
+	 * changed blocks.
+	 */
+	private void updateShadows() {
+		shadows.update(Controller.getLightEngine());
+		Map map = Controller.getMap();
+		int editBudget = WE.getCVars().getValueI("LEShadowEditChunksPerFrame");
+		for (RenderChunk rChunk : data) {
+			if (editBudget > 0 && rChunk.isShadowNeighbourhoodChanged(map)) {
+				rChunk.updateShadows(shadows, map);
+				editBudget--;
+			}
+		}
+		int budget = Controller.getFrameGovernor().getShadowChunksPerFrame();
+		for (RenderChunk rChunk : data) {
+			if (budget > 0 && rChunk.isShadowOutdated(shadows)) {
+				rChunk.updateShadows(shadows, map);
+				budget--;
+			}
+		}
+	}
+
 	/**
 	 *
 	 * @param dt
 	 */
 	public void update(float dt){
-		checkNeededChunks();
+		checkNeededChunks(dt);
 		//update rendderblocks
 		for (RenderChunk renderChunk : data) {
 			for (RenderCell[][] x : renderChunk.getData()) {
@@ -107,8 +150,10 @@ public class RenderStorage implements Telegraph  {
 	
 	/**
 	 * checks which chunks must be loaded around the center
+	 *
+	 * @param dt time in ms
 	 */
-	private void checkNeededChunks() {
+	private void checkNeededChunks(float dt) {
 		//set every to false
 		data.forEach(chunk -> chunk.setCameraAccess(false));
 		
@@ -132,14 +177,58 @@ public class RenderStorage implements Telegraph  {
 				}
 			}
 		}
-		
+
+		//stream chunks ahead of the cameras
+		ChunkPrefetcher prefetcher = Controller.getMap().getPrefetcher();
+		prefetcher.update(cameraContainer, dt);
+		float bakeHorizon = WE.getCVars().getValueI("mapPrefetchTime") / 2f;
+		int bakeBudget = Controller.getFrameGovernor().getPrefetchBakesPerFrame();
+		for (int i = 0; i < prefetcher.getRequestCount(); i++) {
+			RenderChunk rChunk = getChunk(prefetcher.getRequestX(i), prefetcher.getRequestY(i));
+			if (rChunk != null) {
+				rChunk.setCameraAccess(true);//keep it
+			} else if (bakeBudget > 0 && prefetcher.getRequestTime(i) <= bakeHorizon
+				&& Controller.getMap().getChunk(prefetcher.getRequestX(i), prefetcher.getRequestY(i)) != null) {
+				//bake a limited amount of chunks per frame ahead of time
+				checkChunk(prefetcher.getRequestX(i), prefetcher.getRequestY(i));
+				bakeBudget--;
+			}
+		}
+
 		//remove chunks which are not used
+		removedChunks.clear();
 		data.forEach(chunk -> {
 			if (!chunk.getCameraAccess()) {
 				chunk.dispose();
+				removedChunks.add(chunk);
 			}
 		});
 		data.removeIf(chunk -> !chunk.getCameraAccess());
+		for (RenderChunk removed : removedChunks) {
+			updateNeighbourBorders(removed.getChunkX(), removed.getChunkY());
+		}
+		removedChunks.clear();
+	}
+
+	/**
+	 * Updates the ambient occlusion and the clipping at the borders of the
+	 * neighbours of a chunk which was loaded or unloaded.
+	 *
+	 * @param chunkX
+	 * @param chunkY
+	 */
+	private void updateNeighbourBorders(int chunkX, int chunkY) {
+		for (int x = -1; x <= 1; x++) {
+			for (int y = -1; y <= 1; y++) {
+				if (x != 0 || y != 0) {
+					RenderChunk neighbor = getChunk(chunkX + x, chunkY + y);
+					if (neighbor != null) {
+						AmbientOcclusionCalculator.updateBorder(this, neighbor, -x, -y);
+						ClippingCalculator.updateBorder(this, neighbor, -x, -y, getZCutLayer());
+					}
+				}
+			}
+		}
 	}
 	
 	/**
@@ -159,25 +248,14 @@ public class RenderStorage implements Telegraph  {
 				rChunk = new RenderChunk(mapChunk);
 				data.add(rChunk);
 				rChunk.setCameraAccess(true);
+				rChunk.updateShadows(shadows, Controller.getMap());
 				AmbientOcclusionCalculator.calcAO(this, rChunk);
 				occlusionCulling(rChunk);
-
-				//update neighbors
-				RenderChunk neighbor = getChunk(x - 1, y);
-				if (neighbor != null) {
-					occlusionCulling(neighbor);
-				}
-				neighbor = getChunk(x + 1, y);
-				if (neighbor != null) {
-					occlusionCulling(neighbor);
-				}
-				neighbor = getChunk(x, y - 1);
-				if (neighbor != null) {
-					occlusionCulling(neighbor);
-				}
+				updateNeighbourBorders(x, y);
 			}
 		} else {
 			rChunk.setCameraAccess(true);
+			Controller.getMap().markChunkNeeded(x, y);
 		}
 	}
 
@@ -223,6 +301,59 @@ public class RenderStorage implements Telegraph  {
 			AmbientOcclusionCalculator.calcAO(this, rChunk);
 			occlusionCulling(rChunk);
 		});			
+		changedChunks.clear();
+	}
+
+	/**
+	 * Rebuilds only the chunks which changed since the last bake. The
+	 * neighbours get a new AO and occlusion culling because these look across
+	 * the chunk borders.
+	 */
+	private void bakeChangedChunks() {
+		@SuppressWarnings("unchecked")
+		LinkedList<RenderChunk> dataclone = (LinkedList<RenderChunk>) data.clone();
+		dataclone.forEach((RenderChunk rChunk) -> {
+			if (getChangedDistance(rChunk) == 0) {
+				rChunk.initData();
+			}
+		});
+		dataclone.forEach((RenderChunk rChunk) -> {
+			int distance = getChangedDistance(rChunk);
+			if (distance == 0) {
+				AmbientOcclusionCalculator.calcAO(this, rChunk);
+				occlusionCulling(rChunk);
+			} else if (distance == 1) {
+				//only the border to the changed chunks
+				for (Chunk chunk : changedChunks) {
+					int dx = chunk.getChunkX() - rChunk.getChunkX();
+					int dy = chunk.getChunkY() - rChunk.getChunkY();
+					if (Math.abs(dx) <= 1 && Math.abs(dy) <= 1) {
+						AmbientOcclusionCalculator.updateBorder(this, rChunk, dx, dy);
+						ClippingCalculator.updateBorder(this, rChunk, dx, dy, getZCutLayer());
+					}
+				}
+			}
+		});
+		changedChunks.clear();
+	}
+
+	/**
+	 *
+	 * @param rChunk
+	 * @return the distance in chunks to the nearest changed chunk
+	 */
+	private int getChangedDistance(RenderChunk rChunk) {
+		int min = Integer.MAX_VALUE;
+		for (Chunk chunk : changedChunks) {
+			int dist = Math.max(
+				Math.abs(chunk.getChunkX() - rChunk.getChunkX()),
+				Math.abs(chunk.getChunkY() - rChunk.getChunkY())
+			);
+			if (dist < min) {
+				min = dist;
+			}
+		}
+		return min;
 	}
 	
 	/**
@@ -382,100 +513,13 @@ public class RenderStorage implements Telegraph  {
 	 * performs a simple clipping check by looking at the direct neighbours. O(n) where n is blocks in chunk
 	 *
 	 * @param chunk
+	 * @see ClippingCalculator
 	 */
 	public void occlusionCulling(final RenderChunk chunk) {
 		if (chunk == null) {
 			throw new IllegalArgumentException();
 		}
-
-
-		chunk.resetClipping();
-
-		//loop over floor for ground level
-		//DataIterator floorIterator = chunk.getIterator(0, 0);
-//		while (floorIterator.hasNext()) {
-//			if (((Block) floorIterator.next()).hidingPastBlock())
-//				chunk.getCell(
-//					floorIterator.getCurrentIndex()[0],
-//					floorIterator.getCurrentIndex()[1],
-//					chunkY)setClippedTop(
-//					floorIterator.getCurrentIndex()[0],
-//					floorIterator.getCurrentIndex()[1],
-//					-1
-//				);
-//		}
-
-		RenderCell[][][] chunkData = chunk.getData();
-		//iterate over chunk
-		DataIterator<RenderCell> dataIter = new DataIterator<>(
-			chunkData,
-			0,
-			(int) (zRenderingLimit/RenderCell.GAME_EDGELENGTH)
-		);
-
-		while (dataIter.hasNext()) {
-			RenderCell current = dataIter.next();//next is the current block
-
-			if (current != RenderChunk.NULLPOINTEROBJECT) {
-				//calculate index position relative to camera border
-				final int x = dataIter.getCurrentIndex()[0];
-				final int y = dataIter.getCurrentIndex()[1];
-				final int z = dataIter.getCurrentIndex()[2];
-
-				//left side
-				//get neighbour block
-				RenderCell neighbour = getCellByIndex(chunk, x - ((y % 2 == 0) ? 1 : 0), y + 1, z);//next row can be shifted right(?)
-
-				if (neighbour != RenderChunk.NULLPOINTEROBJECT
-					&& (neighbour.hidingPastBlock() || (neighbour.isLiquid() && current.isLiquid()))) {
-					current.setClippedLeft();
-				}
-
-				//right side
-				//get neighbour block
-				neighbour = getCellByIndex(chunk, x + ((y % 2 == 0) ? 0 : 1), y + 1, z);//next row is shifted right
-
-				if (neighbour != RenderChunk.NULLPOINTEROBJECT
-					&& (neighbour.hidingPastBlock() || (neighbour.isLiquid() && current.isLiquid()))) {
-					current.setClippedRight();
-				}
-
-				//check if hidden from top
-				if (z < Chunk.getBlocksZ() - 1) {
-					neighbour = getCellByIndex(chunk, x, y + 2, z + 1);//block in top front
-					if (
-						neighbour.hidingPastBlock()
-						||
-						(chunkData[x][y][z + 1] != RenderChunk.NULLPOINTEROBJECT
-						&& (chunkData[x][y][z + 1].hidingPastBlock()
-						|| chunkData[x][y][z + 1].isLiquid() && current.isLiquid()))
-					) {
-						current.setClippedTop();
-					}
-				}
-			}
-		}
-	}
-	
-	/**
-	 * Helper function. Gets a block at an index. index can be outside of this chunk. If it is outside will get the correct chunk.
-	 *
-	 * @param chunk the chunk where the index shoulde be found on
-	 * @param x index
-	 * @param y index
-	 * @param z index
-	 * @return
-	 */
-	private RenderCell getCellByIndex(RenderChunk chunk, int x, int y, int z) {
-		if (x < 0 || y >= Chunk.getBlocksY() || x >= Chunk.getBlocksX()) {//index outside current chunk
-			return getCell(
-				chunk.getTopLeftCoordinateX() + x,
-				chunk.getTopLeftCoordinateY() + y,
-				z
-			);
-		} else {
-			return chunk.getCellByIndex(x, y, z);
-		}
+		ClippingCalculator.calcClipping(this, chunk, getZCutLayer());
 	}
 
 	private RenderCell getNewGroundCellInstance() {
@@ -509,7 +553,7 @@ public class RenderStorage implements Telegraph  {
 	 * @return
 	 */
 	public boolean isClipped(Coordinate coords) {
-		if (coords.getZ() >= zRenderingLimit*RenderCell.GAME_EDGELENGTH) {
+		if (coords.getZ() >= getZCutLayer()) {
 			return true;
 		}
 		
@@ -537,6 +581,7 @@ public class RenderStorage implements Telegraph  {
 	 * @param height game space
 	 */
 	public void setZRenderingLimit(float height) {
+		int oldCut = getZCutLayer();
 		zRenderingLimit = height;
 		if (height >= Chunk.getGameHeight()) {
 			zRenderingLimit = Float.POSITIVE_INFINITY;
@@ -544,12 +589,58 @@ public class RenderStorage implements Telegraph  {
 		if (zRenderingLimit < 0) {
 			zRenderingLimit = 0;
 		}
+		int cut = getZCutLayer();
+		if (cut != oldCut) {
+			for (RenderChunk chunk : data) {
+				ClippingCalculator.setCut(chunk, oldCut, cut);
+			}
+		}
+	}
+
+	/**
+	 * The amount of layers which are rendered. The layers at and above are
+	 * cut away.
+	 *
+	 * @return amount of layers below the z rendering limit
+	 * @see #getZRenderingLimit()
+	 */
+	public int getZCutLayer() {
+		if (zRenderingLimit == Float.POSITIVE_INFINITY) {
+			return Chunk.getBlocksZ();
+		}
+		return Math.min((int) Math.ceil(zRenderingLimit / RenderCell.GAME_EDGELENGTH), Chunk.getBlocksZ());
+	}
+
+	/**
+	 * Cuts the map so that only the layers below are rendered.
+	 *
+	 * @param layers amount of visible layers. if it is the height of the chunks or more nothing is cut away.
+	 * @see #setZRenderingLimit(float)
+	 */
+	public void setZCutLayer(int layers) {
+		if (layers >= Chunk.getBlocksZ()) {
+			setZRenderingLimit(Float.POSITIVE_INFINITY);
+		} else {
+			setZRenderingLimit(Math.max(0, layers) * RenderCell.GAME_EDGELENGTH);
+		}
 	}
 	
 	@Override
 	public boolean handleMessage(Telegram msg) {
+		if (msg.message == Events.chunkChanged.getId()) {
+			Chunk chunk = (Chunk) msg.extraInfo;
+			if (!changedChunks.contains(chunk)) {
+				changedChunks.add(chunk);
+			}
+			return true;
+		}
+		
 		if (msg.message == Events.mapChanged.getId()) {
-			bakeChunks();//coould be optimized by only updating blocks that changed
+			if (changedChunks.isEmpty()) {
+				bakeChunks();
+			} else {
+				bakeChangedChunks();
+			}
 			RenderCell.rebuildCoverList();
 			return true;
 		}
@@ -563,6 +654,8 @@ public class RenderStorage implements Telegraph  {
 	public void dispose() {
 		RenderChunk.clearPool();
 		MessageManager.getInstance().removeListener(this, Events.mapChanged.getId());
+		MessageManager.getInstance().removeListener(this, Events.chunkChanged.getId());
+		changedChunks.clear();
 	}
 
 }
@@ -30,11 +30,10 @@
  */
 package com.bombinggames.wurfelengine.extension;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.bombinggames.wurfelengine.core.gameobjects.AbstractEntity;
 import com.bombinggames.wurfelengine.core.gameobjects.Component;
-import com.bombinggames.wurfelengine.core.gameobjects.Particle;
+import com.bombinggames.wurfelengine.core.gameobjects.SimpleEntity;
 import com.bombinggames.wurfelengine.core.map.Point;
 import com.bombinggames.wurfelengine.core.map.Position;
 import java.util.ArrayList;
@@ -52,7 +51,7 @@ public class AimBand implements Component {
 	private Point start;
 	private AbstractEntity parent;
 	private float offset = 0;
-	private final ArrayList<Particle> list = new ArrayList<>(10);
+	private final ArrayList<SimpleEntity> list = new ArrayList<>(10);
 
 	/**
 	 *
@@ -118,21 +117,21 @@ public class AimBand implements Component {
 			//spawn particles
 			if (list.isEmpty()) {
 				for (int i = 0; i < 10; i++) {
-					Particle particle = new Particle();
-					particle.setTTL(Float.POSITIVE_INFINITY);
+					//not a particle because it is moved every frame
+					SimpleEntity particle = new SimpleEntity((byte) 22);
+					particle.setSavePersistent(false);
+					particle.setScaling(0.3f);
 					particle.setColor(new Color(0.4f, 0.5f, 1f, 0.3f));
-					particle.setUseRawDelta(true);
-					particle.setColiding(false);
 					particle.spawn(getStart().cpy());
 					list.add(particle);
 				}
 			}
 		
 			float distance = getStart().distanceTo(getEnd());
-			offset += Gdx.graphics.getRawDeltaTime() * 100;
+			offset += dt / 10f;
 			//move every particle
 			for (int i = 0; i < list.size(); i++) {
-				Particle p = list.get(i);
+				SimpleEntity p = list.get(i);
 				p.getPosition().set(getStart()).lerp(getEnd(), (i * distance / (float) list.size() + offset) % distance / distance);
 
 			}
@@ -196,7 +195,7 @@ public class AimBand implements Component {
 		if (parent != null) {
 			parent.removeComponent(this);
 		}
-		for (Particle particle : list) {
+		for (SimpleEntity particle : list) {
 			particle.removeFromMap();
 		}
 		list.clear();
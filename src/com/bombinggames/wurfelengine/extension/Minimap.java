@@ -34,28 +34,32 @@ import com.badlogic.gdx.ai.msg.Telegram;
 import com.badlogic.gdx.ai.msg.Telegraph;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
+import com.badlogic.gdx.utils.Disposable;
 import com.bombinggames.wurfelengine.WE;
 import com.bombinggames.wurfelengine.core.Camera;
 import com.bombinggames.wurfelengine.core.Controller;
 import com.bombinggames.wurfelengine.core.Events;
 import com.bombinggames.wurfelengine.core.GameView;
 import com.bombinggames.wurfelengine.core.gameobjects.AbstractEntity;
-import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import com.bombinggames.wurfelengine.core.gameobjects.AbstractGameObject;
 import com.bombinggames.wurfelengine.core.map.Chunk;
-import com.bombinggames.wurfelengine.core.map.Map;
+import com.bombinggames.wurfelengine.core.map.Coordinate;
 import com.bombinggames.wurfelengine.core.map.Point;
-import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
- *A minimap is a view that draws the map from top in a small window.
+ *A minimap is a view that draws the map from top in a small window. The 3x3
+ * chunks around the camera are composited from the tiles of a
+ * {@link MinimapTileCache} into one texture. Only the tiles of chunks which
+ * changed are uploaded again. Tracked entities are drawn on top every frame.
  * @author Benedikt
  */
-public class Minimap implements Telegraph {
+public class Minimap implements Telegraph, Disposable {
     /**
 	 * distance from left
 	 */
@@ -66,20 +70,30 @@ public class Minimap implements Telegraph {
 	private final int posY;
     private final float scaleX = 12;
     private final float scaleY = scaleX/2;
-	/**
-	 * the size of a block
-	 */
-    private final float renderSize = (float) (scaleX/Math.sqrt(2));
     
     private Camera camera;
-    private Color[][] mapdata;
     private boolean visible = true;
-    private int maximumZ;
 	private ArrayList<AbstractEntity> trackedEnt = new ArrayList<>(1);
-	private FrameBuffer fbo;
-	private TextureRegion fboRegion;
 	private boolean needsrebuild = true;
-	private Map map;
+	private MinimapTileCache cache;
+	/**
+	 * the composited 3x3 tiles
+	 */
+	private Texture texture;
+	/**
+	 * used to upload one tile
+	 */
+	private Pixmap tilePixmap;
+	/**
+	 * top left chunk of the shown 3x3 chunks
+	 */
+	private int windowX, windowY;
+	/**
+	 * the chunk uploaded into a slot of the texture
+	 */
+	private final Chunk[] slotChunk = new Chunk[9];
+	private final int[] slotGeneration = new int[9];
+	private final boolean[] slotValid = new boolean[9];
 
 	/**
      * Create a minimap. Visible by default.
@@ -110,134 +124,111 @@ public class Minimap implements Telegraph {
 	public void setTrackedEnt(ArrayList<AbstractEntity> trackedEnt) {
 		this.trackedEnt = trackedEnt;
 	}
-	
-	
-	
     
     /**
-     * Updates the minimap- Should only be done after changing the map.
+     * Uploads the tiles of the chunks which changed since the last call.
+	 * Called by {@link #render(GameView)}.
 	 * @param view
      */
     public void buildTexture(GameView view){
-        mapdata = new Color[Chunk.getBlocksX()][Chunk.getBlocksY()];
-        for (int x = 0; x < Chunk.getBlocksX(); x++) {
-            for (int y = 0; y < Chunk.getBlocksY(); y++) {
-                mapdata[x][y] = new Color();
-            }
-        }
-        
-        maximumZ = 0;
-        int[][] topTileZ = new int[Chunk.getBlocksX()][Chunk.getBlocksY()];
-        
-        //fing top tile
-        for (int x = 0; x < mapdata.length; x++) {
-            for (int y = 0; y < mapdata[x].length; y++) {
-                int z = Chunk.getBlocksZ() -1;//start at top
-                while ( z>-1 && Controller.getMap().getBlockId(x, y, z)==0 ) {
-                    z--;//find topmost block in row
-                }
-
-                topTileZ[x][y] = z;
-                if (z>maximumZ)
-                    maximumZ=z; 
-            }
-        }
-            
-        //set color
-        for (int x = 0; x < mapdata.length; x++) {
-            for (int y = 0; y < mapdata[x].length; y++) {
+		int tileWidth = MinimapTileCache.getTileWidth();
+		int tileHeight = MinimapTileCache.getTileHeight();
+		if (texture == null || texture.getWidth() != tileWidth * 3 || texture.getHeight() != tileHeight * 3) {
+			dispose();
+			cache = new MinimapTileCache(
+				(id, value) -> AbstractGameObject.getSpriteRegistry().getRepresentingColor(id, value),
+				AbstractGameObject.getSpriteRegistry().getRepresentingColor((byte) WE.getCVars().getValueI("groundBlockID"), (byte) 0)
+			);
+			texture = new Texture(tileWidth * 3, tileHeight * 3, Pixmap.Format.RGBA8888);
+			tilePixmap = new Pixmap(tileWidth, tileHeight, Pixmap.Format.RGBA8888);
+			needsrebuild = true;
+		}
+		if (needsrebuild) {
+			cache.invalidateAll();
+			Arrays.fill(slotValid, false);
+			needsrebuild = false;
+		}
 
-                if (topTileZ[x][y]<0)//ground floor
-                    mapdata[x][y] = RenderCell.getRepresentingColor((byte) WE.getCVars().getValueI("groundblockinstance"),(byte) 0);
-                else {
-                    int block = Controller.getMap().getBlock(x, y, topTileZ[x][y]);
-                    if ((block&255) !=0)
-                        mapdata[x][y] = RenderCell.getRepresentingColor((byte)(block&255), (byte)((block>>8)&255));
-                    else 
-                        mapdata[x][y] = new Color();//make air black
-                } 
-                mapdata[x][y].mul(1.5f*(topTileZ[x][y]+2)/(float)(maximumZ+1));
-                mapdata[x][y].a = 1; //full alpha level
-            }
-        }
-		
-		//render map to frame buffer
-		fbo = new FrameBuffer(
-			Pixmap.Format.RGBA8888,
-			(int) (mapdata.length*scaleX)+20,
-			//(int) (mapdata[0].length*scaleY)+20,
-			1080,
-			false
-		);
-		
-		fboRegion = new TextureRegion(fbo.getColorBufferTexture());
-        fboRegion.flip(false, true);
-				
-		fbo.bind();
-		
-		ShapeRenderer sh = view.getShapeRenderer();
-		sh.translate(0, mapdata[0].length*scaleY, 0);//start from top, 10px offset to left to prevent clipping
-			//render the map
-			sh.begin(ShapeType.Filled);
-				for (int x = 0; x < Chunk.getBlocksX(); x++) {
-					for (int y = 0; y < Chunk.getBlocksY(); y++) {
-						sh.setColor(mapdata[x][y]);//get color
-						float rectX = (x + (y%2 == 1 ? 0.5f : 0) ) * scaleX;
-						float rectY = - (y+1)*scaleY;
+		//window follows the camera
+		int left = camera == null ? 0 : camera.getCenterChunkX() - 1;
+		int top = camera == null ? 0 : camera.getCenterChunkY() - 1;
+		if (left != windowX || top != windowY) {
+			windowX = left;
+			windowY = top;
+			Arrays.fill(slotValid, false);
+			cache.prune(left, top, 3, 3);
+		}
 
-						sh.translate(rectX, rectY, 0);
-						sh.rotate(0, 0, 1, 45);
-						sh.rect(0,0,renderSize,renderSize); 
-						sh.rotate(0, 0, 1, -45);
-						sh.translate(-rectX, -rectY, 0);
-					}
+		for (int slot = 0; slot < 9; slot++) {
+			Chunk chunk = Controller.getMap().getChunk(left + slot % 3, top + slot / 3);
+			if (chunk == null) {
+				if (!slotValid[slot] || slotChunk[slot] != null) {
+					upload(slot, null);
+					slotChunk[slot] = null;
+					slotValid[slot] = true;
 				}
-			sh.end();
+			} else if (!slotValid[slot] || slotChunk[slot] != chunk || slotGeneration[slot] != chunk.getGeneration()) {
+				upload(slot, cache.getTile(chunk));
+				slotChunk[slot] = chunk;
+				slotGeneration[slot] = chunk.getGeneration();
+				slotValid[slot] = true;
+			}
+		}
+    }
 
-			sh.begin(ShapeType.Line);
+	/**
+	 * copies the pixels of a tile into the texture
+	 *
+	 * @param slot
+	 * @param pixels if null the slot is cleared
+	 */
+	private void upload(int slot, int[] pixels) {
+		ByteBuffer buffer = tilePixmap.getPixels().duplicate();//big endian
+		for (int i = 0; i < tilePixmap.getWidth() * tilePixmap.getHeight(); i++) {
+			buffer.putInt(i * 4, pixels == null ? 0 : pixels[i]);//RGBA byte order
+		}
+		texture.draw(
+			tilePixmap,
+			slot % 3 * MinimapTileCache.getTileWidth(),
+			slot / 3 * MinimapTileCache.getTileHeight()
+		);
+	}
+    
+    /**
+     * Renders the Minimap.
+     * @param view the view using this render method 
+     */
+    public void render(final GameView view) {
+        if (visible) {
+			buildTexture(view);
+			float height = 3 * Chunk.getBlocksY() * scaleY;
+			view.getSpriteBatch().begin();
+			view.getSpriteBatch().draw(
+				texture,
+				posX,
+				posY,
+				texture.getWidth() * scaleX / 2,
+				height
+			);
+			view.getSpriteBatch().end();
+			
+			ShapeRenderer sh = view.getShapeRenderer();
+			sh.translate(posX, posY, 0);
 
+			//tracked entities
+			int leftCoord = windowX * Chunk.getBlocksX();
+			int topCoord = windowY * Chunk.getBlocksY();
+			sh.begin(ShapeType.Line);
+				Color color = Color.BLUE.cpy();
+				color.a = 0.8f;
+				sh.setColor(color);
 				for (AbstractEntity ent : trackedEnt) {
-
-					//show entity position
-					Color color = Color.BLUE.cpy();
-					color.a = 0.8f;
-					sh.setColor(color);
-					float rectX = 
-						+ ((ent.getPosition().getX()
-						+ (ent.getPosition().toCoord().getY()%2==1?0.5f:0)
-						)/RenderCell.GAME_DIAGLENGTH
-						- 0.5f)
-						* scaleX;
-					float rectY = 
-						- (ent.getPosition().getY()/RenderCell.GAME_DIAGLENGTH
-						+ 0.5f
-						)* scaleY*2;
-					sh.translate(rectX, rectY, 0);
-					sh.rotate(0, 0, 1, 45);
-					sh.rect(0,0,renderSize,-renderSize);
-					sh.rotate(0, 0, 1, -45);
-					sh.translate(-rectX, -rectY, 0);
-
-					 Point tmpPos = ent.getPosition();
-					//player coordinate
-					view.drawString(
-						tmpPos.toCoord().getX() +" | "+ tmpPos.toCoord().getY() +" | "+ (int) tmpPos.getZ(),
-						(int) (posX+(tmpPos.toCoord().getX() + (tmpPos.getY()%2==1?0.5f:0) ) * scaleX+20),
-						(int) (posY- tmpPos.toCoord().getY() * scaleY + 10),
-						Color.RED
-					);
-					rectX = (int) (
-						(tmpPos.getX()
-							+ (tmpPos.toCoord().getY()%2==1 ? 0.5f : 0)
-						  ) / RenderCell.GAME_DIAGLENGTH * scaleX
-					);
-					rectY = (int) (tmpPos.getY()/RenderCell.GAME_DIAGLENGTH2 * scaleY);
-
-					view.drawString(tmpPos.getX() +" | "+ tmpPos.getY() +" | "+ (int) tmpPos.getZ(),
-						(int) (posX+rectX),
-						(int) (posY+rectY),
-						Color.RED
-					);
+					if (ent.hasPosition()) {
+						Coordinate coord = ent.getPosition().toCoord();
+						float rectX = ((coord.getX() - leftCoord) + (coord.getY() % 2 != 0 ? 0.5f : 0)) * scaleX;
+						float rectY = height - (coord.getY() - topCoord + 1) * scaleY;
+						sh.rect(rectX, rectY, scaleX, scaleY);
+					}
 				}
 
 				//Chunk outline
@@ -245,49 +236,32 @@ public class Minimap implements Telegraph {
 				for (int chunk = 0; chunk < 9; chunk++) {
 					sh.rect(
 						chunk%3 *(Chunk.getBlocksX()*scaleX),
-						- chunk/3*(Chunk.getBlocksY()*scaleY),
+						height - chunk/3*(Chunk.getBlocksY()*scaleY),
 						Chunk.getBlocksX()*scaleX,
 						-Chunk.getBlocksY()*scaleY
 					);
 				}
 			sh.end();
-		sh.translate(0, -mapdata[0].length*scaleY, 0);//start from top, 10px offset to left to prevent clipping
-
-		//chunk coordinates
-//		for (int chunk = 0; chunk < 9; chunk++) {
-//			view.drawString(
-//				Controller.getMap().getChunkCoords(chunk)[0] +" | "+ Controller.getMap().getChunkCoords(chunk)[1],
-//				(int) (posX + 10 + chunk%3 *Chunk.getBlocksX()*scaleX),
-//				(int) (posY - 10 - chunk/3 *(Chunk.getBlocksY()*scaleY)),
-//				Color.BLACK
-//			);
-//		}
 
-		fbo.end();
-		needsrebuild= false;
-    }
-    
-    /**
-     * Renders the Minimap.
-     * @param view the view using this render method 
-     */
-    public void render(final GameView view) {
-        if (visible) {
-            //this needs offscreen rendering for a single call with a recalc
-			if (fboRegion!=null){
-				view.getSpriteBatch().begin();
-				view.getSpriteBatch().draw(fboRegion, posX, posY);
-				view.getSpriteBatch().end();
+			for (AbstractEntity ent : trackedEnt) {
+				if (ent.hasPosition()) {
+					//entity coordinate
+					Point tmpPos = ent.getPosition();
+					Coordinate coord = tmpPos.toCoord();
+					view.drawString(
+						coord.getX() +" | "+ coord.getY() +" | "+ (int) tmpPos.getZ(),
+						(int) (posX + ((coord.getX() - leftCoord) + (coord.getY() % 2 != 0 ? 0.5f : 0)) * scaleX + 20),
+						(int) (posY + height - (coord.getY() - topCoord) * scaleY + 10),
+						Color.RED
+					);
+				}
 			}
 			
-			ShapeRenderer sh = view.getShapeRenderer();
-			sh.translate(posX, posY, 0);
-			
 			if (camera!=null){
 				//bottom getCameras() rectangle
 				sh.begin(ShapeType.Line);
 				
-					sh.translate(0, mapdata[0].length*scaleY, 0);
+					sh.translate(-leftCoord * scaleX, height + topCoord * scaleY, 0);
 						sh.setColor(Color.RED);
 						sh.rect(
 							scaleX * camera.getVisibleLeftBorder(),
@@ -295,36 +269,7 @@ public class Minimap implements Telegraph {
 							scaleX*(camera.getVisibleRightBorder()-camera.getVisibleLeftBorder()+1),
 							-scaleY*(camera.getVisibleFrontBorderLow()-camera.getVisibleBackBorder())
 						);
-
-						//ground level
-						sh.setColor(Color.GREEN);
-					sh.translate(0, -mapdata[0].length*scaleY, 0);//projection is y-up
-					sh.rect(scaleX * camera.getViewSpaceX() / RenderCell.VIEW_WIDTH,
-						scaleY * camera.getViewSpaceY() / RenderCell.VIEW_DEPTH2,
-						scaleX*camera.getWidthInProjSpc()/ RenderCell.VIEW_WIDTH,
-						scaleY*camera.getHeightInProjSpc()/ RenderCell.VIEW_DEPTH2
-					);
-
-					//player level getCameras() rectangle
-			//            if (controller.getPlayer()!=null){
-			//                sh.setColor(Color.GRAY);
-			//                sh.rect(
-			//                    scaleX * camera.getProjectionPosX() / RenderCell.VIEW_WIDTH,
-			//                    + scaleY * camera.getProjectionPosY() / RenderCell.VIEW_DEPTH2
-			//                        + scaleY *2*(controller.getPlayer().getPosition().getCoord().getZ() * RenderCell.VIEW_HEIGHT)/ RenderCell.VIEW_DEPTH,
-			//                    scaleX*camera.getProjectionWidth() / RenderCell.VIEW_WIDTH,
-			//                    scaleY*camera.getProjectionHeight() / RenderCell.VIEW_DEPTH2
-			//                );
-			//            }
-
-					//top level getCameras() rectangle
-					sh.setColor(Color.WHITE);
-					sh.rect(scaleX * camera.getViewSpaceX() / RenderCell.VIEW_WIDTH,
-						scaleY * camera.getViewSpaceY() / RenderCell.VIEW_DEPTH2
-							-scaleY *2*(Chunk.getBlocksZ() * RenderCell.VIEW_HEIGHT)/ RenderCell.VIEW_DEPTH,
-						scaleX*camera.getWidthInProjSpc() / RenderCell.VIEW_WIDTH,
-						scaleY*camera.getHeightInProjSpc() / RenderCell.VIEW_DEPTH2
-					);
+					sh.translate(leftCoord * scaleX, -height - topCoord * scaleY, 0);
 					
 				sh.end();
 
@@ -332,7 +277,7 @@ public class Minimap implements Telegraph {
 				view.drawString(
 					camera.getViewSpaceX() +" | "+ camera.getViewSpaceY(),
 					posX,
-					(int) (posY- 3*Chunk.getBlocksY()*scaleY + 15),
+					posY - 15,
 					Color.WHITE
 				);
 			}
@@ -358,7 +303,8 @@ public class Minimap implements Telegraph {
 	}
 	
 	/**
-	 *
+	 * Forces the rebuild of every tile, e.g. after the block colors changed.
+	 * Changed chunks are detected automatically.
 	 */
 	public void needsRebuild() {
 		needsrebuild = true;
@@ -372,12 +318,29 @@ public class Minimap implements Telegraph {
 		this.camera = camera;
 	}
 
+	/**
+	 *
+	 * @return the cache of the tiles, null before the first render
+	 */
+	public MinimapTileCache getTileCache() {
+		return cache;
+	}
+
 	@Override
 	public boolean handleMessage(Telegram msg) {
-		if (msg.message == Events.mapChanged.getId()){
-			needsRebuild();
-			return true;
+		//changed chunks are found by their generation, no full rebuild needed
+		return msg.message == Events.mapChanged.getId();
+	}
+
+	@Override
+	public void dispose() {
+		if (texture != null) {
+			texture.dispose();
+			texture = null;
+		}
+		if (tilePixmap != null) {
+			tilePixmap.dispose();
+			tilePixmap = null;
 		}
-		return false;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.extension;
+
+import com.bombinggames.wurfelengine.core.map.Chunk;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Caches the minimap image of every chunk as packed RGBA8888 pixels. A tile is
+ * only rebuilt if the blocks of its chunk changed since it was built. Building
+ * a tile only reads the heightmap and the blocks of the chunk, so it does not
+ * need a GPU.<br>
+ * A tile is 2*blocksX pixels wide and blocksY pixels high. Every cell covers
+ * two pixels, odd rows are shifted by one pixel like the cells in the map.<br>
+ * A tile is identified by the coordinates and the generation of its chunk and
+ * does not reference the chunk, so unloaded chunks can be collected. Tiles
+ * outside of the shown area should be dropped with
+ * {@link #prune(int, int, int, int)}.
+ *
+ * @author Benedikt Vogler
+ */
+public class MinimapTileCache {
+
+	/**
+	 * Provides the color of a block.
+	 */
+	public interface BlockColors {
+
+		/**
+		 *
+		 * @param id
+		 * @param value
+		 * @return color as RGBA8888
+		 */
+		int getColor(byte id, byte value);
+	}
+
+	private static class Tile {
+
+		int chunkX;
+		int chunkY;
+		int generation;
+		int[] pixels;
+	}
+
+	private final HashMap<Long, Tile> tiles = new HashMap<>(16);
+	private final BlockColors colors;
+	private final int groundColor;
+	private int rebuilds;
+
+	/**
+	 *
+	 * @param colors colors of the blocks
+	 * @param groundColor color of columns without a block as RGBA8888
+	 */
+	public MinimapTileCache(BlockColors colors, int groundColor) {
+		this.colors = colors;
+		this.groundColor = groundColor;
+	}
+
+	/**
+	 *
+	 * @return width of a tile in pixels
+	 */
+	public static int getTileWidth() {
+		return Chunk.getBlocksX() * 2;
+	}
+
+	/**
+	 *
+	 * @return height of a tile in pixels
+	 */
+	public static int getTileHeight() {
+		return Chunk.getBlocksY();
+	}
+
+	/**
+	 * Get the pixels of a chunk. Rebuilds the tile if the chunk changed.
+	 *
+	 * @param chunk
+	 * @return RGBA8888 pixels, row by row. Do not modify.
+	 */
+	public int[] getTile(Chunk chunk) {
+		long key = key(chunk.getChunkX(), chunk.getChunkY());
+		Tile tile = tiles.get(key);
+		if (tile == null) {
+			tile = new Tile();
+			tile.pixels = new int[getTileWidth() * getTileHeight()];
+			tiles.put(key, tile);
+		} else if (tile.generation == chunk.getGeneration()) {
+			return tile.pixels;
+		}
+		if (tile.pixels.length != getTileWidth() * getTileHeight()) {
+			tile.pixels = new int[getTileWidth() * getTileHeight()];
+		}
+		buildTile(chunk, colors, groundColor, tile.pixels);
+		tile.chunkX = chunk.getChunkX();
+		tile.chunkY = chunk.getChunkY();
+		tile.generation = chunk.getGeneration();
+		rebuilds++;
+		return tile.pixels;
+	}
+
+	/**
+	 * Check if the tile of the chunk must be rebuilt.
+	 *
+	 * @param chunk
+	 * @return true if the chunk changed since the tile was built
+	 */
+	public boolean isOutdated(Chunk chunk) {
+		Tile tile = tiles.get(key(chunk.getChunkX(), chunk.getChunkY()));
+		return tile == null || tile.generation != chunk.getGeneration();
+	}
+
+	/**
+	 * Removes every tile outside of an area of chunks.
+	 *
+	 * @param left chunk x of the left column of the area
+	 * @param top chunk y of the top row of the area
+	 * @param width amount of chunks in x direction
+	 * @param height amount of chunks in y direction
+	 */
+	public void prune(int left, int top, int width, int height) {
+		Iterator<Tile> it = tiles.values().iterator();
+		while (it.hasNext()) {
+			Tile tile = it.next();
+			if (tile.chunkX < left || tile.chunkX >= left + width
+				|| tile.chunkY < top || tile.chunkY >= top + height) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes the tile of a chunk, e.g. after the chunk was unloaded.
+	 *
+	 * @param chunkX
+	 * @param chunkY
+	 */
+	public void remove(int chunkX, int chunkY) {
+		tiles.remove(key(chunkX, chunkY));
+	}
+
+	/**
+	 * Forces the rebuild of every tile.
+	 */
+	public void invalidateAll() {
+		tiles.clear();
+	}
+
+	/**
+	 *
+	 * @return amount of tiles built since creation
+	 */
+	public int getRebuildCount() {
+		return rebuilds;
+	}
+
+	private static long key(int chunkX, int chunkY) {
+		return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Draws a chunk from top. The top block of every column is shaded by its
+	 * height.
+	 *
+	 * @param chunk
+	 * @param colors colors of the blocks
+	 * @param groundColor color of columns without a block as RGBA8888
+	 * @param out at least {@link #getTileWidth()}*{@link #getTileHeight()}
+	 * pixels as RGBA8888
+	 */
+	public static void buildTile(Chunk chunk, BlockColors colors, int groundColor, int[] out) {
+		int width = getTileWidth();
+		int left = chunk.getTopLeftCoordinateX();
+		int top = chunk.getTopLeftCoordinateY();
+		int maxZ = Chunk.getBlocksZ() - 1;
+		for (int y = 0; y < Chunk.getBlocksY(); y++) {
+			int row = y * width;
+			int shift = y % 2;
+			if (shift == 1) {
+				out[row] = 0;//empty half cell
+			}
+			for (int x = 0; x < Chunk.getBlocksX(); x++) {
+				int z = chunk.getSurfaceHeight(left + x, top + y);
+				int color;
+				if (z < 0) {
+					color = groundColor;
+				} else {
+					color = colors.getColor(
+						chunk.getBlockId(left + x, top + y, z),
+						chunk.getBlockValue(left + x, top + y, z)
+					);
+				}
+				color = shade(color, 1.5f * (z + 2) / (maxZ + 1));
+				int pixel = row + x * 2 + shift;
+				out[pixel] = color;
+				if (x * 2 + shift + 1 < width) {
+					out[pixel + 1] = color;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Multiplies the color channels and sets full alpha.
+	 *
+	 * @param rgba8888
+	 * @param factor
+	 * @return RGBA8888
+	 */
+	private static int shade(int rgba8888, float factor) {
+		int r = Math.min(255, (int) (((rgba8888 >>> 24) & 255) * factor));
+		int g = Math.min(255, (int) (((rgba8888 >>> 16) & 255) * factor));
+		int b = Math.min(255, (int) (((rgba8888 >>> 8) & 255) * factor));
+		return r << 24 | g << 16 | b << 8 | 255;
+	}
+}
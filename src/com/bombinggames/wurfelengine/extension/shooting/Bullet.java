@@ -30,23 +30,18 @@
  */
 package com.bombinggames.wurfelengine.extension.shooting;
 
-import com.badlogic.gdx.ai.msg.MessageManager;
-import com.badlogic.gdx.ai.msg.Telegram;
-import com.badlogic.gdx.graphics.Color;
 import com.bombinggames.wurfelengine.WE;
-import com.bombinggames.wurfelengine.core.Events;
+import com.bombinggames.wurfelengine.core.Controller;
 import com.bombinggames.wurfelengine.core.gameobjects.AbstractEntity;
 import com.bombinggames.wurfelengine.core.gameobjects.Explosion;
 import com.bombinggames.wurfelengine.core.gameobjects.MovableEntity;
-import com.bombinggames.wurfelengine.core.gameobjects.Particle;
-import com.bombinggames.wurfelengine.core.gameobjects.ParticleType;
 import com.bombinggames.wurfelengine.core.map.Coordinate;
 import com.bombinggames.wurfelengine.core.map.Point;
-import java.util.LinkedList;
 
 /**
  * A bullet is a moving object which can destroy and damage entities or the
- * world.
+ * world. It is moved by the {@link ProjectileSystem} of the map after it is
+ * spawned.
  *
  * @author Benedikt Vogler
  */
@@ -58,12 +53,16 @@ public class Bullet extends MovableEntity {
 	 * direction and speed of the bullet
 	 */
 	private byte damage;
-	private int distance = 0;//distance traveled
+	private float distance = 0;//distance traveled
 	private float maxDistance = 1000;//default maxDistance
 	private int explosive = 0;
 	private int impactSprite;
 	private Coordinate ignoreCoord;
 	private int ignoreId;
+	/**
+	 * the entity which fired the bullet, can not be hit by it
+	 */
+	private transient AbstractEntity shooter;
 
 	/**
 	 * You can set a different sprite via {@link #setSpriteId(byte)}. It uses
@@ -83,7 +82,7 @@ public class Bullet extends MovableEntity {
 	@Override
 	public MovableEntity spawn(Point point) {
 		super.spawn(point);
-		MessageManager.getInstance().addListener(this, Events.collided.getId());
+		Controller.getMap().getProjectileSystem().add(this);
 		return this;
 	}
 	
@@ -92,41 +91,7 @@ public class Bullet extends MovableEntity {
 		super.update(dt);
 		if (!hasPosition()) return;
 		
-		//apply gravity
-		//addMovement(new Vector3(0, 0, -WE.getCvars().getValueF("gravity") * dt*0.001f));
-		//Vector3 dMov = movement.cpy().scl(dt);
-		//dMov.z /= 1.414213562f;//mixed screen and game space together?
-		//getPosition().add(dMov);
 		setRotation(getRotation() + dt);
-
-		//only spawn specific distance then destroy self
-		distance += getSpeed();
-		if (distance > maxDistance) {
-			dispose();
-			return;
-		}
-
-        //check character hit
-		LinkedList<AbstractEntity> entitylist = getCollidingEntities();
-		//entitylist.remove(gun);//remove self from list to prevent self shooting
-		//remove
-		entitylist.removeIf(
-			item -> !item.isObstacle() || item.getPosition().toCoord().equals(ignoreCoord)
-		);
-		if (!entitylist.isEmpty()) {
-			MessageManager.getInstance().dispatchMessage(
-				this,
-				entitylist.getFirst(),//damage only the first unit on the list
-				Events.damage.getId(),
-				damage
-			);
-			Particle blood = new Particle();
-			blood.setColor(new Color(0.1f,0.05f,0.05f,1));
-			blood.setTTL(300);
-			blood.setType(ParticleType.SMOKE);//blood
-			blood.spawn(getPosition().cpy());
-			dispose();
-		}
 	}
 
 	/**
@@ -137,6 +102,10 @@ public class Bullet extends MovableEntity {
 		this.maxDistance = maxDistance;
 	}
 
+	float getMaxDistance() {
+		return maxDistance;
+	}
+
 	/**
 	 *
 	 * @param damage
@@ -145,6 +114,10 @@ public class Bullet extends MovableEntity {
 		this.damage = damage;
 	}
 
+	byte getDamage() {
+		return damage;
+	}
+
 	/**
 	 *
 	 * @param ex
@@ -177,14 +150,26 @@ public class Bullet extends MovableEntity {
 		impactSprite = id;
 	}
 
+	int getImpactSprite() {
+		return impactSprite;
+	}
+
 	/**
 	 *
 	 * @return the distance traveled.
 	 */
 	public int getDistance() {
+		return (int) distance;
+	}
+
+	float getDistanceF() {
 		return distance;
 	}
 
+	void addDistance(float distance) {
+		this.distance += distance;
+	}
+
 	/**
 	 * 
 	 * @param coord 
@@ -193,38 +178,29 @@ public class Bullet extends MovableEntity {
 		ignoreCoord = coord;
 	}
 
+	Coordinate getIgnoreCoord() {
+		return ignoreCoord;
+	}
+
+	/**
+	 * The bullet does not hit this entity and the cell it stands in when the
+	 * bullet is spawned.
+	 *
+	 * @param shooter the entity which fired the bullet, can be null
+	 */
+	public void setShooter(AbstractEntity shooter) {
+		this.shooter = shooter;
+	}
+
+	AbstractEntity getShooter() {
+		return shooter;
+	}
+
 	void ignoreBlock(int ignoreId) {
 		this.ignoreId = ignoreId;
 	}
 
-	@Override
-	public boolean handleMessage(Telegram msg) {
-		super.handleMessage(msg);
-		
-		if ( msg.sender == this
-			&&
-			msg.message == Events.collided.getId()
-			) {
-			//block hit -> spawn effect
-			if (
-				hasPosition()
-				&& getPosition().isObstacle()
-				&& (ignoreCoord == null
-					||
-					!ignoreCoord.equals(getPosition().toCoord())
-					)
-				&& ignoreId != getPosition().getBlockId()
-			) {
-				if (impactSprite != 0) {
-					Particle impactPart = new Particle();
-					impactPart.setTTL(400);
-					impactPart.setColor(new Color(0.4f, 0.3f, 0.2f, 1));
-					impactPart.setType(ParticleType.SMOKE);
-					impactPart.spawn(getPosition().cpy());
-				}
-				dispose();
-			}
-		}
-		return true;
+	int getIgnoreId() {
+		return ignoreId;
 	}
 }
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * If this software is used for a game the official „Wurfel Engine“ logo or its name must be
+ *   visible in an intro screen or main menu.
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.extension.shooting;
+
+import com.badlogic.gdx.ai.msg.MessageManager;
+import com.badlogic.gdx.math.Vector3;
+import com.bombinggames.wurfelengine.WE;
+import com.bombinggames.wurfelengine.core.Controller;
+import com.bombinggames.wurfelengine.core.Events;
+import com.bombinggames.wurfelengine.core.gameobjects.AbstractEntity;
+import com.bombinggames.wurfelengine.core.gameobjects.Explosion;
+import com.bombinggames.wurfelengine.core.gameobjects.ParticleType;
+import com.bombinggames.wurfelengine.core.map.Chunk;
+import com.bombinggames.wurfelengine.core.map.Coordinate;
+import com.bombinggames.wurfelengine.core.map.EntityIndex;
+import com.bombinggames.wurfelengine.core.map.Map;
+import com.bombinggames.wurfelengine.core.map.Point;
+import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
+import java.util.Arrays;
+
+/**
+ * Moves every {@link Bullet} in one pass. Each frame the way a bullet travels
+ * is treated as a line segment which is traced through the map with a voxel
+ * traversal and tested against the obstacle entities, so fast bullets can not
+ * tunnel through thin walls or entities. Hitscan weapons use the same tests
+ * with a segment covering the whole range. The entities are found with the
+ * {@link com.bombinggames.wurfelengine.core.map.EntityIndex} of the map.<br>
+ * The hits are collected and resolved together at the end of the update.
+ *
+ * @author Benedikt Vogler
+ * @see #hitscan(Point, Vector3, float, byte, int, int, int, AbstractEntity)
+ */
+public class ProjectileSystem {
+
+	/**
+	 * the sum of the collision radii of a bullet and an entity
+	 */
+	private static final float HITRADIUS = RenderCell.GAME_DIAGLENGTH2;
+	/**
+	 * how far a bullet stops in front of a block, in parts of the segment
+	 */
+	private static final float BACKOFF = 0.001f;
+
+	private Bullet[] bullets = new Bullet[64];
+	/**
+	 * velocity in m/s
+	 */
+	private float[] vx = new float[64];
+	private float[] vy = new float[64];
+	private float[] vz = new float[64];
+	private boolean[] gravity = new boolean[64];
+	private int size;
+
+	/**
+	 * hits of this frame, resolved in {@link #resolveHits()}
+	 */
+	private Bullet[] hitBullet = new Bullet[16];
+	private AbstractEntity[] hitEntity = new AbstractEntity[16];
+	private float[] hitX = new float[16];
+	private float[] hitY = new float[16];
+	private float[] hitZ = new float[16];
+	private byte[] hitDamage = new byte[16];
+	private int[] hitImpactSprite = new int[16];
+	private int[] hitExplosive = new int[16];
+	private int hitCount;
+
+	/**
+	 * Lets the system move the bullet. The movement of the bullet is used as
+	 * velocity. Called when the bullet is spawned.
+	 *
+	 * @param bullet a spawned bullet
+	 */
+	void add(Bullet bullet) {
+		if (size == bullets.length) {
+			int capacity = size * 2;
+			bullets = Arrays.copyOf(bullets, capacity);
+			vx = Arrays.copyOf(vx, capacity);
+			vy = Arrays.copyOf(vy, capacity);
+			vz = Arrays.copyOf(vz, capacity);
+			gravity = Arrays.copyOf(gravity, capacity);
+		}
+		Vector3 movement = bullet.getMovement();
+		bullets[size] = bullet;
+		vx[size] = movement.x;
+		vy[size] = movement.y;
+		vz[size] = movement.z;
+		gravity[size] = !bullet.isFloating();
+		size++;
+		//the system moves the bullet so the entity itself must stand still
+		bullet.setFloating(true);
+		//getMovement returns a copy, so clear the velocity of the entity itself
+		bullet.setMovement(Vector3.Zero);
+		//do not hit the one who fired it, like the hitscan
+		AbstractEntity shooter = bullet.getShooter();
+		if (bullet.getIgnoreCoord() == null && shooter != null && shooter.hasPosition()) {
+			bullet.ignoreCoord(shooter.getPosition().toCoord());
+		}
+	}
+
+	/**
+	 * Traces a ray from the origin and hits the first block or entity in the
+	 * way. The hit is resolved with the other hits of this frame.
+	 *
+	 * @param origin start of the ray
+	 * @param dir direction of the ray, does not need to be normalized
+	 * @param maxDistance in game space
+	 * @param damage damage dealt to the hit entity
+	 * @param impactSprite if not 0 spawns an impact effect at a block hit
+	 * @param explosive if &gt;0 spawns an explosion at the hit
+	 * @param ignoreId block id which is ignored
+	 * @param shooter this entity and the cell it stands in are ignored, so the ray
+	 * does not hit the one who fired it. Can be null.
+	 * @return true if something was hit
+	 */
+	public boolean hitscan(Point origin, Vector3 dir, float maxDistance, byte damage, int impactSprite, int explosive, int ignoreId, AbstractEntity shooter) {
+		float len = dir.len();
+		if (len == 0 || maxDistance <= 0) {
+			return false;
+		}
+		float scale = maxDistance / len;
+		float dx = dir.x * scale;
+		float dy = dir.y * scale;
+		float dz = dir.z * scale;
+		float x0 = origin.getX();
+		float y0 = origin.getY();
+		float z0 = origin.getZ();
+		Map map = Controller.getMap();
+		Coordinate ignoreCoord = shooter != null && shooter.hasPosition() ? shooter.getPosition().toCoord() : null;
+		float t = traceBlocks(map, x0, y0, z0, dx, dy, dz, ignoreCoord, ignoreId);
+		AbstractEntity entity = null;
+		EntityIndex index = map.getEntityIndex();
+		float tEnt = index.traceSegment(x0, y0, z0, dx, dy, dz, HITRADIUS, ignoreCoord, shooter);
+		if (tEnt <= t) {
+			t = tEnt;
+			entity = index.getHitEntity();
+		}
+		if (t > 1) {
+			return false;
+		}
+		if (entity == null) {
+			t = Math.max(0, t - BACKOFF);
+		}
+		addHit(null, entity, x0 + dx * t, y0 + dy * t, z0 + dz * t, damage, impactSprite, explosive);
+		return true;
+	}
+
+	/**
+	 * Moves every bullet and resolves the hits.
+	 *
+	 * @param dt time in ms
+	 */
+	public void update(float dt) {
+		if (size > 0) {
+			Map map = Controller.getMap();
+			float t = dt * 0.001f;//t = time in s
+			float gravityAcc = WE.getCVars().getValueF("gravity") * t;
+			int i = 0;
+			while (i < size) {
+				Bullet bullet = bullets[i];
+				if (!bullet.hasPosition()) {
+					remove(i);
+					continue;
+				}
+				if (gravity[i]) {
+					vz[i] -= gravityAcc;
+				}
+				Point pos = bullet.getPosition();
+				float x0 = pos.getX();
+				float y0 = pos.getY();
+				float z0 = pos.getZ();
+				float dx = vx[i] * t * RenderCell.GAME_EDGELENGTH;
+				float dy = vy[i] * t * RenderCell.GAME_EDGELENGTH;
+				float dz = vz[i] * t * RenderCell.GAME_EDGELENGTH;
+
+				//shorten the segment to the remaining distance
+				float len = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+				float remaining = bullet.getMaxDistance() - bullet.getDistanceF();
+				boolean expires = len >= remaining;
+				if (expires && len > 0) {
+					float scale = Math.max(remaining, 0) / len;
+					dx *= scale;
+					dy *= scale;
+					dz *= scale;
+					len *= scale;
+				}
+
+				float tHit = traceBlocks(map, x0, y0, z0, dx, dy, dz, bullet.getIgnoreCoord(), bullet.getIgnoreId());
+				AbstractEntity entity = null;
+				EntityIndex index = map.getEntityIndex();
+				float tEnt = index.traceSegment(x0, y0, z0, dx, dy, dz, HITRADIUS, bullet.getIgnoreCoord(), bullet.getShooter());
+				if (tEnt <= tHit) {
+					tHit = tEnt;
+					entity = index.getHitEntity();
+				}
+
+				if (tHit <= 1) {
+					if (entity == null) {
+						tHit = Math.max(0, tHit - BACKOFF);
+					}
+					pos.set(x0 + dx * tHit, y0 + dy * tHit, z0 + dz * tHit);
+					bullet.addDistance(len * tHit);
+					addHit(bullet, entity, pos.getX(), pos.getY(), pos.getZ(), bullet.getDamage(), bullet.getImpactSprite(), 0);
+					remove(i);
+				} else {
+					pos.set(x0 + dx, y0 + dy, z0 + dz);
+					bullet.addDistance(len);
+					if (expires) {
+						bullet.dispose();
+						remove(i);
+					} else {
+						i++;
+					}
+				}
+			}
+		}
+		resolveHits();
+	}
+
+	/**
+	 * Removes by swapping with the last bullet.
+	 *
+	 * @param i
+	 */
+	private void remove(int i) {
+		size--;
+		bullets[i] = bullets[size];
+		vx[i] = vx[size];
+		vy[i] = vy[size];
+		vz[i] = vz[size];
+		gravity[i] = gravity[size];
+		bullets[size] = null;
+	}
+
+	private void addHit(Bullet bullet, AbstractEntity entity, float x, float y, float z, byte damage, int impactSprite, int explosive) {
+		if (hitCount == hitBullet.length) {
+			int capacity = hitCount * 2;
+			hitBullet = Arrays.copyOf(hitBullet, capacity);
+			hitEntity = Arrays.copyOf(hitEntity, capacity);
+			hitX = Arrays.copyOf(hitX, capacity);
+			hitY = Arrays.copyOf(hitY, capacity);
+			hitZ = Arrays.copyOf(hitZ, capacity);
+			hitDamage = Arrays.copyOf(hitDamage, capacity);
+			hitImpactSprite = Arrays.copyOf(hitImpactSprite, capacity);
+			hitExplosive = Arrays.copyOf(hitExplosive, capacity);
+		}
+		hitBullet[hitCount] = bullet;
+		hitEntity[hitCount] = entity;
+		hitX[hitCount] = x;
+		hitY[hitCount] = y;
+		hitZ[hitCount] = z;
+		hitDamage[hitCount] = damage;
+		hitImpactSprite[hitCount] = impactSprite;
+		hitExplosive[hitCount] = explosive;
+		hitCount++;
+	}
+
+	/**
+	 * Sends the damage, spawns the effects and removes the bullets of every
+	 * hit.
+	 */
+	private void resolveHits() {
+		for (int i = 0; i < hitCount; i++) {
+			AbstractEntity entity = hitEntity[i];
+			if (entity != null) {
+				MessageManager.getInstance().dispatchMessage(
+					hitBullet[i],
+					entity,
+					Events.damage.getId(),
+					hitDamage[i]
+				);
+				Controller.getMap().getParticleSystem().add(
+					ParticleType.SMOKE,//blood
+					(byte) 22,
+					hitX[i], hitY[i], hitZ[i],
+					0, 0, 0,
+					0.1f, 0.05f, 0.05f, 1,
+					300
+				);
+			} else if (hitImpactSprite[i] != 0) {
+				Controller.getMap().getParticleSystem().add(
+					ParticleType.SMOKE,
+					(byte) 22,
+					hitX[i], hitY[i], hitZ[i],
+					0, 0, 0,
+					0.4f, 0.3f, 0.2f, 1,
+					400
+				);
+			}
+			if (hitBullet[i] != null) {
+				hitBullet[i].dispose();
+			} else if (hitExplosive[i] > 0) {
+				new Explosion(
+					3,
+					(byte) 80,
+					WE.getGameplay().getView().getCameras().get(0)
+				).spawn(new Point(hitX[i], hitY[i], hitZ[i]));
+			}
+			hitBullet[i] = null;
+			hitEntity[i] = null;
+		}
+		hitCount = 0;
+	}
+
+	/**
+	 * Traverses the cells crossed by the segment. The staggered map is a
+	 * square grid rotated by 45° so the traversal is done on the diagonal axes
+	 * u=x+y and v=x-y.
+	 *
+	 * @param map
+	 * @param x0 start of the segment
+	 * @param y0
+	 * @param z0
+	 * @param dx the segment
+	 * @param dy
+	 * @param dz
+	 * @param ignoreCoord can be null
+	 * @param ignoreId
+	 * @return segment parameter in [0,1] where the first obstacle block is
+	 * entered, or a value &gt;1 if nothing is hit
+	 */
+	private float traceBlocks(Map map, float x0, float y0, float z0, float dx, float dy, float dz, Coordinate ignoreCoord, int ignoreId) {
+		float u = (x0 + y0) / RenderCell.GAME_DIAGLENGTH + 0.5f;
+		float v = (x0 - y0) / RenderCell.GAME_DIAGLENGTH + 0.5f;
+		float w = z0 / RenderCell.GAME_EDGELENGTH;
+		float du = (dx + dy) / RenderCell.GAME_DIAGLENGTH;
+		float dv = (dx - dy) / RenderCell.GAME_DIAGLENGTH;
+		float dw = dz / RenderCell.GAME_EDGELENGTH;
+
+		int cu = (int) Math.floor(u);
+		int cv = (int) Math.floor(v);
+		int cw = (int) Math.floor(w);
+		int stepU = du > 0 ? 1 : -1;
+		int stepV = dv > 0 ? 1 : -1;
+		int stepW = dw > 0 ? 1 : -1;
+		float tDeltaU = du == 0 ? Float.POSITIVE_INFINITY : Math.abs(1 / du);
+		float tDeltaV = dv == 0 ? Float.POSITIVE_INFINITY : Math.abs(1 / dv);
+		float tDeltaW = dw == 0 ? Float.POSITIVE_INFINITY : Math.abs(1 / dw);
+		float tMaxU = du == 0 ? Float.POSITIVE_INFINITY : (du > 0 ? cu + 1 - u : u - cu) * tDeltaU;
+		float tMaxV = dv == 0 ? Float.POSITIVE_INFINITY : (dv > 0 ? cv + 1 - v : v - cv) * tDeltaV;
+		float tMaxW = dw == 0 ? Float.POSITIVE_INFINITY : (dw > 0 ? cw + 1 - w : w - cw) * tDeltaW;
+
+		int blocksZ = Chunk.getBlocksZ();
+		//remember the last chunk because the cells are neighbours
+		Chunk chunk = null;
+		float tEntry = 0;
+		while (tEntry <= 1) {
+			if (cw < 0) {
+				return tEntry;//ground
+			}
+			if (cw < blocksZ) {
+				int x = Math.floorDiv(cu + cv, 2);
+				int y = cu - cv;
+				if (chunk == null
+					|| x < chunk.getTopLeftCoordinateX()
+					|| x >= chunk.getTopLeftCoordinateX() + Chunk.getBlocksX()
+					|| y < chunk.getTopLeftCoordinateY()
+					|| y >= chunk.getTopLeftCoordinateY() + Chunk.getBlocksY()
+				) {
+					chunk = map.getChunkContaining(x, y);
+				}
+				if (chunk != null) {
+					byte[] column = chunk.getData()[x - chunk.getTopLeftCoordinateX()][y - chunk.getTopLeftCoordinateY()];
+					byte id = column[cw * 3];
+					if (id != ignoreId
+						&& RenderCell.isObstacle(id, column[cw * 3 + 1])
+						&& (ignoreCoord == null
+							|| ignoreCoord.getX() != x
+							|| ignoreCoord.getY() != y
+							|| ignoreCoord.getZ() != cw)
+					) {
+						return tEntry;
+					}
+				}
+			} else if (dw >= 0) {
+				return Float.POSITIVE_INFINITY;//above the map and not coming back
+			}
+
+			if (tMaxU < tMaxV) {
+				if (tMaxU < tMaxW) {
+					tEntry = tMaxU;
+					cu += stepU;
+					tMaxU += tDeltaU;
+				} else {
+					tEntry = tMaxW;
+					cw += stepW;
+					tMaxW += tDeltaW;
+				}
+			} else if (tMaxV < tMaxW) {
+				tEntry = tMaxV;
+				cv += stepV;
+				tMaxV += tDeltaV;
+			} else {
+				tEntry = tMaxW;
+				cw += stepW;
+				tMaxW += tDeltaW;
+			}
+		}
+		return Float.POSITIVE_INFINITY;
+	}
+
+	/**
+	 *
+	 * @return the amount of flying bullets
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Forgets every bullet and pending hit.
+	 */
+	public void clear() {
+		Arrays.fill(bullets, 0, size, null);
+		size = 0;
+		Arrays.fill(hitBullet, 0, hitCount, null);
+		Arrays.fill(hitEntity, 0, hitCount, null);
+		hitCount = 0;
+	}
+}
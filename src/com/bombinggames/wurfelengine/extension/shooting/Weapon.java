@@ -35,10 +35,10 @@ import com.badlogic.gdx.ai.msg.Telegraph;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.Vector3;
 import com.bombinggames.wurfelengine.WE;
+import com.bombinggames.wurfelengine.core.Controller;
 import com.bombinggames.wurfelengine.core.Events;
 import com.bombinggames.wurfelengine.core.gameobjects.AbstractEntity;
 import com.bombinggames.wurfelengine.core.gameobjects.AbstractGameObject;
-import com.bombinggames.wurfelengine.core.gameobjects.Particle;
 import com.bombinggames.wurfelengine.core.gameobjects.ParticleType;
 import com.bombinggames.wurfelengine.core.gameobjects.PointLightSource;
 import com.bombinggames.wurfelengine.core.map.Point;
@@ -91,6 +91,10 @@ public class Weapon extends AbstractEntity implements Telegraph {
 	 */
 	private boolean firing;
 	private boolean fireSoundBust;
+	/**
+	 * if true the shots hit instantly without spawning bullets
+	 */
+	private boolean hitscan;
 	private boolean bustSoundReady = true;
 	private Point fixedPos = null;
 	private transient AimBand particleBand;
@@ -373,15 +377,37 @@ public class Weapon extends AbstractEntity implements Telegraph {
 			firing = true;
 
 			//muzzle flash
-			Particle flash = new Particle();
-			flash.setTTL(400);
-			flash.setColor(Color.YELLOW.cpy());
-			flash.setType(ParticleType.FIRE);
-			flash.spawn(getPosition().toPoint());
-			flash.setMovement(aimDir.cpy().scl(4f));
+			Controller.getMap().getParticleSystem().add(
+				ParticleType.FIRE,
+				(byte) 22,
+				getPosition().getX(),
+				getPosition().getY(),
+				getPosition().getZ(),
+				aimDir.x * 4f,
+				aimDir.y * 4f,
+				aimDir.z * 4f,
+				Color.YELLOW.r, Color.YELLOW.g, Color.YELLOW.b, Color.YELLOW.a,
+				400
+			);
 		
             //shot bullets
             for (int i = 0; i < bps; i++) {
+				if (hitscan) {
+					Vector3 aiming = aimDir.cpy();
+					aiming.x += Math.random() * (spread*2) -spread;
+					aiming.y += Math.random() * (spread*2) -spread;
+					Controller.getMap().getProjectileSystem().hitscan(
+						getPosition(),
+						aiming,
+						distance*RenderCell.GAME_EDGELENGTH,
+						damage,
+						impactSprite,
+						explode,
+						ignoreId,
+						getShooter()
+					);
+					continue;
+				}
 
                 //pos.setHeight(pos.getHeight()+AbstractGameObject.GAME_EDGELENGTH);
 				Bullet bullet = new Bullet();
@@ -404,12 +430,40 @@ public class Weapon extends AbstractEntity implements Telegraph {
                 bullet.setExplosive(explode);
                 bullet.setImpactSprite(impactSprite);
 				bullet.ignoreBlock(ignoreId);
-				//bullet.ignoreCoord(getPosition().toCoord());
+				bullet.setShooter(getShooter());
                 bullet.spawn(getPosition().toPoint()); 
             }
         }
     }
 	
+	/**
+	 *
+	 * @return the holder of the weapon, or the weapon if the holder is no
+	 * entity
+	 */
+	private AbstractEntity getShooter() {
+		return parent instanceof AbstractEntity ? (AbstractEntity) parent : this;
+	}
+
+	/**
+	 * Hitscan weapons hit the first block or entity in the aiming direction
+	 * in the same frame instead of spawning bullets.
+	 *
+	 * @param hitscan
+	 */
+	public void setHitscan(boolean hitscan) {
+		this.hitscan = hitscan;
+	}
+
+	/**
+	 *
+	 * @return
+	 * @see #setHitscan(boolean)
+	 */
+	public boolean isHitscan() {
+		return hitscan;
+	}
+
 	/**
 	 * 
 	 * @param id 
@@ -42,7 +42,6 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
-import com.bombinggames.wurfelengine.Command;
 import com.bombinggames.wurfelengine.WE;
 import com.bombinggames.wurfelengine.core.Camera;
 import com.bombinggames.wurfelengine.core.Controller;
@@ -52,7 +51,6 @@ import com.bombinggames.wurfelengine.core.GameView;
 import com.bombinggames.wurfelengine.core.gameobjects.AbstractEntity;
 import com.bombinggames.wurfelengine.core.gameobjects.Cursor;
 import com.bombinggames.wurfelengine.core.gameobjects.EntityShadow;
-import com.bombinggames.wurfelengine.core.map.Chunk;
 import com.bombinggames.wurfelengine.core.map.Coordinate;
 import com.bombinggames.wurfelengine.core.map.Position;
 import java.io.FileNotFoundException;
@@ -208,25 +206,17 @@ public class EditorView extends GameView implements Telegraph {
 			y1 = y2;
 			y2 = tmp;
 		}
-		ArrayList<AbstractEntity> newSel = new ArrayList<>(4);
-		for (AbstractEntity ent : getMap().getEntities()) {
-			if (ent.hasPosition()) {
-				TextureAtlas.AtlasRegion aR = ent.getSprite();
-				if (aR != null
-					&& ent.getPosition().getViewSpcX() + ent.getSprite().getRegionWidth() / 2 >= x1 //right sprite borde
-					&& ent.getPosition().getViewSpcX() - ent.getSprite().getRegionWidth() / 2 <= x2 //left spr. border
-					&& ent.getPosition().getViewSpcY() - ent.getSprite().getRegionHeight() / 2 <= y2 //bottom spr. border
-					&& ent.getPosition().getViewSpcY() + ent.getSprite().getRegionHeight() / 2 >= y1 //top spr. border
-					&& ! (ent instanceof Cursor)
-					&& ! ent.getName().equalsIgnoreCase("cursor normal")) {
-					newSel.add(ent);
-					MessageManager.getInstance().dispatchMessage(
-						this,
-						ent,
-						Events.selectInEditor.getId()
-					);
-				}
-			}
+		ArrayList<AbstractEntity> newSel = getPicking().getAllInRect(
+			x1, y1, x2, y2,
+			AbstractEntity.class,
+			ent -> !(ent instanceof Cursor) && !ent.getName().equalsIgnoreCase("cursor normal")
+		);
+		for (AbstractEntity ent : newSel) {
+			MessageManager.getInstance().dispatchMessage(
+				this,
+				ent,
+				Events.selectInEditor.getId()
+			);
 		}
 		//identify the ones which are deselected
 		ArrayList<AbstractEntity> unselect = getController().getSelectedEntities();
@@ -615,24 +605,10 @@ public class EditorView extends GameView implements Telegraph {
 			) {
 				lastCoord = coords;
 				getController().executeCommand(
-					new Command() {
-						private int previous;
-						private int block =-1;
-
-						@Override
-						public void execute() {
-							if (block == -1) {
-								block = ((BlockTable) toolSelection.getActiveTable()).getSelectedBlock();
-								previous = coords.getBlock();
-							}
-							Controller.getMap().setBlock(coords, block);
-						}
-
-						@Override
-						public void undo() {
-							Controller.getMap().setBlock(coords, previous);
-						}
-					}
+					getMap().beginTransaction().setBlock(
+						coords,
+						((BlockTable) toolSelection.getActiveTable()).getSelectedBlock()
+					)
 				);
 			}
 
@@ -648,21 +624,14 @@ public class EditorView extends GameView implements Telegraph {
 			AbstractEntity entityUnderMouse = null;
 			if (toolSelection.getLeftTool() == Tool.SELECT && !selecting) {
 				//find ent under mouse
-				for (AbstractEntity ent : getMap().getEntities()) {
-					if (ent.hasPosition()
-						&& ent.getSpriteId() > 0
-						&& ent.getSpriteValue() > -1
-						&& ent.getPosition().getViewSpcX() + ent.getSprite().getRegionWidth() / 2 >= (int) screenXtoView(screenX, camera) //right sprite borde
-						&& ent.getPosition().getViewSpcX() - ent.getSprite().getRegionWidth() / 2 <= (int) screenXtoView(screenX, camera) //left spr. border
-						&& ent.getPosition().getViewSpcY() - ent.getSprite().getRegionHeight() / 2 <= (int) screenYtoView(screenY, camera) //bottom spr. border
-						&& ent.getPosition().getViewSpcY() + ent.getSprite().getRegionHeight() / 2 >= (int) screenYtoView(screenY, camera) //top spr. border
-						&& !(ent instanceof EntityShadow)
-						&& ! (ent instanceof Cursor)
+				entityUnderMouse = getPicking().getTopmost(
+					(int) screenXtoView(screenX, camera),
+					(int) screenYtoView(screenY, camera),
+					AbstractEntity.class,
+					ent -> !(ent instanceof EntityShadow)
+						&& !(ent instanceof Cursor)
 						&& !ent.getName().equalsIgnoreCase("cursor normal")
-					) {
-						entityUnderMouse = ent;
-					}
-				}
+				);
 			}
 
 			//if entity under mosue is selected
@@ -695,13 +664,8 @@ public class EditorView extends GameView implements Telegraph {
 
 		@Override
 		public boolean scrolled(int amount) {
-			if (amount > 0 && view.getRenderStorage().getZRenderingLimit()==Float.POSITIVE_INFINITY){
-				view.getRenderStorage().setZRenderingLimit(Chunk.getGameHeight() - amount*100);
-			} else {
-				if (view.getRenderStorage().getZRenderingLimit() - amount*100 > Chunk.getGameHeight()) {
-					view.getRenderStorage().setZRenderingLimit(Float.POSITIVE_INFINITY);
-				} else view.getRenderStorage().setZRenderingLimit(view.getRenderStorage().getZRenderingLimit() - amount*100);
-			}
+			//every step shows one layer more or less
+			view.getRenderStorage().setZCutLayer(view.getRenderStorage().getZCutLayer() - amount);
 			return true;
 		}
 
@@ -720,15 +684,13 @@ public class EditorView extends GameView implements Telegraph {
 				bottom = from.getY();
 			}
 
-			for (int x = left; x <= right; x++) {
-				for (int y = top; y <= bottom; y++) {
-					getMap().setBlock(
-						new Coordinate(x, y, from.getZ()),
-						((BlockTable) toolSelection.getActiveTable()).getIdOfSelection(),
-						toolSelection.getActiveTable().getValue()
-					);
-				}
-			}
+			getController().executeCommand(
+				getMap().beginTransaction().fill(
+					new Coordinate(left, top, from.getZ()),
+					new Coordinate(right, bottom, from.getZ()),
+					((BlockTable) toolSelection.getActiveTable()).getSelectedBlock()
+				)
+			);
 		}
 
 	}
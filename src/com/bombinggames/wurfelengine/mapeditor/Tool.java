@@ -9,7 +9,6 @@ import com.bombinggames.wurfelengine.Command;
 import com.bombinggames.wurfelengine.core.Controller;
 import com.bombinggames.wurfelengine.core.gameobjects.AbstractEntity;
 import com.bombinggames.wurfelengine.core.gameobjects.Cursor;
-import com.bombinggames.wurfelengine.core.map.Coordinate;
 import com.bombinggames.wurfelengine.core.map.Point;
 
 /**
@@ -82,47 +81,15 @@ public enum Tool {
 	public Command getCommand(Cursor cursor, AbstractPlacableTable placableTable) {
 		switch (this) {
 			case DRAW:
-				return new Command() {
-					private Coordinate coord;
-					private int previous;
-					private int block;
-
-					@Override
-					public void execute() {
-						if (coord == null) {
-							coord = cursor.getCoordInNormalDirection();
-							block = ((BlockTable) placableTable).getSelectedBlock();
-							previous = coord.getBlock();
-						}
-						Controller.getMap().setBlock(coord, block);
-					}
-
-					@Override
-					public void undo() {
-						Controller.getMap().setBlock(coord, previous);
-					}
-				};
+				return Controller.getMap().beginTransaction().setBlock(
+					cursor.getCoordInNormalDirection(),
+					((BlockTable) placableTable).getSelectedBlock()
+				);
 			case REPLACE:
-				return new Command() {
-					private Coordinate coord;
-					private int previous;
-					private int block;
-
-					@Override
-					public void execute() {
-						if (coord == null) {
-							coord = cursor.getPosition().toCoord();
-							block = ((BlockTable) placableTable).getSelectedBlock();
-							previous = coord.getBlock();
-						}
-						Controller.getMap().setBlock(coord, block);
-					}
-
-					@Override
-					public void undo() {
-						Controller.getMap().setBlock(coord, previous);
-					}
-				};
+				return Controller.getMap().beginTransaction().setBlock(
+					cursor.getPosition().toCoord(),
+					((BlockTable) placableTable).getSelectedBlock()
+				);
 			case SPAWN:
 				return new Command() {
 					private AbstractEntity ent = null;
@@ -148,24 +115,10 @@ public enum Tool {
 			case ERASE:
 			default:
 				//erase
-				return new Command() {
-					private int previous;
-					private Coordinate coord;
-
-					@Override
-					public void execute() {
-						if (coord == null) {
-							coord = cursor.getPosition().toCoord();
-							previous = coord.getBlock();
-						}
-						Controller.getMap().setBlock(coord, (byte) 0);
-					}
-
-					@Override
-					public void undo() {
-						Controller.getMap().setBlock(coord, previous);
-					}
-				};
+				return Controller.getMap().beginTransaction().setBlock(
+					cursor.getPosition().toCoord(),
+					100 << 16//air with full health
+				);
 		}
 	}
 	
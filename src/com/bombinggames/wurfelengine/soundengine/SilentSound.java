@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.soundengine;
+
+import com.badlogic.gdx.audio.Sound;
+
+/**
+ * A sound which plays nothing. Can be registered instead of a loaded sound to
+ * run the sound engine headless, e.g. on a server or without an audio device.
+ *
+ * @author Benedikt Vogler
+ */
+public class SilentSound implements Sound {
+
+	private long nextId = 0;
+
+	@Override
+	public long play() {
+		return nextId++;
+	}
+
+	@Override
+	public long play(float volume) {
+		return nextId++;
+	}
+
+	@Override
+	public long play(float volume, float pitch, float pan) {
+		return nextId++;
+	}
+
+	@Override
+	public long loop() {
+		return nextId++;
+	}
+
+	@Override
+	public long loop(float volume) {
+		return nextId++;
+	}
+
+	@Override
+	public long loop(float volume, float pitch, float pan) {
+		return nextId++;
+	}
+
+	@Override
+	public void stop() {
+	}
+
+	@Override
+	public void pause() {
+	}
+
+	@Override
+	public void resume() {
+	}
+
+	@Override
+	public void dispose() {
+	}
+
+	@Override
+	public void stop(long soundId) {
+	}
+
+	@Override
+	public void pause(long soundId) {
+	}
+
+	@Override
+	public void resume(long soundId) {
+	}
+
+	@Override
+	public void setLooping(long soundId, boolean looping) {
+	}
+
+	@Override
+	public void setPitch(long soundId, float pitch) {
+	}
+
+	@Override
+	public void setVolume(long soundId, float volume) {
+	}
+
+	@Override
+	public void setPan(long soundId, float pan, float volume) {
+	}
+}
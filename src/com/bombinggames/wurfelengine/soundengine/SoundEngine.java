@@ -37,6 +37,8 @@ import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.bombinggames.wurfelengine.WE;
 import com.bombinggames.wurfelengine.core.Camera;
 import com.bombinggames.wurfelengine.core.GameView;
+import com.bombinggames.wurfelengine.core.map.Coordinate;
+import com.bombinggames.wurfelengine.core.map.Point;
 import com.bombinggames.wurfelengine.core.map.Position;
 import com.bombinggames.wurfelengine.core.map.rendering.RenderCell;
 import java.io.FileNotFoundException;
@@ -44,15 +46,46 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
- * Manages the sounds in the game world.
+ * Manages the sounds in the game world. Every play goes through a
+ * {@link VoiceManager} which limits the amount of sounds playing at the same
+ * time. The positions of the cameras and the volume settings are cached once
+ * per frame so that a play only needs a squared distance to decide how loud it
+ * is or if it is dropped.
  *
  * @author Benedikt Vogler
  */
 public class SoundEngine {
 
-	private final HashMap<String, Sound> sounds = new HashMap<>(10);
+	/**
+	 * sounds quieter than this are not played
+	 */
+	private static final float MIN_VOLUME = 0.1f;
+
+	private final HashMap<String, SoundProfile> sounds = new HashMap<>(10);
 	private final ArrayList<SoundInstance> playingLoops = new ArrayList<>(4);
+	private final VoiceManager voices = new VoiceManager();
+	/**
+	 * the stolen voices when the loops were checked last
+	 */
+	private int checkedStolen;
 	private GameView view;
+	/**
+	 * game space x and y of the cameras
+	 */
+	private float[] listeners = new float[12];
+	private int listenerCount;
+	/**
+	 * view space x of the first camera used for panning
+	 */
+	private float panCenter;
+	/**
+	 * cached cvar "sound"
+	 */
+	private float soundVolume = 1;
+	/**
+	 * cached cvar "soundDecay" in game space
+	 */
+	private float decay;
 	/**
 	 * loudness of the musicLoudness 0-1
 	 */
@@ -86,13 +119,67 @@ public class SoundEngine {
 		if (!sounds.containsKey(identifier)) {
 			try {
 				Sound s = WE.getAsset(path);
-				sounds.put(identifier, s);
+				sounds.put(identifier, new SoundProfile(s));
 			} catch (FileNotFoundException ex) {
 				Gdx.app.debug("SoundEngine", "Registering of "+ identifier+ " failed. File may not be loaded.");
 			}
 		}
 	}
 
+	/**
+	 * Registers a sound which is already loaded, e.g. a {@link SilentSound}
+	 * to run without audio. You can not register a sound twice.
+	 *
+	 * @param identifier name of sound
+	 * @param sound the sound
+	 */
+	public void register(String identifier, Sound sound) {
+		if (!sounds.containsKey(identifier)) {
+			sounds.put(identifier, new SoundProfile(sound));
+		}
+	}
+
+	/**
+	 * Set how important a sound is. If every voice is in use a sound can stop
+	 * sounds with a lower priority.
+	 *
+	 * @param identifier name of sound
+	 * @param priority default is 0
+	 */
+	public void setPriority(String identifier, int priority) {
+		SoundProfile profile = sounds.get(identifier);
+		if (profile != null) {
+			profile.priority = priority;
+		}
+	}
+
+	/**
+	 * Set the minimum time between two plays of a sound. Plays during the
+	 * cooldown are dropped.
+	 *
+	 * @param identifier name of sound
+	 * @param cooldown time in ms, default is 0
+	 */
+	public void setCooldown(String identifier, float cooldown) {
+		SoundProfile profile = sounds.get(identifier);
+		if (profile != null) {
+			profile.cooldown = cooldown;
+		}
+	}
+
+	/**
+	 * Set how long a play of the sound occupies a voice.
+	 *
+	 * @param identifier name of sound
+	 * @param duration time in ms, default is 1000
+	 */
+	public void setDuration(String identifier, float duration) {
+		SoundProfile profile = sounds.get(identifier);
+		if (profile != null) {
+			profile.duration = duration;
+		}
+	}
+
 	/**
 	 *
 	 * @param identifier name of sound
@@ -123,22 +210,17 @@ public class SoundEngine {
 	 * @param volume default is 1
 	 */
 	public void play(String identifier, Position pos, float volume) {
-		Sound result = sounds.get(identifier);
+		SoundProfile result = sounds.get(identifier);
 		if (result != null) {
 			float pan = 0;
 			if (pos != null) {
 				volume = volume * getVolume(pos);
-				if (view.getCameras().size() > 0) {
-					pan = pos.getViewSpcX() - view.getCameras().get(0).getViewSpaceX();
-					pan /= 500;//arbitrary chosen
-					if (pan > 1) pan = 1;
-					if (pan < -1) pan = -1;
-				}
+				pan = getPan(pos);
 			} else {
-				volume *= WE.getCVars().getValueF("sound");
+				volume *= soundVolume;
 			}
-			if (volume >= 0.1) { //only play sound louder>10%
-				result.play(volume, 1, pan);
+			if (volume >= MIN_VOLUME) { //only play sound louder>10%
+				voices.play(result, volume, 1, pan);
 			}
 		}
 	}
@@ -151,9 +233,9 @@ public class SoundEngine {
 	 * @return
 	 */
 	public long play(String identifier, float volume) {
-		Sound result = sounds.get(identifier);
+		SoundProfile result = sounds.get(identifier);
 		if (result != null) {
-			return result.play(volume * WE.getCVars().getValueF("sound"));
+			return voices.play(result, volume * soundVolume, 1, 0);
 		}
 		return 0;
 	}
@@ -168,9 +250,9 @@ public class SoundEngine {
 	 * @return
 	 */
 	public long play(String identifier, float volume, float pitch) {
-		Sound result = sounds.get(identifier);
+		SoundProfile result = sounds.get(identifier);
 		if (result != null) {
-			return result.play(volume * WE.getCVars().getValueF("sound"), pitch, 0);
+			return voices.play(result, volume * soundVolume, pitch, 0);
 		}
 		return 0;
 	}
@@ -187,9 +269,9 @@ public class SoundEngine {
 	 * @return
 	 */
 	public long play(String identifier, float volume, float pitch, float pan) {
-		Sound result = sounds.get(identifier);
+		SoundProfile result = sounds.get(identifier);
 		if (result != null) {
-			return result.play(volume * WE.getCVars().getValueF("sound"), pitch, pan);
+			return voices.play(result, volume * soundVolume, pitch, pan);
 		}
 		return 0;
 	}
@@ -202,9 +284,9 @@ public class SoundEngine {
 	 * @see com.​badlogic.​gdx.​audio.​Sound#loop
 	 */
 	public long loop(String identifier) {
-		Sound result = sounds.get(identifier);
+		SoundProfile result = sounds.get(identifier);
 		if (result != null) {
-			return result.loop(WE.getCVars().getValueF("sound"));
+			return voices.loop(result, soundVolume);
 		}
 		return 0;
 	}
@@ -220,10 +302,12 @@ public class SoundEngine {
 	 * @see com.badlogic.​gdx.​audio.​Sound#loop()
 	 */
 	public long loop(String identifier, Position pos) {
-		Sound result = sounds.get(identifier);
+		SoundProfile result = sounds.get(identifier);
 		if (result != null) {
-			long id = result.loop(WE.getCVars().getValueF("sound"));
-			playingLoops.add(new SoundInstance(this, result, id, pos));
+			long id = voices.loop(result, soundVolume);
+			if (id != -1) {
+				playingLoops.add(new SoundInstance(this, result, id, pos));
+			}
 			return id;
 		}
 		return 0;
@@ -235,12 +319,13 @@ public class SoundEngine {
 	 * @param identifier name of sound
 	 */
 	public void stop(String identifier) {
-		Sound result = sounds.get(identifier);
+		SoundProfile result = sounds.get(identifier);
 		if (result != null) {
-			result.stop();
+			result.sound.stop();
+			voices.remove(result);
 		}
 		//remove from playing loops list
-		playingLoops.removeIf(s -> s.sound.equals(result));
+		playingLoops.removeIf(s -> s.profile == result);
 	}
 
 	/**
@@ -252,12 +337,13 @@ public class SoundEngine {
 	 * @see com.badlogic.gdx.audio.Sound#stop()
 	 */
 	public void stop(String identifier, long instance) {
-		Sound result = sounds.get(identifier);
+		SoundProfile result = sounds.get(identifier);
 		if (result != null) {
-			result.stop(instance);
+			result.sound.stop(instance);
+			voices.remove(result, instance);
 		}
 		//remove from playing loops list if with this instance id
-		playingLoops.removeIf(s -> s.sound.equals(result) && s.id == instance);
+		playingLoops.removeIf(s -> s.profile == result && s.id == instance);
 	}
 
 	/**
@@ -265,7 +351,8 @@ public class SoundEngine {
 	 */
 	public void stopEverySound() {
 		playingLoops.clear();
-		sounds.values().forEach(s -> s.stop());
+		voices.clear();
+		sounds.values().forEach(s -> s.sound.stop());
 	}
 
 	/**
@@ -278,9 +365,10 @@ public class SoundEngine {
 	 * @see com.​badlogic.​gdx.​audio.​Sound#setVolume()
 	 */
 	public void setVolume(String identifier, long instance, float volume) {
-		Sound result = sounds.get(identifier);
+		SoundProfile result = sounds.get(identifier);
 		if (result != null) {
-			result.setVolume(instance, volume);
+			result.sound.setVolume(instance, volume);
+			voices.setVolume(result, instance, volume);
 		}
 	}
 
@@ -293,6 +381,13 @@ public class SoundEngine {
 		if (loudness != getMusicLoudness()) {
 			setMusicLoudness(loudness);
 		}
+		voices.update(dt, WE.getCVars().getValueI("soundMaxVoices"));
+		updateListeners();
+		//a loop whose voice was stolen is stopped and must not be updated
+		if (checkedStolen != voices.getStolenCount()) {
+			checkedStolen = voices.getStolenCount();
+			playingLoops.removeIf(s -> !voices.isActive(s.profile, s.id));
+		}
 		for (SoundInstance sound : playingLoops) {
 			sound.update();
 		}
@@ -303,14 +398,39 @@ public class SoundEngine {
 	 * reload a game. so stop them instead
 	 */
 	public void dispose() {
-		for (Sound s : sounds.values()) {
-			s.dispose();
+		for (SoundProfile s : sounds.values()) {
+			s.sound.dispose();
+		}
+	}
+
+	/**
+	 * Caches the positions of the cameras and the volume settings for this
+	 * frame.
+	 */
+	private void updateListeners() {
+		soundVolume = WE.getCVars().getValueF("sound");
+		decay = WE.getCVars().getValueI("soundDecay") * RenderCell.GAME_EDGELENGTH;
+		listenerCount = 0;
+		if (view != null) {
+			ArrayList<Camera> cameras = view.getCameras();
+			if (listeners.length < cameras.size() * 2) {
+				listeners = new float[cameras.size() * 2];
+			}
+			for (Camera camera : cameras) {
+				Point center = camera.getCenter();
+				listeners[listenerCount * 2] = center.x;
+				listeners[listenerCount * 2 + 1] = center.y;
+				listenerCount++;
+			}
+			if (listenerCount > 0) {
+				panCenter = cameras.get(0).getViewSpaceX();
+			}
 		}
 	}
 
 	/**
 	 * calculates the volume of a sound based on the positon in the game world.
-	 * Compares to cameras.
+	 * Compares to the cameras of the last update.
 	 *
 	 * @param pos position in the world.
 	 * @return multiplied with the settings for the volume
@@ -318,22 +438,49 @@ public class SoundEngine {
 	protected float getVolume(Position pos) {
 		float volume = 1;
 		if (view != null) {
-			//calculate minimal distance to camera
-			float minDistance = Float.POSITIVE_INFINITY;
-			for (Camera camera : view.getCameras()) {
-				float distance = pos.toPoint().distanceToHorizontal(camera.getCenter());
-				if (distance < minDistance) {
-					minDistance = distance;
+			float x, y;
+			if (pos instanceof Point) {
+				x = ((Point) pos).x;
+				y = ((Point) pos).y;
+			} else {
+				Coordinate coord = pos.getCoord();
+				x = coord.getX() * RenderCell.GAME_DIAGLENGTH + (coord.getY() % 2 != 0 ? RenderCell.VIEW_WIDTH2 : 0);
+				y = coord.getY() * RenderCell.GAME_DIAGLENGTH2;
+			}
+			//calculate minimal squared distance to camera
+			float minDistanceSq = Float.POSITIVE_INFINITY;
+			for (int i = 0; i < listenerCount; i++) {
+				float dX = x - listeners[i * 2];
+				float dY = y - listeners[i * 2 + 1];
+				float distanceSq = dX * dX + dY * dY;
+				if (distanceSq < minDistanceSq) {
+					minDistanceSq = distanceSq;
 				}
 			}
 
-			int decay = WE.getCVars().getValueI("soundDecay");
-			volume = decay * RenderCell.GAME_EDGELENGTH / (minDistance * minDistance + decay * RenderCell.GAME_EDGELENGTH);//loose energy radial
+			volume = decay / (minDistanceSq + decay);//loose energy radial
 			if (volume > 1) {
 				volume = 1;
 			}
 		}
-		return volume * WE.getCVars().getValueF("sound");
+		return volume * soundVolume;
+	}
+
+	/**
+	 * Panning relative to the first camera of the last update.
+	 *
+	 * @param pos position in the world.
+	 * @return panning in the range -1 (full left) to 1 (full right)
+	 */
+	protected float getPan(Position pos) {
+		float pan = 0;
+		if (listenerCount > 0) {
+			pan = pos.getViewSpcX() - panCenter;
+			pan /= 500;//arbitrary chosen
+			if (pan > 1) pan = 1;
+			if (pan < -1) pan = -1;
+		}
+		return pan;
 	}
 
 	/**
@@ -343,6 +490,15 @@ public class SoundEngine {
 	 */
 	public void setView(GameView view) {
 		this.view = view;
+		updateListeners();
+	}
+
+	/**
+	 *
+	 * @return the manager limiting the amount of playing sounds
+	 */
+	public VoiceManager getVoices() {
+		return voices;
 	}
 
 	/**
@@ -30,7 +30,6 @@
  */
 package com.bombinggames.wurfelengine.soundengine;
 
-import com.badlogic.gdx.audio.Sound;
 import com.bombinggames.wurfelengine.core.map.Position;
 
 /**
@@ -40,25 +39,20 @@ import com.bombinggames.wurfelengine.core.map.Position;
 class SoundInstance {
 	private final SoundEngine engine;
 	private final Position pos;
-	protected final Sound sound;
+	protected final SoundProfile profile;
 	protected final long id;
 
-	protected SoundInstance(SoundEngine engine, Sound sound, long id, Position pos) {
+	protected SoundInstance(SoundEngine engine, SoundProfile profile, long id, Position pos) {
 		this.id = id;
-		this.sound = sound;
+		this.profile = profile;
 		this.pos = pos;
 		this.engine = engine;
 	}
 
 	protected void update(){
-		float pan =0;
-		if (engine.getView().getCameras().size() > 0) {
-			pan = pos.getViewSpcX() - engine.getView().getCameras().get(0).getViewSpaceX();
-			pan /= 500;//arbitrary chosen
-			if (pan > 1) pan = 1;
-			if (pan < -1) pan = -1;
-		}
-		sound.setPan(id, pan, engine.getVolume(pos));
+		float volume = engine.getVolume(pos);
+		profile.sound.setPan(id, engine.getPan(pos), volume);
+		engine.getVoices().setVolume(profile, id, volume);
 	}
 
 	
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.soundengine;
+
+import com.badlogic.gdx.audio.Sound;
+
+/**
+ * A registered sound with its settings for the {@link VoiceManager}.
+ *
+ * @author Benedikt Vogler
+ */
+class SoundProfile {
+
+	protected final Sound sound;
+	/**
+	 * higher priority voices steal from lower ones
+	 */
+	protected int priority = 0;
+	/**
+	 * minimum time in ms between two plays
+	 */
+	protected float cooldown = 0;
+	/**
+	 * estimated length of a play in ms, used to free the voice
+	 */
+	protected float duration = 1000;
+
+	/**
+	 * frame of the last play
+	 */
+	protected long lastFrame = -1;
+	/**
+	 * time of the last play in ms
+	 */
+	protected float lastTime = Float.NEGATIVE_INFINITY;
+	/**
+	 * the voice of the last play, null if it is not playing anymore
+	 */
+	protected Voice lastVoice;
+
+	protected SoundProfile(Sound sound) {
+		this.sound = sound;
+	}
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2016 Benedikt Vogler.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ * * Neither the name of Bombing Games nor Benedikt Vogler nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.bombinggames.wurfelengine.soundengine;
+
+/**
+ * Limits the amount of sounds playing at the same time. Every play occupies a
+ * voice until its estimated duration is over or it gets stopped. If every
+ * voice is in use the voice with the lowest priority and then the lowest
+ * volume is stolen if the new sound is more important, otherwise the new
+ * sound is dropped.<br>
+ * Plays of the same sound in the same frame are coalesced into one voice
+ * which gets the highest of the volumes. A sound can have a cooldown to limit
+ * how often it is played.
+ *
+ * @author Benedikt Vogler
+ */
+public class VoiceManager {
+
+	private Voice[] voices = new Voice[32];
+	private int count;
+	private int maxVoices = 32;
+	/**
+	 * time in ms since start
+	 */
+	private float time;
+	private long frame;
+	private int stolen;
+	private int rejected;
+	private int coalesced;
+
+	/**
+	 * Advances the time and frees the voices which are finished.
+	 *
+	 * @param dt time in ms
+	 * @param maxVoices the budget of voices
+	 */
+	public void update(float dt, int maxVoices) {
+		time += dt;
+		frame++;
+		this.maxVoices = Math.max(1, maxVoices);
+		for (int i = 0; i < count; i++) {
+			if (!voices[i].loop && voices[i].end <= time) {
+				free(i);
+				i--;
+			}
+		}
+	}
+
+	/**
+	 * Plays a sound if a voice is available.
+	 *
+	 * @param profile
+	 * @param volume the volume in the range [0,1]
+	 * @param pitch
+	 * @param pan
+	 * @return the instance id, -1 if the sound was not played
+	 */
+	long play(SoundProfile profile, float volume, float pitch, float pan) {
+		//coalesce with the play of this frame
+		if (profile.lastFrame == frame && profile.lastVoice != null) {
+			Voice voice = profile.lastVoice;
+			if (volume > voice.volume) {
+				voice.volume = volume;
+				profile.sound.setVolume(voice.id, volume);
+			}
+			coalesced++;
+			return voice.id;
+		}
+		if (time - profile.lastTime < profile.cooldown) {
+			rejected++;
+			return -1;
+		}
+		if (!reserve(profile.priority, volume)) {
+			rejected++;
+			return -1;
+		}
+		long id = profile.sound.play(volume, pitch, pan);
+		if (id == -1) {
+			return -1;
+		}
+		Voice voice = add(profile, id, volume, false);
+		profile.lastFrame = frame;
+		profile.lastTime = time;
+		profile.lastVoice = voice;
+		return id;
+	}
+
+	/**
+	 * Loops a sound if a voice is available. The voice is occupied until the
+	 * loop is stopped.
+	 *
+	 * @param profile
+	 * @param volume the volume in the range [0,1]
+	 * @return the instance id, -1 if the sound was not played
+	 */
+	long loop(SoundProfile profile, float volume) {
+		if (!reserve(profile.priority, volume)) {
+			rejected++;
+			return -1;
+		}
+		long id = profile.sound.loop(volume);
+		if (id == -1) {
+			return -1;
+		}
+		add(profile, id, volume, true);
+		return id;
+	}
+
+	/**
+	 * Makes sure that there is a free voice. Steals the least important one if
+	 * the budget is used up.
+	 *
+	 * @return false if there is no voice with a lower importance
+	 */
+	private boolean reserve(int priority, float volume) {
+		if (count < maxVoices) {
+			return true;
+		}
+		int victim = -1;
+		for (int i = 0; i < count; i++) {
+			if (victim == -1
+				|| voices[i].profile.priority < voices[victim].profile.priority
+				|| (voices[i].profile.priority == voices[victim].profile.priority && voices[i].volume < voices[victim].volume)
+			) {
+				victim = i;
+			}
+		}
+		Voice quietest = voices[victim];
+		if (quietest.profile.priority > priority
+			|| (quietest.profile.priority == priority && quietest.volume >= volume)) {
+			return false;
+		}
+		quietest.stop();
+		free(victim);
+		stolen++;
+		//budget may have been lowered
+		return count < maxVoices || reserve(priority, volume);
+	}
+
+	private Voice add(SoundProfile profile, long id, float volume, boolean loop) {
+		if (count == voices.length) {
+			Voice[] grown = new Voice[count * 2];
+			System.arraycopy(voices, 0, grown, 0, count);
+			voices = grown;
+		}
+		Voice voice = voices[count];
+		if (voice == null) {
+			voice = new Voice();
+			voices[count] = voice;
+		}
+		count++;
+		voice.profile = profile;
+		voice.id = id;
+		voice.volume = volume;
+		voice.loop = loop;
+		voice.end = time + profile.duration;
+		return voice;
+	}
+
+	/**
+	 * removes the voice at the index without stopping it
+	 */
+	private void free(int index) {
+		Voice voice = voices[index];
+		if (voice.profile.lastVoice == voice) {
+			voice.profile.lastVoice = null;
+		}
+		voice.profile = null;
+		count--;
+		voices[index] = voices[count];
+		voices[count] = voice;
+	}
+
+	/**
+	 * Frees every voice of the sound. Does not stop the sound.
+	 *
+	 * @param profile
+	 */
+	void remove(SoundProfile profile) {
+		for (int i = 0; i < count; i++) {
+			if (voices[i].profile == profile) {
+				free(i);
+				i--;
+			}
+		}
+	}
+
+	/**
+	 * Frees the voice of an instance. Does not stop the sound.
+	 *
+	 * @param profile
+	 * @param id the instance id
+	 */
+	void remove(SoundProfile profile, long id) {
+		for (int i = 0; i < count; i++) {
+			if (voices[i].profile == profile && voices[i].id == id) {
+				free(i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param profile
+	 * @param id the instance id
+	 * @return true if the instance occupies a voice
+	 */
+	boolean isActive(SoundProfile profile, long id) {
+		for (int i = 0; i < count; i++) {
+			if (voices[i].profile == profile && voices[i].id == id) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Updates the volume used to find the quietest voice.
+	 *
+	 * @param profile
+	 * @param id the instance id
+	 * @param volume
+	 */
+	void setVolume(SoundProfile profile, long id, float volume) {
+		for (int i = 0; i < count; i++) {
+			if (voices[i].profile == profile && voices[i].id == id) {
+				voices[i].volume = volume;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Frees every voice. Does not stop the sounds.
+	 */
+	void clear() {
+		while (count > 0) {
+			free(count - 1);
+		}
+	}
+
+	/**
+	 *
+	 * @return amount of voices in use
+	 */
+	public int getActiveCount() {
+		return count;
+	}
+
+	/**
+	 *
+	 * @return the budget of voices
+	 */
+	public int getMaxVoices() {
+		return maxVoices;
+	}
+
+	/**
+	 *
+	 * @return amount of voices which were stopped for a more important sound
+	 */
+	public int getStolenCount() {
+		return stolen;
+	}
+
+	/**
+	 *
+	 * @return amount of plays which were dropped because of the budget or the
+	 * cooldown
+	 */
+	public int getRejectedCount() {
+		return rejected;
+	}
+
+	/**
+	 *
+	 * @return amount of plays which were merged with another play in the same
+	 * frame
+	 */
+	public int getCoalescedCount() {
+		return coalesced;
+	}
+}